@@ -0,0 +1,357 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ConcurrentTimingStatistics accumulates sample times that may be added concurrently from any number of threads. Unlike
+ * {@link TimingStatistics}, which must only be updated by one thread at a time, it uses striped try-locks: sample
+ * times are added to one of a number of "cells", each of which is guarded by its own lock and tracks the count, mean,
+ * running sum of squared differences from the mean (with the same Welford update as TimingStatistics), min and max
+ * (and optionally a histogram) of the samples added to it. A thread tries to lock a cell with a single
+ * compare-and-set, and if the cell is locked it moves on to a different cell rather than waiting, so threads that
+ * record times for the same tag at the same time soon settle on different cells and stop contending with each other.
+ * Adding a sample time therefore never waits for another thread, but {@link #toTimingStatistics()} does wait (by
+ * spinning) for each cell that is being updated while it reads it, which is only ever for the time it takes to add a
+ * single sample time.
+ * <p/>
+ * The cells are combined by {@link #toTimingStatistics()}, which returns a normal TimingStatistics. Every sample time
+ * added before the call is included, and each sample is either included completely or not at all. As the count of a
+ * TimingStatistics is an int, it saturates at Integer.MAX_VALUE if more sample times than that were added; the mean
+ * and standard deviation are still those of all the sample times. Weighted sample times, see
+ * {@link #addSampleTime(long, int)}, mark the combined statistics as {@link TimingStatistics#isSampled() sampled}.
+ */
+public class ConcurrentTimingStatistics {
+    /**
+     * The number of cells, which is a power of two at least twice the number of processors.
+     */
+    private static final int NUM_CELLS;
+    static {
+        int numCells = 1;
+        while (numCells < Runtime.getRuntime().availableProcessors() * 2) {
+            numCells <<= 1;
+        }
+        NUM_CELLS = numCells;
+    }
+
+    /**
+     * Each thread has its own probe value that determines which cell it tries first. The probe is changed when the
+     * thread finds its cell busy, and is shared by all ConcurrentTimingStatistics instances.
+     */
+    private static final ThreadLocal<int[]> THREAD_PROBE = new ThreadLocal<int[]>() {
+        protected int[] initialValue() {
+            //spread the thread IDs, avoiding 0 as it is a fixed point of the rehash
+            int probe = (int) (Thread.currentThread().getId() * 0x9E3779B9L);
+            return new int[] { (probe == 0) ? 1 : probe };
+        }
+    };
+
+    /**
+     * The cells, created lazily when first used.
+     */
+    private final AtomicReferenceArray<Cell> cells = new AtomicReferenceArray<Cell>(NUM_CELLS);
+    /**
+     * The precision of the histograms used to track percentiles, or 0 if percentiles are not tracked.
+     */
+    private volatile int histogramPrecision;
+    /**
+     * The time unit of the sample times, which determines the size of the histograms.
+     */
+    private volatile TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+
+    // --- Constructors ---
+
+    /**
+     * Creates an empty ConcurrentTimingStatistics that does not track percentiles.
+     */
+    public ConcurrentTimingStatistics() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty ConcurrentTimingStatistics.
+     *
+     * @param histogramPrecision The precision of the histograms used to track percentiles (see
+     *                           {@link TimingHistogram#TimingHistogram(int)}), or 0 if percentiles should not be
+     *                           tracked.
+     */
+    public ConcurrentTimingStatistics(int histogramPrecision) {
+        setHistogramPrecision(histogramPrecision);
+    }
+
+    // --- Utility Methods ---
+
+    /**
+     * Adds a sample time to these statistics. This method may be called concurrently from any thread.
+     *
+     * @param elapsedTime The elapsed time being used to update the statistics.
+     */
+    public void addSampleTime(long elapsedTime) {
+        addSampleTime(elapsedTime, 1);
+    }
+
+    /**
+     * Adds a sample time that stands in for several executions, as {@link TimingStatistics#addSampleTime(long, int)}
+     * does. This method may be called concurrently from any thread.
+     *
+     * @param elapsedTime The elapsed time being used to update the statistics.
+     * @param weight      The number of executions the elapsed time stands in for, at least 1.
+     */
+    public void addSampleTime(long elapsedTime, int weight) {
+        int[] probe = THREAD_PROBE.get();
+        int hash = probe[0];
+        while (true) {
+            Cell cell = getCell(hash & (NUM_CELLS - 1));
+            if (cell.tryClaim()) {
+                try {
+                    cell.addSampleTime(elapsedTime, weight);
+                } finally {
+                    cell.release();
+                }
+                probe[0] = hash;
+                return;
+            }
+            //the cell is busy, so try a different one; this is a simple xorshift
+            hash ^= hash << 13;
+            hash ^= hash >>> 17;
+            hash ^= hash << 5;
+        }
+    }
+
+    /**
+     * Combines the cells into a single TimingStatistics.
+     *
+     * @return The statistics of all the sample times added so far.
+     */
+    public TimingStatistics toTimingStatistics() {
+        return combineCells(false);
+    }
+
+    /**
+     * Combines the cells into a single TimingStatistics and resets these statistics, so that the next call only
+     * includes sample times added after this call. No sample time is ever lost or counted twice, even if sample times
+     * are being added concurrently.
+     *
+     * @return The statistics of all the sample times added since the last reset.
+     */
+    public TimingStatistics toTimingStatisticsAndReset() {
+        return combineCells(true);
+    }
+
+    // --- Bean Properties ---
+
+    /**
+     * Gets the precision of the histograms used to track percentiles.
+     *
+     * @return The histogram precision, or 0 if percentiles are not tracked.
+     */
+    public int getHistogramPrecision() {
+        return histogramPrecision;
+    }
+
+    /**
+     * Sets the precision of the histograms used to track percentiles. If sample times have already been added, the
+     * new precision takes effect when these statistics are next reset.
+     *
+     * @param histogramPrecision The histogram precision (see {@link TimingHistogram#TimingHistogram(int)}), or 0 if
+     *                           percentiles should not be tracked.
+     */
+    public void setHistogramPrecision(int histogramPrecision) {
+        if (histogramPrecision < 0 || histogramPrecision > TimingHistogram.MAX_PRECISION) {
+            throw new IllegalArgumentException("The histogram precision must be between 0 and "
+                                               + TimingHistogram.MAX_PRECISION + ", was " + histogramPrecision);
+        }
+        this.histogramPrecision = histogramPrecision;
+    }
+
+    /**
+     * Gets the time unit of the sample times.
+     *
+     * @return The time unit, milliseconds by default.
+     */
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    /**
+     * Sets the time unit of the sample times, which is only used to size the histograms that track percentiles so
+     * that they can hold about 24.8 days in that unit. Like the histogram precision, if sample times have already
+     * been added the new time unit takes effect when these statistics are next reset.
+     *
+     * @param timeUnit The time unit, may not be null.
+     */
+    public void setTimeUnit(TimeUnit timeUnit) {
+        this.timeUnit = timeUnit;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Helper method gets the cell at the specified index, creating it if necessary.
+     *
+     * @param index The cell index
+     * @return The cell, never null
+     */
+    private Cell getCell(int index) {
+        Cell retVal = cells.get(index);
+        if (retVal == null) {
+            cells.compareAndSet(index, null, new Cell(histogramPrecision, timeUnit));
+            retVal = cells.get(index);
+        }
+        return retVal;
+    }
+
+    /**
+     * Helper method combines the values of all the cells.
+     *
+     * @param reset Whether or not each cell should be reset once its values have been read.
+     * @return The combined statistics
+     */
+    private TimingStatistics combineCells(boolean reset) {
+        long count = 0L;
+        double mean = 0.0;
+        double runningQ = 0.0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        TimingHistogram histogram = null;
+        boolean histogramsMatch = true;
+        boolean sampled = false;
+
+        for (int i = 0; i < NUM_CELLS; i++) {
+            Cell cell = cells.get(i);
+            if (cell == null) {
+                continue;
+            }
+
+            cell.claim();
+            try {
+                if (cell.count > 0L) {
+                    //this is the same parallel Welford combination as TimingStatistics.merge, with a long count
+                    double newCount = (double) count + cell.count;
+                    double diffFromMean = cell.mean - mean;
+                    mean = mean + (diffFromMean * cell.count / newCount);
+                    runningQ = runningQ + cell.runningQ + (diffFromMean * diffFromMean * count * cell.count / newCount);
+                    count += cell.count;
+                    min = Math.min(min, cell.min);
+                    max = Math.max(max, cell.max);
+                    sampled |= cell.sampled;
+
+                    //the histograms only differ in precision if it was changed mid-interval
+                    if (cell.histogram == null
+                        || (histogram != null && histogram.getPrecision() != cell.histogram.getPrecision())) {
+                        histogramsMatch = false;
+                    } else if (histogramsMatch) {
+                        histogram = (histogram == null) ? cell.histogram.clone() : histogram.add(cell.histogram);
+                    }
+                }
+                if (reset) {
+                    cell.reset(histogramPrecision, timeUnit);
+                }
+            } finally {
+                cell.release();
+            }
+        }
+
+        if (count == 0L) {
+            return new TimingStatistics();
+        }
+        int intCount = (int) Math.min(count, Integer.MAX_VALUE);
+        if (intCount < count) {
+            //scale the running Q down with the count, so the standard deviation is unchanged
+            runningQ = runningQ * intCount / count;
+        }
+        return new TimingStatistics(intCount, mean, runningQ, min, max, histogramsMatch ? histogram : null, sampled);
+    }
+
+    // --- Support Classes ---
+
+    /**
+     * A Cell holds the statistics of the sample times added to it. The fields are only read or written by the thread
+     * that has claimed (locked) the cell, which publishes them to the next thread to claim it when it releases the
+     * cell.
+     */
+    static final class Cell {
+        private static final AtomicIntegerFieldUpdater<Cell> CLAIMED =
+                AtomicIntegerFieldUpdater.newUpdater(Cell.class, "claimed");
+
+        //padding reduces false sharing between cells that are allocated next to each other
+        long p0, p1, p2, p3, p4, p5, p6;
+        private volatile int claimed = 0;
+        long count;
+        double mean;
+        double runningQ;
+        long min;
+        long max;
+        TimingHistogram histogram;
+        boolean sampled;
+        long q0, q1, q2, q3, q4, q5, q6;
+
+        public Cell(int histogramPrecision, TimeUnit timeUnit) {
+            reset(histogramPrecision, timeUnit);
+        }
+
+        public boolean tryClaim() {
+            return claimed == 0 && CLAIMED.compareAndSet(this, 0, 1);
+        }
+
+        /**
+         * Claims the cell, waiting for the thread currently holding it (which is only ever adding a single sample
+         * time) to release it.
+         */
+        public void claim() {
+            while (!tryClaim()) {
+                Thread.yield();
+            }
+        }
+
+        public void release() {
+            claimed = 0;
+        }
+
+        public void addSampleTime(long elapsedTime, int weight) {
+            //this is the weighted form of Welford's update, as used by TimingStatistics.addSampleTime
+            count += weight;
+            double diffFromMean = elapsedTime - mean;
+            mean = mean + (diffFromMean * weight / count);
+            runningQ = runningQ + (diffFromMean * weight * (elapsedTime - mean));
+            if (weight > 1) {
+                sampled = true;
+            }
+            if (elapsedTime < min) {
+                min = elapsedTime;
+            }
+            if (elapsedTime > max) {
+                max = elapsedTime;
+            }
+            if (histogram != null) {
+                histogram.recordValue(elapsedTime, weight);
+            }
+        }
+
+        public void reset(int histogramPrecision, TimeUnit timeUnit) {
+            count = 0L;
+            mean = 0.0;
+            runningQ = 0.0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            histogram = (histogramPrecision > 0) ? new TimingHistogram(histogramPrecision, timeUnit) : null;
+            sampled = false;
+        }
+    }
+}
@@ -16,21 +16,44 @@
 package org.perf4j;
 
 import org.perf4j.helpers.MiscUtils;
+import org.perf4j.helpers.TagDictionary;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Represents a set of TimingStatistics calculated for a specific time period for a set of tags.
+ * Represents a set of TimingStatistics calculated for a specific time period for a set of tags. The values of the
+ * TimingStatistics are in the time unit of this GroupedTimingStatistics, milliseconds by default, and the elapsed
+ * time of each StopWatch added is converted to that unit.
+ * <p/>
+ * While StopWatches are being added, the statistics are kept in compact parallel arrays indexed by tag ID (see
+ * {@link #setTagDictionary(TagDictionary)}) rather than in a Map of TimingStatistics objects. The sorted Map returned
+ * by {@link #getStatisticsByTag()} is only built when it is first requested, and from then on it holds the statistics.
+ * Once no more StopWatches are being added, an instance may be shared by several threads, which may all request the
+ * Map (or call equals, hashCode or toString) at the same time.
  *
  * @author Alex Devine
  */
 public class GroupedTimingStatistics implements Serializable, Cloneable {
     private static final long serialVersionUID = 6506566405934476649L;
-    private SortedMap<String, TimingStatistics> statisticsByTag = new TreeMap<String, TimingStatistics>();
+    /**
+     * The statistics by tag, or null if they are held in the table (or if there are none yet). Volatile as the Map may
+     * be built by any of the threads reading these statistics, see getStatisticsByTag.
+     */
+    private volatile SortedMap<String, TimingStatistics> statisticsByTag;
+    /**
+     * The compact statistics collected by addStopWatch, until statisticsByTag is requested.
+     */
+    private transient TimingStatisticsTable table;
+    private transient TagDictionary tagDictionary;
     private long startTime;
     private long stopTime;
     private boolean createRollupStatistics;
+    private int histogramPrecision;
+    private TimeUnit timeUnit; //null means milliseconds, for instances serialized by older versions
 
     // --- Constructors ---
 
@@ -66,7 +89,8 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
 
     // --- Utility Methods ---
     /**
-     * This method updates the calculated statistics when a new logged StopWatch is added.
+     * This method updates the calculated statistics when a new logged StopWatch is added. A sampled StopWatch is
+     * counted according to its {@link StopWatch#getWeight() weight}.
      *
      * @param stopWatch The StopWatch being used to update the statistics.
      * @return this GroupedTimingStatistics instance
@@ -74,6 +98,21 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
     public GroupedTimingStatistics addStopWatch(StopWatch stopWatch) {
         String tag = stopWatch.getTag();
 
+        if (statisticsByTag == null) {
+            TimingStatisticsTable table = getTable();
+            long elapsedTime = stopWatch.getElapsedTime(getTimeUnit());
+            int weight = stopWatch.getWeight();
+            if (createRollupStatistics) {
+                //the rollup parents of each tag are only worked out the first time the tag is seen
+                for (int id : table.getTagDictionary().getRollupIds(tag)) {
+                    table.addSampleTime(id, elapsedTime, weight);
+                }
+            } else {
+                table.addSampleTime(tag, elapsedTime, weight);
+            }
+            return this;
+        }
+
         addStopWatchToStatsByTag(tag, stopWatch);
 
         //create rollup statistics if desired by splitting up the tag
@@ -101,6 +140,59 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
         return this;
     }
 
+    /**
+     * Merges the statistics from another GroupedTimingStatistics instance into this one. For tags present in both
+     * instances the TimingStatistics are merged using {@link TimingStatistics#merge}; tags only present in the other
+     * instance are copied. The time window is widened so that it spans both time windows, unless this instance has
+     * no time window yet (i.e. both its start and stop times are 0), in which case the other instance's window is
+     * used.
+     * <p/>
+     * Note that rollup statistics are merged just like any other tag, so both instances should have been created with
+     * the same createRollupStatistics setting.
+     *
+     * @param other The statistics to merge into this instance. The other instance is not modified.
+     * @return this GroupedTimingStatistics instance
+     * @throws IllegalArgumentException if the other instance has a different time unit.
+     */
+    public GroupedTimingStatistics merge(GroupedTimingStatistics other) {
+        if (getTimeUnit() != other.getTimeUnit()) {
+            throw new IllegalArgumentException("Can't merge statistics in " + other.getTimeUnit()
+                                               + " into statistics in " + getTimeUnit());
+        }
+
+        if (statisticsByTag == null) {
+            //keep the compact representation, which is how the statistics of time slices are usually combined
+            if (other.table != null) {
+                getTable().merge(other.table);
+            } else if (other.statisticsByTag != null) {
+                for (Map.Entry<String, TimingStatistics> tagAndStats : other.statisticsByTag.entrySet()) {
+                    getTable().merge(tagAndStats.getKey(), tagAndStats.getValue());
+                }
+            }
+        } else if (other.table != null) {
+            other.table.mergeInto(statisticsByTag);
+        } else if (other.statisticsByTag != null) {
+            for (Map.Entry<String, TimingStatistics> tagAndStats : other.statisticsByTag.entrySet()) {
+                TimingStatistics stats = statisticsByTag.get(tagAndStats.getKey());
+                if (stats == null) {
+                    statisticsByTag.put(tagAndStats.getKey(), tagAndStats.getValue().clone());
+                } else {
+                    stats.merge(tagAndStats.getValue());
+                }
+            }
+        }
+
+        if (startTime == 0L && stopTime == 0L) {
+            startTime = other.startTime;
+            stopTime = other.stopTime;
+        } else if (other.startTime != 0L || other.stopTime != 0L) {
+            startTime = Math.min(startTime, other.startTime);
+            stopTime = Math.max(stopTime, other.stopTime);
+        }
+
+        return this;
+    }
+
     /**
      * The TimeZone to use when displaying start/stop time information
      */
@@ -126,14 +218,45 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
 
     // --- Bean Properties ---
 
+    /**
+     * Gets the statistics of each tag. The first call builds the Map from the compact representation used while
+     * StopWatches are added, and the Map returned holds the statistics from then on, so changes made to it are seen
+     * by this GroupedTimingStatistics. This method may be called by several threads at once, e.g. by the different
+     * appenders a GroupedTimingStatistics is passed to: the Map is only built once, and every thread sees all of it.
+     *
+     * @return The TimingStatistics of each tag, sorted by tag.
+     */
     public SortedMap<String, TimingStatistics> getStatisticsByTag() {
-        return statisticsByTag;
+        SortedMap<String, TimingStatistics> retVal = statisticsByTag;
+        return (retVal == null) ? buildStatisticsByTag() : retVal;
     }
 
-    public void setStatisticsByTag(SortedMap<String, TimingStatistics> statisticsByTag) {
+    public synchronized void setStatisticsByTag(SortedMap<String, TimingStatistics> statisticsByTag) {
+        this.table = null;
         this.statisticsByTag = statisticsByTag;
     }
 
+    /**
+     * Gets the dictionary used to map tags to the indexes of the compact statistics.
+     *
+     * @return The tag dictionary, or null if one hasn't been set or created yet.
+     */
+    public TagDictionary getTagDictionary() {
+        return tagDictionary;
+    }
+
+    /**
+     * Sets the dictionary used to map tags to the indexes of the compact statistics kept while StopWatches are added.
+     * Sharing a dictionary between the GroupedTimingStatistics of consecutive time slices means each tag is only
+     * interned once, and lets them be merged index by index. If not set, each instance creates its own dictionary.
+     * This should be set before any StopWatches are added.
+     *
+     * @param tagDictionary The tag dictionary to use.
+     */
+    public void setTagDictionary(TagDictionary tagDictionary) {
+        this.tagDictionary = tagDictionary;
+    }
+
     public long getStartTime() {
         return startTime;
     }
@@ -158,14 +281,90 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
         this.createRollupStatistics = createRollupStatistics;
     }
 
+    /**
+     * Gets the precision of the {@link TimingHistogram}s created for each tag as StopWatches are added, which allows
+     * percentile values to be retrieved from the TimingStatistics.
+     *
+     * @return The histogram precision, or 0 if percentiles are not tracked.
+     */
+    public int getHistogramPrecision() {
+        return histogramPrecision;
+    }
+
+    /**
+     * Sets the precision of the {@link TimingHistogram}s created for each tag as StopWatches are added. Note this only
+     * affects TimingStatistics created after this method is called.
+     *
+     * @param histogramPrecision The histogram precision (see {@link TimingHistogram#TimingHistogram(int)}), or 0
+     *                           if percentiles should not be tracked.
+     */
+    public void setHistogramPrecision(int histogramPrecision) {
+        this.histogramPrecision = histogramPrecision;
+    }
+
+    /**
+     * Gets the time unit of the values of the TimingStatistics.
+     *
+     * @return The time unit, milliseconds by default.
+     */
+    public TimeUnit getTimeUnit() {
+        return (timeUnit == null) ? TimeUnit.MILLISECONDS : timeUnit;
+    }
+
+    /**
+     * Sets the time unit of the values of the TimingStatistics. This should be set before any StopWatches are added,
+     * as existing TimingStatistics are not converted.
+     *
+     * @param timeUnit The time unit, may not be null.
+     */
+    public void setTimeUnit(TimeUnit timeUnit) {
+        this.timeUnit = timeUnit;
+    }
+
     // --- Helper Methods ---
 
+    /**
+     * Helper method builds the Map of statistics by tag from the table. It's synchronized so that threads that request
+     * the Map at the same time don't each build it, and the Map is fully built before it's published through the
+     * volatile statisticsByTag field, which is only assigned once.
+     *
+     * @return The statistics by tag.
+     */
+    private synchronized SortedMap<String, TimingStatistics> buildStatisticsByTag() {
+        if (statisticsByTag == null) {
+            statisticsByTag = (table == null) ? new TreeMap<String, TimingStatistics>() : table.toSortedMap();
+            table = null;
+        }
+        return statisticsByTag;
+    }
+
     private void addStopWatchToStatsByTag(String tag, StopWatch stopWatch) {
         TimingStatistics stats = statisticsByTag.get(tag);
         if (stats == null) {
-            statisticsByTag.put(tag, stats = new TimingStatistics());
+            statisticsByTag.put(tag, stats = newTimingStatistics());
         }
-        stats.addSampleTime(stopWatch.getElapsedTime());
+        stats.addSampleTime(stopWatch.getElapsedTime(getTimeUnit()), stopWatch.getWeight());
+    }
+
+    /**
+     * Helper method gets the compact statistics, creating them if necessary. Only called while statisticsByTag is null.
+     *
+     * @return The table of statistics.
+     */
+    private TimingStatisticsTable getTable() {
+        if (table == null) {
+            if (tagDictionary == null) {
+                tagDictionary = new TagDictionary();
+            }
+            table = new TimingStatisticsTable(tagDictionary, histogramPrecision, getTimeUnit());
+        }
+        return table;
+    }
+
+    private TimingStatistics newTimingStatistics() {
+        return (histogramPrecision > 0) ?
+               new TimingStatistics(new TimingHistogram(histogramPrecision, getTimeUnit())) :
+               new TimingStatistics();
     }
 
     // --- Object Methods ---
@@ -173,6 +372,7 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
     public String toString() {
         StringBuilder retVal = new StringBuilder();
         
+        SortedMap<String, TimingStatistics> statisticsByTag = getStatisticsByTag();
         int paddingToAllowForLongestTag = Math.max(getLongestTag(statisticsByTag.keySet()), "Tag".length());
         
         //output the time window
@@ -183,18 +383,22 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
                 .append(MiscUtils.NEWLINE);
         //output the header
         retVal.append(String.format("%-" + paddingToAllowForLongestTag + "s%12s%12s%12s%12s%12s%12s%n",
-                                    "Tag", "Avg(ms)", "Min", "Max", "Std-Dev", "Count", "Total"));
-        //output each statistics
+                                    "Tag", "Avg(" + MiscUtils.formatTimeUnit(getTimeUnit()) + ")",
+                                    "Min", "Max", "Std-Dev", "Count", "Total"));
+        //output each statistics, marking the min and max of sampled statistics with a "~" as they are only the min and
+        //max of the StopWatches that were actually logged, and the std-dev as it is understated by weighted StopWatches
         for (Map.Entry<String, TimingStatistics> tagWithTimingStatistics : statisticsByTag.entrySet()) {
             String tag = tagWithTimingStatistics.getKey();
             TimingStatistics timingStatistics = tagWithTimingStatistics.getValue();
             double totalTimeForTag = timingStatistics.getCount() * timingStatistics.getMean();
-            retVal.append(String.format("%-" + paddingToAllowForLongestTag + "s%12.1f%12d%12d%12.1f%12d%12.0f%n",
+            String sampledMarker = timingStatistics.isSampled() ? "~" : "";
+            retVal.append(String.format("%-" + paddingToAllowForLongestTag + "s%12.1f%12s%12s%12s%12d%12.0f%n",
                                         tag,
                                         timingStatistics.getMean(),
-                                        timingStatistics.getMin(),
-                                        timingStatistics.getMax(),
-                                        timingStatistics.getStandardDeviation(),
+                                        sampledMarker + timingStatistics.getMin(),
+                                        sampledMarker + timingStatistics.getMax(),
+                                        sampledMarker
+                                        + String.format("%.1f", timingStatistics.getStandardDeviation()),
                                         timingStatistics.getCount(),
                                         totalTimeForTag));
         }
@@ -217,9 +421,14 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
     public GroupedTimingStatistics clone() {
         try {
             GroupedTimingStatistics retVal = (GroupedTimingStatistics) super.clone();
-            retVal.statisticsByTag = new TreeMap<String, TimingStatistics>(retVal.statisticsByTag);
-            for (Map.Entry<String, TimingStatistics> tagAndStats : retVal.statisticsByTag.entrySet()) {
-                tagAndStats.setValue(tagAndStats.getValue().clone());
+            if (table != null) {
+                retVal.table = table.clone();
+            }
+            if (statisticsByTag != null) {
+                retVal.statisticsByTag = new TreeMap<String, TimingStatistics>(statisticsByTag);
+                for (Map.Entry<String, TimingStatistics> tagAndStats : retVal.statisticsByTag.entrySet()) {
+                    tagAndStats.setValue(tagAndStats.getValue().clone());
+                }
             }
             return retVal;
         } catch (CloneNotSupportedException cnse) {
@@ -239,14 +448,27 @@ public class GroupedTimingStatistics implements Serializable, Cloneable {
 
         return startTime == that.startTime &&
                stopTime == that.stopTime &&
-               statisticsByTag.equals(that.statisticsByTag);
+               getTimeUnit() == that.getTimeUnit() &&
+               getStatisticsByTag().equals(that.getStatisticsByTag());
     }
 
     public int hashCode() {
         int result;
-        result = statisticsByTag.hashCode();
+        result = getStatisticsByTag().hashCode();
         result = 31 * result + (int) (startTime ^ (startTime >>> 32));
         result = 31 * result + (int) (stopTime ^ (stopTime >>> 32));
         return result;
     }
+
+    /**
+     * The compact statistics aren't serialized, so the Map is built first. This keeps the serialized form the same as
+     * that of earlier versions.
+     *
+     * @param out The stream being written to.
+     * @throws IOException if the stream can't be written to
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getStatisticsByTag();
+        out.defaultWriteObject();
+    }
 }
@@ -20,10 +20,12 @@ import org.perf4j.chart.StatisticsChartGenerator;
 import org.perf4j.chart.GoogleChartGenerator;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * LogParser provides the main method for reading a log of StopWatch output and generating statistics and graphs
@@ -36,6 +38,14 @@ public class LogParser {
      * The input log that is being parsed.
      */
     private Reader inputLog;
+    /**
+     * The input log file that is being parsed, only set if the log is read directly from a file.
+     */
+    private File inputFile;
+    /**
+     * The number of threads used to parse the inputFile.
+     */
+    private int threads = 1;
     /**
      * The stream where the GroupedTimingStatistics data will be printed - if null, no statistics will be printed
      */
@@ -61,6 +71,18 @@ public class LogParser {
      * Whether or not "rollup statistics" should be created for each GroupedTimingStatistics created.
      */
     private boolean createRollupStatistics;
+    /**
+     * The time unit of the statistics created, defaults to milliseconds.
+     */
+    private TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+    /**
+     * The window, in milliseconds, within which out of order StopWatches are sorted by start time. 0 by default.
+     */
+    private long reorderWindow = 0L;
+    /**
+     * The number of StopWatches found too far out of order during the last call to parseLog.
+     */
+    private long numLateStopWatches = 0L;
     /**
      * The formatter to use to print statistics.
      */
@@ -106,6 +128,86 @@ public class LogParser {
         this.statisticsFormatter = statisticsFormatter;
     }
 
+    /**
+     * Creates a new LogParser that parses log data directly from a file, which is much faster than parsing it from a
+     * Reader. The file is memory mapped and, if more than one thread is used, split into chunks that are parsed
+     * concurrently. The statistics created are identical to those created when reading the same file from a Reader.
+     *
+     * @param inputFile              The log file being parsed, which should contain {@link org.perf4j.StopWatch} log
+     *                               messages in the default format.
+     * @param threads                The number of threads used to parse the file.
+     * @param statisticsOutput       The stream where calculated statistics information should be written - if null,
+     *                               statistics data is not written.
+     * @param graphingOutput         The stream where graphing data should be written - if null, graphs are not written.
+     * @param timeSlice              The length of time, in milliseconds, of the timeslice of each statistics data created.
+     * @param createRollupStatistics Whether or not "rollup statistics" should be created for each timeslice of data.
+     * @param statisticsFormatter    The formatter to use to print GroupedTimingStatistics
+     */
+    public LogParser(File inputFile, int threads, PrintStream statisticsOutput, PrintStream graphingOutput,
+                     long timeSlice, boolean createRollupStatistics,
+                     GroupedTimingStatisticsFormatter statisticsFormatter) {
+        this(null, statisticsOutput, graphingOutput, timeSlice, createRollupStatistics, statisticsFormatter);
+        this.inputFile = inputFile;
+        this.threads = threads;
+    }
+
+    // --- Bean Properties ---
+
+    /**
+     * Gets the time unit of the statistics created by this LogParser.
+     *
+     * @return The time unit, defaults to milliseconds.
+     */
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    /**
+     * Sets the time unit of the statistics created by this LogParser. The elapsed time of each parsed StopWatch is
+     * converted to this unit, so a finer unit than milliseconds should be used if the logs were written by StopWatches
+     * that time blocks of code completing in under a millisecond.
+     *
+     * @param timeUnit The time unit to use.
+     * @return this instance, for use with method chaining if desired
+     */
+    public LogParser setTimeUnit(TimeUnit timeUnit) {
+        this.timeUnit = timeUnit;
+        return this;
+    }
+
+    /**
+     * Gets the reordering window of this LogParser.
+     *
+     * @return The reordering window in milliseconds, defaults to 0.
+     */
+    public long getReorderWindow() {
+        return reorderWindow;
+    }
+
+    /**
+     * Sets the reordering window of this LogParser. StopWatches are logged when they stop, so a log holding long
+     * running StopWatches is not in start time order. StopWatches logged up to this many milliseconds after a
+     * StopWatch that started later are still counted in the time slice they started in; later ones are counted in the
+     * current time slice, see {@link #getNumLateStopWatches()}.
+     *
+     * @param reorderWindow The reordering window in milliseconds, 0 to not reorder StopWatches.
+     * @return this instance, for use with method chaining if desired
+     */
+    public LogParser setReorderWindow(long reorderWindow) {
+        this.reorderWindow = reorderWindow;
+        return this;
+    }
+
+    /**
+     * Gets the number of StopWatches that were further out of order than the reordering window during the last call to
+     * {@link #parseLog()}.
+     *
+     * @return The number of late StopWatches.
+     */
+    public long getNumLateStopWatches() {
+        return numLateStopWatches;
+    }
+
     // --- Instance Methods ---
 
     /**
@@ -114,13 +216,35 @@ public class LogParser {
      */
     public void parseLog() {
 
-        Iterator<StopWatch> stopWatchIter = new StopWatchLogIterator(inputLog);
+        Iterator<StopWatch> stopWatchIter = newStopWatchIterator();
+        try {
+            parseLog(stopWatchIter);
+        } finally {
+            if (stopWatchIter instanceof Closeable) {
+                try {
+                    ((Closeable) stopWatchIter).close();
+                } catch (IOException ioe) {
+                    //nothing to do, we're done with the input anyway
+                }
+            }
+        }
+    }
 
+    /**
+     * Helper method groups the StopWatches from the specified Iterator and writes the statistics data and graphing
+     * data as desired to the output streams.
+     *
+     * @param stopWatchIter The StopWatches read from the input.
+     */
+    private void parseLog(Iterator<StopWatch> stopWatchIter) {
         int i = 0;
-        for (GroupingStatisticsIterator statsIter = new GroupingStatisticsIterator(stopWatchIter,
-                                                                                   timeSlice,
-                                                                                   createRollupStatistics);
-             statsIter.hasNext();) {
+        GroupingStatisticsIterator statsIter = new GroupingStatisticsIterator(stopWatchIter,
+                                                                              timeSlice,
+                                                                              createRollupStatistics,
+                                                                              0 /* no histogram */,
+                                                                              timeUnit);
+        statsIter.setReorderWindow(reorderWindow);
+        while (statsIter.hasNext()) {
             GroupedTimingStatistics statistics = statsIter.next();
 
             if (statisticsOutput != null) {
@@ -136,6 +260,32 @@ public class LogParser {
                 }
             }
         }
+        numLateStopWatches = statsIter.getNumLateStopWatches();
+    }
+
+    /**
+     * Creates the Iterator that reads StopWatches from the input log.
+     *
+     * @return A StopWatchLogIterator if reading from a Reader, or a MappedStopWatchLogIterator or
+     *         ParallelStopWatchLogIterator if reading from a file.
+     */
+    protected Iterator<StopWatch> newStopWatchIterator() {
+        if (inputFile == null) {
+            return new StopWatchLogIterator(inputLog);
+        }
+
+        try {
+            if (!MappedStopWatchLogIterator.isSupportedCharset(Charset.defaultCharset())) {
+                //then we can't scan the bytes of the file directly
+                return new StopWatchLogIterator(new BufferedReader(new FileReader(inputFile)));
+            } else if (threads > 1) {
+                return new ParallelStopWatchLogIterator(inputFile, threads);
+            } else {
+                return new MappedStopWatchLogIterator(inputFile);
+            }
+        } catch (IOException ioe) {
+            throw new RuntimeException("Could not open log file " + inputFile + ": " + ioe.getMessage(), ioe);
+        }
     }
 
     protected StatisticsChartGenerator newMeanTimeChartGenerator() {
@@ -170,14 +320,30 @@ public class LogParser {
             long timeSlice = getTimeSlice(argsList);
             boolean rollupStatistics = getRollupStatistics(argsList);
             GroupedTimingStatisticsFormatter formatter = getStatisticsFormatter(argsList);
-            Reader input = openInput(argsList);
+            int threads = getThreads(argsList);
+            TimeUnit timeUnit = getTimeUnit(argsList);
+            long reorderWindow = getReorderWindow(argsList);
+            File inputFile = getInputFile(argsList);
+            Reader input = (inputFile == null) ? openInput(argsList) : null;
 
             if (!argsList.isEmpty()) {
                 printUnknownArgs(argsList);
                 return 1;
             }
 
-            new LogParser(input, statisticsOutput, graphingOutput, timeSlice, rollupStatistics, formatter).parseLog();
+            LogParser logParser;
+            if (inputFile != null) {
+                logParser = new LogParser(inputFile, threads, statisticsOutput, graphingOutput, timeSlice,
+                                          rollupStatistics, formatter);
+            } else {
+                logParser = new LogParser(input, statisticsOutput, graphingOutput, timeSlice, rollupStatistics,
+                                          formatter);
+            }
+            logParser.setTimeUnit(timeUnit).setReorderWindow(reorderWindow).parseLog();
+            if (logParser.getNumLateStopWatches() > 0) {
+                System.err.println(logParser.getNumLateStopWatches() + " StopWatches were logged more than " +
+                                   reorderWindow + " ms out of order and were counted in a later time slice");
+            }
 
             closeGraphingOutput(graphingOutput);
         } catch ( Exception e ) {
@@ -194,6 +360,9 @@ public class LogParser {
                                "[-t|--timeslice timeslice] " +
                                "[-r] " +
                                "[-f|--format text|csv] " +
+                               "[--threads threads] " +
+                               "[--timeunit ns|us|ms|s] " +
+                               "[--reorderwindow reorderwindow] " +
                                "[logInputFile]");
             System.out.println("Arguments:");
             System.out.println("  logInputFile - The log file to be parsed. If not specified, log data is read from stdin.");
@@ -208,6 +377,11 @@ public class LogParser {
             System.out.println("  -f|--format text|csv - The format for the statistics output, either plain text or CSV." +
                                " Defaults to text.");
             System.out.println("                         If format is csv, then the columns output are tag, start, stop, mean, min, max, stddev, and count.");
+            System.out.println("  --threads threads - The number of threads used to parse the log file. Only used if" +
+                               " a logInputFile is specified. Defaults to 1.");
+            System.out.println("  --timeunit ns|us|ms|s - The time unit of the generated statistics. Defaults to ms.");
+            System.out.println("  --reorderwindow reorderwindow - How far out of start time order (in ms) log" +
+                               " statements may be and still be counted in the right timeslice. Defaults to 0.");
             System.out.println();
             System.out.println("Note that out, stdout, err and stderr can be used as aliases to the standard output" +
                                " streams when specifying output files.");
@@ -290,6 +464,47 @@ public class LogParser {
         }
     }
 
+    protected static int getThreads(List<String> argsList) {
+        int indexOfThreads = getIndexOfArg(argsList, true, "--threads");
+        if (indexOfThreads >= 0) {
+            String threads = argsList.remove(indexOfThreads + 1);
+            argsList.remove(indexOfThreads);
+            return Integer.parseInt(threads);
+        } else {
+            return 1;
+        }
+    }
+
+    protected static long getReorderWindow(List<String> argsList) {
+        int indexOfReorderWindow = getIndexOfArg(argsList, true, "--reorderwindow");
+        if (indexOfReorderWindow >= 0) {
+            String reorderWindow = argsList.remove(indexOfReorderWindow + 1);
+            argsList.remove(indexOfReorderWindow);
+            return Long.parseLong(reorderWindow);
+        } else {
+            return 0L;
+        }
+    }
+
+    protected static TimeUnit getTimeUnit(List<String> argsList) {
+        int indexOfTimeUnit = getIndexOfArg(argsList, true, "--timeunit");
+        if (indexOfTimeUnit >= 0) {
+            String timeUnit = argsList.remove(indexOfTimeUnit + 1);
+            argsList.remove(indexOfTimeUnit);
+            return MiscUtils.parseTimeUnit(timeUnit);
+        } else {
+            return TimeUnit.MILLISECONDS;
+        }
+    }
+
+    protected static File getInputFile(List<String> argsList) {
+        if (argsList.isEmpty()) {
+            return null;
+        } else {
+            return new File(argsList.remove(0));
+        }
+    }
+
     protected static Reader openInput(List<String> argsList) throws IOException {
         if (argsList.isEmpty()) {
             return new InputStreamReader(System.in);
@@ -15,6 +15,8 @@
  */
 package org.perf4j;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * A LoggingStopWatch prevents the need to explicitly send the StopWatch string to a Logger when stopping. Instead,
  * all of the stop() and lap() methods themselves are responsible for persisting the StopWatch:
@@ -52,6 +54,29 @@ public class LoggingStopWatch extends StopWatch {
      */
     private String slowSuffix = ".slow";
 
+    /**
+     * If not null, this sampler decides which stops are logged, and with what weight.
+     */
+    private StopWatchSampler sampler = null;
+
+    /**
+     * If not null, this summarizer accumulates the stops below the time threshold so they are logged in aggregate.
+     */
+    private StopWatchSummarizer summarizer = null;
+
+    /**
+     * The last tags created by appending the normal or slow suffix, with the tag and suffix they were created from,
+     * so that getTag() doesn't concatenate Strings every time it is called.
+     */
+    private transient String normalTagBase, normalTagSuffix, normalTag;
+    private transient String slowTagBase, slowTagSuffix, slowTag;
+
+    /**
+     * The weight the last stop was logged with, or 0 if it wasn't logged because it was below the time threshold or
+     * not sampled.
+     */
+    private transient int loggedWeight = 0;
+
     // --- Constructors ---
 
     /**
@@ -184,6 +209,57 @@ public class LoggingStopWatch extends StopWatch {
 		return this;
 	}
     
+    /**
+     * Gets the sampler that decides which stops of this StopWatch are logged. Defaults to null, meaning that every
+     * stop is logged (subject to the time threshold).
+     *
+     * @return The sampler, may be null.
+     */
+    public StopWatchSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * Sets a sampler so that only some of the stops of this StopWatch are logged, which greatly reduces the logging
+     * overhead of code blocks that are executed very often. Each logged StopWatch carries a
+     * {@link #getWeight() weight} so that the statistics created from the logs still count every execution. The
+     * sampler is consulted after the time threshold is applied, and a stop that is not sampled is not logged even if
+     * an exception is passed to it. The same sampler should be shared by all the StopWatches that time the same code.
+     *
+     * @param sampler The sampler, or null to log every stop.
+     * @return this instance, for use with method chaining if desired
+     */
+    public LoggingStopWatch setSampler(StopWatchSampler sampler) {
+        this.sampler = sampler;
+        return this;
+    }
+
+    /**
+     * Gets the summarizer that accumulates the stops of this StopWatch that are below the time threshold. Defaults to
+     * null, meaning that those stops are not logged at all.
+     *
+     * @return The summarizer, may be null.
+     */
+    public StopWatchSummarizer getSummarizer() {
+        return summarizer;
+    }
+
+    /**
+     * Sets a summarizer so that the stops below the time threshold, instead of being discarded, are logged in
+     * aggregate as one weighted summary StopWatch per tag per interval. Slow stops are still logged individually, and
+     * the statistics created from the logs count every execution. This has no effect if the time threshold is 0 or
+     * normal and slow suffixes are enabled, since every stop is logged then. The same summarizer should be shared by
+     * all the StopWatches that time the same code, and should be stopped on shutdown so that the last summaries are
+     * logged.
+     *
+     * @param summarizer The summarizer, or null to discard stops below the time threshold.
+     * @return this instance, for use with method chaining if desired
+     */
+    public LoggingStopWatch setSummarizer(StopWatchSummarizer summarizer) {
+        this.summarizer = summarizer;
+        return this;
+    }
+
     /* 
      * If normalAndSlowSuffixesEnabled AND timeThreshold >0 AND elapsedTime >= timeThreshold
      * then append slow suffix.<br/>
@@ -192,10 +268,29 @@ public class LoggingStopWatch extends StopWatch {
      * Otherwise, use the superclass's tag.
      */
     public String getTag() {
+    	if (!isNormalAndSlowSuffixesEnabled()) {
+            return super.getTag();
+        }
+
     	long timeThreshold = getTimeThreshold(); // so that child classes can override
-    	return isNormalAndSlowSuffixesEnabled() ? 
-                super.getTag() + (getElapsedTime() >= timeThreshold ? getSlowSuffix() : getNormalSuffix()) : 
-                super.getTag(); 
+        String tag = super.getTag();
+        if (getElapsedTime() >= timeThreshold) {
+            String suffix = getSlowSuffix();
+            if (tag != slowTagBase || suffix != slowTagSuffix) {
+                slowTag = tag + suffix;
+                slowTagBase = tag;
+                slowTagSuffix = suffix;
+            }
+            return slowTag;
+        } else {
+            String suffix = getNormalSuffix();
+            if (tag != normalTagBase || suffix != normalTagSuffix) {
+                normalTag = tag + suffix;
+                normalTagBase = tag;
+                normalTagSuffix = suffix;
+            }
+            return normalTag;
+        }
     }
 
     // Just overridden to make use of covariant return types
@@ -210,17 +305,31 @@ public class LoggingStopWatch extends StopWatch {
         return this;
     }
 
+    // Just overridden to make use of covariant return types
+    public LoggingStopWatch setTimeUnit(TimeUnit timeUnit) {
+        super.setTimeUnit(timeUnit);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public LoggingStopWatch setWeight(int weight) {
+        super.setWeight(weight);
+        return this;
+    }
+
     // --- Stop/Lap/Helper Methods ---
     /**
      * This stop method is overridden to perform the logging itself instead of needing to make a separate call to
-     * persist the timing information.
+     * persist the timing information. Note the returned string is always created, even if the StopWatch isn't logged
+     * because it is below the time threshold or not sampled; use {@link #stopWithoutString()} if the return value is
+     * not needed.
      *
      * @return this.toString(), however, this should not be passed to a logger as it will have already been logged.
      */
     public String stop() {
-        String retVal = super.stop();
-        doLogInternal(retVal, null);
-        return retVal;
+        freezeElapsedTime();
+        String retVal = doLogInternal(null);
+        return (retVal == null) ? toString() : retVal;
     }
 
     /**
@@ -232,9 +341,9 @@ public class LoggingStopWatch extends StopWatch {
      * @return this.toString(), however, this should not be passed to a logger as it will have already been logged.
      */
     public String stop(Throwable exception) {
-        String retVal = super.stop();
-        doLogInternal(retVal, exception);
-        return retVal;
+        freezeElapsedTime();
+        String retVal = doLogInternal(exception);
+        return (retVal == null) ? toString() : retVal;
     }
 
     /**
@@ -263,6 +372,47 @@ public class LoggingStopWatch extends StopWatch {
         return stop(exception);
     }
 
+    /**
+     * Identical to {@link #stop()}, except that the StopWatch string is not returned, and so is only created if the
+     * StopWatch is logged. A stop that is below the time threshold, not sampled or summarized therefore doesn't
+     * allocate any memory. The subclasses for the common logging frameworks can also leave the creation of the string
+     * to the logging framework (see {@link #logStopWatch(Throwable)}), in which case it isn't created by this method
+     * at all.
+     *
+     * @return true if this StopWatch was logged, false if it was filtered out by the time threshold or the sampler.
+     */
+    public boolean stopWithoutString() {
+        return stopWithoutString((Throwable) null);
+    }
+
+    /**
+     * Identical to {@link #stop(Throwable)}, except that the StopWatch string is not returned, see
+     * {@link #stopWithoutString()}.
+     *
+     * @param exception The exception that was thrown by the timed code block
+     * @return true if this StopWatch was logged.
+     */
+    public boolean stopWithoutString(Throwable exception) {
+        freezeElapsedTime();
+        doLogInternal(exception);
+        return loggedWeight > 0;
+    }
+
+    /**
+     * Identical to {@link #stop(String, String, Throwable)}, except that the StopWatch string is not returned, see
+     * {@link #stopWithoutString()}.
+     *
+     * @param tag       The grouping tag for this StopWatch
+     * @param message   A descriptive message about the timed block, may be null
+     * @param exception The exception that was thrown by the timed code block, may be null
+     * @return true if this StopWatch was logged.
+     */
+    public boolean stopWithoutString(String tag, String message, Throwable exception) {
+        setTag(tag);
+        setMessage(message);
+        return stopWithoutString(exception);
+    }
+
     /**
      * Identical to {@link #lap(String)}, but also allows you to specify an exception to be logged.
      *
@@ -316,6 +466,63 @@ public class LoggingStopWatch extends StopWatch {
         }
     }
 
+    /**
+     * This method is called once it has been decided that this StopWatch should be logged. The default implementation
+     * renders the StopWatch string and passes it to {@link #log(String, Throwable)}. Subclasses that log to a
+     * framework accepting arbitrary message objects override this method to log a {@link #newLoggedStopWatch()
+     * snapshot} of this StopWatch instead, so that the string is only rendered by the appender that finally writes it,
+     * which for an asynchronous appender is not the thread that stopped the StopWatch.
+     *
+     * @param exception An exception, if any, that was also passed to the stop() or lap() methods - may be null.
+     * @return The StopWatch string that was logged, or null if rendering it was left to the logging framework. In that
+     *         case the stop and lap methods that return the string create it after the StopWatch is logged.
+     */
+    protected String logStopWatch(Throwable exception) {
+        String stopWatchAsString = toString();
+        log(stopWatchAsString, exception);
+        return stopWatchAsString;
+    }
+
+    /**
+     * This method logs a StopWatch that is derived from the stops of this instance rather than being this instance,
+     * at the same level as normal stops. These are the summaries created by the {@link #getSummarizer() summarizer}
+     * and the self times of {@link StopWatchSpan}s. The default implementation passes the string form of the StopWatch
+     * to {@link #log(String, Throwable)}; subclasses whose log method logs the state of this instance (through
+     * {@link #newLoggedStopWatch()}) rather than the string must override this method.
+     *
+     * @param derived The StopWatch to log, for example a summary that stands in for all of the stops of a tag below
+     *                the time threshold in an interval.
+     */
+    protected void logDerived(StopWatch derived) {
+        log(derived.toString(), null);
+    }
+
+    /**
+     * Creates a plain, detached StopWatch that captures the state of this instance at the moment it is logged. Logging
+     * frameworks that accept arbitrary message objects (log4j, commons logging, and, with deferred rendering, slf4j
+     * and java.util.logging through a parameterized message) are handed this copy instead of the rendered String,
+     * which allows the perf4j coalescing appenders to consume the StopWatch directly rather than re-parsing the
+     * message text. Note the returned StopWatch carries the value of {@link #getTag()}, so any normal or slow suffix
+     * is already applied.
+     *
+     * @return A new StopWatch with the same start time, elapsed time, time unit, tag, message and weight as this
+     *         instance.
+     */
+    protected StopWatch newLoggedStopWatch() {
+        return new StopWatch(getStartTime(), getElapsedTime(getTimeUnit()), getTimeUnit(), getTag(), getMessage())
+                .setWeight(getWeight());
+    }
+
+    /**
+     * Gets the weight the last stop of this StopWatch was logged with, so that StopWatches derived from the stop can
+     * be logged with the same weight.
+     *
+     * @return The weight of the last stop, or 0 if it wasn't logged.
+     */
+    int getLoggedWeight() {
+        return loggedWeight;
+    }
+
     // --- Object Methods ---
     
     public LoggingStopWatch clone() {
@@ -323,16 +530,45 @@ public class LoggingStopWatch extends StopWatch {
     }
 
     // --- Private Methods ---
-    // Helper method only calls log if elapsed time is greater than the time threshold
-    private void doLogInternal(String stopWatchAsString, Throwable exception) {
+    // Helper method only calls log if elapsed time is greater than the time threshold and the stop is sampled,
+    // otherwise passes the stop to the summarizer if there is one. Returns the StopWatch string, which includes the
+    // weight of a sampled StopWatch, or null if it wasn't logged or its rendering was deferred. Nothing is allocated
+    // unless the StopWatch is logged (or a summary is due), so the stop methods that return the string create it
+    // themselves when null is returned.
+    private String doLogInternal(Throwable exception) {
     	//if normalAndSlowSuffixesEnabled then always log with the suffixes added
     	//getTag() should take care of appending the correct tag, and should already be part of stopWatchAsString
         //Otherwise we default to the backward-compatible behavior: namely:
     	//in most cases timeThreshold will be 0, so just short circuit out as fast as possible
     	long elapsedTime = getElapsedTime(); // to allow for subclasses to override this value
     	long timeThreshold = getTimeThreshold(); // to allow for subclasses to override this value
+    	StopWatchSummarizer summarizer = getSummarizer();
+        loggedWeight = 0;
     	if (timeThreshold == 0 || isNormalAndSlowSuffixesEnabled() || elapsedTime >= timeThreshold) {
-            log(stopWatchAsString, exception);
+            if (summarizer != null) {
+                //a slow stop also logs the summary of the fast stops of a previous interval, if there is one
+                StopWatch summary = summarizer.poll(this, System.currentTimeMillis());
+                if (summary != null) {
+                    logDerived(summary);
+                }
+            }
+
+            StopWatchSampler sampler = getSampler();
+            if (sampler != null) {
+                int weight = sampler.sample(getTag());
+                if (weight == 0) {
+                    return null;
+                }
+                setWeight(weight);
+            }
+            loggedWeight = getWeight();
+            return logStopWatch(exception);
+        } else if (summarizer != null) {
+            StopWatch summary = summarizer.add(this, System.currentTimeMillis());
+            if (summary != null) {
+                logDerived(summary);
+            }
         }
+        return null;
     }
 }
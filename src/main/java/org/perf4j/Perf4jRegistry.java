@@ -0,0 +1,353 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import org.perf4j.helpers.GenericAsyncCoalescingStatisticsAppender.GroupedTimingStatisticsHandler;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The Perf4jRegistry aggregates timing data in-process, without going through a logging framework. Timings are
+ * recorded directly into per-tag {@link ConcurrentTimingStatistics}, which may be updated concurrently from any thread
+ * without waiting for other threads, and snapshots of the accumulated statistics are taken as GroupedTimingStatistics, the same objects
+ * produced by the AsyncCoalescingStatisticsAppenders. Usually you will record timings using a
+ * {@link RegistryStopWatch}:
+ * <pre>
+ * StopWatch stopWatch = new RegistryStopWatch("codeBlock1");
+ * ...some code
+ * stopWatch.stop(); //records the elapsed time in the default registry, nothing is logged
+ * </pre>
+ * Snapshots can be taken explicitly with {@link #snapshot()}, or periodically by calling {@link #start(long)}, in
+ * which case each snapshot is passed to every handler added with {@link #addHandler}. For example, to expose the
+ * statistics through JMX:
+ * <pre>
+ * final StatisticsExposingMBean mBean = new StatisticsExposingMBean(...);
+ * Perf4jRegistry.getDefault().addHandler(new GroupedTimingStatisticsHandler() {
+ *     public void handle(GroupedTimingStatistics statistics) { mBean.updateCurrentTimingStatistics(statistics); }
+ *     public void error(String errorMessage) { System.err.println(errorMessage); }
+ * });
+ * Perf4jRegistry.getDefault().start(30000L);
+ * </pre>
+ */
+public class Perf4jRegistry {
+    /**
+     * The registry used by RegistryStopWatches that aren't given a specific registry.
+     */
+    private static final Perf4jRegistry DEFAULT_REGISTRY = new Perf4jRegistry();
+
+    /**
+     * The accumulated statistics for each tag since the last snapshot was taken.
+     */
+    private final ConcurrentMap<String, ConcurrentTimingStatistics> accumulatorsByTag =
+            new ConcurrentHashMap<String, ConcurrentTimingStatistics>();
+    /**
+     * The handlers that are passed each snapshot taken by the periodic timer.
+     */
+    private final List<GroupedTimingStatisticsHandler> handlers =
+            new CopyOnWriteArrayList<GroupedTimingStatisticsHandler>();
+    /**
+     * Whether or not entries for "rollup" tags are created.
+     */
+    private volatile boolean createRollupStatistics = false;
+    /**
+     * The precision of the histograms used to track percentiles, or 0 if percentiles are not tracked.
+     */
+    private volatile int histogramPrecision = 0;
+    /**
+     * The unit in which elapsed times are recorded.
+     */
+    private volatile TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+    /**
+     * The time at which the current snapshot interval started.
+     */
+    private long intervalStartTime = System.currentTimeMillis();
+    /**
+     * The timer that takes periodic snapshots, or null if periodic snapshots are not being taken.
+     */
+    private Timer timer = null;
+
+    // --- Constructors ---
+
+    /**
+     * Creates a new, empty registry. Most applications will just use the {@link #getDefault() default registry}.
+     */
+    public Perf4jRegistry() { }
+
+    /**
+     * Gets the registry used by RegistryStopWatches that aren't given a specific registry.
+     *
+     * @return The default registry, never null.
+     */
+    public static Perf4jRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    // --- Recording Methods ---
+
+    /**
+     * Records the elapsed time of a stopped StopWatch under its tag, converted to the time unit of this registry. The
+     * time is counted {@link StopWatch#getWeight() weight} times, so sampled StopWatches and summaries are counted as
+     * the executions they stand in for.
+     *
+     * @param stopWatch The StopWatch to record.
+     */
+    public void record(StopWatch stopWatch) {
+        record(stopWatch.getTag(), stopWatch.getElapsedTime(timeUnit), stopWatch.getWeight());
+    }
+
+    /**
+     * Records an elapsed time under the specified tag. This method may be called concurrently from any thread. If
+     * rollup statistics are enabled the time is also recorded under each of the tag's parent tags, e.g. a time
+     * recorded for "codeBlock.success" is also recorded for "codeBlock".
+     *
+     * @param tag         The grouping tag
+     * @param elapsedTime The elapsed time, in the time unit of this registry.
+     */
+    public void record(String tag, long elapsedTime) {
+        record(tag, elapsedTime, 1);
+    }
+
+    /**
+     * Records an elapsed time that stands in for several executions under the specified tag, as is done for sampled
+     * StopWatches. The statistics of the tag are then marked as {@link TimingStatistics#isSampled() sampled} if the
+     * weight is greater than 1. This method may be called concurrently from any thread.
+     *
+     * @param tag         The grouping tag
+     * @param elapsedTime The elapsed time, in the time unit of this registry.
+     * @param weight      The number of executions the elapsed time stands in for, at least 1.
+     */
+    public void record(String tag, long elapsedTime, int weight) {
+        getAccumulator(tag).addSampleTime(elapsedTime, weight);
+
+        if (createRollupStatistics) {
+            int indexOfDot = -1;
+            while ((indexOfDot = tag.indexOf('.', indexOfDot + 1)) >= 0) {
+                getAccumulator(tag.substring(0, indexOfDot)).addSampleTime(elapsedTime, weight);
+            }
+        }
+    }
+
+    // --- Snapshot Methods ---
+
+    /**
+     * Takes a snapshot of the statistics recorded since the last snapshot (or since this registry was created), and
+     * resets the accumulators so that the next snapshot only contains times recorded after this one. The start time
+     * of the returned statistics is the stop time of the previous snapshot. Tags with no recorded times since the last
+     * snapshot are not included.
+     *
+     * @return The statistics recorded since the last snapshot, never null.
+     */
+    public GroupedTimingStatistics snapshot() {
+        return snapshot(System.currentTimeMillis());
+    }
+
+    /**
+     * Starts taking snapshots periodically on a background daemon thread, each of which is passed to the handlers
+     * added with {@link #addHandler}. Like the time slices of the AsyncCoalescingStatisticsAppenders, snapshots are
+     * aligned to multiples of the timeSlice since the epoch. If periodic snapshots are already being taken they are
+     * restarted with the new timeSlice.
+     *
+     * @param timeSlice The time, in milliseconds, between snapshots, must be positive.
+     */
+    public synchronized void start(final long timeSlice) {
+        if (timeSlice <= 0L) {
+            throw new IllegalArgumentException("The time slice must be positive, was " + timeSlice);
+        }
+        stop();
+
+        long now = System.currentTimeMillis();
+        timer = new Timer("perf4j-registry-snapshots", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            public void run() {
+                publishSnapshot(snapshot(scheduledExecutionTime()));
+            }
+        }, new Date((now / timeSlice + 1) * timeSlice), timeSlice);
+    }
+
+    /**
+     * Stops taking periodic snapshots. Times recorded since the last snapshot remain in this registry until the next
+     * call to snapshot().
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Adds a handler that is passed each snapshot taken periodically after {@link #start(long)} is called.
+     *
+     * @param handler The handler to add.
+     */
+    public void addHandler(GroupedTimingStatisticsHandler handler) {
+        handlers.add(handler);
+    }
+
+    /**
+     * Removes a handler previously added with addHandler.
+     *
+     * @param handler The handler to remove.
+     * @return true if the handler was removed.
+     */
+    public boolean removeHandler(GroupedTimingStatisticsHandler handler) {
+        return handlers.remove(handler);
+    }
+
+    // --- Bean Properties ---
+
+    /**
+     * Whether or not entries for "rollup" tags are created. See
+     * {@link GroupedTimingStatistics#GroupedTimingStatistics(SortedMap, long, long, boolean)} for a description of
+     * rollup statistics.
+     *
+     * @return The createRollupStatistics value, false by default.
+     */
+    public boolean isCreateRollupStatistics() {
+        return createRollupStatistics;
+    }
+
+    /**
+     * Sets whether or not entries for "rollup" tags are created.
+     *
+     * @param createRollupStatistics The createRollupStatistics value
+     * @return this Perf4jRegistry
+     */
+    public Perf4jRegistry setCreateRollupStatistics(boolean createRollupStatistics) {
+        this.createRollupStatistics = createRollupStatistics;
+        return this;
+    }
+
+    /**
+     * Gets the precision of the {@link TimingHistogram}s used to track percentiles for each tag.
+     *
+     * @return The histogram precision, or 0 (the default) if percentiles are not tracked.
+     */
+    public int getHistogramPrecision() {
+        return histogramPrecision;
+    }
+
+    /**
+     * Sets the precision of the {@link TimingHistogram}s used to track percentiles for each tag. The new precision
+     * takes effect from the next snapshot interval.
+     *
+     * @param histogramPrecision The histogram precision (see {@link TimingHistogram#TimingHistogram(int)}), or 0
+     *                           if percentiles should not be tracked.
+     * @return this Perf4jRegistry
+     */
+    public Perf4jRegistry setHistogramPrecision(int histogramPrecision) {
+        if (histogramPrecision < 0 || histogramPrecision > TimingHistogram.MAX_PRECISION) {
+            throw new IllegalArgumentException("The histogram precision must be between 0 and "
+                                               + TimingHistogram.MAX_PRECISION + ", was " + histogramPrecision);
+        }
+        this.histogramPrecision = histogramPrecision;
+        return this;
+    }
+
+    /**
+     * Gets the unit in which elapsed times are recorded, and so the unit of the statistics in each snapshot.
+     *
+     * @return The time unit, milliseconds by default.
+     */
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    /**
+     * Sets the unit in which elapsed times are recorded. This should be set before any times are recorded, as times
+     * that were already recorded are not converted.
+     *
+     * @param timeUnit The time unit, may not be null.
+     * @return this Perf4jRegistry
+     */
+    public Perf4jRegistry setTimeUnit(TimeUnit timeUnit) {
+        this.timeUnit = timeUnit;
+        return this;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Helper method gets the accumulator for a tag, creating it if necessary.
+     *
+     * @param tag The grouping tag
+     * @return The accumulator for the tag
+     */
+    private ConcurrentTimingStatistics getAccumulator(String tag) {
+        ConcurrentTimingStatistics retVal = accumulatorsByTag.get(tag);
+        if (retVal == null) {
+            ConcurrentTimingStatistics newAccumulator = new ConcurrentTimingStatistics(histogramPrecision);
+            newAccumulator.setTimeUnit(timeUnit);
+            retVal = accumulatorsByTag.putIfAbsent(tag, newAccumulator);
+            if (retVal == null) {
+                retVal = newAccumulator;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Helper method takes a snapshot ending at the specified time.
+     *
+     * @param stopTime The stop time of the snapshot.
+     * @return The statistics recorded since the last snapshot.
+     */
+    private synchronized GroupedTimingStatistics snapshot(long stopTime) {
+        SortedMap<String, TimingStatistics> statisticsByTag = new TreeMap<String, TimingStatistics>();
+        for (Map.Entry<String, ConcurrentTimingStatistics> tagAndAccumulator : accumulatorsByTag.entrySet()) {
+            ConcurrentTimingStatistics accumulator = tagAndAccumulator.getValue();
+            accumulator.setHistogramPrecision(histogramPrecision);
+            accumulator.setTimeUnit(timeUnit);
+            TimingStatistics statistics = accumulator.toTimingStatisticsAndReset();
+            if (statistics.getCount() > 0) {
+                statisticsByTag.put(tagAndAccumulator.getKey(), statistics);
+            }
+        }
+
+        GroupedTimingStatistics retVal =
+                new GroupedTimingStatistics(statisticsByTag, intervalStartTime, stopTime, createRollupStatistics);
+        retVal.setHistogramPrecision(histogramPrecision);
+        retVal.setTimeUnit(timeUnit);
+        intervalStartTime = stopTime;
+        return retVal;
+    }
+
+    /**
+     * Helper method passes a snapshot to each of the handlers. Exceptions thrown by a handler are reported to its
+     * error method so that they don't stop the snapshot timer.
+     *
+     * @param statistics The snapshot to publish.
+     */
+    private void publishSnapshot(GroupedTimingStatistics statistics) {
+        for (GroupedTimingStatisticsHandler handler : handlers) {
+            try {
+                handler.handle(statistics);
+            } catch (Exception e) {
+                handler.error("Error calling the GroupedTimingStatisticsHandler: " + e.getMessage());
+            }
+        }
+    }
+}
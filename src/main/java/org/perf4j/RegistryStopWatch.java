@@ -0,0 +1,233 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This LoggingStopWatch records its elapsed time directly in a {@link Perf4jRegistry} when one of the stop or lap
+ * methods is called, instead of passing it to a logging framework. This is useful for applications that only need the
+ * aggregated statistics, as no log message is formatted, written or parsed. The time threshold, normal and slow
+ * suffix, sampler and summarizer settings work just as they do for the other LoggingStopWatches, with sampled stops
+ * and summaries recorded with their weight; exceptions passed to the stop or lap methods are ignored.
+ */
+@SuppressWarnings("serial")
+public class RegistryStopWatch extends LoggingStopWatch {
+    private transient Perf4jRegistry registry;
+
+    // --- Constructors ---
+
+    /**
+     * Creates a RegistryStopWatch with a blank tag, no message and started at the instant of creation, that records
+     * into the default registry.
+     */
+    public RegistryStopWatch() {
+        this("", null, Perf4jRegistry.getDefault());
+    }
+
+    /**
+     * Creates a RegistryStopWatch with a blank tag, no message and started at the instant of creation, that records
+     * into the specified registry.
+     *
+     * @param registry The registry this StopWatch records into in one of the stop or lap methods.
+     */
+    public RegistryStopWatch(Perf4jRegistry registry) {
+        this("", null, registry);
+    }
+
+    /**
+     * Creates a RegistryStopWatch with the tag specified, no message and started at the instant of creation, that
+     * records into the default registry.
+     *
+     * @param tag The tag name for this timing call. Tags are used to group timing logs, thus each block
+     *            of code being timed should have a unique tag. Note that tags can take a hierarchical
+     *            format using dot notation.
+     */
+    public RegistryStopWatch(String tag) {
+        this(tag, null, Perf4jRegistry.getDefault());
+    }
+
+    /**
+     * Creates a RegistryStopWatch with the tag specified, no message and started at the instant of creation, that
+     * records into the specified registry.
+     *
+     * @param tag      The tag name for this timing call. Tags are used to group timing logs, thus each block
+     *                 of code being timed should have a unique tag. Note that tags can take a hierarchical
+     *                 format using dot notation.
+     * @param registry The registry this StopWatch records into in one of the stop or lap methods.
+     */
+    public RegistryStopWatch(String tag, Perf4jRegistry registry) {
+        this(tag, null, registry);
+    }
+
+    /**
+     * Creates a RegistryStopWatch with the tag and message specified and started at the instant of creation, that
+     * records into the default registry. Note the message is not recorded in the registry.
+     *
+     * @param tag     The tag name for this timing call. Tags are used to group timing logs, thus each block
+     *                of code being timed should have a unique tag. Note that tags can take a hierarchical
+     *                format using dot notation.
+     * @param message Additional text describing the code being timed.
+     */
+    public RegistryStopWatch(String tag, String message) {
+        this(tag, message, Perf4jRegistry.getDefault());
+    }
+
+    /**
+     * Creates a RegistryStopWatch with the tag and message specified and started at the instant of creation, that
+     * records into the specified registry. Note the message is not recorded in the registry.
+     *
+     * @param tag      The tag name for this timing call. Tags are used to group timing logs, thus each block
+     *                 of code being timed should have a unique tag. Note that tags can take a hierarchical
+     *                 format using dot notation.
+     * @param message  Additional text describing the code being timed.
+     * @param registry The registry this StopWatch records into in one of the stop or lap methods.
+     */
+    public RegistryStopWatch(String tag, String message, Perf4jRegistry registry) {
+        this(System.currentTimeMillis(), -1L, tag, message, registry);
+    }
+
+    /**
+     * This constructor is mainly used for testing. Users should normally not call this constructor in client code.
+     *
+     * @param startTime   The start time in milliseconds
+     * @param elapsedTime The elapsed time in milliseconds
+     * @param tag         The tag used to group timing logs of the same code block
+     * @param message     Additional message text
+     * @param registry    The registry this StopWatch records into in one of the stop or lap methods.
+     */
+    public RegistryStopWatch(long startTime, long elapsedTime, String tag, String message, Perf4jRegistry registry) {
+        super(startTime, elapsedTime, tag, message);
+        this.registry = registry;
+    }
+
+    // --- Bean Methods ---
+
+    /**
+     * Gets the registry this StopWatch records into when one of the stop or lap methods is called.
+     *
+     * @return The Perf4jRegistry used for StopWatch persistence.
+     */
+    public Perf4jRegistry getRegistry() { return registry; }
+
+    /**
+     * Sets the registry this StopWatch records into when one of the stop or lap methods is called.
+     *
+     * @param registry The registry this instance should use for persistence. May not be null.
+     * @return this instance, for use with method chaining if desired
+     */
+    public RegistryStopWatch setRegistry(Perf4jRegistry registry) {
+        this.registry = registry;
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setTimeThreshold(long timeThreshold) {
+        super.setTimeThreshold(timeThreshold);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setTag(String tag) {
+        super.setTag(tag);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setMessage(String message) {
+        super.setMessage(message);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setTimeUnit(TimeUnit timeUnit) {
+        super.setTimeUnit(timeUnit);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setNormalAndSlowSuffixesEnabled(boolean normalAndSlowSuffixesEnabled) {
+        super.setNormalAndSlowSuffixesEnabled(normalAndSlowSuffixesEnabled);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setNormalSuffix(String normalSuffix) {
+        super.setNormalSuffix(normalSuffix);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setSlowSuffix(String slowSuffix) {
+        super.setSlowSuffix(slowSuffix);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setWeight(int weight) {
+        super.setWeight(weight);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setSampler(StopWatchSampler sampler) {
+        super.setSampler(sampler);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public RegistryStopWatch setSummarizer(StopWatchSummarizer summarizer) {
+        super.setSummarizer(summarizer);
+        return this;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * The log method is overridden to record the elapsed time of this StopWatch in the registry, under the value of
+     * {@link #getTag()} so that any normal or slow suffix is applied. The elapsed time is converted to the time unit
+     * of the registry.
+     *
+     * @param stopWatchAsString The stringified view of the stop watch, which is not used.
+     * @param exception         An exception, if any, that was passed to the stop or lap method, which is not used.
+     */
+    protected void log(String stopWatchAsString, Throwable exception) {
+        registry.record(this);
+    }
+
+    /**
+     * Overridden to record the derived StopWatch, rather than this one, in the registry.
+     *
+     * @param derived The derived StopWatch, such as the self time of a {@link StopWatchSpan}.
+     */
+    protected void logDerived(StopWatch derived) {
+        registry.record(derived);
+    }
+
+    // --- Object Methods ---
+
+    public RegistryStopWatch clone() {
+        return (RegistryStopWatch) super.clone();
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        //registries aren't serializable, so deserialized StopWatches use the default registry
+        this.registry = Perf4jRegistry.getDefault();
+    }
+}
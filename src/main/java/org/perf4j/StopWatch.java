@@ -15,7 +15,10 @@
  */
 package org.perf4j;
 
+import org.perf4j.helpers.MiscUtils;
+
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The StopWatch class is used to time code blocks in Perf4J. The general usage pattern is to create a StopWatch
@@ -34,6 +37,15 @@ import java.io.Serializable;
  * Note that a StopWatch is reusable. That is, you can call <tt>start()</tt> and <tt>stop()</tt> in succession
  * and the <tt>getElapsedTime()</tt> method will refer to the time since the most recent <tt>start()</tt> call.
  * <p/>
+ * The elapsed time is measured with <tt>System.nanoTime()</tt> and kept in the StopWatch's time unit, which is
+ * milliseconds by default. Very fast code blocks can be timed with a finer unit, e.g.
+ * <tt>new StopWatch("cacheLookup").setTimeUnit(TimeUnit.MICROSECONDS)</tt>, in which case the unit is written to the
+ * log message in a trailing <tt>unit[us]</tt> field so that the StopWatch can be parsed back exactly.
+ * <p/>
+ * When only a sample of the executions of a code block are logged, each logged StopWatch stands in for several
+ * executions. This {@link #getWeight() weight} is written in a trailing <tt>weight[n]</tt> field, and the statistics
+ * built from the logs count the StopWatch n times.
+ * <p/>
  * In general, most clients will find it simpler and cleaner to use the {@link LoggingStopWatch} class or one of its
  * subclasses in preference to this class.
  *
@@ -44,13 +56,13 @@ public class StopWatch implements Serializable, Cloneable {
 
 	public static final String DEFAULT_LOGGER_NAME = "org.perf4j.TimingLogger";
 
-    private static final long NANOS_IN_A_MILLI = 1000000L;
-
     private long startTime;
     private long nanoStartTime;
-    private long elapsedTime;
+    private long elapsedTime; //in timeUnit, or -1 if the StopWatch is running
     private String tag;
     private String message;
+    private TimeUnit timeUnit; //null (i.e. milliseconds) for StopWatches serialized by older versions
+    private int weight; //0 (i.e. 1) for StopWatches serialized by older versions
 
     /**
      * Creates a StopWatch with a blank tag, no message and started at the instant of creation.
@@ -91,11 +103,28 @@ public class StopWatch implements Serializable, Cloneable {
      * @param message     Additional message text
      */
     public StopWatch(long startTime, long elapsedTime, String tag, String message) {
+        this(startTime, elapsedTime, TimeUnit.MILLISECONDS, tag, message);
+    }
+
+    /**
+     * Creates a StopWatch with a specified start and elapsed time, time unit, tag, and message. This constructor
+     * should normally not be called by third party code; it is intended to allow for deserialization of StopWatch
+     * logs.
+     *
+     * @param startTime   The start time in milliseconds
+     * @param elapsedTime The elapsed time in the specified time unit
+     * @param timeUnit    The time unit of the elapsed time
+     * @param tag         The tag used to group timing logs of the same code block
+     * @param message     Additional message text
+     */
+    public StopWatch(long startTime, long elapsedTime, TimeUnit timeUnit, String tag, String message) {
         this.startTime = startTime;
         this.nanoStartTime = (elapsedTime == -1L) ? System.nanoTime() : -1L;
         this.elapsedTime = elapsedTime;
+        this.timeUnit = timeUnit;
         this.tag = tag;
         this.message = message;
+        this.weight = 1;
     }
 
     // --- Bean Properties ---
@@ -114,9 +143,71 @@ public class StopWatch implements Serializable, Cloneable {
      * @return The elapsed time in milliseconds.
      */
     public long getElapsedTime() {
+        return getElapsedTime(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the time between when this StopWatch was last started and stopped in the specified unit. If
+     * <tt>stop()</tt> was not called, then the time returned is the time since the StopWatch was started. Note that
+     * converting to a finer unit than the time unit of this StopWatch does not add precision.
+     *
+     * @param unit The unit of the returned time.
+     * @return The elapsed time in the specified unit.
+     */
+    public long getElapsedTime(TimeUnit unit) {
         return (elapsedTime == -1L) ?
-               (System.nanoTime() - nanoStartTime) / NANOS_IN_A_MILLI :
-               elapsedTime;
+               unit.convert(System.nanoTime() - nanoStartTime, TimeUnit.NANOSECONDS) :
+               unit.convert(elapsedTime, getTimeUnit());
+    }
+
+    /**
+     * Gets the unit in which this StopWatch keeps its elapsed time, and in which it is written to the log.
+     *
+     * @return The time unit, milliseconds by default.
+     */
+    public TimeUnit getTimeUnit() {
+        return (timeUnit == null) ? TimeUnit.MILLISECONDS : timeUnit;
+    }
+
+    /**
+     * Sets the unit in which this StopWatch keeps its elapsed time, and in which it is written to the log. This is
+     * normally set before the StopWatch is stopped; if it has already been stopped the elapsed time is converted to
+     * the new unit.
+     *
+     * @param timeUnit The time unit, may not be null.
+     * @return this instance, for method chaining if desired
+     */
+    public StopWatch setTimeUnit(TimeUnit timeUnit) {
+        if (elapsedTime != -1L) {
+            elapsedTime = timeUnit.convert(elapsedTime, getTimeUnit());
+        }
+        this.timeUnit = timeUnit;
+        return this;
+    }
+
+    /**
+     * Gets the number of executions of the timed code block that this StopWatch stands in for. This is 1 unless the
+     * StopWatch was logged by a sampling {@link LoggingStopWatch} (see {@link LoggingStopWatch#setSampler}), in which
+     * case the statistics created from the logs count this StopWatch as this many executions.
+     *
+     * @return The weight of this StopWatch, at least 1.
+     */
+    public int getWeight() {
+        return (weight == 0) ? 1 : weight;
+    }
+
+    /**
+     * Sets the number of executions of the timed code block that this StopWatch stands in for.
+     *
+     * @param weight The weight, at least 1.
+     * @return this instance, for method chaining if desired
+     */
+    public StopWatch setWeight(int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight must be at least 1");
+        }
+        this.weight = weight;
+        return this;
     }
 
     /**
@@ -200,7 +291,7 @@ public class StopWatch implements Serializable, Cloneable {
      * @return this.toString(), which is a message suitable for logging
      */
     public String stop() {
-        elapsedTime = (System.nanoTime() - nanoStartTime) / NANOS_IN_A_MILLI;
+        freezeElapsedTime();
         return this.toString();
     }
 
@@ -275,14 +366,28 @@ public class StopWatch implements Serializable, Cloneable {
         return retVal;
     }
 
+    // --- Helper Methods ---
+
+    /**
+     * Freezes the elapsed time, which is all that stop() does apart from creating the StopWatch string. This allows a
+     * LoggingStopWatch to only create the string if it is really logged.
+     */
+    void freezeElapsedTime() {
+        elapsedTime = getTimeUnit().convert(System.nanoTime() - nanoStartTime, TimeUnit.NANOSECONDS);
+    }
+
     // --- Object Methods ---
     
     public String toString() {
     	String message = getMessage();
+        TimeUnit timeUnit = getTimeUnit();
+        int weight = getWeight();
     	return "start[" + getStartTime() +
-        "] time[" + getElapsedTime() +
+        "] time[" + getElapsedTime(timeUnit) +
         "] tag[" + getTag() +
-        ((message == null) ? "]" : "] message[" + message + "]");
+        ((message == null) ? "]" : "] message[" + message + "]") +
+        ((timeUnit == TimeUnit.MILLISECONDS) ? "" : " unit[" + MiscUtils.formatTimeUnit(timeUnit) + "]") +
+        ((weight == 1) ? "" : " weight[" + weight + "]");
     }
 
     public StopWatch clone() {
@@ -318,6 +423,12 @@ public class StopWatch implements Serializable, Cloneable {
         if (tag != null ? !tag.equals(stopWatch.tag) : stopWatch.tag != null) {
             return false;
         }
+        if (getTimeUnit() != stopWatch.getTimeUnit()) {
+            return false;
+        }
+        if (getWeight() != stopWatch.getWeight()) {
+            return false;
+        }
 
         return true;
     }
@@ -328,6 +439,8 @@ public class StopWatch implements Serializable, Cloneable {
         result = 31 * result + (int) (elapsedTime ^ (elapsedTime >>> 32));
         result = 31 * result + (tag != null ? tag.hashCode() : 0);
         result = 31 * result + (message != null ? message.hashCode() : 0);
+        result = 31 * result + getTimeUnit().ordinal();
+        result = 31 * result + getWeight();
         return result;
     }
 }
@@ -0,0 +1,171 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A StopWatchSampler decides which executions of a code block a {@link LoggingStopWatch} should log when it is too
+ * expensive to log every one of them, for example for tags that are stopped hundreds of thousands of times a second.
+ * A single sampler is normally shared by all of the StopWatches that time the same code blocks:
+ * <pre>
+ * private static final StopWatchSampler SAMPLER = new StopWatchSampler(100);
+ * ...
+ * LoggingStopWatch stopWatch = new Log4JStopWatch().setSampler(SAMPLER);
+ * </pre>
+ * Each tag is sampled separately, with
+ * <ul>
+ * <li>a fixed <b>sample rate</b> n, which logs every nth execution, and/or
+ * <li>a <b>maximum number of samples per second</b>, which limits how many executions are logged each second.
+ * </ul>
+ * Every logged StopWatch is given a {@link StopWatch#getWeight() weight} equal to the number of executions since the
+ * previous logged StopWatch with the same tag, including itself, so the counts, transactions per second and mean
+ * times of the statistics created from the logs stay unbiased. Only the min and max can't be recovered, which is why
+ * such statistics are marked as {@link TimingStatistics#isSampled() sampled}. Note the executions after the last
+ * logged StopWatch of a tag are not counted until the next one is logged.
+ * <p/>
+ * A sampler keeps a small amount of state for every tag it has seen, so it should not be used with an unbounded
+ * number of distinct tags. This class is thread-safe.
+ */
+public class StopWatchSampler {
+    private final int sampleRate;
+    private final int maxSamplesPerSecond;
+    private final ConcurrentHashMap<String, TagSampler> samplersByTag = new ConcurrentHashMap<String, TagSampler>();
+
+    /**
+     * Creates a StopWatchSampler that logs every nth execution of each tag.
+     *
+     * @param sampleRate The n in "1 in n" executions that are logged, at least 1.
+     */
+    public StopWatchSampler(int sampleRate) {
+        this(sampleRate, 0);
+    }
+
+    /**
+     * Creates a StopWatchSampler with a sample rate and a per-tag rate limit.
+     *
+     * @param sampleRate          The n in "1 in n" executions that are logged, at least 1. Use 1 to only limit the
+     *                            number of samples per second.
+     * @param maxSamplesPerSecond The maximum number of executions of each tag that are logged per second, or 0 for no
+     *                            limit.
+     */
+    public StopWatchSampler(int sampleRate, int maxSamplesPerSecond) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("The sample rate must be at least 1");
+        }
+        if (maxSamplesPerSecond < 0) {
+            throw new IllegalArgumentException("The maximum number of samples per second may not be negative");
+        }
+        this.sampleRate = sampleRate;
+        this.maxSamplesPerSecond = maxSamplesPerSecond;
+    }
+
+    /**
+     * Gets the sample rate, i.e. the n in "1 in n" executions that are logged.
+     *
+     * @return The sample rate, 1 if every execution may be logged.
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Gets the maximum number of executions of each tag that are logged per second.
+     *
+     * @return The limit, or 0 if there is none.
+     */
+    public int getMaxSamplesPerSecond() {
+        return maxSamplesPerSecond;
+    }
+
+    /**
+     * Counts an execution of a code block and decides whether it should be logged. This is called by a
+     * LoggingStopWatch when it is stopped.
+     *
+     * @param tag The tag of the StopWatch.
+     * @return 0 if the StopWatch should not be logged, otherwise the weight it should be logged with.
+     */
+    public int sample(String tag) {
+        return sample(tag, (maxSamplesPerSecond == 0) ? 0L : System.currentTimeMillis());
+    }
+
+    /**
+     * Counts an execution of a code block at the specified time.
+     *
+     * @param tag The tag of the StopWatch.
+     * @param now The current time in milliseconds, only used if there is a rate limit.
+     * @return 0 if the StopWatch should not be logged, otherwise the weight it should be logged with.
+     */
+    int sample(String tag, long now) {
+        TagSampler tagSampler = samplersByTag.get(tag);
+        if (tagSampler == null) {
+            TagSampler existing = samplersByTag.putIfAbsent(tag, tagSampler = new TagSampler());
+            if (existing != null) {
+                tagSampler = existing;
+            }
+        }
+        return (maxSamplesPerSecond == 0) ? tagSampler.sample() : tagSampler.sample(now);
+    }
+
+    /**
+     * The sampling state of a single tag.
+     */
+    private class TagSampler {
+        /**
+         * The number of executions, only used when there is no rate limit.
+         */
+        private final AtomicLong executions = new AtomicLong();
+        /**
+         * The number of executions since the last one that was logged, when there is a rate limit.
+         */
+        private int unloggedExecutions = 0;
+        /**
+         * The second, since the epoch, that samplesThisSecond counts.
+         */
+        private long currentSecond = -1L;
+        private int samplesThisSecond = 0;
+
+        int sample() {
+            //without a rate limit every nth execution has the same weight, so a counter is all that's needed
+            return (executions.incrementAndGet() % sampleRate == 0L) ? sampleRate : 0;
+        }
+
+        synchronized int sample(long now) {
+            if (unloggedExecutions < Integer.MAX_VALUE) {
+                unloggedExecutions++;
+            }
+            if (unloggedExecutions < sampleRate) {
+                return 0;
+            }
+
+            long second = now / 1000L;
+            if (second != currentSecond) {
+                currentSecond = second;
+                samplesThisSecond = 0;
+            }
+            if (samplesThisSecond >= maxSamplesPerSecond) {
+                //the execution will be counted by the next one that is logged
+                return 0;
+            }
+
+            samplesThisSecond++;
+            int retVal = unloggedExecutions;
+            unloggedExecutions = 0;
+            return retVal;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A StopWatchSpan times a code block that may be nested in another timed code block, such as a database call made
+ * while handling a request. Each span wraps a {@link LoggingStopWatch} whose tag is the <b>tag path</b> of the span,
+ * i.e. the tags of its enclosing spans and its own tag separated by {@link #PATH_SEPARATOR}:
+ * <pre>
+ * StopWatchSpan request = StopWatchSpan.start("request", new Log4JStopWatch());
+ * try {
+ *     StopWatchSpan query = StopWatchSpan.start("query", new Log4JStopWatch()); //tag path "request/query"
+ *     try {
+ *         ...
+ *     } finally {
+ *         query.stop();
+ *     }
+ *     ...
+ * } finally {
+ *     request.stop();
+ * }
+ * </pre>
+ * When a span is stopped its StopWatch is logged as usual, with the <b>total</b> (inclusive) time of the code block.
+ * If any child spans were stopped while it was open, a second StopWatch is logged with the <b>self</b> (exclusive)
+ * time, i.e. the total time minus the total times of the children, under the tag path followed by
+ * {@link #SELF_TIME_SUFFIX}. The statistics created from the logs therefore show both times for each tag path. The
+ * self time is only logged when the total time is, with the same {@link StopWatch#getWeight() weight}, so that the
+ * counts of the two match when a sampler is used; for the executions without any children it is not logged because
+ * it equals the total time.
+ * <p/>
+ * The total, child and self times of a span are measured in nanoseconds, separately from its StopWatch, so they
+ * aren't truncated to the time unit of the StopWatch: the self time of a span with many sub-millisecond children is
+ * accurate even if its StopWatches are logged in milliseconds.
+ * <p/>
+ * The span that a new span is nested in is found in one of two ways:
+ * <ul>
+ * <li>{@link #start(String, LoggingStopWatch)} nests the new span in the <b>current</b> span of the calling thread,
+ *     which is the last span started on that thread that hasn't been stopped yet.
+ * <li>{@link #startChild(String)} nests the new span in the span it is called on, regardless of the thread it is
+ *     called from. Spans are thread-safe, so a span can be passed to another thread as an explicit context.
+ * </ul>
+ * For work that is handed off to an executor, {@link #wrap(Runnable)} and {@link #wrap(Callable)} make a span the
+ * current span of whichever thread runs the task, for the duration of the task, so spans started by the task are
+ * nested in it. Children that run concurrently may add up to more than the total time of their parent, in which case
+ * the self time of the parent is 0.
+ */
+public class StopWatchSpan {
+    /**
+     * The separator between the tags of a tag path.
+     */
+    public static final String PATH_SEPARATOR = "/";
+    /**
+     * The suffix appended to the tag path of the StopWatches that hold the self times of spans. A period is not used
+     * so that the self times are not rolled up into the total times when rollup statistics are created.
+     */
+    public static final String SELF_TIME_SUFFIX = ":self";
+
+    private static final ThreadLocal<StopWatchSpan> currentSpan = new ThreadLocal<StopWatchSpan>();
+
+    private final LoggingStopWatch stopWatch;
+    private final StopWatchSpan parent;
+    private final String path;
+    /**
+     * The current span of the thread that started this span, when it was started. This is restored when this span is
+     * stopped on the same thread.
+     */
+    private final StopWatchSpan previousCurrentSpan;
+    private final long startNanos;
+    private volatile long stopNanos;
+    private final AtomicLong childTimeNanos = new AtomicLong();
+    private final AtomicInteger childCount = new AtomicInteger();
+    /**
+     * Set by the one call to stop that is allowed to stop this span, even if several threads call it at once.
+     */
+    private final AtomicBoolean stopCalled = new AtomicBoolean();
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates and starts a span.
+     *
+     * @param tag       The tag of the timed code block.
+     * @param stopWatch The LoggingStopWatch that times the code block.
+     * @param parent    The enclosing span, may be null.
+     */
+    protected StopWatchSpan(String tag, LoggingStopWatch stopWatch, StopWatchSpan parent) {
+        this.stopWatch = stopWatch;
+        this.parent = parent;
+        this.path = (parent == null) ? tag : parent.getPath() + PATH_SEPARATOR + tag;
+        this.previousCurrentSpan = currentSpan.get();
+        currentSpan.set(this);
+        stopWatch.start(path);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts a span that is nested in the current span of the calling thread, if there is one. The new span becomes
+     * the current span of the calling thread.
+     *
+     * @param tag       The tag of the timed code block, which is appended to the tag path of the current span.
+     * @param stopWatch The LoggingStopWatch that times the code block. It is (re)started with the tag path as its tag,
+     *                  and any message it has is kept.
+     * @return The started span.
+     */
+    public static StopWatchSpan start(String tag, LoggingStopWatch stopWatch) {
+        return new StopWatchSpan(tag, stopWatch, current());
+    }
+
+    /**
+     * Gets the current span of the calling thread, which is the span that spans started with
+     * {@link #start(String, LoggingStopWatch)} are nested in.
+     *
+     * @return The last span started on (or made current on) this thread that hasn't been stopped, or null.
+     */
+    public static StopWatchSpan current() {
+        StopWatchSpan retVal = currentSpan.get();
+        //a span that was stopped on another thread is still set, so fall back to its nearest open ancestor
+        while (retVal != null && retVal.stopped) {
+            retVal = retVal.parent;
+        }
+        return retVal;
+    }
+
+    /**
+     * Starts a span that is nested in this span. This method may be called from any thread; the new span becomes the
+     * current span of the calling thread.
+     *
+     * @param tag The tag of the timed code block, which is appended to the tag path of this span.
+     * @return The started span, which uses a clone of the LoggingStopWatch of this span so that it is logged the same
+     *         way.
+     */
+    public StopWatchSpan startChild(String tag) {
+        return startChild(tag, stopWatch.clone().setMessage(null));
+    }
+
+    /**
+     * Starts a span that is nested in this span, timed by the specified StopWatch. This method may be called from any
+     * thread; the new span becomes the current span of the calling thread.
+     *
+     * @param tag       The tag of the timed code block, which is appended to the tag path of this span.
+     * @param stopWatch The LoggingStopWatch that times the code block.
+     * @return The started span.
+     */
+    public StopWatchSpan startChild(String tag, LoggingStopWatch stopWatch) {
+        return new StopWatchSpan(tag, stopWatch, this);
+    }
+
+    /**
+     * Gets the LoggingStopWatch that times this span.
+     *
+     * @return The StopWatch, whose tag is the tag path of this span.
+     */
+    public LoggingStopWatch getStopWatch() {
+        return stopWatch;
+    }
+
+    /**
+     * Gets the span this span is nested in.
+     *
+     * @return The parent span, or null if this span is not nested in another span.
+     */
+    public StopWatchSpan getParent() {
+        return parent;
+    }
+
+    /**
+     * Gets the tag path of this span, such as "request/query".
+     *
+     * @return The tags of the enclosing spans and the tag of this span, separated by {@link #PATH_SEPARATOR}.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the number of child spans that have been stopped so far.
+     *
+     * @return The number of stopped children.
+     */
+    public int getChildCount() {
+        return childCount.get();
+    }
+
+    /**
+     * Gets the sum of the total times of the child spans that have been stopped so far.
+     *
+     * @param unit The unit of the returned time.
+     * @return The time spent in child spans.
+     */
+    public long getChildTime(TimeUnit unit) {
+        return unit.convert(childTimeNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the total time of this span, including the time spent in child spans. If this span hasn't been stopped
+     * then the time up to now is used.
+     *
+     * @param unit The unit of the returned time.
+     * @return The total time.
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert((stopped ? stopNanos : System.nanoTime()) - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the self time of this span, which is its total time minus the time spent in child spans. If this span
+     * hasn't been stopped then the time up to now is used.
+     *
+     * @param unit The unit of the returned time.
+     * @return The self time, which is never negative.
+     */
+    public long getSelfTime(TimeUnit unit) {
+        long selfTimeNanos = getTotalTime(TimeUnit.NANOSECONDS) - childTimeNanos.get();
+        return unit.convert(Math.max(selfTimeNanos, 0L), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops this span, which logs its StopWatch and, if it has any children, its self time. The total time of this
+     * span is added to the child time of its parent, and if this span is the current span of the calling thread then
+     * the span that was current when it was started becomes current again.
+     *
+     * @return The return value of the stop method of the StopWatch.
+     */
+    public String stop() {
+        return stop(null);
+    }
+
+    /**
+     * Identical to {@link #stop()}, but also allows you to specify an exception to be logged.
+     *
+     * @param exception The exception that was thrown by the timed code block, may be null.
+     * @return The return value of the stop method of the StopWatch.
+     */
+    public String stop(Throwable exception) {
+        if (!stopCalled.compareAndSet(false, true)) {
+            throw new IllegalStateException("The span " + path + " has already been stopped");
+        }
+        //stopNanos is written before the volatile stopped flag, so readers that see the flag see the stop time
+        stopNanos = System.nanoTime();
+        stopped = true;
+
+        String retVal = stopWatch.stop(exception);
+
+        int loggedWeight = stopWatch.getLoggedWeight();
+        if (childCount.get() > 0 && loggedWeight > 0) {
+            TimeUnit timeUnit = stopWatch.getTimeUnit();
+            stopWatch.logDerived(new StopWatch(stopWatch.getStartTime(),
+                                               getSelfTime(timeUnit),
+                                               timeUnit,
+                                               path + SELF_TIME_SUFFIX,
+                                               stopWatch.getMessage()).setWeight(loggedWeight));
+        }
+
+        if (parent != null) {
+            parent.childTimeNanos.addAndGet(stopNanos - startNanos);
+            parent.childCount.incrementAndGet();
+        }
+
+        if (currentSpan.get() == this) {
+            restoreCurrentSpan(previousCurrentSpan);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Wraps a task so that this span is the current span of the thread that runs it, while it runs. Spans started
+     * by the task with {@link #start(String, LoggingStopWatch)} are then nested in this span, even though the task
+     * runs on another thread, for example in an ExecutorService.
+     *
+     * @param task The task to wrap.
+     * @return A Runnable that runs the task with this span as the current span.
+     */
+    public Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            public void run() {
+                StopWatchSpan previous = currentSpan.get();
+                currentSpan.set(StopWatchSpan.this);
+                try {
+                    task.run();
+                } finally {
+                    restoreCurrentSpan(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that this span is the current span of the thread that runs it, while it runs.
+     *
+     * @param task The task to wrap.
+     * @return A Callable that calls the task with this span as the current span.
+     * @see #wrap(Runnable)
+     */
+    public <V> Callable<V> wrap(final Callable<V> task) {
+        return new Callable<V>() {
+            public V call() throws Exception {
+                StopWatchSpan previous = currentSpan.get();
+                currentSpan.set(StopWatchSpan.this);
+                try {
+                    return task.call();
+                } finally {
+                    restoreCurrentSpan(previous);
+                }
+            }
+        };
+    }
+
+    public String toString() {
+        return "StopWatchSpan[" + path + "]";
+    }
+
+    // --- Helper Methods ---
+
+    private static void restoreCurrentSpan(StopWatchSpan span) {
+        if (span == null) {
+            //don't leave an entry behind on pooled threads
+            currentSpan.remove();
+        } else {
+            currentSpan.set(span);
+        }
+    }
+}
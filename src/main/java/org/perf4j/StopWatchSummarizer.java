@@ -0,0 +1,229 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A StopWatchSummarizer accumulates the StopWatches that a {@link LoggingStopWatch} doesn't log because they are
+ * below its time threshold, so that they still show up in the statistics created from the logs. Without it, only the
+ * slow executions of a code block are counted, which badly skews the counts, transactions per second and mean times.
+ * With it, slow executions are still logged individually, and once per interval a single summary StopWatch is logged
+ * for each tag that stands in for all of the fast executions in that interval:
+ * <pre>
+ * private static final StopWatchSummarizer SUMMARIZER = new StopWatchSummarizer(30000L);
+ * ...
+ * LoggingStopWatch stopWatch = new Log4JStopWatch().setTimeThreshold(100L).setSummarizer(SUMMARIZER);
+ * </pre>
+ * The summary StopWatch starts at the start of the interval, has the mean elapsed time of the fast executions, and has
+ * a {@link StopWatch#getWeight() weight} equal to their number. The count, transactions per second and mean time of
+ * the statistics created from the logs are therefore the same as if every execution had been logged, whereas the
+ * min and max can't be recovered (the statistics are {@link TimingStatistics#isSampled() sampled}). Note the standard
+ * deviation is understated as well, because the fast executions all count as the mean; like the min and max, it is
+ * marked with a "~" in the statistics.
+ * <p/>
+ * The intervals are aligned on multiples of the interval length, like the time slices of the coalescing appenders,
+ * so the interval should evenly divide the TimeSlice of the appender. Once its interval ends, the summary of a tag is
+ * logged by whichever comes first of the next stop of the same tag and {@link #flushAll(long)}. If the stops of a tag
+ * are infrequent, a late summary has an old start time and so may be counted in a later time slice by the appender;
+ * calling {@link #start()} avoids this by flushing the finished intervals on a background thread as soon as they end:
+ * <pre>
+ * SUMMARIZER.start();
+ * ...
+ * SUMMARIZER.stop(); //on shutdown, logs the summaries of the current interval
+ * </pre>
+ * Summaries are logged through a clone of the first LoggingStopWatch that added a stop of the tag.
+ * <p/>
+ * A summarizer keeps a small amount of state for every tag it has seen, so it should not be used with an unbounded
+ * number of distinct tags. This class is thread-safe.
+ */
+public class StopWatchSummarizer {
+    private final long interval;
+    private final ConcurrentHashMap<String, TagSummary> summariesByTag = new ConcurrentHashMap<String, TagSummary>();
+    private Timer timer = null;
+    private Thread shutdownHook = null;
+
+    /**
+     * Creates a StopWatchSummarizer.
+     *
+     * @param interval The length of the interval, in milliseconds, of each summary.
+     */
+    public StopWatchSummarizer(long interval) {
+        if (interval <= 0L) {
+            throw new IllegalArgumentException("The interval must be positive");
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Gets the length of the interval of each summary.
+     *
+     * @return The interval, in milliseconds.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Adds a stop of a LoggingStopWatch that wasn't logged to the summary of its tag.
+     *
+     * @param stopWatch The stopped LoggingStopWatch. The first one added for a tag is cloned, and the summaries of the
+     *                  tag are logged through that clone by {@link #flushAll(long)}.
+     * @param now       The current time, in milliseconds.
+     * @return The summary of a previous interval of this tag that should be logged now, or null if there is none.
+     */
+    public StopWatch add(LoggingStopWatch stopWatch, long now) {
+        return getTagSummary(stopWatch).add(stopWatch, now);
+    }
+
+    /**
+     * Gets the summary of a previous interval that should be logged now, without adding a stop. This is called for
+     * stops that are logged individually.
+     *
+     * @param stopWatch The stopped LoggingStopWatch.
+     * @param now       The current time, in milliseconds.
+     * @return The summary of a previous interval of this tag that should be logged now, or null if there is none.
+     */
+    public StopWatch poll(LoggingStopWatch stopWatch, long now) {
+        TagSummary tagSummary = summariesByTag.get(stopWatch.getTag());
+        return (tagSummary == null) ? null : tagSummary.poll(now);
+    }
+
+    /**
+     * Logs the summaries of every tag whose interval has ended, without waiting for the next stop of the tag.
+     *
+     * @param now The current time, in milliseconds. Pass Long.MAX_VALUE to also log the summaries of the current
+     *            interval, for example on shutdown.
+     * @return The number of summaries logged.
+     */
+    public int flushAll(long now) {
+        int retVal = 0;
+        for (TagSummary tagSummary : summariesByTag.values()) {
+            StopWatch summary = tagSummary.poll(now);
+            if (summary != null) {
+                tagSummary.logger.logDerived(summary);
+                retVal++;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Starts flushing the summaries periodically on a background daemon thread, at the end of each interval, so that
+     * they are logged on time even for tags that are stopped infrequently. A shutdown hook is also added that logs the
+     * summaries of the current interval when the JVM exits. If periodic flushing has already been started it is
+     * restarted.
+     */
+    public synchronized void start() {
+        stop();
+
+        long now = System.currentTimeMillis();
+        timer = new Timer("perf4j-summarizer", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            public void run() {
+                flushAll(scheduledExecutionTime());
+            }
+        }, new Date((now / interval + 1) * interval), interval);
+
+        shutdownHook = new Thread("perf4j-summarizer-shutdown") {
+            public void run() {
+                flushAll(Long.MAX_VALUE);
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Stops flushing the summaries periodically, and logs the summaries of every tag, including those of the current
+     * interval. This should be called on shutdown, before the logging framework is shut down.
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ise) {
+                //the JVM is already shutting down, so the hook runs anyway
+            }
+            shutdownHook = null;
+        }
+        flushAll(Long.MAX_VALUE);
+    }
+
+    // --- Helper Methods ---
+
+    private TagSummary getTagSummary(LoggingStopWatch stopWatch) {
+        String tag = stopWatch.getTag();
+        TagSummary retVal = summariesByTag.get(tag);
+        if (retVal == null) {
+            TagSummary existing = summariesByTag.putIfAbsent(tag, retVal = new TagSummary(tag, stopWatch.clone()));
+            if (existing != null) {
+                retVal = existing;
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * The executions of a single tag in the current interval.
+     */
+    private class TagSummary {
+        private final String tag;
+        private final LoggingStopWatch logger;
+        private long intervalStartTime = Long.MIN_VALUE;
+        private int count = 0;
+        private long totalNanos = 0L;
+        private TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+
+        TagSummary(String tag, LoggingStopWatch logger) {
+            this.tag = tag;
+            this.logger = logger;
+        }
+
+        synchronized StopWatch add(LoggingStopWatch stopWatch, long now) {
+            TimeUnit timeUnit = stopWatch.getTimeUnit();
+            StopWatch retVal = poll(now);
+            if (count == 0) {
+                intervalStartTime = (now / interval) * interval;
+            }
+            count++;
+            totalNanos += stopWatch.getElapsedTime(TimeUnit.NANOSECONDS);
+            this.timeUnit = timeUnit;
+            return retVal;
+        }
+
+        synchronized StopWatch poll(long now) {
+            if (count == 0 || now < intervalStartTime + interval) {
+                return null;
+            }
+
+            //the mean is rounded rather than truncated, so that it isn't biased downwards
+            double nanosPerUnit = TimeUnit.NANOSECONDS.convert(1L, timeUnit);
+            long meanElapsedTime = Math.round(totalNanos / nanosPerUnit / count);
+            StopWatch retVal = new StopWatch(intervalStartTime, meanElapsedTime, timeUnit, tag, null).setWeight(count);
+            count = 0;
+            totalNanos = 0L;
+            return retVal;
+        }
+    }
+}
@@ -69,7 +69,7 @@ public class TimedCallable<V> implements Callable<V>, Serializable {
             stopWatch.start();
             return wrappedTask.call();
         } finally {
-            stopWatch.stop();
+            stopWatch.stopWithoutString();
         }
     }
 }
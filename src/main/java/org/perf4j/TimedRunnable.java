@@ -68,7 +68,7 @@ public class TimedRunnable implements Runnable, Serializable {
             stopWatch.start();
             wrappedTask.run();
         } finally {
-            stopWatch.stop();
+            stopWatch.stopWithoutString();
         }
     }
 }
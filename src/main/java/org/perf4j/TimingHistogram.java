@@ -0,0 +1,276 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A TimingHistogram counts timing samples in log-linear buckets so that percentiles (such as the median or the 99th
+ * percentile) can be estimated from a fixed amount of memory. Each power-of-two range of values is split into
+ * 2<sup>precision</sup> equally sized buckets, so the width of any bucket is at most 1/2<sup>precision</sup> of the
+ * values it holds, and values below 2<sup>precision</sup> are counted exactly. For example, with the default precision
+ * of 5 every reported percentile is within about 3% of the true value.
+ * <p/>
+ * All bucket counts are allocated when the histogram is created, so {@link #recordValue(long)} is a constant time
+ * operation that never allocates. Values greater than the highest trackable value are counted in the highest bucket.
+ * <p/>
+ * A TimingHistogram is normally not used directly but is contained in a {@link TimingStatistics} instance, see
+ * {@link TimingStatistics#getPercentile(double)}.
+ */
+public class TimingHistogram implements Serializable, Cloneable {
+    private static final long serialVersionUID = -2570373432106329651L;
+
+    /**
+     * The default precision, which gives percentiles that are accurate to about 3%.
+     */
+    public static final int DEFAULT_PRECISION = 5;
+    /**
+     * The maximum allowable precision.
+     */
+    public static final int MAX_PRECISION = 10;
+    /**
+     * The default highest trackable value, about 24.8 days in nanoseconds. This is used when the time unit of the
+     * values is not known, so that long elapsed times are never clamped even if they are in nanoseconds; see
+     * {@link #TimingHistogram(int, TimeUnit)} for a histogram sized for a particular time unit.
+     */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.MILLISECONDS.toNanos(Integer.MAX_VALUE);
+
+    private final int precision;
+    private final long highestTrackableValue;
+    private int[] counts;
+    private int totalCount;
+
+    // --- Constructors ---
+    /**
+     * Creates a TimingHistogram with the DEFAULT_PRECISION.
+     */
+    public TimingHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a TimingHistogram with the specified precision and the DEFAULT_HIGHEST_TRACKABLE_VALUE.
+     *
+     * @param precision The number of bits used to split each power-of-two range of values into buckets, from 1 to
+     *                  MAX_PRECISION. Reported percentiles have a relative error of at most 1/2<sup>precision</sup>.
+     */
+    public TimingHistogram(int precision) {
+        this(precision, DEFAULT_HIGHEST_TRACKABLE_VALUE);
+    }
+
+    /**
+     * Creates a TimingHistogram with the specified precision whose highest trackable value is about 24.8 days in the
+     * specified time unit. Coarser units need fewer buckets: a histogram of milliseconds needs roughly half as many
+     * buckets as one of nanoseconds.
+     *
+     * @param precision The number of bits used to split each power-of-two range of values into buckets, from 1 to
+     *                  MAX_PRECISION.
+     * @param timeUnit  The time unit of the values that are recorded.
+     */
+    public TimingHistogram(int precision, TimeUnit timeUnit) {
+        this(precision, Math.max(timeUnit.convert(DEFAULT_HIGHEST_TRACKABLE_VALUE, TimeUnit.NANOSECONDS), 1L));
+    }
+
+    /**
+     * Creates a TimingHistogram with the specified precision and highest trackable value.
+     *
+     * @param precision             The number of bits used to split each power-of-two range of values into buckets,
+     *                              from 1 to MAX_PRECISION.
+     * @param highestTrackableValue The highest value that is counted in its own bucket, must be positive. Larger values
+     *                              are counted in the highest bucket.
+     */
+    public TimingHistogram(int precision, long highestTrackableValue) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("TimingHistogram precision must be between 1 and " + MAX_PRECISION
+                                               + ", was " + precision);
+        }
+        if (highestTrackableValue <= 0L) {
+            throw new IllegalArgumentException("TimingHistogram highestTrackableValue must be positive, was "
+                                               + highestTrackableValue);
+        }
+        this.precision = precision;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new int[bucketIndex(highestTrackableValue) + 1];
+    }
+
+    // --- Utility Methods ---
+    /**
+     * Counts a single value in this histogram.
+     *
+     * @param value The value, normally an elapsed time. Negative values are counted as 0.
+     * @return this TimingHistogram instance
+     */
+    public TimingHistogram recordValue(long value) {
+        return recordValue(value, 1);
+    }
+
+    /**
+     * Counts a value several times in this histogram, for example for a sampled StopWatch that stands in for a number
+     * of executions.
+     *
+     * @param value The value, normally an elapsed time. Negative values are counted as 0.
+     * @param count The number of times the value is counted.
+     * @return this TimingHistogram instance
+     */
+    public TimingHistogram recordValue(long value, int count) {
+        counts[bucketIndex(Math.min(Math.max(value, 0L), highestTrackableValue))] += count;
+        totalCount += count;
+        return this;
+    }
+
+    /**
+     * Gets the value at the specified percentile of the recorded values. The value returned is the highest value
+     * that falls in the same bucket as the true percentile value.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0, e.g. 99.9 for the 99.9th percentile.
+     * @return The value at the requested percentile, or 0 if no values have been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0L;
+        }
+
+        //the rank is the number of values that must be at or below the returned value
+        long rank = (long) Math.ceil((Math.min(Math.max(percentile, 0.0), 100.0) / 100.0) * totalCount);
+        rank = Math.max(rank, 1L);
+
+        long cumulativeCount = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= rank) {
+                return highestValueInBucket(i);
+            }
+        }
+        return highestTrackableValue;
+    }
+
+    /**
+     * Adds all of the values counted in the specified histogram to this histogram. The result is exactly the same as
+     * if every value recorded in the other histogram had been recorded in this one.
+     *
+     * @param other The histogram whose counts are added to this one. It must have the same precision as this
+     *              histogram; if its highest trackable value is larger, its higher values are counted in this
+     *              histogram's highest bucket.
+     * @return this TimingHistogram instance
+     */
+    public TimingHistogram add(TimingHistogram other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot add a TimingHistogram with precision " + other.precision
+                                               + " to one with precision " + precision);
+        }
+
+        int lastIndex = counts.length - 1;
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[Math.min(i, lastIndex)] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        return this;
+    }
+
+    // --- Bean Properties ---
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Gets the index of the bucket that counts the specified value.
+     *
+     * @param value The value, must not be negative.
+     * @return The bucket index.
+     */
+    private int bucketIndex(long value) {
+        int subBucketCount = 1 << precision;
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        //for values in [2^e, 2^(e+1)) the top precision+1 bits select the sub bucket
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - precision;
+        return ((shift + 1) << precision) + (int) ((value >>> shift) - subBucketCount);
+    }
+
+    /**
+     * Gets the highest value that is counted in the specified bucket.
+     *
+     * @param index The bucket index.
+     * @return The highest value counted in the bucket.
+     */
+    private long highestValueInBucket(int index) {
+        int subBucketCount = 1 << precision;
+        if (index < subBucketCount) {
+            return index;
+        }
+        int shift = (index >> precision) - 1;
+        long lowestValue = ((long) (subBucketCount + (index & (subBucketCount - 1)))) << shift;
+        return Math.min(lowestValue + (1L << shift) - 1L, highestTrackableValue);
+    }
+
+    // --- Object Methods ---
+
+    public String toString() {
+        return "p50[" + getValueAtPercentile(50.0) +
+               "] p90[" + getValueAtPercentile(90.0) +
+               "] p99[" + getValueAtPercentile(99.0) +
+               "] p999[" + getValueAtPercentile(99.9) +
+               "] count[" + getTotalCount() + "]";
+    }
+
+    public TimingHistogram clone() {
+        try {
+            TimingHistogram retVal = (TimingHistogram) super.clone();
+            retVal.counts = counts.clone();
+            return retVal;
+        } catch (CloneNotSupportedException cnse) {
+            throw new Error("Unexpected CloneNotSupportedException");
+        }
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimingHistogram)) {
+            return false;
+        }
+
+        TimingHistogram that = (TimingHistogram) o;
+
+        return precision == that.precision &&
+               highestTrackableValue == that.highestTrackableValue &&
+               totalCount == that.totalCount &&
+               Arrays.equals(counts, that.counts);
+    }
+
+    public int hashCode() {
+        int result = precision;
+        result = 31 * result + (int) (highestTrackableValue ^ (highestTrackableValue >>> 32));
+        result = 31 * result + totalCount;
+        result = 31 * result + Arrays.hashCode(counts);
+        return result;
+    }
+}
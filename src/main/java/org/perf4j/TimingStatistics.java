@@ -30,6 +30,8 @@ public class TimingStatistics implements Serializable, Cloneable {
     private long max;
     private long min;
     private int count;
+    private TimingHistogram histogram; //null unless percentiles are being tracked
+    private boolean sampled; //true if any sample time stood in for more than one execution
 
     // --- Constructors ---
     /**
@@ -37,6 +39,17 @@ public class TimingStatistics implements Serializable, Cloneable {
      */
     public TimingStatistics() { }
 
+    /**
+     * Creates an empty TimingStatistics object that also records every sample time in the specified histogram, which
+     * allows percentile values to be retrieved using {@link #getPercentile(double)}.
+     *
+     * @param histogram The histogram used to track the distribution of sample times, may be null if percentiles
+     *                  are not needed.
+     */
+    public TimingStatistics(TimingHistogram histogram) {
+        this.histogram = histogram;
+    }
+
     /**
      * Creates a TimingStatistics object with the specified data.
      *
@@ -47,11 +60,50 @@ public class TimingStatistics implements Serializable, Cloneable {
      * @param count             The total number of executions that were timed.
      */
     public TimingStatistics(double mean, double standardDeviation, long max, long min, int count) {
+        this(mean, standardDeviation, max, min, count, null);
+    }
+
+    /**
+     * Creates a TimingStatistics object with the specified data, including the distribution of the execution times.
+     *
+     * @param mean              The mean execution time, in ms, of the underlying time records.
+     * @param standardDeviation The standard deviation, in ms, of the underlying time records.
+     * @param max               The maximum value in ms of the logged execution times.
+     * @param min               The minimum value in ms of the logged execution times.
+     * @param count             The total number of executions that were timed.
+     * @param histogram         The histogram of the logged execution times, may be null if percentiles are not
+     *                          tracked.
+     */
+    public TimingStatistics(double mean, double standardDeviation, long max, long min, int count,
+                            TimingHistogram histogram) {
         this.mean = mean;
         this.runningQ = Math.pow(standardDeviation, 2.0) * count;
         this.max = max;
         this.min = min;
         this.count = count;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Creates a TimingStatistics object with the exact running values kept by a {@link TimingStatisticsTable}.
+     *
+     * @param count     The number of sample times.
+     * @param mean      The mean of the sample times.
+     * @param runningQ  The running sum of squared differences from the mean, i.e. the variance times the count.
+     * @param min       The minimum sample time.
+     * @param max       The maximum sample time.
+     * @param histogram The histogram of the sample times, may be null.
+     * @param sampled   Whether any of the sample times were weighted, see {@link #isSampled()}.
+     */
+    TimingStatistics(int count, double mean, double runningQ, long min, long max, TimingHistogram histogram,
+                     boolean sampled) {
+        this.count = count;
+        this.mean = mean;
+        this.runningQ = runningQ;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram;
+        this.sampled = sampled;
     }
 
     // --- Utility Methods ---
@@ -62,15 +114,35 @@ public class TimingStatistics implements Serializable, Cloneable {
      * @return this TimingStatistics instance
      */
     public TimingStatistics addSampleTime(long elapsedTime) {
-        count++;
+        return addSampleTime(elapsedTime, 1);
+    }
 
+    /**
+     * This method updates the calculated statistics with a logged execution time that stands in for several
+     * executions, which is how sampled StopWatches (see {@link StopWatch#getWeight()}) are counted. The count, mean
+     * and standard deviation are updated as if the sample time had been added <tt>weight</tt> times, so they remain
+     * unbiased estimates when only a fraction of the executions are logged. The min and max can only be taken from
+     * the logged executions, though, so if the weight is greater than 1 these statistics are marked as sampled.
+     *
+     * @param elapsedTime The elapsed time being used to update the statistics.
+     * @param weight      The number of executions the elapsed time stands in for, at least 1.
+     * @return this TimingStatistics instance
+     */
+    public TimingStatistics addSampleTime(long elapsedTime, int weight) {
+        count += weight;
+
+        //this is the weighted form of Welford's update, which is identical to it when the weight is 1
         double diffFromMean = elapsedTime - mean;
-        mean = mean + (diffFromMean / count);
+        mean = mean + (diffFromMean * weight / count);
 
-        runningQ = runningQ + (((count - 1) * Math.pow(diffFromMean, 2.0)) / count);
+        runningQ = runningQ + (((count - weight) * (double) weight * Math.pow(diffFromMean, 2.0)) / count);
+
+        if (weight > 1) {
+            sampled = true;
+        }
 
         //special case initial stopWatch when finding max and min
-        if (count == 1) {
+        if (count == weight) {
             min = elapsedTime;
             max = elapsedTime;
         } else {
@@ -82,6 +154,59 @@ public class TimingStatistics implements Serializable, Cloneable {
             }
         }
 
+        if (histogram != null) {
+            histogram.recordValue(elapsedTime, weight);
+        }
+
+        return this;
+    }
+
+    /**
+     * This method updates these statistics with all of the sample times counted in another TimingStatistics
+     * instance, giving the same count, mean, standard deviation, min and max as if each sample time had been passed to
+     * {@link #addSampleTime(long)} (up to floating point rounding). This makes it possible to combine statistics that
+     * were aggregated separately, for example on different threads or over adjacent time slices.
+     * <p/>
+     * If both instances track percentiles their histograms are merged too. If only one of them tracks percentiles and
+     * the other has any samples, the merged statistics no longer track percentiles, because the distribution of the
+     * other samples is unknown.
+     *
+     * @param other The statistics to merge into this instance. The other instance is not modified.
+     * @return this TimingStatistics instance
+     * @throws IllegalArgumentException if both instances track percentiles with histograms of different precisions.
+     */
+    public TimingStatistics merge(TimingStatistics other) {
+        if (other.count == 0) {
+            return this;
+        }
+        sampled |= other.sampled;
+
+        if (histogram != null && other.histogram != null) {
+            histogram.add(other.histogram);
+        } else if (histogram == null && other.histogram != null && count == 0) {
+            histogram = other.histogram.clone();
+        } else {
+            histogram = null;
+        }
+
+        if (count == 0) {
+            mean = other.mean;
+            runningQ = other.runningQ;
+            min = other.min;
+            max = other.max;
+            count = other.count;
+            return this;
+        }
+
+        //this is the parallel version of the Welford update used in addSampleTime
+        double newCount = (double) count + other.count;
+        double diffFromMean = other.mean - mean;
+        mean = mean + (diffFromMean * other.count / newCount);
+        runningQ = runningQ + other.runningQ + (Math.pow(diffFromMean, 2.0) * count * other.count / newCount);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        count += other.count;
+
         return this;
     }
 
@@ -95,6 +220,15 @@ public class TimingStatistics implements Serializable, Cloneable {
         return Math.sqrt(runningQ / count);
     }
 
+    /**
+     * Gets the running sum of squared differences from the mean, which the standard deviation is calculated from.
+     *
+     * @return The variance times the count.
+     */
+    double getRunningQ() {
+        return runningQ;
+    }
+
     public long getMax() {
         return max;
     }
@@ -107,6 +241,41 @@ public class TimingStatistics implements Serializable, Cloneable {
         return count;
     }
 
+    /**
+     * Returns true if any of the sample times were weighted, i.e. came from sampled StopWatches that each stand in
+     * for several executions. In that case the count, mean and standard deviation are estimates, and the min and max
+     * are only the min and max of the executions that were actually logged.
+     *
+     * @return Whether these statistics were built from sampled StopWatches.
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Gets the histogram that tracks the distribution of sample times.
+     *
+     * @return The histogram, or null if this TimingStatistics does not track percentiles.
+     */
+    public TimingHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Gets the sample time at the specified percentile. The value is estimated from the histogram, but it is never
+     * less than the min or greater than the max of the sample times.
+     *
+     * @param percentile The percentile, from 0.0 to 100.0, e.g. 99.9 for the 99.9th percentile.
+     * @return The sample time at the specified percentile, or 0 if this TimingStatistics does not track percentiles
+     *         or has no samples.
+     */
+    public long getPercentile(double percentile) {
+        if (histogram == null || count == 0) {
+            return 0L;
+        }
+        return Math.max(min, Math.min(max, histogram.getValueAtPercentile(percentile)));
+    }
+
     // --- Object Methods ---
 
     public String toString() {
@@ -119,7 +288,11 @@ public class TimingStatistics implements Serializable, Cloneable {
 
     public TimingStatistics clone() {
         try {
-            return (TimingStatistics) super.clone();
+            TimingStatistics retVal = (TimingStatistics) super.clone();
+            if (histogram != null) {
+                retVal.histogram = histogram.clone();
+            }
+            return retVal;
         } catch (CloneNotSupportedException cnse) {
             throw new Error("Unexpected CloneNotSupportedException");
         }
@@ -150,6 +323,12 @@ public class TimingStatistics implements Serializable, Cloneable {
         if (Double.compare(that.runningQ, runningQ) != 0) {
             return false;
         }
+        if (sampled != that.sampled) {
+            return false;
+        }
+        if (histogram != null ? !histogram.equals(that.histogram) : that.histogram != null) {
+            return false;
+        }
 
         return true;
     }
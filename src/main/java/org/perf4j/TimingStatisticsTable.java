@@ -0,0 +1,298 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import org.perf4j.helpers.TagDictionary;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The compact storage used by a {@link GroupedTimingStatistics} while StopWatches are being added to it. Instead of a
+ * Map entry and a TimingStatistics object per tag, the statistics of each tag are kept in parallel primitive arrays
+ * indexed by the tag's ID in a {@link TagDictionary}. The values are updated with exactly the same arithmetic as
+ * {@link TimingStatistics#addSampleTime(long, int)} and {@link TimingStatistics#merge(TimingStatistics)}, so
+ * {@link #toSortedMap()} gives the same TimingStatistics as if they had been kept in a Map all along.
+ * <p/>
+ * This class is not thread-safe.
+ */
+class TimingStatisticsTable implements Cloneable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final TagDictionary tagDictionary;
+    private final int histogramPrecision;
+    private final TimeUnit timeUnit;
+    private int[] counts;
+    private double[] means;
+    private double[] runningQs;
+    private long[] mins;
+    private long[] maxs;
+    private TimingHistogram[] histograms; //null unless percentiles are being tracked
+    private boolean[] sampled;
+    private int numTags = 0;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param tagDictionary      The dictionary that maps tags to the indexes of the arrays.
+     * @param histogramPrecision The precision of the TimingHistograms created for each tag, or 0 if percentiles are
+     *                           not tracked.
+     * @param timeUnit           The time unit of the sample times, which determines the size of the TimingHistograms.
+     */
+    TimingStatisticsTable(TagDictionary tagDictionary, int histogramPrecision, TimeUnit timeUnit) {
+        this.tagDictionary = tagDictionary;
+        this.histogramPrecision = histogramPrecision;
+        this.timeUnit = timeUnit;
+        allocate(Math.max(INITIAL_CAPACITY, tagDictionary.size()));
+    }
+
+    TagDictionary getTagDictionary() {
+        return tagDictionary;
+    }
+
+    /**
+     * Returns true if no sample times have been added.
+     *
+     * @return Whether or not the table is empty.
+     */
+    boolean isEmpty() {
+        return numTags == 0;
+    }
+
+    /**
+     * Updates the statistics of a tag with a new sample time.
+     *
+     * @param tag         The tag.
+     * @param elapsedTime The sample time.
+     * @param weight      The number of executions the sample time stands in for, normally 1.
+     */
+    void addSampleTime(String tag, long elapsedTime, int weight) {
+        addSampleTime(tagDictionary.getId(tag), elapsedTime, weight);
+    }
+
+    /**
+     * Updates the statistics of a tag with a new sample time.
+     *
+     * @param id          The ID of the tag in this table's dictionary.
+     * @param elapsedTime The sample time.
+     * @param weight      The number of executions the sample time stands in for, normally 1.
+     */
+    void addSampleTime(int id, long elapsedTime, int weight) {
+        ensureCapacity(id);
+
+        //this is the same update as TimingStatistics.addSampleTime
+        int count = counts[id] += weight;
+        double diffFromMean = elapsedTime - means[id];
+        means[id] = means[id] + (diffFromMean * weight / count);
+        runningQs[id] = runningQs[id] + (((count - weight) * (double) weight * Math.pow(diffFromMean, 2.0)) / count);
+
+        if (weight > 1) {
+            sampled[id] = true;
+        }
+
+        if (count == weight) {
+            numTags++;
+            mins[id] = elapsedTime;
+            maxs[id] = elapsedTime;
+            if (histogramPrecision > 0) {
+                histograms[id] = new TimingHistogram(histogramPrecision, timeUnit);
+            }
+        } else {
+            if (elapsedTime < mins[id]) {
+                mins[id] = elapsedTime;
+            }
+            if (elapsedTime > maxs[id]) {
+                maxs[id] = elapsedTime;
+            }
+        }
+
+        if (histograms != null && histograms[id] != null) {
+            histograms[id].recordValue(elapsedTime, weight);
+        }
+    }
+
+    /**
+     * Merges the statistics of a tag from a TimingStatistics object.
+     *
+     * @param tag   The tag.
+     * @param stats The statistics to merge, which are not modified.
+     */
+    void merge(String tag, TimingStatistics stats) {
+        merge(tagDictionary.getId(tag),
+              stats.getCount(), stats.getMean(), stats.getRunningQ(), stats.getMin(), stats.getMax(),
+              stats.getHistogram(), stats.isSampled());
+    }
+
+    /**
+     * Merges all of the statistics of another table. If both tables use the same dictionary this is done index by
+     * index without looking up any tags.
+     *
+     * @param other The table to merge, which is not modified.
+     */
+    void merge(TimingStatisticsTable other) {
+        boolean sameDictionary = (other.tagDictionary == tagDictionary);
+        for (int otherId = 0; otherId < other.counts.length; otherId++) {
+            if (other.counts[otherId] > 0) {
+                int id = sameDictionary ? otherId : tagDictionary.getId(other.tagDictionary.getTag(otherId));
+                merge(id,
+                      other.counts[otherId], other.means[otherId], other.runningQs[otherId],
+                      other.mins[otherId], other.maxs[otherId],
+                      (other.histograms == null) ? null : other.histograms[otherId], other.sampled[otherId]);
+            }
+        }
+    }
+
+    /**
+     * Builds the sorted Map of tag to TimingStatistics that GroupedTimingStatistics exposes.
+     *
+     * @return A new TreeMap holding new TimingStatistics objects. Note the TimingHistograms are not copied, so the
+     *         table should no longer be used unless they are cloned.
+     */
+    SortedMap<String, TimingStatistics> toSortedMap() {
+        SortedMap<String, TimingStatistics> retVal = new TreeMap<String, TimingStatistics>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                retVal.put(tagDictionary.getTag(id),
+                           new TimingStatistics(counts[id], means[id], runningQs[id], mins[id], maxs[id],
+                                                (histograms == null) ? null : histograms[id], sampled[id]));
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Adds the statistics of this table to a Map of TimingStatistics, as {@link GroupedTimingStatistics#merge} does.
+     *
+     * @param statisticsByTag The Map to update.
+     */
+    void mergeInto(Map<String, TimingStatistics> statisticsByTag) {
+        for (Map.Entry<String, TimingStatistics> tagAndStats : toSortedMap().entrySet()) {
+            TimingStatistics stats = statisticsByTag.get(tagAndStats.getKey());
+            if (stats == null) {
+                //the histogram is shared with this table, so it has to be copied
+                statisticsByTag.put(tagAndStats.getKey(), tagAndStats.getValue().clone());
+            } else {
+                stats.merge(tagAndStats.getValue());
+            }
+        }
+    }
+
+    public TimingStatisticsTable clone() {
+        try {
+            TimingStatisticsTable retVal = (TimingStatisticsTable) super.clone();
+            retVal.counts = counts.clone();
+            retVal.means = means.clone();
+            retVal.runningQs = runningQs.clone();
+            retVal.mins = mins.clone();
+            retVal.maxs = maxs.clone();
+            retVal.sampled = sampled.clone();
+            if (histograms != null) {
+                retVal.histograms = new TimingHistogram[histograms.length];
+                for (int id = 0; id < histograms.length; id++) {
+                    if (histograms[id] != null) {
+                        retVal.histograms[id] = histograms[id].clone();
+                    }
+                }
+            }
+            return retVal;
+        } catch (CloneNotSupportedException cnse) {
+            throw new Error("Unexpected CloneNotSupportedException");
+        }
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Helper method merges statistics into a single index, the same way as {@link TimingStatistics#merge}.
+     */
+    private void merge(int id, int otherCount, double otherMean, double otherRunningQ, long otherMin, long otherMax,
+                       TimingHistogram otherHistogram, boolean otherSampled) {
+        if (otherCount == 0) {
+            return;
+        }
+        ensureCapacity(id);
+        sampled[id] |= otherSampled;
+
+        int count = counts[id];
+        if (histogramPrecision > 0 || otherHistogram != null) {
+            if (histograms == null) {
+                histograms = new TimingHistogram[counts.length];
+            }
+            TimingHistogram histogram = histograms[id];
+            if (histogram != null && otherHistogram != null) {
+                histogram.add(otherHistogram);
+            } else if (histogram == null && otherHistogram != null && count == 0) {
+                histograms[id] = otherHistogram.clone();
+            } else {
+                histograms[id] = null;
+            }
+        }
+
+        if (count == 0) {
+            numTags++;
+            means[id] = otherMean;
+            runningQs[id] = otherRunningQ;
+            mins[id] = otherMin;
+            maxs[id] = otherMax;
+            counts[id] = otherCount;
+            return;
+        }
+
+        double newCount = (double) count + otherCount;
+        double diffFromMean = otherMean - means[id];
+        means[id] = means[id] + (diffFromMean * otherCount / newCount);
+        runningQs[id] = runningQs[id] + otherRunningQ + (Math.pow(diffFromMean, 2.0) * count * otherCount / newCount);
+        mins[id] = Math.min(mins[id], otherMin);
+        maxs[id] = Math.max(maxs[id], otherMax);
+        counts[id] = count + otherCount;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= counts.length) {
+            int[] oldCounts = counts;
+            double[] oldMeans = means;
+            double[] oldRunningQs = runningQs;
+            long[] oldMins = mins;
+            long[] oldMaxs = maxs;
+            boolean[] oldSampled = sampled;
+            TimingHistogram[] oldHistograms = histograms;
+
+            allocate(Math.max(id + 1, Math.max(oldCounts.length * 2, tagDictionary.size())));
+            System.arraycopy(oldCounts, 0, counts, 0, oldCounts.length);
+            System.arraycopy(oldMeans, 0, means, 0, oldMeans.length);
+            System.arraycopy(oldRunningQs, 0, runningQs, 0, oldRunningQs.length);
+            System.arraycopy(oldMins, 0, mins, 0, oldMins.length);
+            System.arraycopy(oldMaxs, 0, maxs, 0, oldMaxs.length);
+            System.arraycopy(oldSampled, 0, sampled, 0, oldSampled.length);
+            if (oldHistograms != null) {
+                histograms = new TimingHistogram[counts.length];
+                System.arraycopy(oldHistograms, 0, histograms, 0, oldHistograms.length);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        counts = new int[capacity];
+        means = new double[capacity];
+        runningQs = new double[capacity];
+        mins = new long[capacity];
+        maxs = new long[capacity];
+        sampled = new boolean[capacity];
+        histograms = (histogramPrecision > 0) ? new TimingHistogram[capacity] : null;
+    }
+}
@@ -5,6 +5,9 @@ import org.apache.commons.jexl.ExpressionFactory;
 import org.apache.commons.jexl.JexlContext;
 import org.apache.commons.jexl.context.HashMapContext;
 import org.perf4j.LoggingStopWatch;
+import org.perf4j.StopWatchSampler;
+import org.perf4j.StopWatchSummarizer;
+import org.perf4j.helpers.MiscUtils;
 import org.perf4j.helpers.Perf4jProperties;
 
 import java.util.Map;
@@ -26,6 +29,17 @@ public class AgnosticTimingAspect {
      * will have to be loaded in memory anyway when the class is loaded.
      */
     private Map<String, Expression> jexlExpressionCache = new ConcurrentHashMap<String, Expression>(64, .75F, 16);
+    /**
+     * This Map is used to share StopWatchSamplers between the methods whose @Profiled annotations have the same
+     * sampleRate and maxSamplesPerSecond. Since samplers track each tag separately they may be shared; the number of
+     * keys is bounded by the number of distinct sampling settings used in @Profiled annotations.
+     */
+    private Map<String, StopWatchSampler> samplerCache = new ConcurrentHashMap<String, StopWatchSampler>();
+    /**
+     * This Map is used to share StopWatchSummarizers between the methods whose @Profiled annotations have the same
+     * summaryInterval, in the same way as the samplerCache.
+     */
+    private Map<Long, StopWatchSummarizer> summarizerCache = new ConcurrentHashMap<Long, StopWatchSummarizer>();
 
     /**
      * This method actually executes the profiled method. Your AOP-framework-specific class should delegate to this
@@ -47,6 +61,13 @@ public class AgnosticTimingAspect {
 
         stopWatch.setTimeThreshold(profiled.timeThreshold());
         stopWatch.setNormalAndSlowSuffixesEnabled(profiled.normalAndSlowSuffixesEnabled());
+        stopWatch.setTimeUnit(MiscUtils.parseTimeUnit(profiled.timeUnit()));
+        if (profiled.sampleRate() > 1 || profiled.maxSamplesPerSecond() > 0) {
+            stopWatch.setSampler(getSampler(profiled.sampleRate(), profiled.maxSamplesPerSecond()));
+        }
+        if (profiled.timeThreshold() > 0 && profiled.summaryInterval() > 0) {
+            stopWatch.setSummarizer(getSummarizer(profiled.summaryInterval()));
+        }
 
         Object retVal = null;
         Throwable exceptionThrown = null;
@@ -62,7 +83,8 @@ public class AgnosticTimingAspect {
                 tag = (exceptionThrown == null) ? tag + ".success" : tag + ".failure";
             }
 
-            stopWatch.stop(tag, message);
+            //the StopWatch string isn't needed here, so it's only created if the StopWatch is logged
+            stopWatch.stopWithoutString(tag, message, null);
         }
     }
 
@@ -240,6 +262,50 @@ public class AgnosticTimingAspect {
         return retVal.toString();
     }
 
+    /**
+     * Helper method gets the StopWatchSampler for the specified sampling settings, either from the cache or by
+     * creating a new one.
+     *
+     * @param sampleRate          The sample rate from the Profiled annotation.
+     * @param maxSamplesPerSecond The maximum number of samples per second from the Profiled annotation.
+     * @return The shared sampler for these settings.
+     */
+    protected StopWatchSampler getSampler(int sampleRate, int maxSamplesPerSecond) {
+        String key = sampleRate + "/" + maxSamplesPerSecond;
+        StopWatchSampler retVal = samplerCache.get(key);
+        if (retVal == null) {
+            //synchronize so that every method with these settings shares the per-tag state of a single sampler
+            synchronized (samplerCache) {
+                retVal = samplerCache.get(key);
+                if (retVal == null) {
+                    samplerCache.put(key, retVal = new StopWatchSampler(sampleRate, maxSamplesPerSecond));
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Helper method gets the StopWatchSummarizer for the specified summary interval, either from the cache or by
+     * creating a new one.
+     *
+     * @param summaryInterval The summary interval from the Profiled annotation.
+     * @return The shared summarizer for this interval.
+     */
+    protected StopWatchSummarizer getSummarizer(long summaryInterval) {
+        StopWatchSummarizer retVal = summarizerCache.get(summaryInterval);
+        if (retVal == null) {
+            //synchronize so that every method with this interval shares the per-tag state of a single summarizer
+            synchronized (summarizerCache) {
+                retVal = summarizerCache.get(summaryInterval);
+                if (retVal == null) {
+                    summarizerCache.put(summaryInterval, retVal = new StopWatchSummarizer(summaryInterval));
+                }
+            }
+        }
+        return retVal;
+    }
+
     /**
      * Helper method gets a compiled JEXL expression for the specified expression text, either from the cache or by
      * creating a new compiled expression.
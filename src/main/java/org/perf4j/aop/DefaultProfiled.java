@@ -31,6 +31,14 @@ public class DefaultProfiled implements Profiled {
     public long timeThreshold() { return 0; }
     
     public boolean normalAndSlowSuffixesEnabled() { return false; }
+
+    public String timeUnit() { return "ms"; }
+
+    public int sampleRate() { return 1; }
+
+    public int maxSamplesPerSecond() { return 0; }
+
+    public long summaryInterval() { return 0; }
     
     public Class<? extends Annotation> annotationType() { return getClass(); }
 }
@@ -128,4 +128,46 @@ public @interface Profiled {
      * @return
      */
     boolean normalAndSlowSuffixesEnabled() default false;
+
+    /**
+     * The time unit of the logged execution time, one of "ns", "us", "ms" or "s". A finer unit than the default of
+     * milliseconds should be used for methods that commonly complete in under a millisecond. Note the timeThreshold
+     * is always specified in milliseconds.
+     *
+     * @return The time unit of the logged execution time, defaults to "ms".
+     */
+    String timeUnit() default "ms";
+
+    /**
+     * If the sampleRate is set to a value n greater than 1, only every nth execution of the method (per tag) is
+     * logged, with a <tt>weight[n]</tt> field so that the statistics created from the logs still count every
+     * execution. This should be used for methods that are called so often that logging every execution is too
+     * expensive.
+     *
+     * @return The sample rate, defaults to 1, i.e. every execution is logged.
+     * @see org.perf4j.StopWatchSampler
+     */
+    int sampleRate() default 1;
+
+    /**
+     * If the maxSamplesPerSecond is set to a positive value, at most that many executions of the method are logged
+     * per second for each tag. Every logged StopWatch is weighted by the number of executions since the previous one
+     * that was logged, so the statistics created from the logs still count every execution.
+     *
+     * @return The maximum number of executions logged per second, defaults to 0, i.e. no limit.
+     * @see org.perf4j.StopWatchSampler
+     */
+    int maxSamplesPerSecond() default 0;
+
+    /**
+     * If both the timeThreshold and the summaryInterval are set to positive values, the executions that are faster
+     * than the timeThreshold are not discarded but logged in aggregate: once every summaryInterval milliseconds a
+     * single weighted StopWatch is logged per tag that stands in for all of the fast executions in that interval.
+     * Slow executions are still logged individually, and the statistics created from the logs count every execution.
+     * The summaryInterval should evenly divide the TimeSlice of the coalescing appender.
+     *
+     * @return The summary interval in milliseconds, defaults to 0, i.e. executions below the threshold are discarded.
+     * @see org.perf4j.StopWatchSummarizer
+     */
+    long summaryInterval() default 0;
 }
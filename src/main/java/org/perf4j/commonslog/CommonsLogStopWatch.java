@@ -18,6 +18,11 @@ package org.perf4j.commonslog;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.perf4j.LoggingStopWatch;
+import org.perf4j.StopWatch;
+import org.perf4j.StopWatchSampler;
+import org.perf4j.StopWatchSummarizer;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * This LoggingStopWatch uses an Apache Commons Logging Log instance to persist the StopWatch messages.
@@ -336,6 +341,12 @@ public class CommonsLogStopWatch extends LoggingStopWatch {
         super.setMessage(message);
         return this;
     }
+
+    // Just overridden to make use of covariant return types
+    public CommonsLogStopWatch setTimeUnit(TimeUnit timeUnit) {
+        super.setTimeUnit(timeUnit);
+        return this;
+    }
     
     // Just overridden to make use of covariant return types
     public CommonsLogStopWatch setNormalAndSlowSuffixesEnabled(boolean normalAndSlowSuffixesEnabled) {
@@ -354,6 +365,24 @@ public class CommonsLogStopWatch extends LoggingStopWatch {
     	super.setSlowSuffix(slowSuffix);
     	return this;
     }
+
+    // Just overridden to make use of covariant return types
+    public CommonsLogStopWatch setWeight(int weight) {
+        super.setWeight(weight);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public CommonsLogStopWatch setSampler(StopWatchSampler sampler) {
+        super.setSampler(sampler);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public CommonsLogStopWatch setSummarizer(StopWatchSummarizer summarizer) {
+        super.setSummarizer(summarizer);
+        return this;
+    }
     
     // --- Helper Methods ---
 
@@ -443,6 +472,61 @@ public class CommonsLogStopWatch extends LoggingStopWatch {
         }
     }
 
+    /**
+     * Overridden to pass a snapshot of this StopWatch to the Log without rendering the StopWatch string. Commons
+     * Logging accepts any Object as a message, so the string is only created by the underlying logging framework when
+     * it writes the message - with log4j that is done by the appenders, and the AsyncCoalescingStatisticsAppender can
+     * use the StopWatch without parsing the string.
+     *
+     * @param exception An exception, if any, that was passed to the stop or lap method.
+     * @return null, as the StopWatch string isn't created here.
+     */
+    protected String logStopWatch(Throwable exception) {
+        log(newLoggedStopWatch(), exception, (exception == null) ? normalPriority : exceptionPriority);
+        return null;
+    }
+
+    /**
+     * Overridden to pass the derived StopWatch itself to the Log, as logStopWatch does for normal stops.
+     *
+     * @param derived The derived StopWatch, such as a summary.
+     */
+    protected void logDerived(StopWatch derived) {
+        log(derived, null, normalPriority);
+    }
+
+    /**
+     * Identical to {@link #log(String, Throwable, int)}, but passes the StopWatch itself as the message.
+     *
+     * @param stopWatch The StopWatch to log, normally created by {@link #newLoggedStopWatch()}.
+     * @param exception An exception, if any, that was passed to the stop or lap method.
+     * @param atLevel   The level at which logging should occur.
+     */
+    protected void log(StopWatch stopWatch, Throwable exception, int atLevel) {
+        switch (atLevel) {
+        case TRACE_LEVEL:
+            logger.trace(stopWatch, exception);
+            break;
+        case DEBUG_LEVEL:
+            logger.debug(stopWatch, exception);
+            break;
+        case INFO_LEVEL:
+            logger.info(stopWatch, exception);
+            break;
+        case WARN_LEVEL:
+            logger.warn(stopWatch, exception);
+            break;
+        case ERROR_LEVEL:
+            logger.error(stopWatch, exception);
+            break;
+        case FATAL_LEVEL:
+            logger.fatal(stopWatch, exception);
+            break;
+        default:
+            log(stopWatch, exception, closestKnownLevel(atLevel));
+        }
+    }
+
     private int closestKnownLevel(int level) {
         if (level <= TRACE_LEVEL) {
             return TRACE_LEVEL;
@@ -0,0 +1,78 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This MessageQueue is a thin wrapper around a {@link java.util.concurrent.ArrayBlockingQueue}. It is the default
+ * queue used by the {@link GenericAsyncCoalescingStatisticsAppender}. Because all producers and the consumer share a
+ * single lock, applications that log StopWatches at a high rate from many threads may wish to use the
+ * {@link RingBufferMessageQueue} instead. It is also an {@link EvictingMessageQueue}, so it supports the "DropOldest"
+ * overflow policy.
+ *
+ * @param <E> The type of element held in the queue.
+ */
+public class ArrayBlockingMessageQueue<E> implements EvictingMessageQueue<E> {
+    /**
+     * The wrapped queue.
+     */
+    private final BlockingQueue<E> queue;
+
+    /**
+     * Creates a new ArrayBlockingMessageQueue with the specified capacity.
+     *
+     * @param capacity The maximum number of elements the queue can hold.
+     */
+    public ArrayBlockingMessageQueue(int capacity) {
+        queue = new ArrayBlockingQueue<E>(capacity);
+    }
+
+    public boolean offer(E element) {
+        return queue.offer(element);
+    }
+
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.offer(element, timeout, unit);
+    }
+
+    public void put(E element) throws InterruptedException {
+        queue.put(element);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    public E evict() {
+        return queue.poll();
+    }
+
+    public int drainTo(Collection<? super E> collection, int maxElements) {
+        return queue.drainTo(collection, maxElements);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public void clear() {
+        queue.clear();
+    }
+}
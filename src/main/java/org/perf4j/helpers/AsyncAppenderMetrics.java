@@ -0,0 +1,225 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+/**
+ * AsyncAppenderMetrics keeps track of how well a {@link GenericAsyncCoalescingStatisticsAppender} is keeping up, so
+ * that options like QueueSize and TimeSlice can be sized from data. It is a standard MBean that the appender registers
+ * under its MetricsMBeanName option, and is also available from
+ * {@link GenericAsyncCoalescingStatisticsAppender#getMetrics()}.
+ * <p/>
+ * The record methods are only called by the appender's draining thread, so the values are kept in volatile fields
+ * without any locking. The discard counts and queue depth are read from the appender when requested.
+ */
+public class AsyncAppenderMetrics implements AsyncAppenderMetricsMBean {
+    private final GenericAsyncCoalescingStatisticsAppender appender;
+
+    private volatile int queueHighWaterMark;
+    private volatile long drainBatchCount;
+    private volatile long drainedMessageCount;
+    private volatile int maxDrainBatchSize;
+    private volatile long parsedMessageCount;
+    private volatile long parseNanos;
+    private volatile long timeSliceCount;
+    private volatile long aggregationNanos;
+    private volatile long lastSliceLagMillis;
+    private volatile long maxSliceLagMillis;
+    private volatile long downstreamNanos;
+    private volatile long maxDownstreamNanos;
+
+    /**
+     * Creates the metrics of an appender.
+     *
+     * @param appender The appender these metrics describe.
+     */
+    public AsyncAppenderMetrics(GenericAsyncCoalescingStatisticsAppender appender) {
+        this.appender = appender;
+    }
+
+    // --- MBean attributes ---
+
+    public int getQueueDepth() {
+        return appender.getQueueDepth();
+    }
+
+    public int getQueueCapacity() {
+        return appender.getQueueSize();
+    }
+
+    public int getQueueHighWaterMark() {
+        return queueHighWaterMark;
+    }
+
+    public long getDrainBatchCount() {
+        return drainBatchCount;
+    }
+
+    public double getAverageDrainBatchSize() {
+        long batches = drainBatchCount;
+        return (batches == 0L) ? 0.0 : ((double) drainedMessageCount) / batches;
+    }
+
+    public int getMaxDrainBatchSize() {
+        return maxDrainBatchSize;
+    }
+
+    public long getParsedMessageCount() {
+        return parsedMessageCount;
+    }
+
+    public double getAverageParseNanos() {
+        long count = parsedMessageCount;
+        return (count == 0L) ? 0.0 : ((double) parseNanos) / count;
+    }
+
+    public long getTimeSliceCount() {
+        return timeSliceCount;
+    }
+
+    public double getAverageAggregationMillis() {
+        long count = timeSliceCount;
+        return (count == 0L) ? 0.0 : aggregationNanos / 1000000.0 / count;
+    }
+
+    public long getLastSliceLagMillis() {
+        return lastSliceLagMillis;
+    }
+
+    public long getMaxSliceLagMillis() {
+        return maxSliceLagMillis;
+    }
+
+    public double getAverageDownstreamMillis() {
+        long count = timeSliceCount;
+        return (count == 0L) ? 0.0 : downstreamNanos / 1000000.0 / count;
+    }
+
+    public double getMaxDownstreamMillis() {
+        return maxDownstreamNanos / 1000000.0;
+    }
+
+    public long getLateStopWatches() {
+        return appender.getNumLateStopWatches();
+    }
+
+    public long getDiscardedMessages() {
+        return appender.getNumRejectedMessages() + appender.getNumEvictedMessages();
+    }
+
+    public long getEvictedMessages() {
+        return appender.getNumEvictedMessages();
+    }
+
+    public long getBlockedAppends() {
+        return appender.getNumBlockedAppends();
+    }
+
+    public long getAggregatedMessages() {
+        return appender.getNumAggregatedMessages();
+    }
+
+    public long getSpilledMessages() {
+        return appender.getNumSpilledMessages();
+    }
+
+    public long getSpillLagMillis() {
+        return appender.getSpillLagMillis();
+    }
+
+    public void resetMaximums() {
+        queueHighWaterMark = 0;
+        maxDrainBatchSize = 0;
+        maxSliceLagMillis = 0L;
+        maxDownstreamNanos = 0L;
+    }
+
+    // --- Recording methods, called by the draining thread ---
+
+    /**
+     * Resets all the metrics, which is done when the appender is started.
+     */
+    void reset() {
+        resetMaximums();
+        drainBatchCount = 0L;
+        drainedMessageCount = 0L;
+        parsedMessageCount = 0L;
+        parseNanos = 0L;
+        timeSliceCount = 0L;
+        aggregationNanos = 0L;
+        lastSliceLagMillis = 0L;
+        downstreamNanos = 0L;
+    }
+
+    /**
+     * Records a batch of messages taken from the queue.
+     *
+     * @param batchSize        The number of messages taken.
+     * @param remainingInQueue The number of messages left in the queue, which together with the batch size gives the
+     *                         depth of the queue when the batch was taken.
+     */
+    void recordDrainBatch(int batchSize, int remainingInQueue) {
+        drainBatchCount++;
+        drainedMessageCount += batchSize;
+        if (batchSize > maxDrainBatchSize) {
+            maxDrainBatchSize = batchSize;
+        }
+        if (batchSize + remainingInQueue > queueHighWaterMark) {
+            queueHighWaterMark = batchSize + remainingInQueue;
+        }
+    }
+
+    /**
+     * Records the parsing of a String message.
+     *
+     * @param nanos The time taken to parse the message, in nanoseconds.
+     */
+    void recordParse(long nanos) {
+        parsedMessageCount++;
+        parseNanos += nanos;
+    }
+
+    /**
+     * Records the parsing of a number of String messages, which is done when they are parsed by other threads.
+     *
+     * @param count The number of messages parsed.
+     * @param nanos The total time taken to parse them, in nanoseconds.
+     */
+    void recordParse(long count, long nanos) {
+        parsedMessageCount += count;
+        parseNanos += nanos;
+    }
+
+    /**
+     * Records a time slice that is passed on to the downstream handler.
+     *
+     * @param aggregationNanos The time spent aggregating the StopWatches of the time slice, in nanoseconds.
+     * @param downstreamNanos  The time taken by the downstream handler, in nanoseconds.
+     * @param lagMillis        The time between the stop of the earliest StopWatch in the time slice and the call to
+     *                         the handler.
+     */
+    void recordTimeSlice(long aggregationNanos, long downstreamNanos, long lagMillis) {
+        timeSliceCount++;
+        this.aggregationNanos += aggregationNanos;
+        this.downstreamNanos += downstreamNanos;
+        if (downstreamNanos > maxDownstreamNanos) {
+            maxDownstreamNanos = downstreamNanos;
+        }
+        lastSliceLagMillis = lagMillis;
+        if (lagMillis > maxSliceLagMillis) {
+            maxSliceLagMillis = lagMillis;
+        }
+    }
+}
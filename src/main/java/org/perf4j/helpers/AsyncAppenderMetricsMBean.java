@@ -0,0 +1,139 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+/**
+ * The management interface of the {@link AsyncAppenderMetrics}, which describes the health of a
+ * {@link GenericAsyncCoalescingStatisticsAppender} itself. Unless stated otherwise the values are totals, or averages
+ * over, everything since the appender was last started.
+ */
+public interface AsyncAppenderMetricsMBean {
+    /**
+     * @return The number of messages currently in the queue.
+     */
+    int getQueueDepth();
+
+    /**
+     * @return The maximum number of messages the queue can hold, i.e. the QueueSize option.
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return The largest number of messages the draining thread has found in the queue, since the maximums were
+     *         last reset.
+     */
+    int getQueueHighWaterMark();
+
+    /**
+     * @return The number of batches of messages the draining thread has taken from the queue.
+     */
+    long getDrainBatchCount();
+
+    /**
+     * @return The average number of messages in each batch taken from the queue.
+     */
+    double getAverageDrainBatchSize();
+
+    /**
+     * @return The largest batch of messages taken from the queue, since the maximums were last reset.
+     */
+    int getMaxDrainBatchSize();
+
+    /**
+     * @return The number of String messages parsed by the draining thread.
+     */
+    long getParsedMessageCount();
+
+    /**
+     * @return The average time taken to parse a String message, in nanoseconds.
+     */
+    double getAverageParseNanos();
+
+    /**
+     * @return The number of time slices passed on to the downstream handler.
+     */
+    long getTimeSliceCount();
+
+    /**
+     * @return The average time the draining thread spent aggregating the StopWatches of a time slice, in milliseconds.
+     */
+    double getAverageAggregationMillis();
+
+    /**
+     * @return The time between the stop of the earliest StopWatch in the last time slice and the moment its statistics
+     *         were passed on, in milliseconds. This is the end-to-end lag of the StopWatches, which includes the time
+     *         slice itself. For time slices without StopWatches, or with only pre-aggregated ones whose stop times are
+     *         unknown, the lag is counted from the end of the time slice.
+     */
+    long getLastSliceLagMillis();
+
+    /**
+     * @return The largest time slice lag, since the maximums were last reset.
+     */
+    long getMaxSliceLagMillis();
+
+    /**
+     * @return The average time taken by the downstream handler (i.e. the attached appenders) for a time slice, in
+     *         milliseconds.
+     */
+    double getAverageDownstreamMillis();
+
+    /**
+     * @return The longest time taken by the downstream handler for a time slice, since the maximums were last reset.
+     */
+    double getMaxDownstreamMillis();
+
+    /**
+     * @return The number of StopWatches that arrived too late to be counted in the time slice they started in, see the
+     *         ReorderWindowMillis option.
+     */
+    long getLateStopWatches();
+
+    /**
+     * @return The number of messages discarded because the queue was full.
+     */
+    long getDiscardedMessages();
+
+    /**
+     * @return The number of queued messages evicted by the DropOldest overflow policy.
+     */
+    long getEvictedMessages();
+
+    /**
+     * @return The number of appends that waited for room in the queue with the Block overflow policy.
+     */
+    long getBlockedAppends();
+
+    /**
+     * @return The number of messages aggregated on the logging thread by the Aggregate overflow policy.
+     */
+    long getAggregatedMessages();
+
+    /**
+     * @return The number of messages written to the spill file by the Spill overflow policy.
+     */
+    long getSpilledMessages();
+
+    /**
+     * @return The age of the oldest message in the spill file in milliseconds, or 0 if it is empty.
+     */
+    long getSpillLagMillis();
+
+    /**
+     * Resets the high water mark and the other maximums, so that they can be watched over a new period.
+     */
+    void resetMaximums();
+}
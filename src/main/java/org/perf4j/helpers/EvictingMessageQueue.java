@@ -0,0 +1,32 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+/**
+ * An EvictingMessageQueue is a {@link MessageQueue} that also allows producer threads to remove the oldest element,
+ * which is needed by the "DropOldest" overflow policy of the {@link GenericAsyncCoalescingStatisticsAppender}.
+ *
+ * @param <E> The type of element held in the queue.
+ */
+public interface EvictingMessageQueue<E> extends MessageQueue<E> {
+    /**
+     * Removes the head of the queue, if there is one, without waiting. Unlike {@link #poll}, this method may be called
+     * by any thread, concurrently with the consumer thread.
+     *
+     * @return The element removed, or null if the queue is empty.
+     */
+    E evict();
+}
@@ -18,12 +18,23 @@ package org.perf4j.helpers;
 import org.perf4j.GroupedTimingStatistics;
 import org.perf4j.StopWatch;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * This class provides the implementation for the AsyncCoalescingStatisticsAppenders made available for different
@@ -57,6 +68,57 @@ public class GenericAsyncCoalescingStatisticsAppender {
         void error(String errorMessage);
     }
 
+    /**
+     * The OverflowPolicy determines what happens to a message that is appended when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The appending thread waits up to OverflowBlockMillis for room in the queue, and then discards the message.
+         */
+        BLOCK,
+        /**
+         * The appended message is discarded. This is the default.
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest message in the queue is discarded to make room for the appended message. This policy requires a
+         * MessageQueue that implements {@link EvictingMessageQueue}.
+         */
+        DROP_OLDEST,
+        /**
+         * The appended message is aggregated on the appending thread, in the same way as with the
+         * PreAggregationBufferSize option, and passed to the draining thread once its time slice is over. Nothing is
+         * discarded. Note String messages are parsed on the appending thread.
+         */
+        AGGREGATE,
+        /**
+         * The appended message is written to the spill file set by the SpillFile option, and all later messages are
+         * too until the draining thread has read everything in the spill file, so that messages stay in order. The
+         * message is only discarded if the spill file is full.
+         */
+        SPILL
+    }
+
+    /**
+     * The maximum number of messages pulled off the loggedMessages queue at one time by the draining thread.
+     */
+    private static final int DRAIN_BATCH_SIZE = 64;
+    /**
+     * When the messages are parsed by several AggregationThreads, more messages are pulled off the queue at one time
+     * so that each thread gets a reasonably sized chunk to parse.
+     */
+    private static final int PARALLEL_DRAIN_BATCH_SIZE = 1024;
+    /**
+     * The smallest number of messages parsed as one chunk by an AggregationThread. Smaller batches are parsed by the
+     * draining thread itself, as handing them off would cost more than it saves.
+     */
+    private static final int MIN_PARSE_CHUNK_SIZE = 64;
+    /**
+     * Discarded messages are reported to the handler at most once in this many milliseconds, so that an overloaded
+     * appender doesn't make things worse by logging an error for every discarded message.
+     */
+    private static final long DISCARD_REPORT_INTERVAL_MILLIS = 10000L;
+
     // --- configuration options ---
     /**
      * The name of this appender.
@@ -66,14 +128,58 @@ public class GenericAsyncCoalescingStatisticsAppender {
      * TimeSlice option
      */
     private long timeSlice = 30000L;
+    /**
+     * FlushGraceMillis option
+     */
+    private long flushGraceMillis = 0L;
+    /**
+     * ReorderWindowMillis option
+     */
+    private long reorderWindowMillis = 0L;
     /**
      * CreateRollupStatistics option
      */
     private boolean createRollupStatistics = false;
+    /**
+     * HistogramPrecision option
+     */
+    private int histogramPrecision = 0;
+    /**
+     * TimeUnit option
+     */
+    private TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+    /**
+     * AggregationThreads option
+     */
+    private int aggregationThreads = 1;
     /**
      * The QueueSize option, used to set the capacity of the loggedMessages queue
      */
     private int queueSize = 1024;
+    /**
+     * PreAggregationBufferSize option, 0 if StopWatches are not pre-aggregated on the threads that log them
+     */
+    private int preAggregationBufferSize = 0;
+    /**
+     * OverflowPolicy option
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+    /**
+     * OverflowBlockMillis option, only used by the BLOCK overflow policy
+     */
+    private long overflowBlockMillis = 100L;
+    /**
+     * SpillFile option, only used by the SPILL overflow policy
+     */
+    private String spillFileName = null;
+    /**
+     * SpillFileMaxSize option
+     */
+    private int spillFileMaxSize = 64 * 1024 * 1024;
+    /**
+     * MetricsMBeanName option
+     */
+    private String metricsMBeanName = null;
     /**
      * Wait time for queue to clear when shutting down, in milliseconds.
      */
@@ -83,6 +189,11 @@ public class GenericAsyncCoalescingStatisticsAppender {
      * org.perf4j.helpers.StopWatchParser
      */
     private String stopWatchParserClassName = StopWatchParser.class.getName();
+    /**
+     * The fully qualified class name of the MessageQueue implementation used to hold logged messages, defaults to
+     * org.perf4j.helpers.ArrayBlockingMessageQueue
+     */
+    private String messageQueueClassName = ArrayBlockingMessageQueue.class.getName();
 
     // --- contained objects ---
     /**
@@ -91,9 +202,10 @@ public class GenericAsyncCoalescingStatisticsAppender {
      */
     private GroupedTimingStatisticsHandler handler = null;
     /**
-     * StopWatch log messages are pushed onto this queue, which is initialized in start().
+     * StopWatch log messages are pushed onto this queue, which is initialized in start(). Elements are either
+     * StopWatch instances, which are used as is, or Strings, which are parsed by the stopWatchParser.
      */
-    private BlockingQueue<String> loggedMessages = null;
+    private MessageQueue<Object> loggedMessages = null;
     /**
      * This parser is used to convert String log messages to StopWatches
      */
@@ -103,9 +215,54 @@ public class GenericAsyncCoalescingStatisticsAppender {
      */
     private Thread drainingThread = null;
     /**
-     * This int keeps track of the total number of messages that had to be discarded due to the queue being full.
+     * The number of appended messages that were discarded because the queue was full.
+     */
+    private final AtomicLong numRejectedMessages = new AtomicLong();
+    /**
+     * The number of queued messages that were discarded to make room for newer messages by the DROP_OLDEST policy.
+     */
+    private final AtomicLong numEvictedMessages = new AtomicLong();
+    /**
+     * The number of appends that had to wait for room in the queue with the BLOCK policy.
+     */
+    private final AtomicLong numBlockedAppends = new AtomicLong();
+    /**
+     * The number of appended messages that were aggregated on the appending thread by the AGGREGATE policy.
+     */
+    private final AtomicLong numAggregatedMessages = new AtomicLong();
+    /**
+     * The earliest time at which discarded messages are next reported to the handler.
+     */
+    private final AtomicLong nextDiscardReportTime = new AtomicLong();
+    /**
+     * The total number of discarded messages when they were last reported to the handler.
+     */
+    private volatile long numReportedDiscardedMessages = 0L;
+    /**
+     * The number of appended messages that were written to the spill file.
+     */
+    private final AtomicLong numSpilledMessages = new AtomicLong();
+    /**
+     * The spill file used by the SPILL overflow policy, or null if another policy is used.
+     */
+    private SpillFile spillFile;
+    /**
+     * The metrics describing how well this appender is keeping up.
      */
-    private volatile int numDiscardedMessages = 0;
+    private final AsyncAppenderMetrics metrics = new AsyncAppenderMetrics(this);
+    /**
+     * The iterator used by the draining thread to group StopWatches, which keeps track of late StopWatches.
+     */
+    private volatile GroupingStatisticsIterator groupingIterator;
+    /**
+     * If the PreAggregationBufferSize option is set or the AGGREGATE overflow policy is used, each thread that appends
+     * StopWatches has its own buffer. This is null otherwise.
+     */
+    private ThreadLocal<PreAggregationBuffer> preAggregationBuffer = null;
+    /**
+     * All the PreAggregationBuffers, so that the draining thread can publish the buffers of idle threads.
+     */
+    private Queue<PreAggregationBuffer> preAggregationBuffers = null;
 
     // --- options ---
     /**
@@ -146,6 +303,53 @@ public class GenericAsyncCoalescingStatisticsAppender {
         this.timeSlice = timeSlice;
     }
 
+    /**
+     * The <b>FlushGraceMillis</b> option is how long after the end of each time slice, in milliseconds, its statistics
+     * are sent to the GroupedTimingStatisticsHandler if no StopWatch has closed it before then. A time slice is closed
+     * as soon as a StopWatch that started in the next time slice is logged, so while StopWatches are being logged the
+     * grace period has no effect. When the appender is idle, time slices are instead closed on these wall clock times,
+     * so consumers such as JMX or graphing appenders never see stale data, and time slices without any StopWatches are
+     * sent as empty statistics. To count StopWatches that were still running at the end of a time slice in that time
+     * slice under load, use the ReorderWindowMillis option. Defaults to 0, and should be less than the TimeSlice.
+     *
+     * @return The FlushGraceMillis option.
+     */
+    public long getFlushGraceMillis() {
+        return flushGraceMillis;
+    }
+
+    /**
+     * Sets the value of the <b>FlushGraceMillis</b> option.
+     *
+     * @param flushGraceMillis The new FlushGraceMillis option, in milliseconds.
+     */
+    public void setFlushGraceMillis(long flushGraceMillis) {
+        this.flushGraceMillis = flushGraceMillis;
+    }
+
+    /**
+     * The <b>ReorderWindowMillis</b> option makes StopWatches count towards the time slice they started in even if
+     * they are logged up to this many milliseconds after StopWatches that started later, which is common as
+     * StopWatches are logged when they stop. It should be at least as long as the slowest code being timed. The
+     * statistics of each time slice are sent this long after the time slice ends (or after the FlushGraceMillis, if
+     * that is longer). StopWatches that arrive later than this are counted in the current time slice instead, see
+     * {@link #getNumLateStopWatches()}. Defaults to 0, which means StopWatches are not reordered.
+     *
+     * @return The ReorderWindowMillis option.
+     */
+    public long getReorderWindowMillis() {
+        return reorderWindowMillis;
+    }
+
+    /**
+     * Sets the value of the <b>ReorderWindowMillis</b> option.
+     *
+     * @param reorderWindowMillis The new ReorderWindowMillis option, in milliseconds.
+     */
+    public void setReorderWindowMillis(long reorderWindowMillis) {
+        this.reorderWindowMillis = reorderWindowMillis;
+    }
+
     /**
      * The <b>CreateRollupStatistics</b> option is used to determine whether "rollup" statistics should be created.
      * If the tag name of a StopWatch in a log message contains periods, then the GroupedTimingStatistics will be
@@ -176,6 +380,73 @@ public class GenericAsyncCoalescingStatisticsAppender {
         this.createRollupStatistics = createRollupStatistics;
     }
 
+    /**
+     * The <b>HistogramPrecision</b> option is used to determine whether percentiles (for example the 99th percentile
+     * execution time) are tracked for each tag. If set to a value greater than 0, each TimingStatistics in the created
+     * GroupedTimingStatistics records its samples in a {@link org.perf4j.TimingHistogram} with this precision, and
+     * reported percentiles have a relative error of at most 1/2<sup>precision</sup>. A value of 5 (about 3%) is a
+     * good choice. Defaults to 0, which means percentiles are not tracked.
+     *
+     * @return The HistogramPrecision option.
+     */
+    public int getHistogramPrecision() {
+        return histogramPrecision;
+    }
+
+    /**
+     * Sets the value of the <b>HistogramPrecision</b> option.
+     *
+     * @param histogramPrecision The new HistogramPrecision option.
+     */
+    public void setHistogramPrecision(int histogramPrecision) {
+        this.histogramPrecision = histogramPrecision;
+    }
+
+    /**
+     * The <b>TimeUnit</b> option determines the unit of the times in the created GroupedTimingStatistics. The elapsed
+     * time of each StopWatch is converted to this unit, so a finer unit should be used if the timed blocks of code
+     * commonly complete in under a millisecond. Valid values are "ns", "us", "ms" and "s". Defaults to "ms".
+     *
+     * @return The TimeUnit option.
+     */
+    public String getTimeUnit() {
+        return MiscUtils.formatTimeUnit(timeUnit);
+    }
+
+    /**
+     * Sets the value of the <b>TimeUnit</b> option.
+     *
+     * @param timeUnit The new TimeUnit option.
+     */
+    public void setTimeUnit(String timeUnit) {
+        this.timeUnit = MiscUtils.parseTimeUnit(timeUnit);
+    }
+
+    /**
+     * The <b>AggregationThreads</b> option is used to control the number of threads that aggregate StopWatches into
+     * GroupedTimingStatistics. Defaults to 1, in which case a single thread pulls messages off the queue and aggregates
+     * them. If set higher, the String messages are parsed in chunks by this many additional worker threads (unless a
+     * custom StopWatchParserClassName is set, in which case the single thread still parses them), the StopWatches are
+     * spread by tag over the same threads in batches, and the statistics from all workers are merged at the end of
+     * each time slice. The GroupedTimingStatistics created are the same either way, so this option
+     * should only be increased if the single thread can't keep up with the rate of logged StopWatches (i.e.
+     * {@link #getNumDiscardedMessages()} keeps growing) and there are cores to spare.
+     *
+     * @return The AggregationThreads option.
+     */
+    public int getAggregationThreads() {
+        return aggregationThreads;
+    }
+
+    /**
+     * Sets the value of the <b>AggregationThreads</b> option.
+     *
+     * @param aggregationThreads The new AggregationThreads option.
+     */
+    public void setAggregationThreads(int aggregationThreads) {
+        this.aggregationThreads = aggregationThreads;
+    }
+
     /**
      * The <b>QueueSize</b> option is used to control the size of the internal queue used by this appender to store
      * logged messages before they are sent to downstream appenders. Defaults to 1024. If set too small and the queue
@@ -197,6 +468,152 @@ public class GenericAsyncCoalescingStatisticsAppender {
         this.queueSize = queueSize;
     }
 
+    /**
+     * The <b>PreAggregationBufferSize</b> option is used to aggregate StopWatches on the threads that log them,
+     * instead of passing each StopWatch through the queue to the draining thread. If set to a value greater than 0,
+     * each thread aggregates the StopWatches it logs into its own buffer, which is passed through the queue as a
+     * single message when the thread logs a StopWatch from a later time slice, or when this many StopWatches have
+     * been aggregated. The buffers of threads that stop logging StopWatches are picked up by the draining thread at
+     * the end of each time slice. This reduces the traffic through the queue from one message for each StopWatch to
+     * about one for each logging thread in each time slice, and the statistics created are exactly the same. Only
+     * StopWatch objects passed to {@link #append(StopWatch)} are pre-aggregated; String messages still need to be
+     * parsed by the draining thread. Defaults to 0, which means StopWatches are not pre-aggregated.
+     *
+     * @return The PreAggregationBufferSize option.
+     */
+    public int getPreAggregationBufferSize() {
+        return preAggregationBufferSize;
+    }
+
+    /**
+     * Sets the value of the <b>PreAggregationBufferSize</b> option.
+     *
+     * @param preAggregationBufferSize The new PreAggregationBufferSize option.
+     */
+    public void setPreAggregationBufferSize(int preAggregationBufferSize) {
+        this.preAggregationBufferSize = preAggregationBufferSize;
+    }
+
+    /**
+     * The <b>OverflowPolicy</b> option determines what happens to a StopWatch message that is appended when the queue
+     * is full (see the QueueSize option). The possible values are:
+     * <ul>
+     * <li>DropNewest - the message is discarded. This is the default.
+     * <li>DropOldest - the oldest message in the queue is discarded to make room, so that the statistics reflect the
+     *     most recent StopWatches. This requires a MessageQueue that implements {@link EvictingMessageQueue}, such as
+     *     the default ArrayBlockingMessageQueue.
+     * <li>Block - the logging thread waits for up to OverflowBlockMillis for room in the queue before discarding the
+     *     message, which slows the application down rather than losing data during short bursts.
+     * <li>Aggregate - the message is aggregated on the logging thread and handed over once its time slice is over,
+     *     so nothing is discarded, at the cost of parsing String messages on the logging thread.
+     * <li>Spill - the message is written to a memory-mapped spill file (see the SpillFile option), and so are all
+     *     following messages until the draining thread has caught up and replayed the spill file into the correct
+     *     time slices. The statistics are delayed rather than lost during traffic spikes. Note StopWatches passed to
+     *     {@link #append(StopWatch)} are rendered to Strings to be spilled, and messages are only discarded once the
+     *     spill file is full.
+     * </ul>
+     * The number of messages affected by each policy is available from {@link #getNumDiscardedMessages()},
+     * {@link #getNumEvictedMessages()}, {@link #getNumBlockedAppends()} and {@link #getNumAggregatedMessages()}.
+     * Discarded messages are reported to the GroupedTimingStatisticsHandler at most once every 10 seconds.
+     *
+     * @return The OverflowPolicy option.
+     */
+    public String getOverflowPolicy() {
+        return overflowPolicy.name();
+    }
+
+    /**
+     * Sets the value of the <b>OverflowPolicy</b> option. The policy names are not case sensitive, and words may be
+     * separated by underscores, e.g. "DropOldest" and "DROP_OLDEST" are the same policy.
+     *
+     * @param overflowPolicy The new OverflowPolicy option.
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy =
+                OverflowPolicy.valueOf(overflowPolicy.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+    }
+
+    /**
+     * The <b>OverflowBlockMillis</b> option is the maximum time, in milliseconds, that a logging thread waits for room
+     * in the queue when the OverflowPolicy is Block. Defaults to 100 milliseconds.
+     *
+     * @return The OverflowBlockMillis option.
+     */
+    public long getOverflowBlockMillis() {
+        return overflowBlockMillis;
+    }
+
+    /**
+     * Sets the value of the <b>OverflowBlockMillis</b> option.
+     *
+     * @param overflowBlockMillis The new OverflowBlockMillis option.
+     */
+    public void setOverflowBlockMillis(long overflowBlockMillis) {
+        this.overflowBlockMillis = overflowBlockMillis;
+    }
+
+    /**
+     * The <b>SpillFile</b> option is the name of the file used by the Spill overflow policy, which is required when
+     * that policy is used. Messages left in the spill file when the appender is stopped, or when the process dies,
+     * are replayed the next time the appender is started with the same spill file.
+     *
+     * @return The SpillFile option.
+     */
+    public String getSpillFile() {
+        return spillFileName;
+    }
+
+    /**
+     * Sets the value of the <b>SpillFile</b> option.
+     *
+     * @param spillFile The new SpillFile option.
+     */
+    public void setSpillFile(String spillFile) {
+        this.spillFileName = spillFile;
+    }
+
+    /**
+     * The <b>SpillFileMaxSize</b> option is the size in bytes of the spill file, which bounds the disk space it uses.
+     * Messages are discarded if the spill file is full. Defaults to 64MB. Note an existing spill file keeps the size
+     * it was created with.
+     *
+     * @return The SpillFileMaxSize option.
+     */
+    public int getSpillFileMaxSize() {
+        return spillFileMaxSize;
+    }
+
+    /**
+     * Sets the value of the <b>SpillFileMaxSize</b> option.
+     *
+     * @param spillFileMaxSize The new SpillFileMaxSize option.
+     */
+    public void setSpillFileMaxSize(int spillFileMaxSize) {
+        this.spillFileMaxSize = spillFileMaxSize;
+    }
+
+    /**
+     * The <b>MetricsMBeanName</b> option is the JMX ObjectName under which the {@link AsyncAppenderMetrics} of this
+     * appender are registered with the platform MBeanServer, e.g. "org.perf4j:type=AsyncAppenderMetrics,name=stats".
+     * The metrics include the queue depth and high water mark, drain batch sizes, parse and aggregation times, the
+     * lag of each time slice, the time taken by downstream appenders and the discard counts, which help with sizing the
+     * QueueSize and TimeSlice options. If not set, which is the default, the metrics are not registered.
+     *
+     * @return The MetricsMBeanName option.
+     */
+    public String getMetricsMBeanName() {
+        return metricsMBeanName;
+    }
+
+    /**
+     * Sets the value of the <b>MetricsMBeanName</b> option. This must be a valid JMX ObjectName.
+     *
+     * @param metricsMBeanName The new MetricsMBeanName option.
+     */
+    public void setMetricsMBeanName(String metricsMBeanName) {
+        this.metricsMBeanName = metricsMBeanName;
+    }
+
     /**
      * The <b>ShutdownWaitMillis</b> option is used to control how long this class will block, waiting for the queue
      * to drain, when shutting-down the Appender.
@@ -221,7 +638,10 @@ public class GenericAsyncCoalescingStatisticsAppender {
 
     /**
      * The <b>StopWatchParserClassName</b> option is used to determine the class used to parse stop watch messages
-     * into StopWatch instances. This defaults to the standard "org.perf4j.helpers.StopWatchParser" class.
+     * into StopWatch instances. This defaults to the standard "org.perf4j.helpers.StopWatchParser" class. A single
+     * instance of the class is created, which is only ever called from one thread at a time, so custom parsers need
+     * not be thread-safe. Note that with a custom parser the String messages are never parsed by the
+     * AggregationThreads, as the standard parser is the only one known to be safe to call concurrently.
      *
      * @return The StopWatchParserClassName option.
      */
@@ -238,14 +658,130 @@ public class GenericAsyncCoalescingStatisticsAppender {
         this.stopWatchParserClassName = stopWatchParserClassName;
     }
 
+    /**
+     * The <b>MessageQueueClassName</b> option is used to determine the {@link MessageQueue} implementation that holds
+     * logged messages until they are pulled off by the draining thread. This defaults to
+     * "org.perf4j.helpers.ArrayBlockingMessageQueue", which uses a single lock. Setting this to
+     * "org.perf4j.helpers.RingBufferMessageQueue" uses a lock-free ring buffer instead, which reduces contention when
+     * many threads log StopWatches concurrently.
+     *
+     * @return The MessageQueueClassName option.
+     */
+    public String getMessageQueueClassName() {
+        return messageQueueClassName;
+    }
+
+    /**
+     * Sets the value of the <b>MessageQueueClassName</b> option.
+     *
+     * @param messageQueueClassName The new MessageQueueClassName option.
+     */
+    public void setMessageQueueClassName(String messageQueueClassName) {
+        this.messageQueueClassName = messageQueueClassName;
+    }
+
     // --- attributes ---
     /**
-     * Returns the number of StopWatch messages that have been discarded due to the queue being full.
+     * Returns the number of StopWatch messages that have been discarded due to the queue being full, including those
+     * evicted by the DropOldest overflow policy. A pre-aggregated message counts as the number of StopWatches it holds.
      *
-     * @return The number of discarded messages.
+     * @return The number of discarded messages, or Integer.MAX_VALUE if more than that have been discarded.
      */
     public int getNumDiscardedMessages() {
-        return numDiscardedMessages;
+        return (int) Math.min(numRejectedMessages.get() + numEvictedMessages.get(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of StopWatch messages that have been discarded because the queue was full and the overflow
+     * policy couldn't make room for them. Together with {@link #getNumEvictedMessages()} these make up
+     * {@link #getNumDiscardedMessages()}.
+     *
+     * @return The number of rejected messages.
+     */
+    public long getNumRejectedMessages() {
+        return numRejectedMessages.get();
+    }
+
+    /**
+     * Returns the number of queued StopWatch messages that have been discarded to make room for newer messages by the
+     * DropOldest overflow policy. These are included in {@link #getNumDiscardedMessages()}.
+     *
+     * @return The number of evicted messages.
+     */
+    public long getNumEvictedMessages() {
+        return numEvictedMessages.get();
+    }
+
+    /**
+     * Returns the number of times a logging thread had to wait for room in the queue with the Block overflow policy,
+     * whether or not room became available in time.
+     *
+     * @return The number of blocked appends.
+     */
+    public long getNumBlockedAppends() {
+        return numBlockedAppends.get();
+    }
+
+    /**
+     * Returns the number of StopWatch messages that were aggregated on the logging thread by the Aggregate overflow
+     * policy because the queue was full.
+     *
+     * @return The number of aggregated messages.
+     */
+    public long getNumAggregatedMessages() {
+        return numAggregatedMessages.get();
+    }
+
+    /**
+     * Returns the number of StopWatch messages that were written to the spill file by the Spill overflow policy.
+     *
+     * @return The number of spilled messages.
+     */
+    public long getNumSpilledMessages() {
+        return numSpilledMessages.get();
+    }
+
+    /**
+     * Returns how far the draining thread is behind when the Spill overflow policy is used, which is the time since
+     * the oldest message still in the spill file was written.
+     *
+     * @return The lag in milliseconds, or 0 if the spill file is empty.
+     */
+    public long getSpillLagMillis() {
+        SpillFile spillFile = this.spillFile;
+        long oldestWriteTime = (spillFile == null) ? -1L : spillFile.getOldestWriteTime();
+        return (oldestWriteTime < 0L) ? 0L : Math.max(0L, System.currentTimeMillis() - oldestWriteTime);
+    }
+
+    /**
+     * Returns the number of StopWatches that were logged more than ReorderWindowMillis after a StopWatch that started
+     * later, and so were counted in a later time slice than the one they started in.
+     *
+     * @return The number of late StopWatches, always 0 if the ReorderWindowMillis option is not set.
+     */
+    public long getNumLateStopWatches() {
+        GroupingStatisticsIterator groupingIterator = this.groupingIterator;
+        return (groupingIterator == null) ? 0L : groupingIterator.getNumLateStopWatches();
+    }
+
+    /**
+     * Returns the number of messages currently waiting in the queue.
+     *
+     * @return The queue depth, which is 0 if the appender hasn't been started.
+     */
+    public int getQueueDepth() {
+        MessageQueue<Object> loggedMessages = this.loggedMessages;
+        return (loggedMessages == null) ? 0 : loggedMessages.size();
+    }
+
+    /**
+     * Returns the metrics describing how well this appender is keeping up. These are also exposed through JMX if the
+     * MetricsMBeanName option is set.
+     *
+     * @return The AsyncAppenderMetrics of this appender.
+     */
+    public AsyncAppenderMetrics getMetrics() {
+        return metrics;
     }
 
     // --- main lifecycle methods ---
@@ -263,12 +799,48 @@ public class GenericAsyncCoalescingStatisticsAppender {
 
         this.handler = handler;
         stopWatchParser = newStopWatchParser();
-        numDiscardedMessages = 0;
-        loggedMessages = new ArrayBlockingQueue<String>(getQueueSize());
+        numRejectedMessages.set(0L);
+        numEvictedMessages.set(0L);
+        numBlockedAppends.set(0L);
+        numAggregatedMessages.set(0L);
+        nextDiscardReportTime.set(0L);
+        numReportedDiscardedMessages = 0L;
+        numSpilledMessages.set(0L);
+        metrics.reset();
+        loggedMessages = newMessageQueue();
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST && !(loggedMessages instanceof EvictingMessageQueue)) {
+            throw new RuntimeException("The DropOldest overflow policy can't be used with a " + messageQueueClassName
+                                       + " as it is not an EvictingMessageQueue");
+        }
+        spillFile = (overflowPolicy == OverflowPolicy.SPILL) ? newSpillFile() : null;
+        if (preAggregationBufferSize > 0 || overflowPolicy == OverflowPolicy.AGGREGATE) {
+            //if only used for overflow, buffers are only published when their time slice is over
+            final int maxBufferSize = (preAggregationBufferSize > 0) ? preAggregationBufferSize : Integer.MAX_VALUE;
+            preAggregationBuffers = new ConcurrentLinkedQueue<PreAggregationBuffer>();
+            preAggregationBuffer = new ThreadLocal<PreAggregationBuffer>() {
+                protected PreAggregationBuffer initialValue() {
+                    PreAggregationBuffer retVal = new PreAggregationBuffer(loggedMessages,
+                                                                           timeSlice,
+                                                                           maxBufferSize,
+                                                                           createRollupStatistics,
+                                                                           histogramPrecision,
+                                                                           timeUnit);
+                    preAggregationBuffers.add(retVal);
+                    return retVal;
+                }
+            };
+        } else {
+            preAggregationBuffers = null;
+            preAggregationBuffer = null;
+        }
 
         drainingThread = new Thread(new Dispatcher(), "perf4j-async-stats-appender-sink-" + getName());
         drainingThread.setDaemon(true);
         drainingThread.start();
+
+        if (metricsMBeanName != null) {
+            registerMetricsMBean();
+        }
     }
 
     /**
@@ -280,27 +852,171 @@ public class GenericAsyncCoalescingStatisticsAppender {
     public void append(String message) {
         //Do a quick check to cull out any messages not meant for us
         if (stopWatchParser.isPotentiallyValid(message)) {
-            if (!loggedMessages.offer(message)) {
-                ++numDiscardedMessages;
-                handler.error(message);
+            if (spillFile != null && !spillFile.isEmpty()) {
+                //once messages are spilled, later messages must be too so they're replayed in order
+                spill(message);
+            } else if (!loggedMessages.offer(message)) {
+                handleOverflow(message);
             }
         }
     }
 
+    /**
+     * This append method should be used in preference to {@link #append(String)} when the logging framework has
+     * the StopWatch object itself available, as it avoids rendering the StopWatch to a String and parsing it again
+     * on the draining thread.
+     *
+     * @param stopWatch The stopped StopWatch that was logged, may not be null. This StopWatch should not be modified
+     *                  after it is passed to this method.
+     */
+    public void append(StopWatch stopWatch) {
+        if (preAggregationBufferSize > 0) {
+            //the buffer holds on to its contents if the queue is full, so there is no overflow to handle
+            preAggregationBuffer.get().add(stopWatch);
+        } else if (spillFile != null && !spillFile.isEmpty()) {
+            spill(stopWatch);
+        } else if (!loggedMessages.offer(stopWatch)) {
+            handleOverflow(stopWatch);
+        }
+    }
+
     /**
      * This method should be called on shutdown to flush any pending messages in the queue and create a final
      * GroupedTimingStatistics instance if necessary.
      */
     public void stop() {
         stopDrainingThread();
+        if (metricsMBeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(metricsMBeanName));
+            } catch (Exception e) {
+                //fine, if we can't unregister it's not a big deal
+            }
+        }
     }
 
     // --- Helper Methods ---
+    /**
+     * Helper method applies the OverflowPolicy to a message that could not be added to the full queue.
+     *
+     * @param message The String or StopWatch message.
+     */
+    private void handleOverflow(Object message) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                numBlockedAppends.incrementAndGet();
+                try {
+                    if (loggedMessages.offer(message, overflowBlockMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException ie) {
+                    //then give up and discard the message, preserving the interrupt for the application
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            case DROP_OLDEST:
+                EvictingMessageQueue<Object> evictingQueue = (EvictingMessageQueue<Object>) loggedMessages;
+                //other threads may be filling the queue too, so only try a few times
+                for (int i = 0; i < 8; i++) {
+                    Object evicted = evictingQueue.evict();
+                    if ("".equals(evicted)) {
+                        //we evicted the marker telling the draining thread to stop, so it must go back in; rather
+                        //than block this thread until there is room, evict other messages until it fits
+                        while (!loggedMessages.offer(evicted)) {
+                            Object evictedForMarker = evictingQueue.evict();
+                            if (evictedForMarker != null) {
+                                numEvictedMessages.addAndGet(getNumStopWatches(evictedForMarker));
+                            }
+                        }
+                        break;
+                    }
+                    if (evicted != null) {
+                        numEvictedMessages.addAndGet(getNumStopWatches(evicted));
+                    }
+                    if (loggedMessages.offer(message)) {
+                        reportDiscardedMessages();
+                        return;
+                    }
+                }
+                break;
+            case AGGREGATE:
+                StopWatch stopWatch = (message instanceof StopWatch) ?
+                                      (StopWatch) message :
+                                      stopWatchParser.parseStopWatch((String) message);
+                if (stopWatch != null) {
+                    preAggregationBuffer.get().add(stopWatch);
+                    numAggregatedMessages.incrementAndGet();
+                }
+                return;
+            case SPILL:
+                spill(message);
+                return;
+            default:
+                break;
+        }
+
+        numRejectedMessages.addAndGet(getNumStopWatches(message));
+        reportDiscardedMessages();
+    }
+
+    /**
+     * Helper method writes a message to the spill file, discarding it if the spill file is full.
+     *
+     * @param message The String or StopWatch message.
+     */
+    private void spill(Object message) {
+        if (spillFile.append(message.toString())) {
+            numSpilledMessages.incrementAndGet();
+        } else {
+            numRejectedMessages.incrementAndGet();
+            reportDiscardedMessages();
+        }
+    }
+
+    /**
+     * Helper method reports the number of discarded messages to the handler, if they haven't been reported in the
+     * last DISCARD_REPORT_INTERVAL_MILLIS.
+     */
+    private void reportDiscardedMessages() {
+        long now = System.currentTimeMillis();
+        long reportTime = nextDiscardReportTime.get();
+        if (now >= reportTime
+            && nextDiscardReportTime.compareAndSet(reportTime, now + DISCARD_REPORT_INTERVAL_MILLIS)) {
+            long numDiscarded = numRejectedMessages.get() + numEvictedMessages.get();
+            long numNewlyDiscarded = numDiscarded - numReportedDiscardedMessages;
+            numReportedDiscardedMessages = numDiscarded;
+            handler.error("The queue is full, " + numNewlyDiscarded + " StopWatch messages discarded since the last "
+                          + "report (" + numDiscarded + " in total) using the " + overflowPolicy + " overflow policy");
+        }
+    }
+
+    /**
+     * Helper method returns the number of StopWatches represented by a queued message.
+     *
+     * @param message The String or StopWatch message.
+     * @return The number of StopWatches.
+     */
+    private static int getNumStopWatches(Object message) {
+        return (message instanceof PreAggregatedStopWatch) ?
+               ((PreAggregatedStopWatch) message).getNumStopWatches() :
+               1;
+    }
+
     /**
      * Helper method stops the draining thread and waits for it to finish.
      */
     private void stopDrainingThread() {
         try {
+            //publish what's left in the pre-aggregation buffers so it's included in the final statistics
+            if (preAggregationBuffers != null) {
+                List<Object> bufferContents = new ArrayList<Object>();
+                for (PreAggregationBuffer buffer : preAggregationBuffers) {
+                    buffer.takeAll(bufferContents);
+                }
+                for (Object message : bufferContents) {
+                    loggedMessages.put(message);
+                }
+            }
             //pushing an empty string on the queue tells the draining thread that we're closing
             loggedMessages.put("");
             //wait for the draining thread to finish
@@ -309,6 +1025,13 @@ public class GenericAsyncCoalescingStatisticsAppender {
             if (loggedMessages.size() > 0) {
                 handler.error("Shutdown, queued/undrained stopwatch count: " + loggedMessages.size());
             }
+            if (spillFile != null) {
+                if (!spillFile.isEmpty()) {
+                    handler.error("Shutdown, the spilled messages still in " + spillFile.getFile()
+                                  + " will be replayed when the appender is next started");
+                }
+                spillFile.close();
+            }
         } catch (Exception e) {
             handler.error("Unexpected error stopping AsyncCoalescingStatisticsAppender draining thread: "
                     + e.getMessage());
@@ -330,24 +1053,124 @@ public class GenericAsyncCoalescingStatisticsAppender {
         }
     }
 
+    /**
+     * Helper method registers the metrics with the platform MBeanServer, replacing any MBean already registered under
+     * the MetricsMBeanName. Errors are passed to the handler, as the appender works without its metrics.
+     */
+    private void registerMetricsMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(metricsMBeanName);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(metrics, objectName);
+        } catch (Exception e) {
+            handler.error("Could not register the metrics MBean " + metricsMBeanName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method opens the spill file based on the SpillFile and SpillFileMaxSize options.
+     *
+     * @return The opened SpillFile
+     */
+    private SpillFile newSpillFile() {
+        if (spillFileName == null) {
+            throw new RuntimeException("The SpillFile option must be set to use the Spill overflow policy");
+        }
+        try {
+            return new SpillFile(new File(spillFileName), spillFileMaxSize);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Could not open spill file " + spillFileName + ": " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Helper method instantiates a new MessageQueue based on the MessageQueueClassName and QueueSize options.
+     *
+     * @return The newly created MessageQueue
+     */
+    @SuppressWarnings("unchecked")
+    private MessageQueue<Object> newMessageQueue() {
+        try {
+            return (MessageQueue<Object>) Class.forName(messageQueueClassName)
+                    .getConstructor(Integer.TYPE)
+                    .newInstance(getQueueSize());
+        } catch (Exception e) {
+            throw new RuntimeException("Could not create MessageQueue: " + e.getMessage(), e);
+        }
+    }
+
     // --- Support Classes ---
     /**
      * This Dispatcher Runnable uses a StopWatchesFromQueueIterator to pull StopWatch logging message off the
-     * loggedMessages queue, which are grouped to create GroupedTimingStatistics by the GroupingStatisticsIterator.
-     * The GroupedTimingStatisticsHandler is then called to deal with the created GroupedTimingStatistics.
+     * loggedMessages queue, which are grouped to create GroupedTimingStatistics by the GroupingStatisticsIterator
+     * (or the ShardedGroupingStatisticsIterator if more than one AggregationThread is used, whose threads then also
+     * parse the messages). The
+     * GroupedTimingStatisticsHandler is then called to deal with the created GroupedTimingStatistics.
      */
     private class Dispatcher implements Runnable {
         public void run() {
-            GroupingStatisticsIterator statsIterator =
-                    new GroupingStatisticsIterator(new StopWatchesFromQueueIterator(),
-                                                   timeSlice,
-                                                   createRollupStatistics);
+            StopWatchesFromQueueIterator stopWatchIterator = new StopWatchesFromQueueIterator();
+            GroupingStatisticsIterator statsIterator;
+            if (aggregationThreads > 1) {
+                ShardedGroupingStatisticsIterator shardedIterator =
+                        new ShardedGroupingStatisticsIterator(stopWatchIterator,
+                                                              timeSlice,
+                                                              createRollupStatistics,
+                                                              histogramPrecision,
+                                                              timeUnit,
+                                                              aggregationThreads,
+                                                              queueSize,
+                                                              "perf4j-async-stats-appender-aggregator-"
+                                                              + getName() + "-");
+                //the aggregation threads also parse the String messages, which is the most expensive step, but only
+                //with the standard parser: a custom parser may not be safe to call from several threads at once
+                if (stopWatchParser.getClass() == StopWatchParser.class) {
+                    stopWatchIterator.setParseExecutor(shardedIterator, aggregationThreads);
+                }
+                statsIterator = shardedIterator;
+            } else {
+                statsIterator = new GroupingStatisticsIterator(stopWatchIterator,
+                                                               timeSlice,
+                                                               createRollupStatistics,
+                                                               histogramPrecision,
+                                                               timeUnit);
+            }
+            //the StopWatch iterator signals the end of every time slice, so idle ones are sent as empty statistics
+            statsIterator.setFillEmptyTimeSlices(true);
+            statsIterator.setReorderWindow(reorderWindowMillis);
+            groupingIterator = statsIterator;
 
-            while (statsIterator.hasNext()) {
-                try {
-                    handler.handle(statsIterator.next());
-                } catch (Exception e) {
-                    handler.error("Error calling the GroupedTimingStatisticsHandler: " + e.getMessage());
+            try {
+                while (statsIterator.hasNext()) {
+                    GroupedTimingStatistics statistics = statsIterator.next();
+                    long aggregationNanos = stopWatchIterator.takeAggregationNanos();
+                    //the lag is counted from when the first StopWatch of the time slice stopped, if that's known
+                    long earliestStopTime = statsIterator.getEarliestStopTime();
+                    long lagMillis = System.currentTimeMillis() - ((earliestStopTime == Long.MAX_VALUE) ?
+                                                                   statistics.getStopTime() :
+                                                                   earliestStopTime);
+                    long handleStartNanos = System.nanoTime();
+                    try {
+                        handler.handle(statistics);
+                    } catch (Exception e) {
+                        handler.error("Error calling the GroupedTimingStatisticsHandler: " + e.getMessage());
+                    }
+                    metrics.recordTimeSlice(aggregationNanos, System.nanoTime() - handleStartNanos, lagMillis);
+                }
+            } finally {
+                if (statsIterator instanceof ShardedGroupingStatisticsIterator) {
+                    //if iteration was abandoned, still send the StopWatches the aggregation threads hold
+                    GroupedTimingStatistics statistics = ((ShardedGroupingStatisticsIterator) statsIterator).close();
+                    if (statistics != null) {
+                        try {
+                            handler.handle(statistics);
+                        } catch (Exception e) {
+                            handler.error("Error calling the GroupedTimingStatisticsHandler: " + e.getMessage());
+                        }
+                    }
                 }
             }
         }
@@ -359,9 +1182,26 @@ public class GenericAsyncCoalescingStatisticsAppender {
      */
     private class StopWatchesFromQueueIterator implements Iterator<StopWatch> {
         /**
-         * Messages are drained to this list in blocks.
+         * Messages are drained to this list in blocks. The list is reused for each block so that draining doesn't
+         * allocate.
+         */
+        private ArrayList<Object> drainedMessages = new ArrayList<Object>(DRAIN_BATCH_SIZE);
+        /**
+         * The number of messages pulled off the queue at one time.
+         */
+        private int drainBatchSize = DRAIN_BATCH_SIZE;
+        /**
+         * If set, the String messages of large batches are parsed in chunks by this Executor.
+         */
+        private Executor parseExecutor = null;
+        /**
+         * The number of threads of the parseExecutor.
+         */
+        private int parseThreads = 1;
+        /**
+         * The index in drainedMessages of the next message to process.
          */
-        private LinkedList<String> drainedMessages = new LinkedList<String>();
+        private int drainedMessagesIndex = 0;
         /**
          * Keeps track of the NEXT stop watch we will return.
          */
@@ -375,6 +1215,24 @@ public class GenericAsyncCoalescingStatisticsAppender {
          * If true, hasNext will return true and next will return null.
          */
         private boolean timeSliceOver;
+        /**
+         * The next time at which the pre-aggregation buffers of idle threads are checked, if they are used.
+         */
+        private long nextBufferCheckTime = 0L;
+        /**
+         * The wall clock time at which the end of the current time slice is next signalled if the queue is empty,
+         * which is the end of the time slice plus the FlushGraceMillis.
+         */
+        private long nextFlushTime = getNextFlushTime(System.currentTimeMillis());
+        /**
+         * The time the last StopWatch was returned, or 0 if the time since then has already been counted. Everything
+         * the caller does until it asks for the next StopWatch counts as aggregation time.
+         */
+        private long lastReturnNanos = 0L;
+        /**
+         * The aggregation time since it was last taken by the Dispatcher.
+         */
+        private long aggregationNanos = 0L;
 
         public boolean hasNext() {
             if (nextStopWatch == null) {
@@ -403,27 +1261,94 @@ public class GenericAsyncCoalescingStatisticsAppender {
             throw new UnsupportedOperationException();
         }
 
+        /**
+         * Makes the String messages be parsed by the threads of the specified Executor, in chunks, rather than by the
+         * draining thread. The StopWatches are still returned in the order they were drained.
+         *
+         * @param parseExecutor The Executor that parses the messages.
+         * @param parseThreads  The number of threads of the Executor.
+         */
+        void setParseExecutor(Executor parseExecutor, int parseThreads) {
+            this.parseExecutor = parseExecutor;
+            this.parseThreads = parseThreads;
+            this.drainBatchSize = PARALLEL_DRAIN_BATCH_SIZE;
+            this.drainedMessages.ensureCapacity(PARALLEL_DRAIN_BATCH_SIZE);
+        }
+
+        /**
+         * Returns the time the caller has spent aggregating the StopWatches returned by this iterator since this method
+         * was last called, and starts counting again.
+         *
+         * @return The aggregation time in nanoseconds.
+         */
+        long takeAggregationNanos() {
+            stopAggregationTimer();
+            long retVal = aggregationNanos;
+            aggregationNanos = 0L;
+            return retVal;
+        }
+
+        private void stopAggregationTimer() {
+            if (lastReturnNanos != 0L) {
+                aggregationNanos += System.nanoTime() - lastReturnNanos;
+                lastReturnNanos = 0L;
+            }
+        }
+
         private StopWatch getNext() {
+            stopAggregationTimer();
+            StopWatch retVal = getNextFromQueue();
+            if (retVal != null) {
+                lastReturnNanos = System.nanoTime();
+            }
+            return retVal;
+        }
+
+        private StopWatch getNextFromQueue() {
             if (done) {
                 //if we already found out we're done, short circuit so we won't block
                 return null;
             }
 
             while (true) {
-                if (drainedMessages.isEmpty()) {
-                    loggedMessages.drainTo(drainedMessages, 64);
+                if (drainedMessagesIndex >= drainedMessages.size()) {
+                    drainedMessages.clear();
+                    drainedMessagesIndex = 0;
+                    //buffers must be taken before messages from the next time slice are drained
+                    takeIdlePreAggregationBuffers();
+                    loggedMessages.drainTo(drainedMessages, drainBatchSize);
+                    //anything in the queue was logged before the spilled messages, so the spill file is read next
+                    if (drainedMessages.isEmpty() && spillFile != null) {
+                        spillFile.read(drainedMessages, drainBatchSize);
+                    }
+                    if (!drainedMessages.isEmpty()) {
+                        metrics.recordDrainBatch(drainedMessages.size(), loggedMessages.size());
+                    }
+                    if (parseExecutor != null && drainedMessages.size() >= 2 * MIN_PARSE_CHUNK_SIZE) {
+                        parseInParallel();
+                    }
 
-                    //drainTo is more efficient but it doesn't block, so if we're still empty call take() to block
+                    //drainTo is more efficient but it doesn't block, so if we're still empty call poll() to block
                     if (drainedMessages.isEmpty()) {
-                        //then wait for a message to show up
+                        //the end of the time slice is only signalled once the queue and the spill file are empty;
+                        //while there is a backlog, the start times of the StopWatches close the time slices
+                        long now = System.currentTimeMillis();
+                        if (now >= nextFlushTime) {
+                            nextFlushTime = getNextFlushTime(now);
+                            timeSliceOver = true;
+                            return null;
+                        }
+
+                        //then wait for a message to show up, or until it's time to close the time slice
                         try {
-                            String message = loggedMessages.poll(timeSlice, TimeUnit.MILLISECONDS);
+                            Object message = loggedMessages.poll(Math.max(1L, nextFlushTime - now),
+                                                                 TimeUnit.MILLISECONDS);
                             if (message == null) {
-                                // no new messages, but want to indicate to check the timeslice
-                                timeSliceOver = true;
-                                return null;
+                                //no new messages, check the idle buffers and signal the end of the time slice
+                                continue;
                             } else {
                                 drainedMessages.add(message);
+                                metrics.recordDrainBatch(1, loggedMessages.size());
                             }
                         } catch (InterruptedException ie) {
                             //someone interrupted us, we're done
@@ -433,16 +1358,33 @@ public class GenericAsyncCoalescingStatisticsAppender {
                     }
                 }
 
-                while (!drainedMessages.isEmpty()) {
-                    String message = drainedMessages.removeFirst();
-                    if (message.length() == 0) {
+                while (drainedMessagesIndex < drainedMessages.size()) {
+                    Object message = drainedMessages.set(drainedMessagesIndex++, null);
+                    if (message == null) {
+                        //a message that was already found not to be a valid StopWatch by parseInParallel
+                        continue;
+                    }
+                    if (message instanceof StopWatch) {
+                        //no need to parse, the logging framework passed us the StopWatch directly
+                        return (StopWatch) message;
+                    }
+
+                    String messageString = (String) message;
+                    if (messageString.length() == 0) {
+                        //replay the spill file before stopping, keeping the marker after the replayed messages
+                        if (spillFile != null && spillFile.read(drainedMessages, drainBatchSize) > 0) {
+                            drainedMessages.add(messageString);
+                            continue;
+                        }
                         //the empty message is pushed onto the queue by the enclosing class' close() method
                         //to indicate that we're done
                         done = true;
                         return null;
                     }
 
-                    StopWatch parsedStopWatch = stopWatchParser.parseStopWatch(message);
+                    long parseStartNanos = System.nanoTime();
+                    StopWatch parsedStopWatch = stopWatchParser.parseStopWatch(messageString);
+                    metrics.recordParse(System.nanoTime() - parseStartNanos);
                     if (parsedStopWatch != null) {
                         return parsedStopWatch;
                     }
@@ -450,5 +1392,116 @@ public class GenericAsyncCoalescingStatisticsAppender {
                 }
             }
         }
+
+        /**
+         * Parses the String messages in the drainedMessages on the threads of the parseExecutor, replacing each with
+         * its StopWatch, or with null if it isn't a valid StopWatch. The empty String that marks the end of the
+         * messages is left alone. This method always waits for every chunk to finish, even if it is interrupted, as
+         * the chunks write to the drainedMessages. If parsing a chunk fails, its messages that haven't been parsed yet
+         * are simply parsed by the draining thread as usual.
+         */
+        private void parseInParallel() {
+            int size = drainedMessages.size();
+            int chunkSize = Math.max(MIN_PARSE_CHUNK_SIZE,
+                                     (size - drainedMessagesIndex + parseThreads - 1) / parseThreads);
+            List<FutureTask<long[]>> chunks = new ArrayList<FutureTask<long[]>>(parseThreads);
+            for (int chunkStart = drainedMessagesIndex; chunkStart < size; chunkStart += chunkSize) {
+                FutureTask<long[]> chunk =
+                        new FutureTask<long[]>(new ChunkParser(chunkStart, Math.min(size, chunkStart + chunkSize)));
+                chunks.add(chunk);
+                parseExecutor.execute(chunk);
+            }
+
+            boolean interrupted = false;
+            for (FutureTask<long[]> chunk : chunks) {
+                while (true) {
+                    try {
+                        long[] parsedCountAndNanos = chunk.get();
+                        metrics.recordParse(parsedCountAndNanos[0], parsedCountAndNanos[1]);
+                        break;
+                    } catch (ExecutionException ee) {
+                        handler.error("Error parsing StopWatch messages: " + ee.getCause());
+                        break;
+                    } catch (InterruptedException ie) {
+                        //then we're being shut down, but the chunk is still using the drainedMessages, so keep
+                        //waiting; each chunk only parses a bounded number of messages
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                //preserve the interrupt, the next poll of the queue will notice it
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Gets the time at which the end of the current time slice should be signalled.
+         *
+         * @param now The current time.
+         * @return The end of the first time slice that ends after now minus the grace period, plus the grace period,
+         *         which is the FlushGraceMillis or ReorderWindowMillis, whichever is longer.
+         */
+        private long getNextFlushTime(long now) {
+            //when reordering, time slices can't be completed until the reordering window has passed
+            long gracePeriod = Math.max(flushGraceMillis, reorderWindowMillis);
+            return (((now - gracePeriod) / timeSlice) * timeSlice) + timeSlice + gracePeriod;
+        }
+
+        /**
+         * Once each time slice is over, takes the contents of the pre-aggregation buffers that still hold StopWatches
+         * from that time slice (which happens if their threads haven't logged a StopWatch since), and adds them to the
+         * drainedMessages. Buffers of threads that have ended are removed.
+         *
+         * @return true if any buffer contents were added to the drainedMessages.
+         */
+        private boolean takeIdlePreAggregationBuffers() {
+            long now = System.currentTimeMillis();
+            if (preAggregationBuffers == null || now < nextBufferCheckTime) {
+                return false;
+            }
+            nextBufferCheckTime = ((now / timeSlice) * timeSlice) + timeSlice;
+
+            boolean retVal = false;
+            for (Iterator<PreAggregationBuffer> iter = preAggregationBuffers.iterator(); iter.hasNext();) {
+                PreAggregationBuffer buffer = iter.next();
+                if (buffer.takeIfTimeSliceOver(now, drainedMessages) > 0) {
+                    retVal = true;
+                } else if (buffer.isAbandoned()) {
+                    iter.remove();
+                }
+            }
+            return retVal;
+        }
+
+        /**
+         * Parses the String messages in a range of the drainedMessages in place.
+         */
+        private class ChunkParser implements Callable<long[]> {
+            private final int chunkStart;
+            private final int chunkEnd;
+
+            public ChunkParser(int chunkStart, int chunkEnd) {
+                this.chunkStart = chunkStart;
+                this.chunkEnd = chunkEnd;
+            }
+
+            /**
+             * @return The number of messages parsed and the time it took in nanoseconds.
+             */
+            public long[] call() {
+                long parseStartNanos = System.nanoTime();
+                long parsedCount = 0L;
+                //each chunk only sets its own elements, and the Future publishes them to the draining thread
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    Object message = drainedMessages.get(i);
+                    if (message instanceof String && ((String) message).length() > 0) {
+                        drainedMessages.set(i, stopWatchParser.parseStopWatch((String) message));
+                        parsedCount++;
+                    }
+                }
+                return new long[] { parsedCount, System.nanoTime() - parseStartNanos };
+            }
+        }
     }
 }
@@ -38,6 +38,18 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
      */
     public static final String DEFAULT_FORMAT_STRING = "tag,start,stop,mean,min,max,stddev,count";
 
+    /**
+     * The unit of the times depends on the GroupedTimingStatistics, not the TimingStatistics, so this retriever is
+     * just a marker that is handled specially by the format method.
+     */
+    private static final TimingStatsValueRetriever UNIT_VALUE_RETRIEVER = new TimingStatsValueRetriever() {
+        public void appendValue(String tag, String start, String stop, long windowLength,
+                                TimingStatistics timingStats,
+                                StringBuilder toAppend) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
     //whether or not the output is pivoted
     private boolean pivot;
 
@@ -63,9 +75,12 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
      *                     for each tagged TimingStatistics item contained in the GroupedTimingStatisitcs).
      * @param configString The config string defines which values will be output, and should be a comma-separated list
      *                     of the values. Possible values if pivot is false are
-     *                     tag, start, stop, mean, min, max, stddev, count and tps. If pivot is true the possible
-     *                     values are start, stop, and then one of the statistics prefixed with the tag name. For
-     *                     example, a possible configString could be "start,stop,codeBlock1Mean,codeBlock2Max".
+     *                     tag, start, stop, mean, min, max, stddev, count, tps, p50, p90, p99, p999 and unit (the
+     *                     percentiles are only non-zero if the statistics track percentiles, see
+     *                     {@link TimingStatistics#getPercentile(double)}, and unit is the time unit of the mean,
+     *                     min, max, stddev and percentile values, e.g. "ms"). If pivot is true the possible
+     *                     values are start, stop, unit, and then one of the statistics prefixed with the tag name.
+     *                     For example, a possible configString could be "start,stop,codeBlock1Mean,codeBlock2Max".
      */
     public GroupedTimingStatisticsCsvFormatter(boolean pivot, String configString) {
         this.pivot = pivot;
@@ -97,6 +112,7 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
         String startTime = formatDate(stats.getStartTime());
         String stopTime = formatDate(stats.getStopTime());
         long windowLength = stats.getStopTime() - stats.getStartTime();
+        String unit = MiscUtils.formatTimeUnit(stats.getTimeUnit());
 
         StringBuilder retVal = new StringBuilder();
 
@@ -118,7 +134,11 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
                     if (i > 0) {
                         retVal.append(',');
                     }
-                    valueRetrievers[i].appendValue(tag, startTime, stopTime, windowLength, timingStats, retVal);
+                    if (valueRetrievers[i] == UNIT_VALUE_RETRIEVER) {
+                        retVal.append(unit);
+                    } else {
+                        valueRetrievers[i].appendValue(tag, startTime, stopTime, windowLength, timingStats, retVal);
+                    }
                 }
                 retVal.append(MiscUtils.NEWLINE);
             }
@@ -162,6 +182,13 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
                     toAppend.append(stop);
                 }
             };
+        } else if ("unit".equalsIgnoreCase(configName)) {
+            return new GroupedTimingStatisticsValueRetriever() {
+                public void appendValue(String start, String stop, long windowLength,
+                                        GroupedTimingStatistics stats, StringBuilder toAppend) {
+                    toAppend.append(MiscUtils.formatTimeUnit(stats.getTimeUnit()));
+                }
+            };
         } else if (configName.toLowerCase().endsWith("mean")) {
             final String tag = configName.substring(0, configName.length() - "mean".length());
             return new GroupedTimingStatisticsValueRetriever() {
@@ -207,6 +234,18 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
                     toAppend.append((timingStats == null) ? "" : timingStats.getCount());
                 }
             };
+        } else if (configName.toLowerCase().endsWith("p999")) {
+            return newPivotedPercentileValueRetriever(configName.substring(0, configName.length() - "p999".length()),
+                                                      99.9);
+        } else if (configName.toLowerCase().endsWith("p99")) {
+            return newPivotedPercentileValueRetriever(configName.substring(0, configName.length() - "p99".length()),
+                                                      99.0);
+        } else if (configName.toLowerCase().endsWith("p90")) {
+            return newPivotedPercentileValueRetriever(configName.substring(0, configName.length() - "p90".length()),
+                                                      90.0);
+        } else if (configName.toLowerCase().endsWith("p50")) {
+            return newPivotedPercentileValueRetriever(configName.substring(0, configName.length() - "p50".length()),
+                                                      50.0);
         } else if (configName.toLowerCase().endsWith("tps")) {
             final String tag = configName.substring(0, configName.length() - "tps".length());
             return new GroupedTimingStatisticsValueRetriever() {
@@ -298,6 +337,16 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
                     toAppend.append(timingStats.getCount());
                 }
             };
+        } else if ("p50".equals(configName)) {
+            return newPercentileValueRetriever(50.0);
+        } else if ("p90".equals(configName)) {
+            return newPercentileValueRetriever(90.0);
+        } else if ("p99".equals(configName)) {
+            return newPercentileValueRetriever(99.0);
+        } else if ("p999".equals(configName)) {
+            return newPercentileValueRetriever(99.9);
+        } else if ("unit".equals(configName)) {
+            return UNIT_VALUE_RETRIEVER;
         } else if ("tps".equals(configName)) {
             return new TimingStatsValueRetriever() {
                 public void appendValue(String tag, String start, String stop, long windowLength,
@@ -311,6 +360,41 @@ public class GroupedTimingStatisticsCsvFormatter implements GroupedTimingStatist
         }
     }
 
+    /**
+     * Helper method creates a TimingStatsValueRetriever that outputs the specified percentile.
+     *
+     * @param percentile The percentile to output, from 0.0 to 100.0
+     * @return The corresponding TimingStatsValueRetriever
+     */
+    protected TimingStatsValueRetriever newPercentileValueRetriever(final double percentile) {
+        return new TimingStatsValueRetriever() {
+            public void appendValue(String tag, String start, String stop, long windowLength,
+                                    TimingStatistics timingStats,
+                                    StringBuilder toAppend) {
+                toAppend.append(timingStats.getPercentile(percentile));
+            }
+        };
+    }
+
+    /**
+     * Helper method creates a GroupedTimingStatisticsValueRetriever that outputs the specified percentile of the
+     * specified tag.
+     *
+     * @param tag        The tag whose percentile value is output
+     * @param percentile The percentile to output, from 0.0 to 100.0
+     * @return The corresponding GroupedTimingStatisticsValueRetriever
+     */
+    protected GroupedTimingStatisticsValueRetriever newPivotedPercentileValueRetriever(final String tag,
+                                                                                       final double percentile) {
+        return new GroupedTimingStatisticsValueRetriever() {
+            public void appendValue(String start, String stop, long windowLength,
+                                    GroupedTimingStatistics stats, StringBuilder toAppend) {
+                TimingStatistics timingStats = stats.getStatisticsByTag().get(tag);
+                toAppend.append((timingStats == null) ? "" : timingStats.getPercentile(percentile));
+            }
+        };
+    }
+
     // --- Helper interfaces ---
 
     protected static interface TimingStatsValueRetriever {
@@ -20,6 +20,7 @@ import org.perf4j.StopWatch;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This Iterator wraps a {@link StopWatchLogIterator} to return a single {@link GroupedTimingStatistics} object for
@@ -28,12 +29,24 @@ import java.util.NoSuchElementException;
  * GroupedTimingStatistics object returned by this Iterator.
  * <p/>
  * Note that it's assumed that the StopWatch Iterator is ordered according to start time. If this is not true, then
- * this class will create GroupedTimingStatistics that may reflect StopWatch data from a previous time slice.
+ * this class will create GroupedTimingStatistics that may reflect StopWatch data from a previous time slice. As
+ * StopWatches are logged when they stop, long running StopWatches are usually out of order, so a reordering window can
+ * be set with {@link #setReorderWindow(long)} to put them back in order first.
  *
  * @author Alex Devine
  */
 public class
         GroupingStatisticsIterator implements Iterator<GroupedTimingStatistics> {
+    /**
+     * When filling empty time slices, gaps of more than this many time slices (e.g. because of a StopWatch with a
+     * bogus start time) are skipped rather than filled.
+     */
+    public static final int MAX_EMPTY_TIME_SLICES = 1000;
+    /**
+     * The number of tags after which a new tag dictionary is started for the next time slice.
+     */
+    public static final int MAX_SHARED_TAGS = 65536;
+
     /**
      * The underlying StopWatch iterator
      */
@@ -46,6 +59,28 @@ public class
      * Whether or not entries for "rollup" tags should be created in each GroupedTimingStatistics returned.
      */
     private boolean createRollupStatistics;
+    /**
+     * The precision of the histograms used to track percentiles, or 0 if percentiles are not tracked.
+     */
+    private int histogramPrecision;
+    /**
+     * The time unit of the statistics created.
+     */
+    private TimeUnit timeUnit;
+    /**
+     * Whether or not a GroupedTimingStatistics is returned for time slices without any StopWatches.
+     */
+    private boolean fillEmptyTimeSlices = false;
+    /**
+     * If a reordering window is set, this wraps the original StopWatch Iterator.
+     */
+    private ReorderingStopWatchIterator reorderingIterator = null;
+    /**
+     * The tag dictionary shared by the statistics of each time slice. It's replaced once it holds MAX_SHARED_TAGS tags,
+     * so that tags that are no longer logged are eventually forgotten. Volatile as subclasses may create statistics on
+     * other threads.
+     */
+    private volatile TagDictionary tagDictionary = new TagDictionary();
 
     /**
      * This hasNext is really a tri-state var - null indicates I don't know if there's a next one or not.
@@ -58,11 +93,32 @@ public class
     /**
      * Keeps track of the CURRENT GroupedTimingStatistics while we iterate over the underlying StopWatches
      */
-    private GroupedTimingStatistics currentGroupedTimingStatistics = new GroupedTimingStatistics();
+    private GroupedTimingStatistics currentGroupedTimingStatistics;
     /**
      * The end time, in milliseconds since the epoch, of the next time slice.
      */
     private long nextTimeSliceEndTime = 0L;
+    /**
+     * A StopWatch from a later time slice, which is added once the current time slice has been returned.
+     */
+    private StopWatch pendingStopWatch = null;
+    /**
+     * If empty time slices are filled, the start time of the pending StopWatch, or the current time when the
+     * StopWatch Iterator signalled the end of a time slice. Time slices are returned until this time is reached.
+     */
+    private long pendingTime = Long.MIN_VALUE;
+    /**
+     * The earliest stop time of the StopWatches added to the current time slice, or Long.MAX_VALUE if there are none.
+     */
+    private long currentEarliestStopTime = Long.MAX_VALUE;
+    /**
+     * The earliest stop time of the StopWatches in the time slice that was completed last.
+     */
+    private long completedEarliestStopTime = Long.MAX_VALUE;
+    /**
+     * The earliest stop time of the StopWatches in the GroupedTimingStatistics last returned by next().
+     */
+    private long earliestStopTime = Long.MAX_VALUE;
 
     /**
      * Creates a GroupingStatisticsIterator that groups StopWatch instances pulled from the specified
@@ -90,10 +146,116 @@ public class
     public GroupingStatisticsIterator(Iterator<StopWatch> stopWatchIterator,
                                       long timeSlice,
                                       boolean createRollupStatistics) {
+        this(stopWatchIterator, timeSlice, createRollupStatistics, 0);
+    }
+
+    /**
+     * Creates a GroupingStatisticsIterator that groups StopWatch instances pulled from the specified
+     * stopWatchIterator into GroupedTimingStatistics whose TimingStatistics track percentiles.
+     *
+     * @param stopWatchIterator      The StopWatch Iterator that provides the StopWatch instances. If stopWatchIterator
+     *                               returns a null value, will check to see if a timeslice is over and return
+     *                               GroupedTimingStatistics if necessary.
+     * @param timeSlice              The length of each time slice, in milliseconds.
+     * @param createRollupStatistics Whether or not entries for "rollup" tags should be created
+     * @param histogramPrecision     The precision of the histograms used to track percentiles (see
+     *                               {@link org.perf4j.TimingHistogram#TimingHistogram(int)}), or 0 if percentiles
+     *                               should not be tracked.
+     */
+    public GroupingStatisticsIterator(Iterator<StopWatch> stopWatchIterator,
+                                      long timeSlice,
+                                      boolean createRollupStatistics,
+                                      int histogramPrecision) {
+        this(stopWatchIterator, timeSlice, createRollupStatistics, histogramPrecision, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a GroupingStatisticsIterator that groups StopWatch instances pulled from the specified
+     * stopWatchIterator into GroupedTimingStatistics in the specified time unit.
+     *
+     * @param stopWatchIterator      The StopWatch Iterator that provides the StopWatch instances. If stopWatchIterator
+     *                               returns a null value, will check to see if a timeslice is over and return
+     *                               GroupedTimingStatistics if necessary.
+     * @param timeSlice              The length of each time slice, in milliseconds.
+     * @param createRollupStatistics Whether or not entries for "rollup" tags should be created
+     * @param histogramPrecision     The precision of the histograms used to track percentiles (see
+     *                               {@link org.perf4j.TimingHistogram#TimingHistogram(int)}), or 0 if percentiles
+     *                               should not be tracked.
+     * @param timeUnit               The time unit of the statistics, see
+     *                               {@link GroupedTimingStatistics#setTimeUnit(TimeUnit)}.
+     */
+    public GroupingStatisticsIterator(Iterator<StopWatch> stopWatchIterator,
+                                      long timeSlice,
+                                      boolean createRollupStatistics,
+                                      int histogramPrecision,
+                                      TimeUnit timeUnit) {
         this.stopWatchIterator = stopWatchIterator;
         this.timeSlice = timeSlice;
         this.createRollupStatistics = createRollupStatistics;
-        this.currentGroupedTimingStatistics.setCreateRollupStatistics(createRollupStatistics);
+        this.histogramPrecision = histogramPrecision;
+        this.timeUnit = timeUnit;
+        this.currentGroupedTimingStatistics = newGroupedTimingStatistics();
+    }
+
+    /**
+     * Gets whether or not empty time slices are filled.
+     *
+     * @return The fillEmptyTimeSlices property.
+     */
+    public boolean isFillEmptyTimeSlices() {
+        return fillEmptyTimeSlices;
+    }
+
+    /**
+     * Sets whether or not a GroupedTimingStatistics is returned for every time slice between the first StopWatch and
+     * the last StopWatch or end of time slice signal (a null value from the StopWatch Iterator), including time slices
+     * without any StopWatches. By default these empty time slices are skipped, but when statistics are published as
+     * they happen, e.g. by the {@link GenericAsyncCoalescingStatisticsAppender}, consumers see an idle period as a
+     * series of empty time slices rather than as stale data. Gaps of more than {@link #MAX_EMPTY_TIME_SLICES} are
+     * still skipped.
+     *
+     * @param fillEmptyTimeSlices Whether or not empty time slices should be returned.
+     */
+    public void setFillEmptyTimeSlices(boolean fillEmptyTimeSlices) {
+        this.fillEmptyTimeSlices = fillEmptyTimeSlices;
+    }
+
+    /**
+     * Gets the reordering window.
+     *
+     * @return The reordering window in milliseconds, or 0 if StopWatches are not reordered.
+     */
+    public long getReorderWindow() {
+        return (reorderingIterator == null) ? 0L : reorderingIterator.getReorderWindow();
+    }
+
+    /**
+     * Sets a reordering window, so that StopWatches are assigned to the time slice of their start time even if they
+     * are logged up to this long after StopWatches that started later. This may only be set once, before iteration
+     * begins. A time slice is then only completed once the watermark (the latest start time seen minus the reordering
+     * window, see {@link ReorderingStopWatchIterator}) has passed its end, so the statistics of each time slice are
+     * delayed by the reordering window. StopWatches that are later than that are added to the current time slice and
+     * counted, see {@link #getNumLateStopWatches()}.
+     *
+     * @param reorderWindow The reordering window in milliseconds. If 0, StopWatches are not reordered.
+     */
+    public void setReorderWindow(long reorderWindow) {
+        if (reorderingIterator != null) {
+            throw new IllegalStateException("The reordering window has already been set");
+        }
+        if (reorderWindow > 0L) {
+            stopWatchIterator = reorderingIterator = new ReorderingStopWatchIterator(stopWatchIterator, reorderWindow);
+        }
+    }
+
+    /**
+     * Gets the number of StopWatches that arrived after the reordering window, and so may have been counted in a later
+     * time slice than the one they started in. This may be called from any thread.
+     *
+     * @return The number of late StopWatches, always 0 if no reordering window is set.
+     */
+    public long getNumLateStopWatches() {
+        return (reorderingIterator == null) ? 0L : reorderingIterator.getNumLateStopWatches();
     }
 
     public boolean hasNext() {
@@ -125,11 +287,25 @@ public class
 
         //before I return, clear the state of the variables used to determine the next value.
         GroupedTimingStatistics retVal = nextGroupedTimingStatistics;
+        earliestStopTime = completedEarliestStopTime;
         hasNext = null;
         nextGroupedTimingStatistics = null;
         return retVal;
     }
 
+    /**
+     * Gets the earliest time at which one of the StopWatches in the GroupedTimingStatistics last returned by
+     * {@link #next()} was stopped, i.e. the earliest start time plus elapsed time. This is used to measure how late the
+     * statistics are. PreAggregatedStopWatches are not included, as the stop times of the StopWatches they hold are
+     * not known.
+     *
+     * @return The earliest stop time in milliseconds since the epoch, or Long.MAX_VALUE if the statistics do not hold
+     *         any StopWatches whose stop time is known.
+     */
+    public long getEarliestStopTime() {
+        return earliestStopTime;
+    }
+
     /**
      * Remove is not supported.
      *
@@ -146,11 +322,40 @@ public class
      *         StopWatch instances left.
      */
     private GroupedTimingStatistics getNext() {
-        while (stopWatchIterator.hasNext()) {
+        while (true) {
+            //if filling empty time slices, first return the ones between the last time slice and the pending time
+            if (pendingTime >= nextTimeSliceEndTime) {
+                return completeTimeSlice(nextTimeSliceEndTime + timeSlice);
+            }
+            if (pendingStopWatch != null) {
+                addStopWatch(pendingStopWatch);
+                pendingStopWatch = null;
+            }
+            if (!stopWatchIterator.hasNext()) {
+                break;
+            }
+
             StopWatch stopWatch = stopWatchIterator.next();
+
+            //a time slice can only end once one has been started, which is done by the first StopWatch itself:
+            //anchoring it at the time of a null would merge all the older StopWatches into that one time slice
+            if (stopWatch == null && nextTimeSliceEndTime == 0L) {
+                continue;
+            }
             
-            // if stopwatch is null, then the timeslice might be over (use current time)
-            long startTime = stopWatch == null ? System.currentTimeMillis() : stopWatch.getStartTime();
+            // if stopwatch is null, then the timeslice might be over (use current time, or the watermark if
+            // reordering, as StopWatches before the current time may still be held back)
+            long startTime;
+            if (stopWatch != null) {
+                startTime = stopWatch.getStartTime();
+            } else if (reorderingIterator != null) {
+                startTime = reorderingIterator.getWatermark();
+                if (startTime == Long.MIN_VALUE) {
+                    continue;
+                }
+            } else {
+                startTime = System.currentTimeMillis();
+            }
             
             //the first time we pull a stop watch we need to set the first end time
             if (nextTimeSliceEndTime == 0L) {
@@ -159,38 +364,137 @@ public class
 
             if (startTime >= nextTimeSliceEndTime) {
                 //then we're over a new time boundary, so update the current timing statistics and return it.
-                currentGroupedTimingStatistics.setStartTime(nextTimeSliceEndTime - timeSlice);
-                currentGroupedTimingStatistics.setStopTime(nextTimeSliceEndTime);
-                GroupedTimingStatistics retVal = currentGroupedTimingStatistics;
-
-                //set the state for the next slice
-                currentGroupedTimingStatistics = new GroupedTimingStatistics();
-                currentGroupedTimingStatistics.setCreateRollupStatistics(createRollupStatistics);
-                if (stopWatch != null) {
-                	// only add if we got a new stopwatch, not if timeslice just expired
-                	currentGroupedTimingStatistics.addStopWatch(stopWatch);
-                }                
-                nextTimeSliceEndTime = ((startTime / timeSlice) * timeSlice) + timeSlice;
-                return retVal;
+                //a new stopwatch is added once the slice is returned, not if the timeslice just expired
+                pendingStopWatch = stopWatch;
+                if (fillEmptyTimeSlices && (startTime - nextTimeSliceEndTime) / timeSlice < MAX_EMPTY_TIME_SLICES) {
+                    pendingTime = startTime;
+                    return completeTimeSlice(nextTimeSliceEndTime + timeSlice);
+                }
+                return completeTimeSlice(((startTime / timeSlice) * timeSlice) + timeSlice);
             } else if (stopWatch != null) {
-                currentGroupedTimingStatistics.addStopWatch(stopWatch);
+                addStopWatch(stopWatch);
             }
         }
 
         //if here then there are no more stopwatches left, so clean up the last batch
-        if (!currentGroupedTimingStatistics.getStatisticsByTag().isEmpty()) {
-            currentGroupedTimingStatistics.setStartTime(nextTimeSliceEndTime - timeSlice);
-            currentGroupedTimingStatistics.setStopTime(nextTimeSliceEndTime);
-            GroupedTimingStatistics retVal = currentGroupedTimingStatistics;
-
-            //create an empty GroupedTimingStatistics so we know to return null in the next call to this method.
-            currentGroupedTimingStatistics = new GroupedTimingStatistics();
-            currentGroupedTimingStatistics.setCreateRollupStatistics(createRollupStatistics);
-
+        GroupedTimingStatistics retVal = takeCurrentTimeSlice();
+        if (!retVal.getStatisticsByTag().isEmpty()) {
+            retVal.setStartTime(nextTimeSliceEndTime - timeSlice);
+            retVal.setStopTime(nextTimeSliceEndTime);
             return retVal;
         } else {
             //The StopWatch iterator is done and we already printed the last GroupedTimingStatistics batch
             return null;
         }
     }
+
+    /**
+     * Helper method completes the current time slice and moves on to the next one.
+     *
+     * @param newNextTimeSliceEndTime The end time of the time slice after the current one.
+     * @return The statistics of the current time slice, with their start and stop times set.
+     */
+    private GroupedTimingStatistics completeTimeSlice(long newNextTimeSliceEndTime) {
+        GroupedTimingStatistics retVal = takeCurrentTimeSlice();
+        retVal.setStartTime(nextTimeSliceEndTime - timeSlice);
+        retVal.setStopTime(nextTimeSliceEndTime);
+        nextTimeSliceEndTime = newNextTimeSliceEndTime;
+        return retVal;
+    }
+
+    /**
+     * Completes the current time slice before its end, which is done when iteration is abandoned before the
+     * underlying StopWatch Iterator is exhausted (e.g. on shutdown) so that the StopWatches already added to it are
+     * not lost.
+     *
+     * @return The statistics of the current time slice, with their start and stop times set, or null if no StopWatches
+     *         have been added to it.
+     */
+    protected GroupedTimingStatistics completePartialTimeSlice() {
+        if (nextTimeSliceEndTime == 0L) {
+            return null;
+        }
+        if (pendingStopWatch != null) {
+            //the StopWatch that ended the last time slice hasn't been added yet, so it completes its own time slice
+            long pendingTimeSliceEndTime = ((pendingStopWatch.getStartTime() / timeSlice) * timeSlice) + timeSlice;
+            nextTimeSliceEndTime = Math.max(nextTimeSliceEndTime, pendingTimeSliceEndTime);
+            addStopWatch(pendingStopWatch);
+            pendingStopWatch = null;
+        }
+        GroupedTimingStatistics retVal = takeCurrentTimeSlice();
+        if (retVal.getStatisticsByTag().isEmpty()) {
+            return null;
+        }
+        retVal.setStartTime(nextTimeSliceEndTime - timeSlice);
+        retVal.setStopTime(nextTimeSliceEndTime);
+        return retVal;
+    }
+
+    /**
+     * Helper method adds a StopWatch to the current time slice, keeping track of the earliest stop time.
+     *
+     * @param stopWatch The StopWatch to add, never null.
+     */
+    private void addStopWatch(StopWatch stopWatch) {
+        if (!(stopWatch instanceof PreAggregatedStopWatch)) {
+            long stopTime = stopWatch.getStartTime() + stopWatch.getElapsedTime(TimeUnit.MILLISECONDS);
+            currentEarliestStopTime = Math.min(currentEarliestStopTime, stopTime);
+        }
+        addStopWatchToCurrentTimeSlice(stopWatch);
+    }
+
+    /**
+     * Helper method completes the statistics of the current time slice, together with its earliest stop time.
+     *
+     * @return The statistics of the current time slice, whose start and stop times must still be set.
+     */
+    private GroupedTimingStatistics takeCurrentTimeSlice() {
+        completedEarliestStopTime = currentEarliestStopTime;
+        currentEarliestStopTime = Long.MAX_VALUE;
+        return completeCurrentTimeSlice();
+    }
+
+    /**
+     * Adds a StopWatch to the statistics of the current time slice. Subclasses may override this method together with
+     * {@link #completeCurrentTimeSlice()} to change how the statistics of a time slice are collected.
+     *
+     * @param stopWatch The StopWatch to add, never null.
+     */
+    protected void addStopWatchToCurrentTimeSlice(StopWatch stopWatch) {
+        if (stopWatch instanceof PreAggregatedStopWatch) {
+            currentGroupedTimingStatistics.merge(((PreAggregatedStopWatch) stopWatch).getStatistics());
+        } else {
+            currentGroupedTimingStatistics.addStopWatch(stopWatch);
+        }
+    }
+
+    /**
+     * Returns the statistics collected for the current time slice and starts collecting a new, empty time slice.
+     * The caller sets the start and stop times on the returned statistics.
+     *
+     * @return The statistics of all the StopWatches added since the last call to this method.
+     */
+    protected GroupedTimingStatistics completeCurrentTimeSlice() {
+        GroupedTimingStatistics retVal = currentGroupedTimingStatistics;
+        currentGroupedTimingStatistics = newGroupedTimingStatistics();
+        return retVal;
+    }
+
+    /**
+     * Helper method creates the empty GroupedTimingStatistics used to collect the StopWatches of a time slice.
+     *
+     * @return A new GroupedTimingStatistics configured with this iterator's rollup, histogram and time unit options.
+     */
+    protected GroupedTimingStatistics newGroupedTimingStatistics() {
+        GroupedTimingStatistics retVal = new GroupedTimingStatistics();
+        TagDictionary tagDictionary = this.tagDictionary;
+        if (tagDictionary.size() >= MAX_SHARED_TAGS) {
+            this.tagDictionary = tagDictionary = new TagDictionary();
+        }
+        retVal.setTagDictionary(tagDictionary);
+        retVal.setCreateRollupStatistics(createRollupStatistics);
+        retVal.setHistogramPrecision(histogramPrecision);
+        retVal.setTimeUnit(timeUnit);
+        return retVal;
+    }
 }
@@ -0,0 +1,361 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.StopWatch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.text.ParsePosition;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The MappedStopWatchLogIterator reads StopWatches from a log file much faster than a {@link StopWatchLogIterator}
+ * by memory mapping the file and scanning its raw bytes for the "start[" marker that begins every StopWatch in the
+ * default format. Only the part of each line from the marker to the end of the line is decoded to characters and
+ * parsed, so lines that don't contain StopWatches cost little more than the time to read them. The StopWatches
+ * returned are the same, and in the same order, as those returned by a StopWatchLogIterator reading the same file.
+ * <p/>
+ * The file must be in a character set where ASCII characters are always encoded as the corresponding single byte and
+ * those bytes are never part of the encoding of another character, see {@link #isSupportedCharset(Charset)}.
+ * {@link #close()} should be called if iteration is abandoned before the end of the file.
+ */
+public class MappedStopWatchLogIterator implements Iterator<StopWatch>, Closeable {
+    /**
+     * The default maximum number of bytes of the file that are mapped at one time.
+     */
+    private static final int DEFAULT_MAX_WINDOW_SIZE = 64 * 1024 * 1024;
+    /**
+     * The bytes of the marker that begins every StopWatch in the default format.
+     */
+    private static final byte[] MARKER = { 's', 't', 'a', 'r', 't', '[' };
+
+    /**
+     * The maximum number of bytes of the file that are mapped at one time (unless a single line is larger). This is
+     * package-private so that tests can use small windows.
+     */
+    int maxWindowSize = DEFAULT_MAX_WINDOW_SIZE;
+    /**
+     * The channel used to map the file.
+     */
+    private FileChannel channel;
+    /**
+     * Whether or not the channel was opened by this iterator, and so should be closed by it.
+     */
+    private boolean ownsChannel;
+    /**
+     * The decoder used to decode the line fragments that contain StopWatches.
+     */
+    private CharsetDecoder decoder;
+    /**
+     * The file offset just past the last byte to read.
+     */
+    private long endOffset;
+    /**
+     * The file offset at which the next window will be mapped.
+     */
+    private long nextWindowStart;
+    /**
+     * The currently mapped part of the file, or null if the next window needs to be mapped. The position of the buffer
+     * is the next byte to scan.
+     */
+    private ByteBuffer window = null;
+    /**
+     * The parser used to parse line fragments.
+     */
+    private StopWatchParser stopWatchParser = new StopWatchParser();
+    /**
+     * The decoded fragment of the line currently being parsed, or null if the next marker needs to be found.
+     */
+    private String fragment = null;
+    /**
+     * The position in the fragment at which to look for the next StopWatch.
+     */
+    private ParsePosition fragmentPosition = new ParsePosition(0);
+    /**
+     * State variable points to the next StopWatch to be returned.
+     */
+    private StopWatch nextStopWatch = null;
+
+    /**
+     * Creates a new MappedStopWatchLogIterator that reads the specified file, decoded using the platform default
+     * character set.
+     *
+     * @param logFile The log file to parse.
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    public MappedStopWatchLogIterator(File logFile) throws IOException {
+        this(logFile, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a new MappedStopWatchLogIterator that reads the specified file.
+     *
+     * @param logFile The log file to parse.
+     * @param charset The character set of the log file, which must be supported according to isSupportedCharset.
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    public MappedStopWatchLogIterator(File logFile, Charset charset) throws IOException {
+        this(openChannel(logFile, charset), charset, 0L, -1L);
+        this.ownsChannel = true;
+    }
+
+    /**
+     * Creates a new MappedStopWatchLogIterator that reads part of a file from an open channel, which is not closed by
+     * this iterator.
+     *
+     * @param channel     The channel to read
+     * @param charset     The character set of the file, which must be supported according to isSupportedCharset.
+     * @param startOffset The offset of the first byte to read, which should be the start of a line.
+     * @param endOffset   The offset just past the last byte to read, which should be the end of a line, or -1 to
+     *                    read to the end of the file.
+     * @throws IOException Thrown if the size of the file could not be read.
+     */
+    MappedStopWatchLogIterator(FileChannel channel, Charset charset, long startOffset, long endOffset)
+            throws IOException {
+        if (!isSupportedCharset(charset)) {
+            throw new IllegalArgumentException("Log files in the " + charset + " character set can't be scanned");
+        }
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.nextWindowStart = startOffset;
+        this.endOffset = (endOffset < 0L) ? channel.size() : endOffset;
+    }
+
+    /**
+     * Determines whether log files in the specified character set can be read by this class. This is true for UTF-8
+     * and single-byte character sets that are ASCII compatible, such as ISO-8859-1.
+     *
+     * @param charset The character set to check
+     * @return true if the character set is supported.
+     */
+    public static boolean isSupportedCharset(Charset charset) {
+        try {
+            String asciiCheck = "start[\n";
+            return ("UTF-8".equals(charset.name()) || charset.newEncoder().maxBytesPerChar() == 1.0f)
+                   && asciiCheck.equals(new String(asciiCheck.getBytes(charset.name()), "US-ASCII"));
+        } catch (Exception e) {
+            //then the charset can't encode
+            return false;
+        }
+    }
+
+    /**
+     * Helper method opens the channel used to read a log file, after checking the character set so that the file
+     * isn't left open if it isn't supported.
+     *
+     * @param logFile The log file to open.
+     * @param charset The character set of the log file.
+     * @return The open FileChannel
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    private static FileChannel openChannel(File logFile, Charset charset) throws IOException {
+        if (!isSupportedCharset(charset)) {
+            throw new IllegalArgumentException("Log files in the " + charset + " character set can't be scanned");
+        }
+        return new FileInputStream(logFile).getChannel();
+    }
+
+    public boolean hasNext() {
+        if (nextStopWatch == null) {
+            nextStopWatch = getNext();
+        }
+        return nextStopWatch != null;
+    }
+
+    public StopWatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        StopWatch retVal = nextStopWatch;
+        nextStopWatch = null;
+        return retVal;
+    }
+
+    /**
+     * Remove is not supported.
+     *
+     * @throws UnsupportedOperationException Always thrown.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the log file, if it was opened by this iterator. This is called automatically when the end of the file
+     * is reached.
+     */
+    public void close() {
+        window = null;
+        nextWindowStart = endOffset;
+        if (ownsChannel) {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                //nothing to do, we're done with the file anyway
+            }
+        }
+    }
+
+    // --- Helper Methods ---
+    /**
+     * Helper method finds the next StopWatch in the file.
+     *
+     * @return The next StopWatch, or null if there are no more StopWatches.
+     */
+    private StopWatch getNext() {
+        try {
+            while (true) {
+                //a single line may contain more than one StopWatch
+                if (fragment != null) {
+                    StopWatch stopWatch = stopWatchParser.parseStopWatch(fragment, fragmentPosition);
+                    if (stopWatch != null) {
+                        return stopWatch;
+                    }
+                    fragment = null;
+                }
+
+                if (window == null || !window.hasRemaining()) {
+                    if (!mapNextWindow()) {
+                        close();
+                        return null;
+                    }
+                }
+
+                int markerIndex = indexOfMarker(window, window.position());
+                if (markerIndex < 0) {
+                    window.position(window.limit());
+                } else {
+                    int lineEnd = indexOfLineEnd(window, markerIndex);
+                    fragment = decode(window, markerIndex, lineEnd);
+                    fragmentPosition.setIndex(0);
+                    window.position(lineEnd);
+                }
+            }
+        } catch (IOException ioe) {
+            close();
+            throw new RuntimeException("Error reading log file: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Helper method maps the next window of the file. Windows always end at the end of a line (or the endOffset), so
+     * that a line never spans two windows.
+     *
+     * @return false if the endOffset has been reached.
+     * @throws IOException Thrown on a read error.
+     */
+    private boolean mapNextWindow() throws IOException {
+        long remaining = endOffset - nextWindowStart;
+        if (remaining <= 0L) {
+            return false;
+        }
+
+        long windowSize = Math.min(maxWindowSize, remaining);
+        while (true) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, nextWindowStart, windowSize);
+            if (windowSize == remaining) {
+                break;
+            }
+
+            //find the last newline so the window ends at the end of a line
+            int lastNewline = window.limit() - 1;
+            while (lastNewline >= 0 && window.get(lastNewline) != '\n') {
+                lastNewline--;
+            }
+            if (lastNewline >= 0) {
+                window.limit(lastNewline + 1);
+                break;
+            }
+
+            //a single line is larger than the window, so grow the window
+            if (windowSize >= Integer.MAX_VALUE) {
+                throw new IOException("Line longer than " + Integer.MAX_VALUE + " bytes at offset " + nextWindowStart);
+            }
+            windowSize = Math.min(Math.min(windowSize * 2, Integer.MAX_VALUE), remaining);
+        }
+
+        nextWindowStart += window.limit();
+        return true;
+    }
+
+    /**
+     * Helper method finds the next occurrence of the MARKER in the buffer.
+     *
+     * @param buffer    The buffer to search
+     * @param fromIndex The index at which to start searching
+     * @return The index of the marker, or -1 if it was not found before the limit of the buffer.
+     */
+    private static int indexOfMarker(ByteBuffer buffer, int fromIndex) {
+        int lastPossibleIndex = buffer.limit() - MARKER.length;
+        candidates:
+        for (int i = fromIndex; i <= lastPossibleIndex; i++) {
+            if (buffer.get(i) == MARKER[0]) {
+                for (int j = 1; j < MARKER.length; j++) {
+                    if (buffer.get(i + j) != MARKER[j]) {
+                        continue candidates;
+                    }
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method finds the end of the line containing the specified index.
+     *
+     * @param buffer    The buffer to search
+     * @param fromIndex The index at which to start searching
+     * @return The index of the next '\n' or '\r' character, or the limit of the buffer.
+     */
+    private static int indexOfLineEnd(ByteBuffer buffer, int fromIndex) {
+        int limit = buffer.limit();
+        for (int i = fromIndex; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Helper method decodes part of the buffer.
+     *
+     * @param buffer     The buffer containing the bytes to decode.
+     * @param beginIndex The index of the first byte to decode.
+     * @param endIndex   The index just past the last byte to decode.
+     * @return The decoded String
+     * @throws IOException Thrown if the bytes can't be decoded.
+     */
+    private String decode(ByteBuffer buffer, int beginIndex, int endIndex) throws IOException {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(endIndex);
+        bytes.position(beginIndex);
+        return decoder.decode(bytes).toString();
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MessageQueue interface defines the small subset of queue operations that the
+ * {@link GenericAsyncCoalescingStatisticsAppender} needs to hand logged messages from the application threads to its
+ * draining thread. Implementations must allow any number of threads to call the producer methods ({@link #offer} and
+ * {@link #put}) concurrently, but may assume that only a single consumer thread calls {@link #poll},
+ * {@link #drainTo} and {@link #clear}.
+ * <p/>
+ * Implementations are instantiated by class name (see
+ * {@link GenericAsyncCoalescingStatisticsAppender#setMessageQueueClassName(String)}), so they must have a public
+ * constructor that takes the int capacity of the queue.
+ *
+ * @param <E> The type of element held in the queue.
+ */
+public interface MessageQueue<E> {
+    /**
+     * Inserts the specified element if this can be done without waiting for space to become available.
+     *
+     * @param element The element to add, may not be null.
+     * @return true if the element was added, false if the queue is full.
+     */
+    boolean offer(E element);
+
+    /**
+     * Inserts the specified element, waiting up to the specified time if necessary for space to become available.
+     *
+     * @param element The element to add, may not be null.
+     * @param timeout How long to wait before giving up, in units of <tt>unit</tt>.
+     * @param unit    The TimeUnit of the timeout parameter.
+     * @return true if the element was added, false if the specified waiting time elapses before space is available.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Inserts the specified element, waiting if necessary for space to become available.
+     *
+     * @param element The element to add, may not be null.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    void put(E element) throws InterruptedException;
+
+    /**
+     * Retrieves and removes the head of the queue, waiting up to the specified time for an element to become
+     * available. Only called by the single consumer thread.
+     *
+     * @param timeout How long to wait before giving up, in units of <tt>unit</tt>.
+     * @param unit    The TimeUnit of the timeout parameter.
+     * @return The head of the queue, or null if the specified waiting time elapses before an element is available.
+     * @throws InterruptedException Thrown if interrupted while waiting.
+     */
+    E poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Removes at most the given number of available elements from this queue and adds them to the given collection,
+     * without waiting. Only called by the single consumer thread.
+     *
+     * @param collection  The collection to transfer elements into.
+     * @param maxElements The maximum number of elements to transfer.
+     * @return The number of elements transferred.
+     */
+    int drainTo(Collection<? super E> collection, int maxElements);
+
+    /**
+     * Returns the number of elements in this queue. Since producers and the consumer may be running concurrently this
+     * value is only an estimate.
+     *
+     * @return The number of elements currently in the queue.
+     */
+    int size();
+
+    /**
+     * Removes all of the elements from this queue.
+     */
+    void clear();
+}
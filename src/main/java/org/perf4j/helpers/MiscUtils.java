@@ -18,6 +18,7 @@ package org.perf4j.helpers;
 import org.perf4j.GroupedTimingStatistics;
 
 import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Miscellaneous static utility functions, mainly having to do with String parsing/formatting.
@@ -110,4 +111,51 @@ public class MiscUtils {
         }
         return retVal;
     }
+
+    /**
+     * Gets the abbreviation used for a TimeUnit in StopWatch log messages and statistics output: ns, us, ms or s.
+     *
+     * @param timeUnit The TimeUnit, may not be null
+     * @return The abbreviation
+     */
+    public static String formatTimeUnit(TimeUnit timeUnit) {
+        switch (timeUnit) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            case SECONDS:
+                return "s";
+            default:
+                return timeUnit.name().toLowerCase();
+        }
+    }
+
+    /**
+     * Parses a TimeUnit from its abbreviation (see {@link #formatTimeUnit(TimeUnit)}) or its name, ignoring case.
+     * This is useful for setting time unit options on appenders.
+     *
+     * @param timeUnit The abbreviation or name of the TimeUnit, e.g. "us" or "MICROSECONDS"
+     * @return The TimeUnit
+     * @throws IllegalArgumentException Thrown if timeUnit is not a known abbreviation or TimeUnit name.
+     */
+    public static TimeUnit parseTimeUnit(String timeUnit) {
+        String trimmedTimeUnit = timeUnit.trim();
+        if ("ns".equalsIgnoreCase(trimmedTimeUnit)) {
+            return TimeUnit.NANOSECONDS;
+        } else if ("us".equalsIgnoreCase(trimmedTimeUnit)) {
+            return TimeUnit.MICROSECONDS;
+        } else if ("ms".equalsIgnoreCase(trimmedTimeUnit)) {
+            return TimeUnit.MILLISECONDS;
+        } else if ("s".equalsIgnoreCase(trimmedTimeUnit)) {
+            return TimeUnit.SECONDS;
+        }
+        try {
+            return TimeUnit.valueOf(trimmedTimeUnit.toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Unknown time unit: " + timeUnit);
+        }
+    }
 }
@@ -0,0 +1,278 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.StopWatch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The ParallelStopWatchLogIterator parses the StopWatches in a log file using several threads. The file is split into
+ * chunks at line boundaries, and the chunks are parsed concurrently by a thread pool. The StopWatches are returned in
+ * exactly the same order as a {@link StopWatchLogIterator} reading the same file would return them, so this iterator
+ * can be wrapped in a GroupingStatisticsIterator to give the same statistics. Only a few chunks are parsed ahead of
+ * the chunk currently being iterated, so memory use does not depend on the size of the file.
+ * <p/>
+ * Each chunk is read by a {@link MappedStopWatchLogIterator}, so StopWatches must be logged in the default StopWatch
+ * format, and the file must be in a character set supported by that class (such as UTF-8 or ISO-8859-1).
+ * {@link #close()} should be
+ * called if iteration is abandoned before the end of the file, to release the file and thread pool.
+ */
+public class ParallelStopWatchLogIterator implements Iterator<StopWatch>, Closeable {
+    /**
+     * The default size, in bytes, of the chunks that are parsed by each thread.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The log file being parsed.
+     */
+    private RandomAccessFile logFile;
+    /**
+     * The character set used to decode the log file.
+     */
+    private Charset charset;
+    /**
+     * The approximate size of each chunk. Chunks are extended to the end of the line.
+     */
+    private int chunkSize;
+    /**
+     * The number of chunks that may be submitted to the thread pool ahead of the chunk being iterated.
+     */
+    private int maxPendingChunks;
+    /**
+     * The thread pool that parses the chunks.
+     */
+    private ExecutorService parsingThreads;
+    /**
+     * The file offset at which the next chunk to be submitted starts.
+     */
+    private long nextChunkStart = 0L;
+    /**
+     * The results of the chunks that have been submitted to the thread pool, in file order.
+     */
+    private LinkedList<Future<List<StopWatch>>> pendingChunks = new LinkedList<Future<List<StopWatch>>>();
+    /**
+     * The StopWatches of the chunk currently being iterated.
+     */
+    private Iterator<StopWatch> currentChunk = null;
+    /**
+     * Set once the end of the file is reached or close() is called.
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new ParallelStopWatchLogIterator that parses the specified file, decoded using the platform default
+     * character set, with DEFAULT_CHUNK_SIZE chunks.
+     *
+     * @param logFile The log file to parse.
+     * @param threads The number of threads used to parse the log file.
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    public ParallelStopWatchLogIterator(File logFile, int threads) throws IOException {
+        this(logFile, Charset.defaultCharset(), threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new ParallelStopWatchLogIterator that parses the specified file.
+     *
+     * @param logFile   The log file to parse.
+     * @param charset   The character set of the log file, see {@link MappedStopWatchLogIterator#isSupportedCharset}.
+     * @param threads   The number of threads used to parse the log file, must be at least 1.
+     * @param chunkSize The approximate size, in bytes, of the chunks parsed by each thread, must be positive.
+     * @throws IOException Thrown if the file could not be opened.
+     */
+    public ParallelStopWatchLogIterator(File logFile, Charset charset, int threads, int chunkSize)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be at least 1, was " + threads);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be positive, was " + chunkSize);
+        }
+        if (!MappedStopWatchLogIterator.isSupportedCharset(charset)) {
+            throw new IllegalArgumentException("Log files in the " + charset + " character set can't be split");
+        }
+
+        this.logFile = new RandomAccessFile(logFile, "r");
+        this.charset = charset;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = threads * 2;
+        this.parsingThreads = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread retVal = new Thread(runnable, "perf4j-log-parser");
+                retVal.setDaemon(true);
+                return retVal;
+            }
+        });
+    }
+
+    public boolean hasNext() {
+        while (currentChunk == null || !currentChunk.hasNext()) {
+            currentChunk = null;
+            if (closed) {
+                return false;
+            }
+            if (!submitChunks() && pendingChunks.isEmpty()) {
+                close();
+                return false;
+            }
+            currentChunk = takeChunk().iterator();
+        }
+        return true;
+    }
+
+    public StopWatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentChunk.next();
+    }
+
+    /**
+     * Remove is not supported.
+     *
+     * @throws UnsupportedOperationException Always thrown.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the parsing threads and closes the log file. This is called automatically when the end of the file is
+     * reached.
+     */
+    public void close() {
+        closed = true;
+        parsingThreads.shutdownNow();
+        pendingChunks.clear();
+        try {
+            logFile.close();
+        } catch (IOException ioe) {
+            //nothing to do, we're done with the file anyway
+        }
+    }
+
+    // --- Helper Methods ---
+    /**
+     * Helper method submits chunks to the thread pool until maxPendingChunks are pending or the end of the file
+     * is reached.
+     *
+     * @return true if any chunks remain in the file that have not been submitted yet.
+     */
+    private boolean submitChunks() {
+        try {
+            long fileLength = logFile.length();
+            while (pendingChunks.size() < maxPendingChunks && nextChunkStart < fileLength) {
+                long chunkStart = nextChunkStart;
+                long chunkEnd = findLineEnd(chunkStart + chunkSize, fileLength);
+                pendingChunks.add(parsingThreads.submit(new ChunkParser(chunkStart, chunkEnd)));
+                nextChunkStart = chunkEnd;
+            }
+            return nextChunkStart < fileLength;
+        } catch (IOException ioe) {
+            close();
+            throw new RuntimeException("Error reading log file: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Helper method waits for the first pending chunk to be parsed.
+     *
+     * @return The StopWatches parsed from the chunk.
+     */
+    private List<StopWatch> takeChunk() {
+        try {
+            return pendingChunks.removeFirst().get();
+        } catch (InterruptedException ie) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing log file", ie);
+        } catch (ExecutionException ee) {
+            close();
+            throw new RuntimeException("Error parsing log file: " + ee.getCause().getMessage(), ee.getCause());
+        }
+    }
+
+    /**
+     * Helper method finds the end of the line containing the specified file offset.
+     *
+     * @param offset     The file offset.
+     * @param fileLength The length of the file.
+     * @return The file offset just past the next '\n' at or after offset, or the fileLength if there is none.
+     * @throws IOException Thrown on a read error.
+     */
+    private long findLineEnd(long offset, long fileLength) throws IOException {
+        if (offset >= fileLength) {
+            return fileLength;
+        }
+
+        byte[] buffer = new byte[4096];
+        logFile.seek(offset);
+        while (true) {
+            int bytesRead = logFile.read(buffer);
+            if (bytesRead <= 0) {
+                return fileLength;
+            }
+            for (int i = 0; i < bytesRead; i++) {
+                if (buffer[i] == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += bytesRead;
+        }
+    }
+
+    // --- Support Classes ---
+    /**
+     * Parses all the StopWatches in a single chunk of the log file.
+     */
+    private class ChunkParser implements Callable<List<StopWatch>> {
+        private final long chunkStart;
+        private final long chunkEnd;
+
+        public ChunkParser(long chunkStart, long chunkEnd) {
+            this.chunkStart = chunkStart;
+            this.chunkEnd = chunkEnd;
+        }
+
+        public List<StopWatch> call() throws Exception {
+            //mapping is safe to perform concurrently on a FileChannel
+            Iterator<StopWatch> chunkIterator =
+                    new MappedStopWatchLogIterator(logFile.getChannel(), charset, chunkStart, chunkEnd);
+            List<StopWatch> retVal = new ArrayList<StopWatch>();
+            while (chunkIterator.hasNext()) {
+                retVal.add(chunkIterator.next());
+            }
+            return retVal;
+        }
+    }
+}
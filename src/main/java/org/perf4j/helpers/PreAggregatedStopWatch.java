@@ -0,0 +1,63 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+
+/**
+ * A PreAggregatedStopWatch stands in for all of the StopWatches that were aggregated by a {@link PreAggregationBuffer}
+ * on an application thread. It passes through the same queue and Iterator&lt;StopWatch&gt; as normal StopWatches, so
+ * that it stays in order with them, and the {@link GroupingStatisticsIterator} merges its statistics into the current
+ * time slice instead of adding it as a single StopWatch. Its start time is the start time of the time slice that the
+ * aggregated StopWatches belong to.
+ */
+@SuppressWarnings("serial")
+class PreAggregatedStopWatch extends StopWatch {
+    private final GroupedTimingStatistics statistics;
+    private final int numStopWatches;
+
+    /**
+     * Creates a PreAggregatedStopWatch.
+     *
+     * @param timeSliceStartTime The start time of the time slice of the aggregated StopWatches.
+     * @param statistics         The statistics of the aggregated StopWatches.
+     * @param numStopWatches     The number of StopWatches that were aggregated.
+     */
+    public PreAggregatedStopWatch(long timeSliceStartTime, GroupedTimingStatistics statistics, int numStopWatches) {
+        super(timeSliceStartTime, 0L, "", null);
+        this.statistics = statistics;
+        this.numStopWatches = numStopWatches;
+    }
+
+    /**
+     * Gets the statistics of the aggregated StopWatches.
+     *
+     * @return The statistics, which include rollup statistics if they are being created.
+     */
+    public GroupedTimingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Gets the number of StopWatches that were aggregated.
+     *
+     * @return The number of aggregated StopWatches.
+     */
+    public int getNumStopWatches() {
+        return numStopWatches;
+    }
+}
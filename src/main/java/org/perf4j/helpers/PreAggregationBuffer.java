@@ -0,0 +1,186 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A PreAggregationBuffer aggregates the StopWatches logged by a single application thread into a
+ * GroupedTimingStatistics, and publishes them to the {@link GenericAsyncCoalescingStatisticsAppender} queue as a single
+ * {@link PreAggregatedStopWatch} when a StopWatch from a later time slice is added or when the buffer is full. Idle
+ * buffers are also taken by the appender's draining thread once their time slice is over, see
+ * {@link #takeIfTimeSliceOver(long, Collection)}.
+ * <p/>
+ * If the queue is full when the buffer moves on to a later time slice, the statistics of the earlier time slice are
+ * held back, in order, until they can be published or until the draining thread takes them. Nothing is discarded.
+ * <p/>
+ * The methods are synchronized, but the lock is only contended when the draining thread takes the buffer, which happens
+ * at most once per time slice.
+ */
+class PreAggregationBuffer {
+    private final WeakReference<Thread> ownerThread = new WeakReference<Thread>(Thread.currentThread());
+    private final MessageQueue<Object> queue;
+    private final long timeSlice;
+    private final int maxSize;
+    private final boolean createRollupStatistics;
+    private final int histogramPrecision;
+    private final TimeUnit timeUnit;
+
+    /**
+     * The contents of earlier time slices that could not be published because the queue was full, oldest first.
+     */
+    private final LinkedList<PreAggregatedStopWatch> unpublished = new LinkedList<PreAggregatedStopWatch>();
+    /**
+     * The statistics of the StopWatches added since the buffer was last published, or null if it is empty.
+     */
+    private GroupedTimingStatistics statistics;
+    /**
+     * The start time of the time slice of the StopWatches in the buffer.
+     */
+    private long timeSliceStartTime;
+    /**
+     * The number of StopWatches in the buffer.
+     */
+    private int size;
+
+    /**
+     * Creates a PreAggregationBuffer for the calling thread.
+     *
+     * @param queue                  The queue the buffer is published to.
+     * @param timeSlice              The length of each time slice, in milliseconds.
+     * @param maxSize                The maximum number of StopWatches aggregated before the buffer is published, or
+     *                               Integer.MAX_VALUE if it is only published when its time slice is over.
+     * @param createRollupStatistics Whether or not entries for "rollup" tags should be created
+     * @param histogramPrecision     The precision of the histograms used to track percentiles, or 0.
+     * @param timeUnit               The time unit of the statistics.
+     */
+    public PreAggregationBuffer(MessageQueue<Object> queue,
+                                long timeSlice,
+                                int maxSize,
+                                boolean createRollupStatistics,
+                                int histogramPrecision,
+                                TimeUnit timeUnit) {
+        this.queue = queue;
+        this.timeSlice = timeSlice;
+        this.maxSize = maxSize;
+        this.createRollupStatistics = createRollupStatistics;
+        this.histogramPrecision = histogramPrecision;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * Adds a StopWatch to this buffer, first publishing the buffer if the StopWatch belongs to a later time slice.
+     *
+     * @param stopWatch The StopWatch to add.
+     */
+    public synchronized void add(StopWatch stopWatch) {
+        long stopWatchTimeSliceStartTime = (stopWatch.getStartTime() / timeSlice) * timeSlice;
+        if (statistics != null && stopWatchTimeSliceStartTime != timeSliceStartTime) {
+            unpublished.add(take());
+            publishUnpublished();
+        }
+
+        if (statistics == null) {
+            statistics = new GroupedTimingStatistics();
+            statistics.setCreateRollupStatistics(createRollupStatistics);
+            statistics.setHistogramPrecision(histogramPrecision);
+            statistics.setTimeUnit(timeUnit);
+            timeSliceStartTime = stopWatchTimeSliceStartTime;
+        }
+        statistics.addStopWatch(stopWatch);
+
+        //if the queue is full we just keep aggregating and try again with the next StopWatch
+        if (++size >= maxSize && publishUnpublished()) {
+            if (queue.offer(new PreAggregatedStopWatch(timeSliceStartTime, statistics, size))) {
+                statistics = null;
+                size = 0;
+            }
+        }
+    }
+
+    /**
+     * Takes the statistics of all the time slices in this buffer that ended on or before the specified time, so that
+     * the statistics of threads that have stopped logging StopWatches are not held back.
+     *
+     * @param now    The current time in milliseconds.
+     * @param toFill The contents of the buffer are added to this collection, oldest first.
+     * @return The number of elements added to toFill.
+     */
+    public synchronized int takeIfTimeSliceOver(long now, Collection<Object> toFill) {
+        int retVal = unpublished.size();
+        toFill.addAll(unpublished);
+        unpublished.clear();
+        if (statistics != null && now >= timeSliceStartTime + timeSlice) {
+            toFill.add(take());
+            retVal++;
+        }
+        return retVal;
+    }
+
+    /**
+     * Takes everything in this buffer regardless of its time slice, which is used when the appender is stopped.
+     *
+     * @param toFill The contents of the buffer are added to this collection, oldest first.
+     * @return The number of elements added to toFill.
+     */
+    public synchronized int takeAll(Collection<Object> toFill) {
+        return takeIfTimeSliceOver(Long.MAX_VALUE, toFill);
+    }
+
+    /**
+     * Returns true if this buffer is empty and the thread it belongs to has ended, in which case it will never be
+     * used again.
+     *
+     * @return Whether or not this buffer can be discarded.
+     */
+    public synchronized boolean isAbandoned() {
+        Thread thread = ownerThread.get();
+        return statistics == null && unpublished.isEmpty() && (thread == null || !thread.isAlive());
+    }
+
+    /**
+     * Helper method publishes as many of the held back time slices as the queue has room for.
+     *
+     * @return true if all of the held back time slices have been published.
+     */
+    private boolean publishUnpublished() {
+        while (!unpublished.isEmpty()) {
+            if (!queue.offer(unpublished.getFirst())) {
+                return false;
+            }
+            unpublished.removeFirst();
+        }
+        return true;
+    }
+
+    /**
+     * Helper method empties the current time slice.
+     *
+     * @return The contents of the current time slice, never null.
+     */
+    private PreAggregatedStopWatch take() {
+        PreAggregatedStopWatch retVal = new PreAggregatedStopWatch(timeSliceStartTime, statistics, size);
+        statistics = null;
+        size = 0;
+        return retVal;
+    }
+}
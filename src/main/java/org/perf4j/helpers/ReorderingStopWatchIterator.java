@@ -0,0 +1,189 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.StopWatch;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * StopWatches are logged when they are stopped, so a long running StopWatch is usually logged after StopWatches that
+ * started later. This Iterator wraps a StopWatch Iterator and puts the StopWatches back in start time order, which is
+ * what the {@link GroupingStatisticsIterator} expects, within a bounded reordering window.
+ * <p/>
+ * The StopWatches are held back until the <i>watermark</i>, which is the latest start time seen minus the reordering
+ * window, passes their start time. A StopWatch that arrives with a start time before the watermark is <i>late</i>: it
+ * is returned immediately and counted, see {@link #getNumLateStopWatches()}. If the
+ * underlying Iterator returns null to signal that a time slice may be over (as the
+ * {@link GenericAsyncCoalescingStatisticsAppender} does), the watermark is moved up to the current time minus the
+ * reordering window, the StopWatches it has passed are returned, and then the null is passed on. Everything still
+ * held back is returned when the underlying Iterator is exhausted.
+ * <p/>
+ * This class is not thread-safe, but the late StopWatch counters may be read from any thread.
+ */
+public class ReorderingStopWatchIterator implements Iterator<StopWatch> {
+    /**
+     * Orders StopWatches by start time.
+     */
+    private static final Comparator<StopWatch> START_TIME_COMPARATOR = new Comparator<StopWatch>() {
+        public int compare(StopWatch stopWatch1, StopWatch stopWatch2) {
+            long startTime1 = stopWatch1.getStartTime();
+            long startTime2 = stopWatch2.getStartTime();
+            return (startTime1 < startTime2) ? -1 : ((startTime1 == startTime2) ? 0 : 1);
+        }
+    };
+
+    private final Iterator<StopWatch> stopWatchIterator;
+    private final long reorderWindow;
+    /**
+     * The StopWatches that are being held back, earliest start time first.
+     */
+    private final PriorityQueue<StopWatch> heldStopWatches = new PriorityQueue<StopWatch>(64, START_TIME_COMPARATOR);
+    /**
+     * StopWatches with a start time on or before the watermark are returned.
+     */
+    private long watermark = Long.MIN_VALUE;
+    /**
+     * Whether or not a null from the underlying iterator has to be passed on once the StopWatches before the watermark
+     * have been returned.
+     */
+    private boolean nullPending = false;
+    /**
+     * Whether or not the underlying iterator is exhausted.
+     */
+    private boolean sourceDone = false;
+    /**
+     * The next value to return, which may be null, if nextReady is true.
+     */
+    private StopWatch next;
+    private boolean nextReady = false;
+
+    private volatile long numLateStopWatches = 0L;
+    private volatile long maxLatenessMillis = 0L;
+
+    /**
+     * Creates a ReorderingStopWatchIterator.
+     *
+     * @param stopWatchIterator The StopWatches to reorder.
+     * @param reorderWindow     The reordering window in milliseconds. StopWatches logged up to this long after a
+     *                          StopWatch that started later are still returned in start time order.
+     */
+    public ReorderingStopWatchIterator(Iterator<StopWatch> stopWatchIterator, long reorderWindow) {
+        this.stopWatchIterator = stopWatchIterator;
+        this.reorderWindow = reorderWindow;
+    }
+
+    /**
+     * Gets the reordering window.
+     *
+     * @return The reordering window in milliseconds.
+     */
+    public long getReorderWindow() {
+        return reorderWindow;
+    }
+
+    /**
+     * Gets the current watermark. All of the StopWatches returned from now on should have start times after the
+     * watermark.
+     *
+     * @return The watermark, in milliseconds since the epoch, or Long.MIN_VALUE if no StopWatches have been seen.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Gets the number of StopWatches that arrived too late to be put in order, i.e. more than the reordering window
+     * after a StopWatch that started later.
+     *
+     * @return The number of late StopWatches.
+     */
+    public long getNumLateStopWatches() {
+        return numLateStopWatches;
+    }
+
+    /**
+     * Gets the largest amount by which a late StopWatch missed the reordering window.
+     *
+     * @return The difference in milliseconds between the watermark when a late StopWatch arrived and its start time.
+     */
+    public long getMaxLatenessMillis() {
+        return maxLatenessMillis;
+    }
+
+    public boolean hasNext() {
+        return prepareNext();
+    }
+
+    public StopWatch next() {
+        if (!prepareNext()) {
+            throw new NoSuchElementException();
+        }
+        nextReady = false;
+        StopWatch retVal = next;
+        next = null;
+        return retVal;
+    }
+
+    /**
+     * Remove is not supported.
+     *
+     * @throws UnsupportedOperationException Always thrown.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Helper method pulls StopWatches from the underlying Iterator until one can be returned.
+     *
+     * @return false if there are no more StopWatches.
+     */
+    private boolean prepareNext() {
+        while (!nextReady) {
+            if (!heldStopWatches.isEmpty() && (sourceDone || heldStopWatches.peek().getStartTime() <= watermark)) {
+                next = heldStopWatches.poll();
+                nextReady = true;
+            } else if (nullPending) {
+                nullPending = false;
+                next = null;
+                nextReady = true;
+            } else if (sourceDone) {
+                return false;
+            } else if (!stopWatchIterator.hasNext()) {
+                sourceDone = true;
+            } else {
+                StopWatch stopWatch = stopWatchIterator.next();
+                if (stopWatch == null) {
+                    watermark = Math.max(watermark, System.currentTimeMillis() - reorderWindow);
+                    nullPending = true;
+                } else if (stopWatch.getStartTime() < watermark) {
+                    numLateStopWatches++;
+                    maxLatenessMillis = Math.max(maxLatenessMillis, watermark - stopWatch.getStartTime());
+                    next = stopWatch;
+                    nextReady = true;
+                } else {
+                    heldStopWatches.add(stopWatch);
+                    watermark = Math.max(watermark, stopWatch.getStartTime() - reorderWindow);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This MessageQueue is a preallocated, lock-free ring buffer that supports multiple producer threads and a single
+ * consumer thread. Producers claim a slot with a single compare-and-set on the tail sequence and then publish their
+ * element into that slot, so no locks are taken and no per-message nodes are allocated on the logging threads. The
+ * consumer is the only thread that advances the head sequence, so it needs no atomic read-modify-write operations at
+ * all.
+ * <p/>
+ * When the queue is empty the consumer parks itself, and the next producer to publish an element unparks it. Producers
+ * are never unparked, though: the {@link #put} and timed {@link #offer(Object, long, TimeUnit)} methods, which are
+ * only used on shutdown and by the "Block" overflow policy of the GenericAsyncCoalescingStatisticsAppender, wait for
+ * space with a sleep of 100 microseconds between attempts rather than blocking on a condition. A producer waiting on a
+ * full queue therefore wakes up about 10,000 times a second, and may notice free space up to 100 microseconds late.
+ * <p/>
+ * To use this queue with one of the AsyncCoalescingStatisticsAppenders, set the <b>MessageQueueClassName</b> option
+ * to <tt>org.perf4j.helpers.RingBufferMessageQueue</tt>.
+ *
+ * @param <E> The type of element held in the queue.
+ */
+public class RingBufferMessageQueue<E> implements MessageQueue<E> {
+    /**
+     * The time, in nanoseconds, that put() and the timed offer() wait between attempts to insert into a full queue.
+     */
+    private static final long PUT_RETRY_NANOS = 100000L;
+
+    /**
+     * The ring buffer. A null slot is free, a non-null slot holds a published element not yet consumed.
+     */
+    private final AtomicReferenceArray<E> buffer;
+    /**
+     * The buffer length is always a power of two so that sequences can be converted to indexes with this mask.
+     */
+    private final int mask;
+    /**
+     * The sequence number of the next slot to be claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong(0L);
+    /**
+     * The sequence number of the next slot to be read by the consumer. Only written by the consumer thread.
+     */
+    private volatile long head = 0L;
+    /**
+     * Set by the consumer thread while it is parked waiting for an element, so that producers know to unpark it.
+     */
+    private volatile Thread waitingConsumer = null;
+
+    /**
+     * Creates a new RingBufferMessageQueue. The buffer is preallocated with the specified capacity rounded up to the
+     * next power of two.
+     *
+     * @param capacity The minimum number of elements the queue can hold, must be positive.
+     */
+    public RingBufferMessageQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid RingBufferMessageQueue capacity: " + capacity);
+        }
+        int bufferLength = 1;
+        while (bufferLength < capacity) {
+            bufferLength <<= 1;
+        }
+        buffer = new AtomicReferenceArray<E>(bufferLength);
+        mask = bufferLength - 1;
+    }
+
+    /**
+     * Gets the number of elements this queue can hold, which is the requested capacity rounded up to a power of two.
+     *
+     * @return The capacity of this queue.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+
+        //claim a slot - the queue is full if the slot we'd claim still holds an element the consumer hasn't read
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        //publish the element, then wake the consumer if it's waiting for one
+        buffer.set((int) sequence & mask, element);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    public void put(E element) throws InterruptedException {
+        while (!offer(element)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(PUT_RETRY_NANOS);
+        }
+    }
+
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(element)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0L) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(remainingNanos, PUT_RETRY_NANOS));
+        }
+        return true;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E retVal = poll();
+        if (retVal != null) {
+            return retVal;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waitingConsumer = Thread.currentThread();
+        try {
+            //re-check after publishing waitingConsumer so we can't miss the wake up from a producer
+            while ((retVal = poll()) == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0L) {
+                    return null;
+                }
+                LockSupport.parkNanos(remainingNanos);
+            }
+            return retVal;
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    public int drainTo(Collection<? super E> collection, int maxElements) {
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = poll()) != null) {
+            collection.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public int size() {
+        //read head first so that the result can never be negative
+        long currentHead = head;
+        long size = tail.get() - currentHead;
+        return (int) Math.min(size, (long) getCapacity());
+    }
+
+    public void clear() {
+        while (poll() != null) {
+            //just discard the element
+        }
+    }
+
+    /**
+     * Helper method removes and returns the element at the head of the queue without waiting. Note that this may
+     * return null even when size() is positive if a producer has claimed the head slot but not yet published into it;
+     * in that case the producer will unpark the consumer once the element is published.
+     *
+     * @return The element at the head of the queue, or null if no published element is available.
+     */
+    private E poll() {
+        long currentHead = head;
+        int index = (int) currentHead & mask;
+        E retVal = buffer.get(index);
+        if (retVal != null) {
+            //free the slot BEFORE advancing head so producers never overwrite an unread element
+            buffer.set(index, null);
+            head = currentHead + 1;
+        }
+        return retVal;
+    }
+}
@@ -0,0 +1,331 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This GroupingStatisticsIterator spreads the work of aggregating StopWatches over several worker threads. Time slice
+ * boundaries are still determined on the thread that iterates, but each StopWatch is handed off to one of the workers
+ * (its "shard"), chosen by the hash of its tag. StopWatches are handed off in batches, so the iterating thread only
+ * touches a worker's queue once per batch. At the end of each time slice the statistics of all shards are merged into
+ * a single GroupedTimingStatistics.
+ * <p/>
+ * Because all the StopWatches for a given tag are always aggregated by the same worker, in the order they were
+ * returned by the underlying iterator, the GroupedTimingStatistics returned are identical to those returned by a plain
+ * GroupingStatisticsIterator. When rollup statistics are created, StopWatches are sharded by the first segment of
+ * their tag (the part before the first period) so that rollup tags are also aggregated by a single worker.
+ * <p/>
+ * This iterator is also an Executor that runs tasks on the same worker threads, in between the batches of
+ * StopWatches. The {@link GenericAsyncCoalescingStatisticsAppender} uses this to parse the String messages it receives
+ * on the workers, as parsing is usually far more expensive than aggregating.
+ * <p/>
+ * The worker threads are started when this iterator is created, and {@link #close()} must be called to stop them when
+ * this iterator is no longer used.
+ */
+public class ShardedGroupingStatisticsIterator extends GroupingStatisticsIterator implements Executor {
+    /**
+     * The number of StopWatches handed off to a worker at a time.
+     */
+    public static final int BATCH_SIZE = 256;
+    /**
+     * This object is passed to a shard to tell it to hand over the statistics of the current time slice.
+     */
+    private static final Object COMPLETE_TIME_SLICE = new Object();
+    /**
+     * This object is passed to a shard to tell its worker thread to exit.
+     */
+    private static final Object STOP = new Object();
+
+    /**
+     * Whether or not entries for "rollup" tags are created, which determines how StopWatches are sharded.
+     */
+    private boolean createRollupStatistics;
+    /**
+     * The shards, each of which is serviced by its own worker thread.
+     */
+    private Shard[] shards;
+    /**
+     * The shard that runs the next task passed to execute.
+     */
+    private int nextExecutingShard = 0;
+    /**
+     * Set once close() has been called.
+     */
+    private boolean closed;
+    /**
+     * Statistics that were aggregated before they reached this iterator (see {@link PreAggregatedStopWatch}) don't
+     * need a worker, they are merged on the iterating thread.
+     */
+    private GroupedTimingStatistics preAggregatedStatistics;
+
+    /**
+     * Creates a ShardedGroupingStatisticsIterator and starts its worker threads.
+     *
+     * @param stopWatchIterator      The StopWatch Iterator that provides the StopWatch instances. If stopWatchIterator
+     *                               returns a null value, will check to see if a timeslice is over and return
+     *                               GroupedTimingStatistics if necessary.
+     * @param timeSlice              The length of each time slice, in milliseconds.
+     * @param createRollupStatistics Whether or not entries for "rollup" tags should be created
+     * @param histogramPrecision     The precision of the histograms used to track percentiles, or 0 if percentiles
+     *                               should not be tracked.
+     * @param timeUnit               The time unit of the statistics.
+     * @param numShards              The number of worker threads, must be at least 1.
+     * @param shardQueueSize         The approximate number of StopWatches that may be waiting to be aggregated by each
+     *                               worker. If a queue is full the iterating thread blocks until there is room.
+     * @param threadNamePrefix       The prefix used for the names of the worker threads, which are suffixed with the
+     *                               index of the shard.
+     */
+    public ShardedGroupingStatisticsIterator(Iterator<StopWatch> stopWatchIterator,
+                                             long timeSlice,
+                                             boolean createRollupStatistics,
+                                             int histogramPrecision,
+                                             TimeUnit timeUnit,
+                                             int numShards,
+                                             int shardQueueSize,
+                                             String threadNamePrefix) {
+        super(stopWatchIterator, timeSlice, createRollupStatistics, histogramPrecision, timeUnit);
+        if (numShards < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least 1, was " + numShards);
+        }
+        this.createRollupStatistics = createRollupStatistics;
+
+        shards = new Shard[numShards];
+        for (int i = 0; i < numShards; i++) {
+            //the queues hold batches and tasks, so their capacity is in batches
+            shards[i] = new Shard(Math.max(2, shardQueueSize / BATCH_SIZE));
+            Thread workerThread = new Thread(shards[i], threadNamePrefix + i);
+            workerThread.setDaemon(true);
+            shards[i].workerThread = workerThread;
+            workerThread.start();
+        }
+    }
+
+    /**
+     * Stops the worker threads and waits for them to exit. The StopWatches that have been added since the last
+     * completed time slice are returned rather than discarded, so that they can still be handled when iteration is
+     * abandoned, e.g. on shutdown.
+     *
+     * @return The statistics of the current, incomplete time slice, or null if no StopWatches were added to it (or
+     *         this iterator was already closed).
+     */
+    public GroupedTimingStatistics close() {
+        if (closed) {
+            return null;
+        }
+
+        GroupedTimingStatistics retVal = completePartialTimeSlice();
+        closed = true;
+        try {
+            for (Shard shard : shards) {
+                shard.pendingWork.put(STOP);
+            }
+            for (Shard shard : shards) {
+                shard.workerThread.join();
+            }
+        } catch (InterruptedException ie) {
+            //then give up waiting; the worker threads are daemons so they won't prevent VM exit
+            for (Shard shard : shards) {
+                shard.workerThread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+        return retVal;
+    }
+
+    /**
+     * Runs a task on one of the worker threads, in between the batches of StopWatches it aggregates. Tasks are
+     * assigned to the workers in turn. This method blocks if the queue of the worker is full.
+     *
+     * @param task The task to run.
+     */
+    public void execute(Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("The iterator has been closed");
+        }
+        Shard shard = shards[nextExecutingShard];
+        nextExecutingShard = (nextExecutingShard + 1) % shards.length;
+        try {
+            shard.pendingWork.put(task);
+        } catch (InterruptedException ie) {
+            //then we're being shut down; run the task here so that anyone waiting on it isn't left hanging
+            Thread.currentThread().interrupt();
+            task.run();
+        }
+    }
+
+    /**
+     * Gets the number of worker threads.
+     *
+     * @return The number of shards.
+     */
+    public int getNumShards() {
+        return shards.length;
+    }
+
+    protected void addStopWatchToCurrentTimeSlice(StopWatch stopWatch) {
+        if (stopWatch instanceof PreAggregatedStopWatch) {
+            if (preAggregatedStatistics == null) {
+                preAggregatedStatistics = newGroupedTimingStatistics();
+            }
+            preAggregatedStatistics.merge(((PreAggregatedStopWatch) stopWatch).getStatistics());
+            return;
+        }
+
+        Shard shard = shards[shardIndex(stopWatch.getTag())];
+        shard.currentBatch.add(stopWatch);
+        if (shard.currentBatch.size() >= BATCH_SIZE) {
+            handOffBatch(shard);
+        }
+    }
+
+    protected GroupedTimingStatistics completeCurrentTimeSlice() {
+        GroupedTimingStatistics retVal = newGroupedTimingStatistics();
+        if (closed) {
+            return retVal;
+        }
+
+        try {
+            //first tell all the shards to finish up so they can do so concurrently, then collect the results in order
+            for (Shard shard : shards) {
+                handOffBatch(shard);
+                shard.pendingWork.put(COMPLETE_TIME_SLICE);
+            }
+            for (Shard shard : shards) {
+                retVal.merge(shard.completedTimeSlices.take());
+            }
+            if (preAggregatedStatistics != null) {
+                retVal.merge(preAggregatedStatistics);
+                preAggregatedStatistics = null;
+            }
+        } catch (InterruptedException ie) {
+            //then we're being shut down; return what we have and preserve the interrupt so the caller sees it
+            Thread.currentThread().interrupt();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Helper method passes the StopWatches batched up for a shard to its worker.
+     *
+     * @param shard The shard.
+     */
+    private void handOffBatch(Shard shard) {
+        if (shard.currentBatch.isEmpty()) {
+            return;
+        }
+        try {
+            shard.pendingWork.put(shard.currentBatch);
+        } catch (InterruptedException ie) {
+            //then we're being shut down; preserve the interrupt so the caller sees it
+            Thread.currentThread().interrupt();
+        }
+        shard.currentBatch = new ArrayList<StopWatch>(BATCH_SIZE);
+    }
+
+    /**
+     * Helper method determines the shard responsible for the specified tag.
+     *
+     * @param tag The StopWatch tag
+     * @return The index into the shards array
+     */
+    private int shardIndex(String tag) {
+        int hash;
+        if (createRollupStatistics) {
+            //hash only the first segment of the tag, which computes the same value as substring(...).hashCode()
+            hash = 0;
+            for (int i = 0; i < tag.length(); i++) {
+                char c = tag.charAt(i);
+                if (c == '.') {
+                    break;
+                }
+                hash = 31 * hash + c;
+            }
+        } else {
+            hash = tag.hashCode();
+        }
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    // --- Support Classes ---
+    /**
+     * Each Shard aggregates the StopWatches passed to it on its own worker thread.
+     */
+    private class Shard implements Runnable {
+        /**
+         * The batches of StopWatches waiting to be aggregated, interspersed with tasks and the COMPLETE_TIME_SLICE and
+         * STOP objects.
+         */
+        private final BlockingQueue<Object> pendingWork;
+        /**
+         * The statistics of each completed time slice are handed back to the iterating thread through this queue.
+         */
+        private final BlockingQueue<GroupedTimingStatistics> completedTimeSlices =
+                new SynchronousQueue<GroupedTimingStatistics>();
+        /**
+         * The StopWatches that have not been handed off yet. Only used by the iterating thread.
+         */
+        private List<StopWatch> currentBatch = new ArrayList<StopWatch>(BATCH_SIZE);
+        /**
+         * The thread running this Shard.
+         */
+        private Thread workerThread;
+
+        public Shard(int queueSize) {
+            pendingWork = new ArrayBlockingQueue<Object>(queueSize);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void run() {
+            GroupedTimingStatistics currentStatistics = newGroupedTimingStatistics();
+            try {
+                while (true) {
+                    Object work = pendingWork.take();
+                    if (work == STOP) {
+                        return;
+                    } else if (work == COMPLETE_TIME_SLICE) {
+                        completedTimeSlices.put(currentStatistics);
+                        currentStatistics = newGroupedTimingStatistics();
+                    } else if (work instanceof Runnable) {
+                        try {
+                            ((Runnable) work).run();
+                        } catch (RuntimeException re) {
+                            //a failed task must not stop the aggregation; tasks that need to report errors should
+                            //be FutureTasks
+                        }
+                    } else {
+                        for (StopWatch stopWatch : (List<StopWatch>) work) {
+                            currentStatistics.addStopWatch(stopWatch);
+                        }
+                    }
+                }
+            } catch (InterruptedException ie) {
+                //then we're done
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+
+/**
+ * A SpillFile is a bounded, memory-mapped FIFO of String messages, used by the
+ * {@link GenericAsyncCoalescingStatisticsAppender} to hold the messages that don't fit in its in-memory queue when the
+ * "Spill" overflow policy is used. The file is a ring buffer: a small header holds the read and write positions, and
+ * each record is written as its length, the time it was written and its UTF-8 bytes. A record that doesn't fit before
+ * the end of the file is preceded by a wrap marker and written at the start of the data area instead.
+ * <p/>
+ * Records are written before the write position in the header is moved past them, and the read position is only moved
+ * once a record has been read, so if the process dies the file holds every record that was not yet read (records that
+ * were read but not yet committed may be read again). When the file is opened, the records between the read and write
+ * positions are checked and the file is truncated after the last complete record.
+ * <p/>
+ * All methods are synchronized, but {@link #isEmpty()} can be called without taking the lock.
+ */
+class SpillFile {
+    /**
+     * The magic number at the start of every spill file.
+     */
+    private static final int MAGIC = 0x50344a53;
+    /**
+     * The header holds the magic number, the read position and the write position.
+     */
+    private static final int HEADER_SIZE = 16;
+    private static final int READ_POSITION_OFFSET = 4;
+    private static final int WRITE_POSITION_OFFSET = 8;
+    /**
+     * Each record has an int length and a long write time before its bytes.
+     */
+    private static final int RECORD_HEADER_SIZE = 12;
+    /**
+     * A length of -1 marks the point where the writer wrapped around to the start of the data area.
+     */
+    private static final int WRAP_MARKER = -1;
+    /**
+     * The smallest file that can hold a useful number of records.
+     */
+    static final int MIN_SIZE = 1024;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int readPosition;
+    private int writePosition;
+    private volatile boolean empty;
+
+    /**
+     * Opens the spill file, creating it with the specified size if it doesn't exist. If the file exists and holds
+     * records that were not read before it was last closed, they are kept, and the size it was created with is used.
+     *
+     * @param file    The spill file.
+     * @param maxSize The size of the file in bytes, which bounds the number of records it can hold.
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public SpillFile(File file, int maxSize) throws IOException {
+        if (maxSize < MIN_SIZE) {
+            throw new IllegalArgumentException("The spill file size must be at least " + MIN_SIZE + " bytes");
+        }
+        this.file = file;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long existingSize = randomAccessFile.length();
+            capacity = (existingSize >= MIN_SIZE && existingSize <= Integer.MAX_VALUE) ? (int) existingSize : maxSize;
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, capacity);
+            recover();
+        } catch (IOException ioe) {
+            randomAccessFile.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Gets the file these records are stored in.
+     *
+     * @return The spill file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns true if there are no records to read. This method doesn't take the lock, so it's cheap enough to call
+     * every time a message is appended.
+     *
+     * @return Whether or not the spill file is empty.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Adds a message to the end of the spill file.
+     *
+     * @param message The message to add.
+     * @return true if the message was added, false if the spill file is full.
+     */
+    public synchronized boolean append(String message) {
+        byte[] bytes = toBytes(message);
+        int recordSize = RECORD_HEADER_SIZE + bytes.length;
+
+        int recordPosition;
+        if (writePosition >= readPosition) {
+            if (writePosition + recordSize <= capacity) {
+                recordPosition = writePosition;
+            } else if (HEADER_SIZE + recordSize < readPosition) {
+                //the reader treats less than a length's worth of space at the end as a wrap marker
+                if (writePosition + 4 <= capacity) {
+                    buffer.putInt(writePosition, WRAP_MARKER);
+                }
+                recordPosition = HEADER_SIZE;
+            } else {
+                return false;
+            }
+        } else if (writePosition + recordSize < readPosition) {
+            recordPosition = writePosition;
+        } else {
+            return false;
+        }
+
+        buffer.putInt(recordPosition, bytes.length);
+        buffer.putLong(recordPosition + 4, System.currentTimeMillis());
+        ByteBuffer view = buffer.duplicate();
+        view.position(recordPosition + RECORD_HEADER_SIZE);
+        view.put(bytes);
+        //the record only becomes visible once the write position moves past it
+        setWritePosition(recordPosition + recordSize);
+        empty = false;
+        return true;
+    }
+
+    /**
+     * Removes messages from the start of the spill file.
+     *
+     * @param toFill      The messages read are added to this collection, oldest first.
+     * @param maxMessages The maximum number of messages to read.
+     * @return The number of messages read.
+     */
+    public synchronized int read(Collection<? super String> toFill, int maxMessages) {
+        int retVal = 0;
+        while (retVal < maxMessages && readPosition != writePosition) {
+            readPosition = skipWrapMarker(readPosition);
+            int length = buffer.getInt(readPosition);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(readPosition + RECORD_HEADER_SIZE);
+            view.get(bytes);
+            toFill.add(toString(bytes));
+            readPosition += RECORD_HEADER_SIZE + length;
+            retVal++;
+        }
+
+        if (readPosition == writePosition) {
+            //start again at the beginning so that records aren't split by the end of the file unnecessarily
+            readPosition = HEADER_SIZE;
+            setWritePosition(HEADER_SIZE);
+            empty = true;
+        }
+        buffer.putInt(READ_POSITION_OFFSET, readPosition);
+        return retVal;
+    }
+
+    /**
+     * Gets the time the oldest unread record was written, which shows how far behind the reader is.
+     *
+     * @return The time in milliseconds, or -1 if the spill file is empty.
+     */
+    public synchronized long getOldestWriteTime() {
+        if (readPosition == writePosition) {
+            return -1L;
+        }
+        return buffer.getLong(skipWrapMarker(readPosition) + 4);
+    }
+
+    /**
+     * Gets the number of bytes used by unread records.
+     *
+     * @return The number of bytes used.
+     */
+    public synchronized int getUsedBytes() {
+        return (writePosition >= readPosition) ?
+               writePosition - readPosition :
+               (capacity - readPosition) + (writePosition - HEADER_SIZE);
+    }
+
+    /**
+     * Gets the size of the spill file.
+     *
+     * @return The size in bytes.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Writes any changes to the storage device and closes the file. The records that were not read are kept.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        randomAccessFile.close();
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Helper method checks the header and the unread records of a newly opened file, and truncates it after the last
+     * complete record. A file without a valid header is treated as empty.
+     */
+    private void recover() {
+        readPosition = HEADER_SIZE;
+        writePosition = HEADER_SIZE;
+        if (buffer.getInt(0) == MAGIC) {
+            int savedReadPosition = buffer.getInt(READ_POSITION_OFFSET);
+            int savedWritePosition = buffer.getInt(WRITE_POSITION_OFFSET);
+            if (isInDataArea(savedReadPosition) && isInDataArea(savedWritePosition)) {
+                readPosition = savedReadPosition;
+                writePosition = findLastCompleteRecordEnd(savedReadPosition, savedWritePosition);
+            }
+        }
+        if (readPosition == writePosition) {
+            readPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(READ_POSITION_OFFSET, readPosition);
+        setWritePosition(writePosition);
+        empty = (readPosition == writePosition);
+    }
+
+    /**
+     * Helper method walks the records from the read position to the saved write position.
+     *
+     * @param start The read position.
+     * @param end   The write position saved in the header.
+     * @return The end of the last complete record, which is the end position if none of the records are damaged.
+     */
+    private int findLastCompleteRecordEnd(int start, int end) {
+        int position = start;
+        boolean wrapped = false;
+        while (position != end) {
+            int recordPosition = position;
+            if (recordPosition + 4 > capacity || buffer.getInt(recordPosition) == WRAP_MARKER) {
+                if (wrapped || end >= start) {
+                    //the writer can only wrap once, and only if the write position is before the read position
+                    return position;
+                }
+                wrapped = true;
+                recordPosition = HEADER_SIZE;
+                if (recordPosition == end) {
+                    return end;
+                }
+            }
+            int length = buffer.getInt(recordPosition);
+            long recordEnd = (long) recordPosition + RECORD_HEADER_SIZE + length;
+            long limit = (wrapped || end >= start) ? end : capacity;
+            if (length < 0 || recordEnd > limit) {
+                return position;
+            }
+            position = (int) recordEnd;
+        }
+        return position;
+    }
+
+    private boolean isInDataArea(int position) {
+        return position >= HEADER_SIZE && position <= capacity;
+    }
+
+    private int skipWrapMarker(int position) {
+        return (position + 4 > capacity || buffer.getInt(position) == WRAP_MARKER) ? HEADER_SIZE : position;
+    }
+
+    private void setWritePosition(int writePosition) {
+        this.writePosition = writePosition;
+        buffer.putInt(WRITE_POSITION_OFFSET, writePosition);
+    }
+
+    private static byte[] toBytes(String message) {
+        try {
+            return message.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            //UTF-8 is always supported
+            throw new IllegalStateException(uee);
+        }
+    }
+
+    private static String toString(byte[] bytes) {
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            //UTF-8 is always supported
+            throw new IllegalStateException(uee);
+        }
+    }
+}
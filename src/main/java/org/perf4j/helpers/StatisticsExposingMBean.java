@@ -58,6 +58,12 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
      */
     public static final String COLLISION_IGNORE = "IGNORE";
 
+    /**
+     * The name of the attribute that exposes the time unit of the statistics, e.g. "ms". This attribute is only
+     * exposed if {@link #setExposeTimeUnit(boolean)} is called with true.
+     */
+    public static final String TIME_UNIT_ATTRIBUTE_NAME = "TimeUnit";
+
     /**
      * The name under which this MBean is registered in the MBean server.
      */
@@ -97,7 +103,15 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
     /**
      * Pattern used to parse requested attribute names into the tag name and the statistic name
      */
-    protected Pattern attributeNamePattern = Pattern.compile("(.*)(Mean|StdDev|Min|Max|Count|TPS)");
+    protected Pattern attributeNamePattern = Pattern.compile("(.*)(Mean|StdDev|Min|Max|Count|TPS|P50|P90|P99|P999)");
+    /**
+     * Whether or not the P50, P90, P99 and P999 percentile attributes are exposed in addition to the default ones.
+     */
+    protected boolean exposePercentiles;
+    /**
+     * Whether or not the TimeUnit attribute is exposed in addition to the per-tag attributes.
+     */
+    protected boolean exposeTimeUnit;
 
     /**
      * Creates a new StatisticsExposingMBean whose management interface exposes performance attributes for the tags
@@ -113,6 +127,27 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
     public StatisticsExposingMBean(String mBeanName,
                                    Collection<String> tagsToExpose,
                                    Collection<AcceptableRangeConfiguration> acceptableRanges) {
+        this(mBeanName, tagsToExpose, acceptableRanges, false);
+    }
+
+    /**
+     * Creates a new StatisticsExposingMBean whose management interface exposes performance attributes for the tags
+     * specified, optionally including percentile attributes.
+     *
+     * @param mBeanName         The name under which this MBean is registered in the MBean server
+     * @param tagsToExpose      The names of the tags whose statistics should exposed.
+     * @param acceptableRanges  These acceptable ranges are used to send notifications if any of the monitored
+     *                          attributes go outside of the range.
+     * @param exposePercentiles If true, tagNameP50, tagNameP90, tagNameP99 and tagNameP999 attributes are also exposed
+     *                          for each tag. These values are only non-zero if the underlying statistics track
+     *                          percentiles (see the HistogramPrecision option on the AsyncCoalescingStatisticsAppender).
+     */
+    public StatisticsExposingMBean(String mBeanName,
+                                   Collection<String> tagsToExpose,
+                                   Collection<AcceptableRangeConfiguration> acceptableRanges,
+                                   boolean exposePercentiles) {
+        this.exposePercentiles = exposePercentiles;
+
         //set mBeanName
         if (mBeanName == null) {
             mBeanName = DEFAULT_MBEAN_NAME;
@@ -187,8 +222,24 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
         return retVal;
     }
 
+    /**
+     * Sets whether or not the TimeUnit attribute, which gives the time unit of the Mean, StdDev, Min, Max and
+     * percentile attributes, is exposed. It is not exposed by default, so that the attributes of this MBean are
+     * the same as in previous versions; it is only needed when the statistics are not kept in milliseconds.
+     *
+     * @param exposeTimeUnit Whether or not the TimeUnit attribute should be exposed.
+     */
+    public void setExposeTimeUnit(boolean exposeTimeUnit) {
+        this.exposeTimeUnit = exposeTimeUnit;
+        this.managementInterface = createMBeanInfoFromTagNames(this.tagsToExpose);
+    }
+
     public synchronized Object getAttribute(String attribute)
             throws AttributeNotFoundException, MBeanException, ReflectionException {
+        if (exposeTimeUnit && TIME_UNIT_ATTRIBUTE_NAME.equals(attribute)) {
+            return MiscUtils.formatTimeUnit(currentTimingStatistics.getTimeUnit());
+        }
+
         Matcher matcher = attributeNamePattern.matcher(attribute);
         if (matcher.matches()) {
             String tagName = matcher.group(1);
@@ -197,7 +248,11 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
             TimingStatistics timingStats = currentTimingStatistics.getStatisticsByTag().get(tagName);
             long windowLength = currentTimingStatistics.getStopTime() - currentTimingStatistics.getStartTime();
 
-            return getStatsValueRetrievers().get(statisticName).getStatsValue(timingStats, windowLength);
+            StatsValueRetriever statsValueRetriever = getStatsValueRetrievers().get(statisticName);
+            if (statsValueRetriever == null) {
+                throw new AttributeNotFoundException("No attribute named " + attribute);
+            }
+            return statsValueRetriever.getStatsValue(timingStats, windowLength);
         } else {
             throw new AttributeNotFoundException("No attribute named " + attribute);
         }
@@ -252,7 +307,7 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
      * @return The StatsValueRetriever Map.
      */
     protected Map<String, StatsValueRetriever> getStatsValueRetrievers() {
-        return StatsValueRetriever.DEFAULT_RETRIEVERS;
+        return exposePercentiles ? StatsValueRetriever.ALL_RETRIEVERS : StatsValueRetriever.DEFAULT_RETRIEVERS;
     }
 
     /**
@@ -263,7 +318,8 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
      * @return The MBeanInfo that represents the management interface for this MBean.
      */
     protected MBeanInfo createMBeanInfoFromTagNames(Collection<String> tagNames) {
-        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[tagNames.size() * getStatsValueRetrievers().size()];
+        MBeanAttributeInfo[] attributes =
+                new MBeanAttributeInfo[tagNames.size() * getStatsValueRetrievers().size() + (exposeTimeUnit ? 1 : 0)];
 
         int i = 0;
         for (String tagName : tagNames) {
@@ -280,6 +336,15 @@ public class StatisticsExposingMBean extends NotificationBroadcasterSupport impl
                                                          false /* not "is" getter */);
             }
         }
+        if (exposeTimeUnit) {
+            attributes[i] = new MBeanAttributeInfo(TIME_UNIT_ATTRIBUTE_NAME,
+                                                   String.class.getName(),
+                                                   "Returns the time unit of the Mean, StdDev, Min, Max and percentile"
+                                                   + " statistics",
+                                                   true /* readable */,
+                                                   false /* not writable */,
+                                                   false /* not "is" getter */);
+        }
 
         MBeanOperationInfo[] operations = new MBeanOperationInfo[2]; //exposeTag and removeTag
         operations[0] = new MBeanOperationInfo("exposeTag",
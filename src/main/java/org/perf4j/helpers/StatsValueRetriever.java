@@ -90,6 +90,14 @@ public abstract class StatsValueRetriever {
         public String getValueName() { return "TPS"; }
     };
 
+    public static final StatsValueRetriever P50_VALUE_RETRIEVER = new PercentileValueRetriever(50.0, "P50");
+
+    public static final StatsValueRetriever P90_VALUE_RETRIEVER = new PercentileValueRetriever(90.0, "P90");
+
+    public static final StatsValueRetriever P99_VALUE_RETRIEVER = new PercentileValueRetriever(99.0, "P99");
+
+    public static final StatsValueRetriever P999_VALUE_RETRIEVER = new PercentileValueRetriever(99.9, "P999");
+
     /**
      * Default unmodifiable Map of statistic name to the corresponding StatsValueRetriever object that retrieves that
      * statistic. Statistic names are Mean, StdDev, Min, Max, Count and TPS.
@@ -106,6 +114,22 @@ public abstract class StatsValueRetriever {
         DEFAULT_RETRIEVERS = Collections.unmodifiableMap(defaultRetrievers);
     }
 
+    /**
+     * Unmodifiable Map of the DEFAULT_RETRIEVERS plus the percentile retrievers, which only return non-zero values
+     * when the TimingStatistics track percentiles (see {@link TimingStatistics#getPercentile(double)}). The additional
+     * statistic names are P50, P90, P99 and P999.
+     */
+    public static final Map<String, StatsValueRetriever> ALL_RETRIEVERS;
+    static {
+        Map<String, StatsValueRetriever> allRetrievers =
+                new LinkedHashMap<String, StatsValueRetriever>(DEFAULT_RETRIEVERS);
+        allRetrievers.put(P50_VALUE_RETRIEVER.getValueName(), P50_VALUE_RETRIEVER);
+        allRetrievers.put(P90_VALUE_RETRIEVER.getValueName(), P90_VALUE_RETRIEVER);
+        allRetrievers.put(P99_VALUE_RETRIEVER.getValueName(), P99_VALUE_RETRIEVER);
+        allRetrievers.put(P999_VALUE_RETRIEVER.getValueName(), P999_VALUE_RETRIEVER);
+        ALL_RETRIEVERS = Collections.unmodifiableMap(allRetrievers);
+    }
+
     /**
      * Retrieves a single statistic value from the specified TimingStatistics object.
      *
@@ -129,4 +153,25 @@ public abstract class StatsValueRetriever {
      * @return The name of the value retrieved.
      */
     public abstract String getValueName();
+
+    /**
+     * StatsValueRetriever implementation that retrieves a single percentile value.
+     */
+    private static class PercentileValueRetriever extends StatsValueRetriever {
+        private final double percentile;
+        private final String valueName;
+
+        PercentileValueRetriever(double percentile, String valueName) {
+            this.percentile = percentile;
+            this.valueName = valueName;
+        }
+
+        public Number getStatsValue(TimingStatistics timingStats, long windowLength) {
+            return (timingStats == null) ? 0L : timingStats.getPercentile(percentile);
+        }
+
+        public Class<Long> getValueClass() { return Long.class; }
+
+        public String getValueName() { return valueName; }
+    }
 }
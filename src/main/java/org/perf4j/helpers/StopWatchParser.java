@@ -17,12 +17,20 @@ package org.perf4j.helpers;
 
 import org.perf4j.StopWatch;
 
+import java.text.ParsePosition;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * This helper class is used to parse StopWatches from log message.
+ * <p/>
+ * When the DEFAULT_MATCH_PATTERN is used, messages are parsed by a hand-written scanner instead of the regex. The
+ * scanner gives exactly the same results as the regex but doesn't allocate a Matcher or any intermediate Strings, and
+ * tag Strings are shared between parsed StopWatches through a small cache. Since subclasses may customize parsing by
+ * overriding {@link #match} or {@link #parseStopWatchFromLogMatch}, they always use the regex unless they override
+ * {@link #isScanningDefaultFormat()}.
  *
  * @author Alex Devine
  */
@@ -33,18 +41,46 @@ public class StopWatchParser {
      * capturing groups of this pattern:
      * <ol>
      * <li> The start time in milliseconds, parseable as a long
-     * <li> The elapsed time in milliseconds, parseable as a long
+     * <li> The elapsed time, parseable as a long
      * <li> The tag name
      * <li> Optional, if not null the message text.
+     * <li> Optional, if not null the unit of the elapsed time (ns, us, ms or s), otherwise the elapsed time is in
+     *      milliseconds. The unit comes after the groups above so that patterns written for older versions, which
+     *      only have the first 4 groups, can still be used.
+     * <li> Optional, if not null the weight of a sampled StopWatch (see {@link StopWatch#getWeight()}), otherwise
+     *      the weight is 1.
      * </ol>
      */
     public static final String DEFAULT_MATCH_PATTERN =
-            "start\\[(\\d+)\\] time\\[(\\d+)\\] tag\\[(.*?)\\](?: message\\[(.*?)\\])?";
+            "start\\[(\\d+)\\] time\\[(\\d+)\\] tag\\[(.*?)\\](?: message\\[(.*?)\\])?" +
+            "(?: unit\\[(ns|us|ms|s)\\])?(?: weight\\[([1-9]\\d{0,8})\\])?";
+
+    /**
+     * The size of the tagCache, must be a power of 2.
+     */
+    private static final int TAG_CACHE_SIZE = 1024;
+    /**
+     * Longs with at most this many digits can't overflow.
+     */
+    private static final int MAX_SAFE_DIGITS = 18;
+    /**
+     * The most digits allowed in a weight, which keeps it within an int.
+     */
+    private static final int MAX_WEIGHT_DIGITS = 9;
 
     /**
      * The regex Pattern object used to parse Strings.
      */
     private Pattern pattern;
+    /**
+     * Whether or not the pattern is the DEFAULT_MATCH_PATTERN.
+     */
+    private boolean defaultMatchPattern;
+    /**
+     * Recently parsed tags, indexed by hash code, so that StopWatches with the same tag share the same String. The
+     * cache may be accessed by multiple threads without synchronization: the worst that can happen is a cache miss.
+     */
+    private final String[] tagCache = new String[TAG_CACHE_SIZE];
 
     /**
      * Creates a StopWatchParser that uses the DEFAULT_MATCH_PATTERN to parse StopWatch message strings.
@@ -62,6 +98,7 @@ public class StopWatchParser {
      */
     public StopWatchParser(String matchPattern) {
         pattern = Pattern.compile(matchPattern);
+        defaultMatchPattern = DEFAULT_MATCH_PATTERN.equals(matchPattern);
     }
 
     /**
@@ -80,10 +117,30 @@ public class StopWatchParser {
      * @return The parsed StopWatch, or null if the StopWatch couldn't be parsed.
      */
     public StopWatch parseStopWatch(String message) {
+        if (isScanningDefaultFormat()) {
+            return scanStopWatch(message, 0, null);
+        }
         MatchResult result = match(message);
         return (result != null) ? parseStopWatchFromLogMatch(result) : null;
     }
 
+    /**
+     * This method parses the first StopWatch found in the given message string at or after the index of the specified
+     * ParsePosition. This allows multiple StopWatches to be parsed from the same string.
+     *
+     * @param message  The message to parse.
+     * @param position On input, the index at which to start searching. If a StopWatch is found the index is updated
+     *                 to the index just past the end of the parsed StopWatch text; otherwise the index is unchanged and
+     *                 the error index is set.
+     * @return The parsed StopWatch, or null if no StopWatch could be parsed.
+     */
+    public StopWatch parseStopWatch(String message, ParsePosition position) {
+        if (isScanningDefaultFormat()) {
+            return scanStopWatch(message, position.getIndex(), position);
+        }
+        return regexStopWatch(message, position);
+    }
+
     /**
      * Gets the MatchResult object that is returned when the Pattern used by this parser matches the specified message.
      *
@@ -102,10 +159,17 @@ public class StopWatchParser {
      * @return A new StopWatch that reflects the data from the match result.
      */
     public StopWatch parseStopWatchFromLogMatch(MatchResult matchResult) {
-        return new StopWatch(Long.parseLong(matchResult.group(1)) /*start time*/,
-                             Long.parseLong(matchResult.group(2)) /*elapsed time*/,
-                             matchResult.group(3) /*tag*/,
-                             matchResult.group(4) /*message, may be null*/);
+        String timeUnit = (matchResult.groupCount() >= 5) ? matchResult.group(5) : null;
+        String weight = (matchResult.groupCount() >= 6) ? matchResult.group(6) : null;
+        StopWatch retVal = new StopWatch(Long.parseLong(matchResult.group(1)) /*start time*/,
+                                         Long.parseLong(matchResult.group(2)) /*elapsed time*/,
+                                         (timeUnit == null) ? TimeUnit.MILLISECONDS : MiscUtils.parseTimeUnit(timeUnit),
+                                         matchResult.group(3) /*tag*/,
+                                         matchResult.group(4) /*message, may be null*/);
+        if (weight != null) {
+            retVal.setWeight(Integer.parseInt(weight));
+        }
+        return retVal;
     }
 
     /**
@@ -121,4 +185,254 @@ public class StopWatchParser {
     public boolean isPotentiallyValid(String message) {
         return message.startsWith("start");
     }
+
+    /**
+     * Determines whether messages are parsed with the hand-written scanner rather than the regex. By default this is
+     * true only if the DEFAULT_MATCH_PATTERN is used and this object is not a subclass of StopWatchParser. Subclasses
+     * that use the default pattern and do not override match or parseStopWatchFromLogMatch can override this method
+     * to return {@link #isDefaultMatchPattern()}.
+     *
+     * @return true if the scanner is used to parse messages.
+     */
+    protected boolean isScanningDefaultFormat() {
+        return defaultMatchPattern && getClass() == StopWatchParser.class;
+    }
+
+    /**
+     * Returns whether this parser uses the DEFAULT_MATCH_PATTERN.
+     *
+     * @return true if the pattern is the DEFAULT_MATCH_PATTERN.
+     */
+    protected boolean isDefaultMatchPattern() {
+        return defaultMatchPattern;
+    }
+
+    // --- Helper Methods ---
+    /**
+     * Helper method finds a StopWatch using the regex pattern, starting at the index of the specified ParsePosition.
+     *
+     * @param message  The message to parse.
+     * @param position The position at which to start searching, updated as described in parseStopWatch.
+     * @return The parsed StopWatch, or null if no StopWatch could be parsed.
+     */
+    private StopWatch regexStopWatch(String message, ParsePosition position) {
+        Matcher matcher = getPattern().matcher(message);
+        if (matcher.find(position.getIndex())) {
+            position.setIndex(matcher.end());
+            return parseStopWatchFromLogMatch(matcher);
+        }
+        position.setErrorIndex(position.getIndex());
+        return null;
+    }
+
+    /**
+     * Helper method scans for a StopWatch in the default format, giving the same result as a find() with the
+     * DEFAULT_MATCH_PATTERN.
+     *
+     * @param message   The message to parse.
+     * @param fromIndex The index at which to start searching.
+     * @param position  If not null, updated as described in parseStopWatch.
+     * @return The parsed StopWatch, or null if no StopWatch could be parsed.
+     */
+    private StopWatch scanStopWatch(String message, int fromIndex, ParsePosition position) {
+        int length = message.length();
+        int candidateIndex = fromIndex;
+
+        candidates:
+        while ((candidateIndex = message.indexOf("start[", candidateIndex)) >= 0) {
+            int index = candidateIndex + "start[".length();
+            candidateIndex++; //if this candidate doesn't match, look for the next one
+
+            //start time
+            long startTime = 0L;
+            int digitsStart = index;
+            char c;
+            while (index < length && (c = message.charAt(index)) >= '0' && c <= '9') {
+                startTime = startTime * 10 + (c - '0');
+                index++;
+            }
+            if (index == digitsStart || !message.startsWith("] time[", index)) {
+                continue;
+            }
+            if (index - digitsStart > MAX_SAFE_DIGITS) {
+                //let the regex deal with (and report) numbers that may overflow
+                return regexStopWatch(message, fromIndex, position);
+            }
+            index += "] time[".length();
+
+            //elapsed time
+            long elapsedTime = 0L;
+            digitsStart = index;
+            while (index < length && (c = message.charAt(index)) >= '0' && c <= '9') {
+                elapsedTime = elapsedTime * 10 + (c - '0');
+                index++;
+            }
+            if (index == digitsStart || !message.startsWith("] tag[", index)) {
+                continue;
+            }
+            if (index - digitsStart > MAX_SAFE_DIGITS) {
+                return regexStopWatch(message, fromIndex, position);
+            }
+            index += "] tag[".length();
+
+            //tag, which like the regex .*? may not contain line terminators
+            int tagStart = index;
+            while (true) {
+                if (index >= length || isLineTerminator(c = message.charAt(index))) {
+                    continue candidates;
+                }
+                if (c == ']') {
+                    break;
+                }
+                index++;
+            }
+            String tag = internTag(message, tagStart, index);
+            index++;
+
+            //optional message
+            String stopWatchMessage = null;
+            if (message.startsWith(" message[", index)) {
+                int messageStart = index + " message[".length();
+                int messageEnd = messageStart;
+                while (messageEnd < length && !isLineTerminator(c = message.charAt(messageEnd)) && c != ']') {
+                    messageEnd++;
+                }
+                if (messageEnd < length && message.charAt(messageEnd) == ']') {
+                    stopWatchMessage = message.substring(messageStart, messageEnd);
+                    index = messageEnd + 1;
+                }
+            }
+
+            //optional time unit
+            TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+            if (message.startsWith(" unit[", index)) {
+                int unitStart = index + " unit[".length();
+                int unitEnd = message.indexOf(']', unitStart);
+                TimeUnit parsedTimeUnit = (unitEnd < 0) ? null : scanTimeUnit(message, unitStart, unitEnd);
+                if (parsedTimeUnit != null) {
+                    timeUnit = parsedTimeUnit;
+                    index = unitEnd + 1;
+                }
+            }
+
+            //optional weight, like the regex 1 to 9 digits without a leading 0
+            int weight = 1;
+            if (message.startsWith(" weight[", index)) {
+                int weightStart = index + " weight[".length();
+                int weightEnd = weightStart;
+                int parsedWeight = 0;
+                while (weightEnd < length && (c = message.charAt(weightEnd)) >= '0' && c <= '9') {
+                    parsedWeight = parsedWeight * 10 + (c - '0');
+                    weightEnd++;
+                }
+                if (weightEnd > weightStart
+                    && weightEnd - weightStart <= MAX_WEIGHT_DIGITS
+                    && message.charAt(weightStart) != '0'
+                    && message.startsWith("]", weightEnd)) {
+                    weight = parsedWeight;
+                    index = weightEnd + 1;
+                }
+            }
+
+            if (position != null) {
+                position.setIndex(index);
+            }
+            StopWatch retVal = new StopWatch(startTime, elapsedTime, timeUnit, tag, stopWatchMessage);
+            if (weight != 1) {
+                retVal.setWeight(weight);
+            }
+            return retVal;
+        }
+
+        if (position != null) {
+            position.setErrorIndex(fromIndex);
+        }
+        return null;
+    }
+
+    /**
+     * Helper method falls back to the regex from within the scanner.
+     *
+     * @param message   The message to parse.
+     * @param fromIndex The index at which to start searching.
+     * @param position  If not null, updated as described in parseStopWatch.
+     * @return The parsed StopWatch, or null if no StopWatch could be parsed.
+     */
+    private StopWatch regexStopWatch(String message, int fromIndex, ParsePosition position) {
+        if (position == null) {
+            position = new ParsePosition(fromIndex);
+        }
+        return regexStopWatch(message, position);
+    }
+
+    /**
+     * Helper method returns the tag String for the specified region of the message, reusing a cached String if the
+     * same tag was seen recently.
+     *
+     * @param message    The message containing the tag.
+     * @param beginIndex The index of the first character of the tag.
+     * @param endIndex   The index just past the last character of the tag.
+     * @return The tag String.
+     */
+    private String internTag(String message, int beginIndex, int endIndex) {
+        int hash = 0;
+        for (int i = beginIndex; i < endIndex; i++) {
+            hash = 31 * hash + message.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (TAG_CACHE_SIZE - 1);
+
+        int tagLength = endIndex - beginIndex;
+        String cachedTag = tagCache[slot];
+        if (cachedTag != null
+            && cachedTag.length() == tagLength
+            && message.regionMatches(beginIndex, cachedTag, 0, tagLength)) {
+            return cachedTag;
+        }
+
+        String tag = message.substring(beginIndex, endIndex);
+        tagCache[slot] = tag;
+        return tag;
+    }
+
+    /**
+     * Helper method returns the TimeUnit for the abbreviations accepted by the DEFAULT_MATCH_PATTERN.
+     *
+     * @param message    The message containing the abbreviation.
+     * @param beginIndex The index of the first character of the abbreviation.
+     * @param endIndex   The index just past the last character of the abbreviation.
+     * @return The TimeUnit, or null if the region is not one of ns, us, ms or s.
+     */
+    private static TimeUnit scanTimeUnit(String message, int beginIndex, int endIndex) {
+        switch (endIndex - beginIndex) {
+            case 1:
+                return (message.charAt(beginIndex) == 's') ? TimeUnit.SECONDS : null;
+            case 2:
+                if (message.charAt(beginIndex + 1) != 's') {
+                    return null;
+                }
+                switch (message.charAt(beginIndex)) {
+                    case 'n':
+                        return TimeUnit.NANOSECONDS;
+                    case 'u':
+                        return TimeUnit.MICROSECONDS;
+                    case 'm':
+                        return TimeUnit.MILLISECONDS;
+                    default:
+                        return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Helper method returns true if the specified character is one of the line terminators that the regex "."
+     * doesn't match.
+     *
+     * @param c The character to check
+     * @return true if c is a line terminator.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
 }
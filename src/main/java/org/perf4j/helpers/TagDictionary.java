@@ -0,0 +1,166 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A TagDictionary interns StopWatch tags to dense int IDs, starting at 0, so that the statistics of each tag can be
+ * kept in primitive arrays indexed by ID instead of in a Map (see
+ * {@link org.perf4j.GroupedTimingStatistics#setTagDictionary(TagDictionary)}). A dictionary is usually shared by the
+ * statistics of consecutive time slices, so each tag is only interned once.
+ * <p/>
+ * The dictionary also caches the rollup parents of each tag (e.g. "a" and "a.b" for "a.b.c"), see
+ * {@link #getRollupIds(String)}, so that the tag only has to be split up the first time it is seen.
+ * <p/>
+ * IDs are never removed, so a dictionary grows with the number of distinct tags it has seen. Callers that may see an
+ * unbounded number of tags should start a new dictionary once {@link #size()} gets large.
+ * <p/>
+ * This class is thread-safe. Looking up a tag that has already been interned doesn't take a lock.
+ */
+public class TagDictionary {
+    private final ConcurrentHashMap<String, Entry> entriesByTag = new ConcurrentHashMap<String, Entry>();
+    /**
+     * The entries indexed by ID. Only written while holding the lock.
+     */
+    private volatile Entry[] entries = new Entry[16];
+    private volatile int size = 0;
+
+    /**
+     * Gets the ID of a tag, interning it if it hasn't been seen before.
+     *
+     * @param tag The tag, may not be null.
+     * @return The ID of the tag, from 0 to size() - 1.
+     */
+    public int getId(String tag) {
+        return getEntry(tag).id;
+    }
+
+    /**
+     * Gets the ID of a tag without interning it.
+     *
+     * @param tag The tag, may not be null.
+     * @return The ID of the tag, or -1 if it hasn't been interned.
+     */
+    public int findId(String tag) {
+        Entry entry = entriesByTag.get(tag);
+        return (entry != null) ? entry.id : -1;
+    }
+
+    /**
+     * Gets the IDs of a tag and of all of its rollup parents, i.e. every prefix of the tag that ends before a dot,
+     * interning them if necessary. The IDs are worked out the first time a tag is seen and cached, so this doesn't
+     * create any Strings for a tag that has been seen before.
+     *
+     * @param tag The tag, may not be null.
+     * @return The ID of the tag followed by the IDs of its parents, shortest first. The array is shared, so it must not
+     *         be modified.
+     */
+    public int[] getRollupIds(String tag) {
+        Entry entry = getEntry(tag);
+        int[] rollupIds = entry.rollupIds;
+        if (rollupIds == null) {
+            //if two threads get here at once they both compute the same value, which is harmless
+            entry.rollupIds = rollupIds = findRollupIds(tag, entry.id);
+        }
+        return rollupIds;
+    }
+
+    /**
+     * Gets the tag with the specified ID.
+     *
+     * @param id An ID returned by {@link #getId(String)}.
+     * @return The tag.
+     */
+    public String getTag(int id) {
+        return entries[id].tag;
+    }
+
+    /**
+     * Gets the number of tags interned, which is also one more than the largest ID.
+     *
+     * @return The number of tags.
+     */
+    public int size() {
+        return size;
+    }
+
+    // --- Helper Methods ---
+
+    private Entry getEntry(String tag) {
+        Entry entry = entriesByTag.get(tag);
+        return (entry != null) ? entry : addTag(tag);
+    }
+
+    /**
+     * Helper method interns a new tag.
+     *
+     * @param tag The tag to add.
+     * @return The entry of the tag, which may have been added by another thread in the meantime.
+     */
+    private synchronized Entry addTag(String tag) {
+        Entry entry = entriesByTag.get(tag);
+        if (entry != null) {
+            return entry;
+        }
+
+        entry = new Entry(tag, size);
+        Entry[] entries = this.entries;
+        if (entry.id == entries.length) {
+            Entry[] newEntries = new Entry[entries.length * 2];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            entries = newEntries;
+        }
+        entries[entry.id] = entry;
+        //publish the entry before its ID, so anyone that can see the ID can look up the tag
+        this.entries = entries;
+        size = entry.id + 1;
+        entriesByTag.put(tag, entry);
+        return entry;
+    }
+
+    private int[] findRollupIds(String tag, int id) {
+        int numParents = 0;
+        for (int i = 0; i < tag.length(); i++) {
+            if (tag.charAt(i) == '.') {
+                numParents++;
+            }
+        }
+
+        int[] retVal = new int[numParents + 1];
+        retVal[0] = id;
+        int indexOfDot = -1;
+        for (int i = 1; i <= numParents; i++) {
+            indexOfDot = tag.indexOf('.', indexOfDot + 1);
+            retVal[i] = getId(tag.substring(0, indexOfDot));
+        }
+        return retVal;
+    }
+
+    /**
+     * The ID of a tag, and the IDs of its rollup parents once they are needed.
+     */
+    private static final class Entry {
+        final String tag;
+        final int id;
+        volatile int[] rollupIds;
+
+        Entry(String tag, int id) {
+            this.tag = tag;
+            this.id = id;
+        }
+    }
+}
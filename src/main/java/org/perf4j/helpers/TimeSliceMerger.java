@@ -0,0 +1,115 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.GroupedTimingStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A TimeSliceMerger derives statistics over a longer time slice from the GroupedTimingStatistics of consecutive shorter
+ * time slices, using {@link GroupedTimingStatistics#merge(GroupedTimingStatistics)}. This means StopWatches only have
+ * to be parsed and aggregated once, at the finest resolution needed, for example every 10 seconds, and the 1 minute
+ * or 1 hour statistics are built from those.
+ * <p/>
+ * The longer time slices are aligned the same way as those created by the {@link GroupingStatisticsIterator}, and
+ * the time slice should be a multiple of the time slice of the statistics added. A merged time slice is complete as
+ * soon as statistics that stop at (or start after) its end are added.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public class TimeSliceMerger {
+    private final long timeSlice;
+    /**
+     * The statistics of the time slice being merged, or null if no statistics have been added to it yet.
+     */
+    private GroupedTimingStatistics currentStatistics = null;
+
+    /**
+     * Creates a new TimeSliceMerger.
+     *
+     * @param timeSlice The length of the merged time slices, in milliseconds.
+     */
+    public TimeSliceMerger(long timeSlice) {
+        if (timeSlice <= 0L) {
+            throw new IllegalArgumentException("The time slice must be positive");
+        }
+        this.timeSlice = timeSlice;
+    }
+
+    /**
+     * Gets the length of the merged time slices.
+     *
+     * @return The time slice, in milliseconds.
+     */
+    public long getTimeSlice() {
+        return timeSlice;
+    }
+
+    /**
+     * Adds the statistics of a shorter time slice.
+     *
+     * @param statistics The statistics to add, which are not modified.
+     * @return The merged statistics of any time slices that are complete now, oldest first. Usually this is empty or
+     *         holds a single time slice; it holds two if there was a gap in the statistics added.
+     */
+    public List<GroupedTimingStatistics> add(GroupedTimingStatistics statistics) {
+        List<GroupedTimingStatistics> retVal = Collections.emptyList();
+
+        if (currentStatistics != null && statistics.getStartTime() >= currentStatistics.getStopTime()) {
+            retVal = new ArrayList<GroupedTimingStatistics>(2);
+            retVal.add(currentStatistics);
+            currentStatistics = null;
+        }
+
+        if (currentStatistics == null) {
+            long endTime = ((statistics.getStartTime() / timeSlice) * timeSlice) + timeSlice;
+            currentStatistics = new GroupedTimingStatistics();
+            currentStatistics.setCreateRollupStatistics(statistics.isCreateRollupStatistics());
+            currentStatistics.setHistogramPrecision(statistics.getHistogramPrecision());
+            currentStatistics.setTimeUnit(statistics.getTimeUnit());
+            currentStatistics.setTagDictionary(statistics.getTagDictionary());
+            currentStatistics.setStartTime(endTime - timeSlice);
+            currentStatistics.setStopTime(endTime);
+        }
+        currentStatistics.merge(statistics);
+
+        if (statistics.getStopTime() >= currentStatistics.getStopTime()) {
+            if (retVal.isEmpty()) {
+                retVal = Collections.singletonList(currentStatistics);
+            } else {
+                retVal.add(currentStatistics);
+            }
+            currentStatistics = null;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Returns the statistics merged so far for a time slice that is not complete yet, which is usually done when
+     * shutting down.
+     *
+     * @return The statistics of the incomplete time slice, or null if there are none.
+     */
+    public GroupedTimingStatistics flush() {
+        GroupedTimingStatistics retVal = currentStatistics;
+        currentStatistics = null;
+        return retVal;
+    }
+}
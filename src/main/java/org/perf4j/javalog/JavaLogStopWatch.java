@@ -16,26 +16,44 @@
 package org.perf4j.javalog;
 
 import org.perf4j.LoggingStopWatch;
+import org.perf4j.StopWatch;
+import org.perf4j.StopWatchSampler;
+import org.perf4j.StopWatchSummarizer;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
 /**
  * This LoggingStopWatch uses a java.util.logging Logger to persist the StopWatch messages. The various constructors
  * allow you to specify the Logger to use (defaults to org.perf4j.TimingLogger), the Level at which messages are
  * normally logged (defaults to INFO) and the Level used for logging if one of the stop or lap methods that takes an
  * exception is called (defaults to WARNING).
+ * <p/>
+ * By default the StopWatch string is the message of the LogRecords. If {@link #setDeferredRendering deferred
+ * rendering} is enabled, a snapshot of the StopWatch is instead the parameter of a LogRecord whose message is
+ * {@link #STOP_WATCH_MESSAGE_FORMAT}, so the string is only created when a Formatter formats the record. Note this
+ * changes what <tt>LogRecord.getMessage()</tt> returns, so it should only be enabled if the Handlers and Filters that
+ * see the records format them rather than reading their raw message.
  *
  * @author Alex Devine
  */
 @SuppressWarnings("serial")
 public class JavaLogStopWatch extends LoggingStopWatch {
+    /**
+     * The message of the LogRecords this StopWatch logs with deferred rendering, which have the StopWatch as their
+     * only parameter.
+     */
+    public static final String STOP_WATCH_MESSAGE_FORMAT = "{0}";
+
     private transient Logger logger;
     private Level normalPriority;
     private Level exceptionPriority;
+    private boolean deferredRendering = false;
 
     // --- Constructors ---
 
@@ -295,6 +313,28 @@ public class JavaLogStopWatch extends LoggingStopWatch {
         this.exceptionPriority = exceptionPriority;
         return this;
     }
+
+    /**
+     * Gets whether the StopWatch string is left to the Formatters of the Handlers, rather than being the message of
+     * the LogRecords. Defaults to false.
+     *
+     * @return true if StopWatches are logged as the parameter of a {@link #STOP_WATCH_MESSAGE_FORMAT} LogRecord.
+     */
+    public boolean isDeferredRendering() { return deferredRendering; }
+
+    /**
+     * Sets whether the StopWatch string is left to the Formatters of the Handlers. If true, a snapshot of the StopWatch
+     * is logged as the parameter of a LogRecord whose message is {@link #STOP_WATCH_MESSAGE_FORMAT}, so the string is
+     * not created by the thread that stops the StopWatch. The formatted message is the same, but
+     * <tt>LogRecord.getMessage()</tt> returns the format rather than the StopWatch string.
+     *
+     * @param deferredRendering Whether to leave the rendering of the StopWatch string to the Handlers.
+     * @return this instance, for use with method chaining if desired
+     */
+    public JavaLogStopWatch setDeferredRendering(boolean deferredRendering) {
+        this.deferredRendering = deferredRendering;
+        return this;
+    }
                                                            
     // Just overridden to make use of covariant return types
     public JavaLogStopWatch setTimeThreshold(long timeThreshold) {
@@ -313,6 +353,12 @@ public class JavaLogStopWatch extends LoggingStopWatch {
         super.setMessage(message);
         return this;
     }
+
+    // Just overridden to make use of covariant return types
+    public JavaLogStopWatch setTimeUnit(TimeUnit timeUnit) {
+        super.setTimeUnit(timeUnit);
+        return this;
+    }
     
     // Just overridden to make use of covariant return types
     public JavaLogStopWatch setNormalAndSlowSuffixesEnabled(boolean normalAndSlowSuffixesEnabled) {
@@ -332,6 +378,24 @@ public class JavaLogStopWatch extends LoggingStopWatch {
     	return this;
     }
 
+    // Just overridden to make use of covariant return types
+    public JavaLogStopWatch setWeight(int weight) {
+        super.setWeight(weight);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public JavaLogStopWatch setSampler(StopWatchSampler sampler) {
+        super.setSampler(sampler);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public JavaLogStopWatch setSummarizer(StopWatchSummarizer summarizer) {
+        super.setSummarizer(summarizer);
+        return this;
+    }
+
     // --- Helper Methods ---
     /**
      * This method returns true if the logger it uses is enabled at the normalPriority level of this StopWatch.
@@ -354,6 +418,56 @@ public class JavaLogStopWatch extends LoggingStopWatch {
         logger.log((exception == null) ? normalPriority : exceptionPriority, stopWatchAsString, exception);
     }
 
+    /**
+     * Overridden so that, with {@link #isDeferredRendering() deferred rendering}, a snapshot of this StopWatch is
+     * logged as the parameter of a LogRecord without rendering the StopWatch string, which is left to the Formatter
+     * of the Handler that publishes the record.
+     *
+     * @param exception An exception, if any, that was passed to the stop or lap method.
+     * @return The StopWatch string, or null with deferred rendering as the string isn't created here.
+     */
+    protected String logStopWatch(Throwable exception) {
+        if (!deferredRendering) {
+            return super.logStopWatch(exception);
+        }
+        log(newLoggedStopWatch(), exception);
+        return null;
+    }
+
+    /**
+     * Overridden so that, with deferred rendering, the derived StopWatch is logged as the parameter of a LogRecord, as
+     * logStopWatch does for normal stops.
+     *
+     * @param derived The derived StopWatch, such as a summary.
+     */
+    protected void logDerived(StopWatch derived) {
+        if (deferredRendering) {
+            log(derived, null);
+        } else {
+            super.logDerived(derived);
+        }
+    }
+
+    /**
+     * Logs the StopWatch as the single parameter of a LogRecord whose message is {@link #STOP_WATCH_MESSAGE_FORMAT}.
+     * The formatted message is identical to the StopWatch string, but it's only created when a Handler formats the
+     * record.
+     *
+     * @param stopWatch The StopWatch to log, normally created by {@link #newLoggedStopWatch()}.
+     * @param exception An exception, if any, that was passed to the stop or lap method. If this is null then
+     *                  logging will occur at normalPriority, if non-null it will occur at exceptionPriority.
+     */
+    protected void log(StopWatch stopWatch, Throwable exception) {
+        Level level = (exception == null) ? normalPriority : exceptionPriority;
+        if (logger.isLoggable(level)) {
+            LogRecord record = new LogRecord(level, STOP_WATCH_MESSAGE_FORMAT);
+            record.setLoggerName(logger.getName());
+            record.setParameters(new Object[] {stopWatch});
+            record.setThrown(exception);
+            logger.log(record);
+        }
+    }
+
     // --- Static Utility Methods ---
     /**
      * This utility method provides the standard mapping between log4j level names (which Perf4J uses as the standard
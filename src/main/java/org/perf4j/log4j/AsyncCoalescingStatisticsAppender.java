@@ -117,6 +117,173 @@ public class AsyncCoalescingStatisticsAppender extends AppenderSkeleton implemen
         baseImplementation.setTimeSlice(timeSlice);
     }
 
+    /**
+     * The <b>FlushGraceMillis</b> option is how long after the end of each time slice, in milliseconds, its statistics
+     * are sent to the attached appenders when the appender is idle. While StopWatches are being logged, a time slice is
+     * closed as soon as a StopWatch from the next time slice arrives, so the grace period has no effect; use the
+     * ReorderWindowMillis option to wait for StopWatches that are logged late. Time slices are closed on these wall
+     * clock times even when no StopWatches are being logged, in which case empty statistics are sent. Defaults to 0,
+     * and should be less than the TimeSlice.
+     *
+     * @return The FlushGraceMillis option.
+     */
+    public long getFlushGraceMillis() {
+        return baseImplementation.getFlushGraceMillis();
+    }
+
+    /**
+     * Sets the value of the <b>FlushGraceMillis</b> option.
+     *
+     * @param flushGraceMillis The new FlushGraceMillis option, in milliseconds.
+     */
+    public void setFlushGraceMillis(long flushGraceMillis) {
+        baseImplementation.setFlushGraceMillis(flushGraceMillis);
+    }
+
+    /**
+     * The <b>ReorderWindowMillis</b> option makes StopWatches count towards the time slice they started in even if
+     * they are logged up to this many milliseconds after StopWatches that started later. It should be at least as long
+     * as the slowest code being timed, and delays the statistics of each time slice by the same amount. Defaults to 0,
+     * which means StopWatches are not reordered.
+     *
+     * @return The ReorderWindowMillis option.
+     */
+    public long getReorderWindowMillis() {
+        return baseImplementation.getReorderWindowMillis();
+    }
+
+    /**
+     * Sets the value of the <b>ReorderWindowMillis</b> option.
+     *
+     * @param reorderWindowMillis The new ReorderWindowMillis option, in milliseconds.
+     */
+    public void setReorderWindowMillis(long reorderWindowMillis) {
+        baseImplementation.setReorderWindowMillis(reorderWindowMillis);
+    }
+
+    /**
+     * The <b>PreAggregationBufferSize</b> option is used to aggregate StopWatches on the threads that log them. If set
+     * to a value greater than 0, each thread aggregates its StopWatches into its own buffer, which is passed to the
+     * appender's background thread once per time slice or when this many StopWatches have been aggregated. This cuts
+     * the traffic through the queue (see the QueueSize option) to about one message per logging thread per time slice
+     * without changing the statistics created. Only StopWatches logged as objects, as the Perf4J StopWatch classes for
+     * this logging framework do, are pre-aggregated. Defaults to 0, which means StopWatches are not pre-aggregated.
+     *
+     * @return The PreAggregationBufferSize option.
+     */
+    public int getPreAggregationBufferSize() {
+        return baseImplementation.getPreAggregationBufferSize();
+    }
+
+    /**
+     * Sets the value of the <b>PreAggregationBufferSize</b> option.
+     *
+     * @param preAggregationBufferSize The new PreAggregationBufferSize option.
+     */
+    public void setPreAggregationBufferSize(int preAggregationBufferSize) {
+        baseImplementation.setPreAggregationBufferSize(preAggregationBufferSize);
+    }
+
+    /**
+     * The <b>OverflowPolicy</b> option determines what happens to a StopWatch message that is logged when the queue is
+     * full: "DropNewest" (the default) discards it, "DropOldest" discards the oldest queued message instead, "Block"
+     * waits up to OverflowBlockMillis for room in the queue, "Aggregate" aggregates it on the logging thread so
+     * that nothing is discarded, and "Spill" writes it to the SpillFile to be replayed once the queue has drained.
+     *
+     * @return The OverflowPolicy option.
+     */
+    public String getOverflowPolicy() {
+        return baseImplementation.getOverflowPolicy();
+    }
+
+    /**
+     * Sets the value of the <b>OverflowPolicy</b> option.
+     *
+     * @param overflowPolicy The new OverflowPolicy option.
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        baseImplementation.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * The <b>OverflowBlockMillis</b> option is the maximum time, in milliseconds, that a logging thread waits for room
+     * in the queue when the OverflowPolicy is Block. Defaults to 100 milliseconds.
+     *
+     * @return The OverflowBlockMillis option.
+     */
+    public long getOverflowBlockMillis() {
+        return baseImplementation.getOverflowBlockMillis();
+    }
+
+    /**
+     * Sets the value of the <b>OverflowBlockMillis</b> option.
+     *
+     * @param overflowBlockMillis The new OverflowBlockMillis option.
+     */
+    public void setOverflowBlockMillis(long overflowBlockMillis) {
+        baseImplementation.setOverflowBlockMillis(overflowBlockMillis);
+    }
+
+    /**
+     * The <b>SpillFile</b> option is the name of the file used by the Spill overflow policy, which is required when
+     * that policy is used. Messages left in the spill file when the appender is stopped are replayed the next time it
+     * is started.
+     *
+     * @return The SpillFile option.
+     */
+    public String getSpillFile() {
+        return baseImplementation.getSpillFile();
+    }
+
+    /**
+     * Sets the value of the <b>SpillFile</b> option.
+     *
+     * @param spillFile The new SpillFile option.
+     */
+    public void setSpillFile(String spillFile) {
+        baseImplementation.setSpillFile(spillFile);
+    }
+
+    /**
+     * The <b>SpillFileMaxSize</b> option is the size in bytes of the spill file, which bounds the disk space it uses.
+     * Defaults to 64MB.
+     *
+     * @return The SpillFileMaxSize option.
+     */
+    public int getSpillFileMaxSize() {
+        return baseImplementation.getSpillFileMaxSize();
+    }
+
+    /**
+     * Sets the value of the <b>SpillFileMaxSize</b> option.
+     *
+     * @param spillFileMaxSize The new SpillFileMaxSize option.
+     */
+    public void setSpillFileMaxSize(int spillFileMaxSize) {
+        baseImplementation.setSpillFileMaxSize(spillFileMaxSize);
+    }
+
+    /**
+     * The <b>MetricsMBeanName</b> option is the JMX ObjectName under which the metrics of this appender, such as the
+     * queue depth and high water mark, drain batch sizes, parse and aggregation times, time slice lag, downstream
+     * appender time and discard counts, are registered with the platform MBeanServer. If not set, which is the default,
+     * the metrics are not registered.
+     *
+     * @return The MetricsMBeanName option.
+     */
+    public String getMetricsMBeanName() {
+        return baseImplementation.getMetricsMBeanName();
+    }
+
+    /**
+     * Sets the value of the <b>MetricsMBeanName</b> option. This must be a valid JMX ObjectName.
+     *
+     * @param metricsMBeanName The new MetricsMBeanName option.
+     */
+    public void setMetricsMBeanName(String metricsMBeanName) {
+        baseImplementation.setMetricsMBeanName(metricsMBeanName);
+    }
+
     /**
      * The <b>ShutdownWaitMillis</b> option represents the length of time, in milliseconds,
      * that the appender should wait after the logging system shutdown commences, before forcibly
@@ -190,6 +357,70 @@ public class AsyncCoalescingStatisticsAppender extends AppenderSkeleton implemen
         baseImplementation.setCreateRollupStatistics(createRollupStatistics);
     }
 
+    /**
+     * The <b>HistogramPrecision</b> option is used to determine whether percentiles (for example the 99th percentile
+     * execution time) are tracked for each tag. If greater than 0, the percentiles can be output by downstream
+     * appenders as the P50, P90, P99 and P999 statistics, and reported percentiles have a relative error of at most
+     * 1/2<sup>precision</sup>. A value of 5 (about 3%) is a good choice. Defaults to 0, which means percentiles are
+     * not tracked.
+     *
+     * @return The HistogramPrecision option.
+     */
+    public int getHistogramPrecision() {
+        return baseImplementation.getHistogramPrecision();
+    }
+
+    /**
+     * Sets the value of the <b>HistogramPrecision</b> option.
+     *
+     * @param histogramPrecision The new HistogramPrecision option.
+     */
+    public void setHistogramPrecision(int histogramPrecision) {
+        baseImplementation.setHistogramPrecision(histogramPrecision);
+    }
+
+    /**
+     * The <b>TimeUnit</b> option determines the unit of the times in the statistics passed to downstream appenders.
+     * Valid values are "ns", "us", "ms" and "s". A finer unit than the default of "ms" should be used if the timed
+     * blocks of code commonly complete in under a millisecond.
+     *
+     * @return The TimeUnit option.
+     */
+    public String getTimeUnit() {
+        return baseImplementation.getTimeUnit();
+    }
+
+    /**
+     * Sets the value of the <b>TimeUnit</b> option.
+     *
+     * @param timeUnit The new TimeUnit option.
+     */
+    public void setTimeUnit(String timeUnit) {
+        baseImplementation.setTimeUnit(timeUnit);
+    }
+
+    /**
+     * The <b>AggregationThreads</b> option is used to control the number of threads that aggregate StopWatches into
+     * GroupedTimingStatistics. Defaults to 1. If set higher, messages are parsed and StopWatches are aggregated by
+     * this many worker threads and the results are merged at the end of each time slice, which produces exactly the
+     * same statistics. This is only worth increasing if the appender can't keep up with the rate of logged
+     * StopWatches and there are cores to spare.
+     *
+     * @return The AggregationThreads option.
+     */
+    public int getAggregationThreads() {
+        return baseImplementation.getAggregationThreads();
+    }
+
+    /**
+     * Sets the value of the <b>AggregationThreads</b> option.
+     *
+     * @param aggregationThreads The new AggregationThreads option.
+     */
+    public void setAggregationThreads(int aggregationThreads) {
+        baseImplementation.setAggregationThreads(aggregationThreads);
+    }
+
     /**
      * The <b>QueueSize</b> option is used to control the size of the internal queue used by this appender to store
      * logged messages before they are sent to downstream appenders. Defaults to 1024. If set too small and the queue
@@ -230,6 +461,26 @@ public class AsyncCoalescingStatisticsAppender extends AppenderSkeleton implemen
         baseImplementation.setStopWatchParserClassName(stopWatchParserClassName);
     }
 
+    /**
+     * The <b>MessageQueueClassName</b> option is used to determine the queue implementation that holds logged
+     * messages until they are coalesced. This defaults to "org.perf4j.helpers.ArrayBlockingMessageQueue". Set it to
+     * "org.perf4j.helpers.RingBufferMessageQueue" to use a lock-free queue when many threads log concurrently.
+     *
+     * @return The MessageQueueClassName option.
+     */
+    public String getMessageQueueClassName() {
+        return baseImplementation.getMessageQueueClassName();
+    }
+
+    /**
+     * Sets the value of the <b>MessageQueueClassName</b> option.
+     *
+     * @param messageQueueClassName The new MessageQueueClassName option.
+     */
+    public void setMessageQueueClassName(String messageQueueClassName) {
+        baseImplementation.setMessageQueueClassName(messageQueueClassName);
+    }
+
     public void setName(String name) {
         super.setName(name);
         baseImplementation.setName(name);
@@ -273,7 +524,8 @@ public class AsyncCoalescingStatisticsAppender extends AppenderSkeleton implemen
 
     // --- attributes ---
     /**
-     * Returns the number of StopWatch messages that have been discarded due to the queue being full.
+     * Returns the number of StopWatch messages that have been discarded due to the queue being full, including those
+     * evicted by the DropOldest overflow policy.
      *
      * @return The number of discarded messages.
      */
@@ -281,6 +533,64 @@ public class AsyncCoalescingStatisticsAppender extends AppenderSkeleton implemen
         return baseImplementation.getNumDiscardedMessages();
     }
 
+    /**
+     * Returns the number of queued StopWatch messages that have been discarded to make room for newer messages by the
+     * DropOldest overflow policy. These are included in the number of discarded messages.
+     *
+     * @return The number of evicted messages.
+     */
+    public long getNumEvictedMessages() {
+        return baseImplementation.getNumEvictedMessages();
+    }
+
+    /**
+     * Returns the number of times a logging thread had to wait for room in the queue with the Block overflow policy.
+     *
+     * @return The number of blocked appends.
+     */
+    public long getNumBlockedAppends() {
+        return baseImplementation.getNumBlockedAppends();
+    }
+
+    /**
+     * Returns the number of StopWatch messages that were aggregated on the logging thread by the Aggregate overflow
+     * policy because the queue was full.
+     *
+     * @return The number of aggregated messages.
+     */
+    public long getNumAggregatedMessages() {
+        return baseImplementation.getNumAggregatedMessages();
+    }
+
+    /**
+     * Returns the number of StopWatch messages that were written to the spill file by the Spill overflow policy.
+     *
+     * @return The number of spilled messages.
+     */
+    public long getNumSpilledMessages() {
+        return baseImplementation.getNumSpilledMessages();
+    }
+
+    /**
+     * Returns the number of StopWatches that were logged more than ReorderWindowMillis after a StopWatch that started
+     * later, and so were counted in a later time slice than the one they started in.
+     *
+     * @return The number of late StopWatches.
+     */
+    public long getNumLateStopWatches() {
+        return baseImplementation.getNumLateStopWatches();
+    }
+
+    /**
+     * Returns the time since the oldest message still in the spill file was written, which shows how far behind the
+     * statistics are when the Spill overflow policy is used.
+     *
+     * @return The lag in milliseconds, or 0 if the spill file is empty.
+     */
+    public long getSpillLagMillis() {
+        return baseImplementation.getSpillLagMillis();
+    }
+
     // --- appender attachable methods ---
 
     public void addAppender(Appender appender) {
@@ -328,7 +638,13 @@ public class AsyncCoalescingStatisticsAppender extends AppenderSkeleton implemen
 
     // --- appender methods ---
     protected void append(LoggingEvent event) {
-        baseImplementation.append(String.valueOf(event.getMessage()));
+        Object message = event.getMessage();
+        if (message instanceof StopWatch) {
+            //Log4JStopWatch logs the StopWatch object itself, so there's no need to render and re-parse it
+            baseImplementation.append((StopWatch) message);
+        } else {
+            baseImplementation.append(String.valueOf(message));
+        }
     }
 
     public boolean requiresLayout() {
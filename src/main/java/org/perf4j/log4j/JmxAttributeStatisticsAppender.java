@@ -62,6 +62,16 @@ public class JmxAttributeStatisticsAppender extends AppenderSkeleton {
      */
     private String collision = StatisticsExposingMBean.COLLISION_DONOTHING;
 
+    /**
+     * Whether or not percentile attributes are exposed in addition to the default attributes.
+     */
+    private boolean exposePercentiles = false;
+
+    /**
+     * Whether or not the TimeUnit attribute is exposed in addition to the per-tag attributes.
+     */
+    private boolean exposeTimeUnit = false;
+
     // --- state variables ---
     /**
      * This is the MBean that is registered with the MBeanServer
@@ -169,6 +179,47 @@ public class JmxAttributeStatisticsAppender extends AppenderSkeleton {
         this.collision = collision;
     }
 
+    /**
+     * The <b>ExposePercentiles</b> option is a boolean that, when true, causes the tagNameP50, tagNameP90, tagNameP99
+     * and tagNameP999 attributes to be exposed for each tag in addition to the default attributes. Percentiles are
+     * only tracked if the HistogramPrecision option is set on the upstream AsyncCoalescingStatisticsAppender.
+     * Defaults to false.
+     *
+     * @return The value of the ExposePercentiles option
+     */
+    public boolean isExposePercentiles() {
+        return exposePercentiles;
+    }
+
+    /**
+     * Sets the value of the ExposePercentiles option.
+     *
+     * @param exposePercentiles The new value for the ExposePercentiles option.
+     */
+    public void setExposePercentiles(boolean exposePercentiles) {
+        this.exposePercentiles = exposePercentiles;
+    }
+
+    /**
+     * The <b>ExposeTimeUnit</b> option is a boolean that, when true, causes a TimeUnit attribute to be exposed that
+     * gives the unit of the Mean, StdDev, Min, Max and percentile attributes, e.g. "ms". This is useful when the
+     * TimeUnit option is set on the upstream AsyncCoalescingStatisticsAppender. Defaults to false.
+     *
+     * @return The value of the ExposeTimeUnit option
+     */
+    public boolean isExposeTimeUnit() {
+        return exposeTimeUnit;
+    }
+
+    /**
+     * Sets the value of the ExposeTimeUnit option.
+     *
+     * @param exposeTimeUnit The new value for the ExposeTimeUnit option.
+     */
+    public void setExposeTimeUnit(boolean exposeTimeUnit) {
+        this.exposeTimeUnit = exposeTimeUnit;
+    }
+
     @Override
     public void activateOptions() {
         if (tagNamesToExpose == null) {
@@ -186,7 +237,8 @@ public class JmxAttributeStatisticsAppender extends AppenderSkeleton {
             }
         }
 
-        this.mBean = new StatisticsExposingMBean(mBeanName, Arrays.asList(tagNames), rangeConfigs);
+        this.mBean = new StatisticsExposingMBean(mBeanName, Arrays.asList(tagNames), rangeConfigs, exposePercentiles);
+        this.mBean.setExposeTimeUnit(exposeTimeUnit);
 
         this.checkAndRegisterMBean();
     }
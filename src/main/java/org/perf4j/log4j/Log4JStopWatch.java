@@ -18,10 +18,14 @@ package org.perf4j.log4j;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.perf4j.LoggingStopWatch;
+import org.perf4j.StopWatch;
+import org.perf4j.StopWatchSampler;
+import org.perf4j.StopWatchSummarizer;
 
 /**
  * This LoggingStopWatch uses a log4j Logger to persist the StopWatch messages. The various constructors allow you
@@ -312,6 +316,12 @@ public class Log4JStopWatch extends LoggingStopWatch {
         super.setMessage(message);
         return this;
     }
+
+    // Just overridden to make use of covariant return types
+    public Log4JStopWatch setTimeUnit(TimeUnit timeUnit) {
+        super.setTimeUnit(timeUnit);
+        return this;
+    }
     
     // Just overridden to make use of covariant return types
     public Log4JStopWatch setNormalAndSlowSuffixesEnabled(boolean normalAndSlowSuffixesEnabled) {
@@ -331,6 +341,24 @@ public class Log4JStopWatch extends LoggingStopWatch {
     	return this;
     }
 
+    // Just overridden to make use of covariant return types
+    public Log4JStopWatch setWeight(int weight) {
+        super.setWeight(weight);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public Log4JStopWatch setSampler(StopWatchSampler sampler) {
+        super.setSampler(sampler);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public Log4JStopWatch setSummarizer(StopWatchSummarizer summarizer) {
+        super.setSummarizer(summarizer);
+        return this;
+    }
+
     // --- Helper Methods ---
     /**
      * This method returns true if the logger it uses is enabled at the normalPriority level of this StopWatch.
@@ -350,7 +378,31 @@ public class Log4JStopWatch extends LoggingStopWatch {
      *                          logging will occur at normalPriority, if non-null it will occur at exceptionPriority.
      */
     protected void log(String stopWatchAsString, Throwable exception) {
-        logger.log((exception == null) ? normalPriority : exceptionPriority, stopWatchAsString, exception);
+        //log4j accepts any Object as a message, so pass the StopWatch itself - it renders identically through
+        //toString(), but the AsyncCoalescingStatisticsAppender can use it without parsing the String
+        logger.log((exception == null) ? normalPriority : exceptionPriority, newLoggedStopWatch(), exception);
+    }
+
+    /**
+     * Overridden to pass a snapshot of this StopWatch to the log4j Logger without rendering the StopWatch string. The
+     * string is only created by the appenders that write it (log4j caches it in the LoggingEvent), so behind an
+     * AsyncAppender none of that work is done by the thread that stopped the StopWatch.
+     *
+     * @param exception An exception, if any, that was passed to the stop or lap method.
+     * @return null, as the StopWatch string isn't created here.
+     */
+    protected String logStopWatch(Throwable exception) {
+        logger.log((exception == null) ? normalPriority : exceptionPriority, newLoggedStopWatch(), exception);
+        return null;
+    }
+
+    /**
+     * Overridden to pass the derived StopWatch itself to the log4j Logger, as the log method does for normal stops.
+     *
+     * @param derived The derived StopWatch, such as a summary.
+     */
+    protected void logDerived(StopWatch derived) {
+        logger.log(normalPriority, derived, null);
     }
 
     // --- Object Methods ---
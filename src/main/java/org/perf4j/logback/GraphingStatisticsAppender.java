@@ -64,7 +64,7 @@ public class GraphingStatisticsAppender extends AppenderBase<LoggingEvent>
     /**
      * The type of data to display on the graph. Defaults to "Mean" to display mean values. Acceptable values are any
      * constant name from the {@link org.perf4j.helpers.StatsValueRetriever} class, such as Mean, Min, Max, Count,
-     * StdDev or TPS.
+     * StdDev, TPS, P50, P90, P99 or P999.
      */
     private String graphType = StatsValueRetriever.MEAN_VALUE_RETRIEVER.getValueName();
 
@@ -113,8 +113,9 @@ public class GraphingStatisticsAppender extends AppenderBase<LoggingEvent>
 
     /**
      * The <b>GraphType</b> option is used to specify the data that should be displayed on the graph. Acceptable
-     * values are Mean, Min, Max, Count, StdDev and TPS (for transactions per second). Defaults to Mean if not
-     * explicitly set.
+     * values are Mean, Min, Max, Count, StdDev, TPS (for transactions per second) and the percentiles P50, P90, P99
+     * and P999 (which require the HistogramPrecision option on the AsyncCoalescingStatisticsAppender). Defaults to
+     * Mean if not explicitly set.
      *
      * @return The value of the GraphType option
      */
@@ -124,7 +125,7 @@ public class GraphingStatisticsAppender extends AppenderBase<LoggingEvent>
 
     /**
      * Sets the value of the <b>GraphType</b> option. This must be a valid type, one of
-     * Mean, Min, Max, Count, StdDev or TPS (for transactions per second).
+     * Mean, Min, Max, Count, StdDev, TPS (for transactions per second), P50, P90, P99 or P999.
      *
      * @param graphType The new value for the GraphType option.
      */
@@ -204,7 +205,7 @@ public class GraphingStatisticsAppender extends AppenderBase<LoggingEvent>
      * @return A newly created StatisticsChartGenerator.
      */
     protected StatisticsChartGenerator createChartGenerator() {
-        StatsValueRetriever statsValueRetriever = StatsValueRetriever.DEFAULT_RETRIEVERS.get(getGraphType());
+        StatsValueRetriever statsValueRetriever = StatsValueRetriever.ALL_RETRIEVERS.get(getGraphType());
         if (statsValueRetriever == null) {
             throw new RuntimeException("Unknown GraphType: " + getGraphType() +
                                        ". See the StatsValueRetriever class for the list of acceptable types.");
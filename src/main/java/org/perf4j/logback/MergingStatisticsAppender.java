@@ -0,0 +1,209 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.logback;
+
+import java.io.Flushable;
+import java.util.Iterator;
+import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+import org.perf4j.helpers.TimeSliceMerger;
+import org.slf4j.LoggerFactory;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+/**
+ * This appender is designed to be attached to an {@link AsyncCoalescingStatisticsAppender} (or to another
+ * MergingStatisticsAppender). It merges the incoming GroupedTimingStatistics of consecutive time slices into
+ * statistics over a longer time slice, which are sent to the appenders attached to this appender. This way
+ * statistics at several resolutions can be created while each StopWatch is only parsed and aggregated once. For
+ * example, the AsyncCoalescingStatisticsAppender could create 10 second statistics for a
+ * JmxAttributeStatisticsAppender, with one MergingStatisticsAppender attached to it creating 1 minute statistics for a
+ * CSV file, and another attached to that creating 1 hour statistics.
+ * <p/>
+ * The TimeSlice of this appender should be a multiple of the TimeSlice of the appender it is attached to.
+ */
+public class MergingStatisticsAppender extends AppenderBase<LoggingEvent>
+    implements AppenderAttachable<LoggingEvent>, Flushable {
+    // --- configuration options ---
+    /**
+     * The length of the merged time slices, in milliseconds. Defaults to 60 seconds.
+     */
+    private long timeSlice = 60000L;
+
+    // --- contained objects/state variables ---
+    /**
+     * The merger, initialized in the <tt>start</tt> method. Only used while holding the downstreamAppenders lock.
+     */
+    private TimeSliceMerger timeSliceMerger;
+    /**
+     * Keeps track of the Level of the last appended event, which is used as the Level of OUR downstream events.
+     */
+    private Level lastAppendedEventLevel = Level.INFO;
+    /**
+     * Any downstream appenders are contained in this AppenderAttachableImpl
+     */
+    private final AppenderAttachableImpl<LoggingEvent> downstreamAppenders = new AppenderAttachableImpl<LoggingEvent>();
+
+    // --- options ---
+
+    /**
+     * The <b>TimeSlice</b> option is the length of time, in milliseconds, of the merged time slices. It should be a
+     * multiple of the TimeSlice of the appender this appender is attached to. Defaults to 60000 ms.
+     *
+     * @return The value of the TimeSlice option
+     */
+    public long getTimeSlice() {
+        return timeSlice;
+    }
+
+    /**
+     * Sets the value of the <b>TimeSlice</b> option.
+     *
+     * @param timeSlice The new value for the TimeSlice option, in milliseconds.
+     */
+    public void setTimeSlice(long timeSlice) {
+        this.timeSlice = timeSlice;
+    }
+
+    // --- lifecycle ---
+    @Override
+    public void start() {
+        synchronized (downstreamAppenders) {
+            timeSliceMerger = new TimeSliceMerger(timeSlice);
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        //send the incomplete time slice, then stop any downstream appenders
+        synchronized (downstreamAppenders) {
+            flush();
+            for (Iterator<Appender<LoggingEvent>> iter = downstreamAppenders.iteratorForAppenders();
+                 iter.hasNext();) {
+                Appender<LoggingEvent> appender = iter.next();
+                if (appender instanceof Flushable) {
+                    try {
+                        ((Flushable) appender).flush();
+                    } catch (Exception e) { /* Just eat the exception, we're closing down */ }
+                }
+            }
+            downstreamAppenders.detachAndStopAllAppenders();
+        }
+
+        super.stop();
+    }
+
+    // --- appender attachable methods ---
+    public void addAppender(Appender<LoggingEvent> appender) {
+        synchronized (downstreamAppenders) {
+            downstreamAppenders.addAppender(appender);
+        }
+    }
+
+    public Iterator<Appender<LoggingEvent>> iteratorForAppenders() {
+        synchronized (downstreamAppenders) {
+            return downstreamAppenders.iteratorForAppenders();
+        }
+    }
+
+    public Appender<LoggingEvent> getAppender(String name) {
+        synchronized (downstreamAppenders) {
+            return downstreamAppenders.getAppender(name);
+        }
+    }
+
+    public boolean isAttached(Appender<LoggingEvent> appender) {
+        synchronized (downstreamAppenders) {
+            return downstreamAppenders.isAttached(appender);
+        }
+    }
+
+    public void detachAndStopAllAppenders() {
+        synchronized (downstreamAppenders) {
+            downstreamAppenders.detachAndStopAllAppenders();
+        }
+    }
+
+    public boolean detachAppender(Appender<LoggingEvent> appender) {
+        synchronized (downstreamAppenders) {
+            return downstreamAppenders.detachAppender(appender);
+        }
+    }
+
+    public boolean detachAppender(String name) {
+        synchronized (downstreamAppenders) {
+            return downstreamAppenders.detachAppender(name);
+        }
+    }
+
+    // --- appender methods ---
+    @Override
+    protected void append(LoggingEvent event) {
+        if ((event.getArgumentArray() != null)
+                && (event.getArgumentArray().length > 0)) {
+            Object logMessage = event.getArgumentArray()[0];
+
+            if (logMessage instanceof GroupedTimingStatistics) {
+                synchronized (downstreamAppenders) {
+                    if (timeSliceMerger != null) {
+                        lastAppendedEventLevel = event.getLevel();
+                        for (GroupedTimingStatistics statistics :
+                                timeSliceMerger.add((GroupedTimingStatistics) logMessage)) {
+                            appendToDownstreamAppenders(statistics);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // --- Flushable method ---
+    /**
+     * This flush method sends the statistics merged so far for the current, incomplete time slice to any attached
+     * appenders. It is called when the appender this appender is attached to is stopped.
+     */
+    public void flush() {
+        synchronized (downstreamAppenders) {
+            GroupedTimingStatistics statistics = (timeSliceMerger == null) ? null : timeSliceMerger.flush();
+            if (statistics != null) {
+                appendToDownstreamAppenders(statistics);
+            }
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private void appendToDownstreamAppenders(GroupedTimingStatistics statistics) {
+        LoggingEvent mergedLoggingEvent =
+                new LoggingEvent(Logger.class.getName(),
+                                 (Logger) LoggerFactory.getLogger(StopWatch.DEFAULT_LOGGER_NAME),
+                                 lastAppendedEventLevel,
+                                 "{}",
+                                 null,
+                                 new Object[] {statistics});
+        try {
+            downstreamAppenders.appendLoopOnAppenders(mergedLoggingEvent);
+        } catch (Exception e) {
+            addError("Exception calling append with GroupedTimingStatistics on downstream appender", e);
+        }
+    }
+}
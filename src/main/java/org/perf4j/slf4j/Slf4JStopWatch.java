@@ -18,13 +18,24 @@ package org.perf4j.slf4j;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
 
 import org.perf4j.LoggingStopWatch;
+import org.perf4j.StopWatch;
+import org.perf4j.StopWatchSampler;
+import org.perf4j.StopWatchSummarizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This LoggingStopWatch uses an SLF4J Logger instance to persist the StopWatch messages.
+ * <p/>
+ * By default the StopWatch string is the logged message. If {@link #setDeferredRendering deferred rendering} is
+ * enabled, a snapshot of the StopWatch is instead the argument of a {@link #STOP_WATCH_MESSAGE_FORMAT} parameterized
+ * message, so the string is only created when the message is formatted, and the logback
+ * AsyncCoalescingStatisticsAppender can use the StopWatch without parsing it. Note this changes the raw message of the
+ * logging events (for example logback's <tt>LoggingEvent.getMessage()</tt>), so it should only be enabled if the
+ * appenders and filters that see the events use the formatted message.
  *
  * @author Alex Devine
  */
@@ -50,10 +61,16 @@ public class Slf4JStopWatch extends LoggingStopWatch {
      * Specifying this level will cause the <tt>error()</tt> method to be used for logging.
      */
     public static final int ERROR_LEVEL = 40000;
+    /**
+     * The parameterized message format used with deferred rendering, when the StopWatch itself is passed as the log
+     * message argument.
+     */
+    public static final String STOP_WATCH_MESSAGE_FORMAT = "{}";
 
     private transient Logger logger;
     private int normalPriority;
     private int exceptionPriority;
+    private boolean deferredRendering = false;
 
     // --- Constructors ---
 
@@ -319,6 +336,29 @@ public class Slf4JStopWatch extends LoggingStopWatch {
         return this;
     }
 
+    /**
+     * Gets whether the StopWatch string is left to the SLF4J implementation, rather than being the logged message.
+     * Defaults to false.
+     *
+     * @return true if StopWatches are logged as the argument of a {@link #STOP_WATCH_MESSAGE_FORMAT} message.
+     */
+    public boolean isDeferredRendering() { return deferredRendering; }
+
+    /**
+     * Sets whether the StopWatch string is left to the SLF4J implementation. If true, a snapshot of the StopWatch is
+     * logged as the argument of a {@link #STOP_WATCH_MESSAGE_FORMAT} parameterized message, so the string is not
+     * created by the thread that stops the StopWatch. The formatted message is the same, but the raw message of the
+     * logging events is the format rather than the StopWatch string. Stops with an exception are always logged as a
+     * string, see {@link #log(StopWatch, int)}.
+     *
+     * @param deferredRendering Whether to leave the rendering of the StopWatch string to the SLF4J implementation.
+     * @return this instance, for use with method chaining if desired
+     */
+    public Slf4JStopWatch setDeferredRendering(boolean deferredRendering) {
+        this.deferredRendering = deferredRendering;
+        return this;
+    }
+
     // Just overridden to make use of covariant return types
     public Slf4JStopWatch setTimeThreshold(long timeThreshold) {
         super.setTimeThreshold(timeThreshold);
@@ -336,6 +376,12 @@ public class Slf4JStopWatch extends LoggingStopWatch {
         super.setMessage(message);
         return this;
     }
+
+    // Just overridden to make use of covariant return types
+    public Slf4JStopWatch setTimeUnit(TimeUnit timeUnit) {
+        super.setTimeUnit(timeUnit);
+        return this;
+    }
     
     // Just overridden to make use of covariant return types
     public Slf4JStopWatch setNormalAndSlowSuffixesEnabled(boolean normalAndSlowSuffixesEnabled) {
@@ -355,6 +401,24 @@ public class Slf4JStopWatch extends LoggingStopWatch {
     	return this;
     }
 
+    // Just overridden to make use of covariant return types
+    public Slf4JStopWatch setWeight(int weight) {
+        super.setWeight(weight);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public Slf4JStopWatch setSampler(StopWatchSampler sampler) {
+        super.setSampler(sampler);
+        return this;
+    }
+
+    // Just overridden to make use of covariant return types
+    public Slf4JStopWatch setSummarizer(StopWatchSummarizer summarizer) {
+        super.setSummarizer(summarizer);
+        return this;
+    }
+
     // --- Helper Methods ---
 
     /**
@@ -378,6 +442,70 @@ public class Slf4JStopWatch extends LoggingStopWatch {
         log(stopWatchAsString, exception, (exception == null) ? normalPriority : exceptionPriority);
     }
 
+    /**
+     * Overridden so that, with {@link #isDeferredRendering() deferred rendering}, a snapshot of this StopWatch is
+     * logged as a parameterized message without rendering the StopWatch string, which is left to the SLF4J
+     * implementation. Stops with an exception still create the string here, see {@link #log(StopWatch, int)}.
+     *
+     * @param exception An exception, if any, that was passed to the stop or lap method.
+     * @return null if the StopWatch string wasn't created here, otherwise the string.
+     */
+    protected String logStopWatch(Throwable exception) {
+        if (!deferredRendering || exception != null) {
+            return super.logStopWatch(exception);
+        }
+        log(newLoggedStopWatch(), normalPriority);
+        return null;
+    }
+
+    /**
+     * Overridden so that, with deferred rendering, the derived StopWatch is logged as a parameterized message, as
+     * logStopWatch does for normal stops.
+     *
+     * @param derived The derived StopWatch, such as a summary.
+     */
+    protected void logDerived(StopWatch derived) {
+        if (deferredRendering) {
+            log(derived, normalPriority);
+        } else {
+            super.logDerived(derived);
+        }
+    }
+
+    /**
+     * Logs the StopWatch as the single argument of a <tt>"{}"</tt> parameterized message. The formatted message is
+     * identical to the StopWatch string, but SLF4J implementations such as logback keep the StopWatch in the event's
+     * argument array, which allows the logback AsyncCoalescingStatisticsAppender to use it without re-parsing the
+     * message. SLF4J 1.5 has no parameterized methods that also take an exception, so stops with an exception are
+     * logged through {@link #log(String, Throwable, int)} instead.
+     *
+     * @param stopWatch The StopWatch to log, normally created by {@link #newLoggedStopWatch()}.
+     * @param atLevel   The level at which logging should occur.
+     */
+    protected void log(StopWatch stopWatch, int atLevel) {
+        switch (atLevel) {
+        case TRACE_LEVEL:
+            logger.trace(STOP_WATCH_MESSAGE_FORMAT, stopWatch);
+            break;
+        case DEBUG_LEVEL:
+            logger.debug(STOP_WATCH_MESSAGE_FORMAT, stopWatch);
+            break;
+        case INFO_LEVEL:
+            logger.info(STOP_WATCH_MESSAGE_FORMAT, stopWatch);
+            break;
+        case WARN_LEVEL:
+            logger.warn(STOP_WATCH_MESSAGE_FORMAT, stopWatch);
+            break;
+        case ERROR_LEVEL:
+            logger.error(STOP_WATCH_MESSAGE_FORMAT, stopWatch);
+            break;
+        default:
+            // if here it means the level was set to a non-standard value.
+            // Only expend the time to find the closest known level if we need to.
+            log(stopWatch, closestKnownLevel(atLevel));
+        }
+    }
+
     /**
      * Since Commons Logging doesn't have a first class notion of Level objects or integer values, this method
      * converts the level value to one of the <tt>isXYZEnabled()</tt> methods on the Log.
@@ -0,0 +1,115 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This is NOT a unit test (and so is not run by the surefire plugin); it is a simple benchmark that measures how
+ * recording into a single, contended tag scales with the number of recording threads, for ConcurrentTimingStatistics
+ * and for a TimingStatistics guarded by a lock. Run it from the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.perf4j.ConcurrentTimingStatisticsBenchmark [samplesPerThread]
+ * </pre>
+ * The total number of samples recorded per second is printed for 1, 2, 4, ... threads, up to twice the number of
+ * processors.
+ */
+public class ConcurrentTimingStatisticsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int samplesPerThread = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+        //warm up so the JIT has compiled the hot paths
+        run(new ConcurrentRecorder(), 2, samplesPerThread / 10);
+        run(new LockingRecorder(), 2, samplesPerThread / 10);
+
+        System.out.println(String.format("%-10s%20s%20s", "Threads", "Concurrent/sec", "Locking/sec"));
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.println(String.format("%-10d%20.0f%20.0f",
+                                             threads,
+                                             run(new ConcurrentRecorder(), threads, samplesPerThread),
+                                             run(new LockingRecorder(), threads, samplesPerThread)));
+        }
+    }
+
+    /**
+     * Runs a single round of the benchmark.
+     *
+     * @return The total number of samples recorded per second.
+     */
+    private static double run(final Recorder recorder, int numThreads, final int samplesPerThread) throws Exception {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int j = 0; j < samplesPerThread; j++) {
+                        recorder.record(j & 1023);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        if (recorder.getCount() != (long) numThreads * samplesPerThread) {
+            throw new IllegalStateException("Lost samples: " + recorder.getCount());
+        }
+        return numThreads * (double) samplesPerThread / (elapsedTime / 1000000000.0);
+    }
+
+    private interface Recorder {
+        void record(long sampleTime);
+
+        int getCount();
+    }
+
+    private static class ConcurrentRecorder implements Recorder {
+        private final ConcurrentTimingStatistics stats = new ConcurrentTimingStatistics();
+
+        public void record(long sampleTime) {
+            stats.addSampleTime(sampleTime);
+        }
+
+        public int getCount() {
+            return stats.toTimingStatistics().getCount();
+        }
+    }
+
+    private static class LockingRecorder implements Recorder {
+        private final TimingStatistics stats = new TimingStatistics();
+
+        public synchronized void record(long sampleTime) {
+            stats.addSampleTime(sampleTime);
+        }
+
+        public synchronized int getCount() {
+            return stats.getCount();
+        }
+    }
+}
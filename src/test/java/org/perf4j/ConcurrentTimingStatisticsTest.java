@@ -0,0 +1,155 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the ConcurrentTimingStatistics.
+ */
+public class ConcurrentTimingStatisticsTest extends TestCase {
+
+    public void testMatchesTimingStatistics() throws Exception {
+        ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics(TimingHistogram.DEFAULT_PRECISION);
+        TimingStatistics expected = new TimingStatistics(new TimingHistogram(TimingHistogram.DEFAULT_PRECISION,
+                                                                             TimeUnit.MILLISECONDS));
+        assertEquals(0, concurrentStats.toTimingStatistics().getCount());
+
+        for (long i = 1; i <= 1000; i++) {
+            long sampleTime = (i * 7919) % 1013;
+            concurrentStats.addSampleTime(sampleTime);
+            expected.addSampleTime(sampleTime);
+        }
+
+        TimingStatistics stats = concurrentStats.toTimingStatistics();
+        assertEquals(expected.getCount(), stats.getCount());
+        assertEquals(expected.getMin(), stats.getMin());
+        assertEquals(expected.getMax(), stats.getMax());
+        assertEquals(expected.getMean(), stats.getMean(), 0.000001);
+        assertEquals(expected.getStandardDeviation(), stats.getStandardDeviation(), 0.000001);
+        assertEquals(expected.getHistogram(), stats.getHistogram());
+        assertEquals(expected.getPercentile(99.0), stats.getPercentile(99.0));
+
+        //toTimingStatistics left the samples in place, toTimingStatisticsAndReset clears them
+        assertEquals(1000, concurrentStats.toTimingStatisticsAndReset().getCount());
+        assertEquals(0, concurrentStats.toTimingStatistics().getCount());
+    }
+
+    public void testLargeSampleTimes() throws Exception {
+        //nanosecond times of a few seconds with a small spread, where a sum of squares loses all precision
+        ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics();
+        TimingStatistics expected = new TimingStatistics();
+        for (long i = 0; i < 10000; i++) {
+            long sampleTime = 3000000000L + (i % 10);
+            concurrentStats.addSampleTime(sampleTime);
+            expected.addSampleTime(sampleTime);
+        }
+
+        TimingStatistics stats = concurrentStats.toTimingStatistics();
+        assertEquals(3000000004.5, stats.getMean(), 0.001);
+        assertEquals(expected.getStandardDeviation(), stats.getStandardDeviation(), 0.000001);
+        assertEquals(Math.sqrt(8.25), stats.getStandardDeviation(), 0.000001);
+    }
+
+    public void testWeightedSampleTimes() throws Exception {
+        ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics(2);
+        TimingStatistics expected = new TimingStatistics(new TimingHistogram(2, TimeUnit.MILLISECONDS));
+        for (long i = 1; i <= 1000; i++) {
+            long sampleTime = (i * 7919) % 1013;
+            int weight = (int) (i % 5) + 1;
+            concurrentStats.addSampleTime(sampleTime, weight);
+            expected.addSampleTime(sampleTime, weight);
+        }
+
+        TimingStatistics stats = concurrentStats.toTimingStatisticsAndReset();
+        assertEquals(expected.getCount(), stats.getCount());
+        assertEquals(expected.getMean(), stats.getMean(), 0.000001);
+        assertEquals(expected.getStandardDeviation(), stats.getStandardDeviation(), 0.000001);
+        assertEquals(expected.getHistogram(), stats.getHistogram());
+        assertTrue(stats.isSampled());
+
+        //the sampled flag is cleared on reset
+        concurrentStats.addSampleTime(10L, 1);
+        assertFalse(concurrentStats.toTimingStatistics().isSampled());
+    }
+
+    public void testHistogramPrecisionChangesOnReset() throws Exception {
+        ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics();
+        concurrentStats.addSampleTime(10L);
+        concurrentStats.setHistogramPrecision(3);
+        concurrentStats.addSampleTime(20L);
+
+        TimingStatistics stats = concurrentStats.toTimingStatisticsAndReset();
+        assertEquals(2, stats.getCount());
+        assertNull(stats.getHistogram());
+
+        concurrentStats.addSampleTime(30L);
+        stats = concurrentStats.toTimingStatisticsAndReset();
+        assertEquals(3, stats.getHistogram().getPrecision());
+        assertEquals(30L, stats.getPercentile(50.0));
+
+        try {
+            concurrentStats.setHistogramPrecision(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            //expected
+        }
+    }
+
+    public void testConcurrentAddAndReset() throws Exception {
+        final ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics(3);
+        final int samplesPerThread = 20000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final long sampleTime = i + 1;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int j = 0; j < samplesPerThread; j++) {
+                        concurrentStats.addSampleTime(sampleTime);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        startLatch.countDown();
+
+        //every sample must be counted exactly once, in one of the intervals
+        TimingStatistics total = new TimingStatistics(new TimingHistogram(3, TimeUnit.MILLISECONDS));
+        boolean anyAlive = true;
+        while (anyAlive) {
+            anyAlive = false;
+            for (Thread thread : threads) {
+                anyAlive |= thread.isAlive();
+            }
+            total.merge(concurrentStats.toTimingStatisticsAndReset());
+        }
+
+        assertEquals(threads.length * samplesPerThread, total.getCount());
+        assertEquals(threads.length * samplesPerThread, total.getHistogram().getTotalCount());
+        assertEquals(1L, total.getMin());
+        assertEquals(8L, total.getMax());
+        assertEquals(4.5, total.getMean(), 0.000001);
+    }
+}
@@ -0,0 +1,81 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import org.perf4j.helpers.TagDictionary;
+
+/**
+ * This is NOT a unit test (and so is not run by the surefire plugin); it is a simple benchmark that measures how fast
+ * StopWatches are added to a GroupedTimingStatistics with many tags, using the compact arrays kept while StopWatches
+ * are added and using the Map of TimingStatistics objects (which is used once getStatisticsByTag() has been called).
+ * Run it from the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.perf4j.GroupedTimingStatisticsBenchmark [numTags] [stopWatches]
+ * </pre>
+ * The number of StopWatches added per second is printed for each representation.
+ */
+public class GroupedTimingStatisticsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numTags = (args.length > 0) ? Integer.parseInt(args[0]) : 3000;
+        int stopWatchesPerSlice = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+
+        StopWatch[] stopWatches = new StopWatch[stopWatchesPerSlice];
+        for (int i = 0; i < stopWatches.length; i++) {
+            stopWatches[i] = new StopWatch(i, (i * 37) % 1001, "service" + (i % numTags) + ".success", null);
+        }
+
+        //warm up so the JIT has compiled the hot paths
+        TagDictionary tagDictionary = new TagDictionary();
+        for (int i = 0; i < 20; i++) {
+            run(stopWatches, tagDictionary, true);
+            run(stopWatches, tagDictionary, false);
+        }
+
+        System.out.println(String.format("%-10s%20s%20s", "Slice", "Compact/sec", "Map/sec"));
+        for (int i = 1; i <= 5; i++) {
+            System.out.println(String.format("%-10d%20.0f%20.0f",
+                                             i,
+                                             run(stopWatches, tagDictionary, true),
+                                             run(stopWatches, tagDictionary, false)));
+        }
+    }
+
+    /**
+     * Fills the statistics of a single time slice.
+     *
+     * @return The number of StopWatches added per second.
+     */
+    private static double run(StopWatch[] stopWatches, TagDictionary tagDictionary, boolean compact) {
+        GroupedTimingStatistics stats = new GroupedTimingStatistics();
+        stats.setCreateRollupStatistics(true);
+        stats.setTagDictionary(tagDictionary);
+        if (!compact) {
+            stats.getStatisticsByTag();
+        }
+
+        long startTime = System.nanoTime();
+        for (StopWatch stopWatch : stopWatches) {
+            stats.addStopWatch(stopWatch);
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        if (stats.getStatisticsByTag().isEmpty()) {
+            throw new IllegalStateException("No statistics");
+        }
+        return stopWatches.length / (elapsedTime / 1000000000.0);
+    }
+}
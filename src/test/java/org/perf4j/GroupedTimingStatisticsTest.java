@@ -15,10 +15,21 @@
  */
 package org.perf4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
+import org.perf4j.helpers.GroupedTimingStatisticsCsvFormatter;
+import org.perf4j.helpers.TagDictionary;
 
 /**
  * PERFFORJ-55.
@@ -64,8 +75,248 @@ public class GroupedTimingStatisticsTest extends TestCase {
         assertOutputContains(groupStatistics.toString(), "a           1.1           4           3         0.2           5           6");
     }
 
+    public void testMerge() throws Exception {
+        GroupedTimingStatistics first = new GroupedTimingStatistics();
+        first.setStartTime(1000L);
+        first.setStopTime(2000L);
+        GroupedTimingStatistics second = new GroupedTimingStatistics();
+        second.setStartTime(2000L);
+        second.setStopTime(3000L);
+        GroupedTimingStatistics all = new GroupedTimingStatistics();
+        all.setStartTime(1000L);
+        all.setStopTime(3000L);
 
+        for (int i = 0; i < 100; i++) {
+            StopWatch stopWatch = new StopWatch(1000L + i, (i * 37) % 101, (i % 3 == 0) ? "a" : "b", null);
+            //the "c" tag only appears in the second statistics
+            ((i < 60) ? first : second).addStopWatch(stopWatch);
+            all.addStopWatch(stopWatch);
+            if (i >= 60) {
+                StopWatch cStopWatch = new StopWatch(2000L + i, i, "c", null);
+                second.addStopWatch(cStopWatch);
+                all.addStopWatch(cStopWatch);
+            }
+        }
 
+        GroupedTimingStatistics secondCopy = second.clone();
+        GroupedTimingStatistics merged = first.merge(second);
+        assertSame(first, merged);
+        assertEquals(secondCopy, second);
+
+        assertEquals(all.getStartTime(), merged.getStartTime());
+        assertEquals(all.getStopTime(), merged.getStopTime());
+        assertEquals(all.getStatisticsByTag().keySet(), merged.getStatisticsByTag().keySet());
+        for (String tag : all.getStatisticsByTag().keySet()) {
+            TimingStatistics expected = all.getStatisticsByTag().get(tag);
+            TimingStatistics actual = merged.getStatisticsByTag().get(tag);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getMin(), actual.getMin());
+            assertEquals(expected.getMax(), actual.getMax());
+            assertEquals(expected.getMean(), actual.getMean(), 0.000001);
+            assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 0.000001);
+        }
+
+        //merging into empty statistics just copies the other statistics
+        GroupedTimingStatistics empty = new GroupedTimingStatistics();
+        empty.merge(secondCopy);
+        assertEquals(secondCopy, empty);
+        assertNotSame(secondCopy.getStatisticsByTag().get("c"), empty.getStatisticsByTag().get("c"));
+    }
+
+    public void testTimeUnit() throws Exception {
+        GroupedTimingStatistics stats = new GroupedTimingStatistics();
+        stats.setTimeUnit(TimeUnit.MICROSECONDS);
+        stats.setStartTime(0L);
+        stats.setStopTime(1000L);
+        stats.addStopWatch(new StopWatch(0L, 250L, TimeUnit.MICROSECONDS, "a", null));
+        stats.addStopWatch(new StopWatch(0L, 2L, TimeUnit.MILLISECONDS, "a", null));
+        stats.addStopWatch(new StopWatch(0L, 500000L, TimeUnit.NANOSECONDS, "a", null));
+
+        //each StopWatch is converted to the unit of the statistics
+        TimingStatistics timingStats = stats.getStatisticsByTag().get("a");
+        assertEquals(250L, timingStats.getMin());
+        assertEquals(2000L, timingStats.getMax());
+        assertEquals(3, timingStats.getCount());
+        assertOutputContains(stats.toString(), "Avg(us)");
+        assertEquals("\"a\",3,us,2000" + System.getProperty("line.separator"),
+                     new GroupedTimingStatisticsCsvFormatter(false, "tag,count,unit,max") {
+                         protected String formatDate(long timeInMillis) {
+                             return String.valueOf(timeInMillis);
+                         }
+                     }.format(stats));
+        assertEquals("0,us,2000" + System.getProperty("line.separator"),
+                     new GroupedTimingStatisticsCsvFormatter(true, "start,unit,aMax") {
+                         protected String formatDate(long timeInMillis) {
+                             return String.valueOf(timeInMillis);
+                         }
+                     }.format(stats));
+
+        //statistics in different units can't be merged
+        try {
+            new GroupedTimingStatistics().merge(stats);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            //expected
+        }
+    }
+
+    public void testMergeWithHistograms() throws Exception {
+        TimingStatistics first = new TimingStatistics(new TimingHistogram());
+        TimingStatistics second = new TimingStatistics(new TimingHistogram());
+        TimingStatistics all = new TimingStatistics(new TimingHistogram());
+        for (long i = 1; i <= 200; i++) {
+            ((i % 2 == 0) ? first : second).addSampleTime(i);
+            all.addSampleTime(i);
+        }
+
+        first.merge(second);
+        assertEquals(all.getHistogram(), first.getHistogram());
+        assertEquals(all.getPercentile(99.0), first.getPercentile(99.0));
+
+        //merging statistics without a histogram means percentiles are no longer known
+        first.merge(new TimingStatistics().addSampleTime(5L));
+        assertNull(first.getHistogram());
+        assertEquals(0L, first.getPercentile(50.0));
+
+        try {
+            new TimingStatistics(new TimingHistogram(3)).merge(
+                    new TimingStatistics(new TimingHistogram(4)).addSampleTime(5L));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            //expected
+        }
+    }
+
+    public void testCompactStorage() throws Exception {
+        //statistics that are materialized before any StopWatches are added keep them in TimingStatistics objects
+        TagDictionary tagDictionary = new TagDictionary();
+        GroupedTimingStatistics compact = new GroupedTimingStatistics();
+        compact.setTagDictionary(tagDictionary);
+        compact.setCreateRollupStatistics(true);
+        compact.setHistogramPrecision(2);
+        GroupedTimingStatistics mapBacked = new GroupedTimingStatistics();
+        mapBacked.setCreateRollupStatistics(true);
+        mapBacked.setHistogramPrecision(2);
+        assertTrue(mapBacked.getStatisticsByTag().isEmpty());
+
+        for (int i = 0; i < 1000; i++) {
+            StopWatch stopWatch = new StopWatch(1000L + i, (i * 37) % 101, "tag" + (i % 40) + ".sub" + (i % 3), null);
+            compact.addStopWatch(stopWatch);
+            mapBacked.addStopWatch(stopWatch);
+        }
+        assertEquals(160, tagDictionary.size());
+        assertEquals(mapBacked.clone(), compact.clone());
+
+        //statistics sharing a dictionary are merged index by index, with the same result as merging the Maps
+        GroupedTimingStatistics other = new GroupedTimingStatistics();
+        other.setTagDictionary(tagDictionary);
+        other.setHistogramPrecision(2);
+        other.addStopWatch(new StopWatch(0L, 500L, "tag1", null));
+        other.addStopWatch(new StopWatch(0L, 5L, "newTag", null));
+        GroupedTimingStatistics otherOwnDictionary = new GroupedTimingStatistics();
+        otherOwnDictionary.setHistogramPrecision(2);
+        otherOwnDictionary.addStopWatch(new StopWatch(0L, 7L, "tag2.sub1", null));
+        compact.merge(other).merge(otherOwnDictionary);
+        mapBacked.merge(other.clone()).merge(otherOwnDictionary.clone());
+        assertEquals(mapBacked, compact);
+        assertEquals(1, compact.getStatisticsByTag().get("newTag").getCount());
+        assertEquals(500L, compact.getStatisticsByTag().get("tag1").getPercentile(100.0));
+
+        //once requested, the Map is live
+        compact.getStatisticsByTag().remove("newTag");
+        compact.addStopWatch(new StopWatch(0L, 5L, "newTag2", null));
+        assertFalse(compact.getStatisticsByTag().containsKey("newTag"));
+        assertTrue(compact.getStatisticsByTag().containsKey("newTag2"));
+
+        //the serialized form holds the Map
+        GroupedTimingStatistics serializable = new GroupedTimingStatistics();
+        serializable.addStopWatch(new StopWatch(0L, 5L, "a", null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(serializable);
+        out.close();
+        Object deserialized = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(serializable, deserialized);
+        ((GroupedTimingStatistics) deserialized).addStopWatch(new StopWatch(0L, 5L, "a", null));
+        assertEquals(2, ((GroupedTimingStatistics) deserialized).getStatisticsByTag().get("a").getCount());
+    }
+
+    public void testConcurrentReaders() throws Exception {
+        //the same statistics are read by several appenders, each on its own thread, which all build the Map at once
+        for (int round = 0; round < 100; round++) {
+            final GroupedTimingStatistics stats = new GroupedTimingStatistics();
+            for (int i = 0; i < 100; i++) {
+                stats.addStopWatch(new StopWatch(0L, i, "tag" + (i % 10), null));
+            }
+
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final List<SortedMap<String, TimingStatistics>> maps =
+                    Collections.synchronizedList(new ArrayList<SortedMap<String, TimingStatistics>>());
+            Thread[] readers = new Thread[4];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new Thread() {
+                    public void run() {
+                        try {
+                            startLatch.await();
+                        } catch (InterruptedException ie) {
+                            return;
+                        }
+                        maps.add(stats.getStatisticsByTag());
+                    }
+                };
+                readers[i].start();
+            }
+            startLatch.countDown();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+
+            assertEquals(readers.length, maps.size());
+            for (SortedMap<String, TimingStatistics> map : maps) {
+                assertSame(stats.getStatisticsByTag(), map);
+                assertEquals(10, map.size());
+            }
+        }
+    }
+
+    public void testWeightedStopWatches() throws Exception {
+        //a StopWatch with weight n is counted the same as n StopWatches with the same elapsed time
+        GroupedTimingStatistics weighted = new GroupedTimingStatistics();
+        weighted.setCreateRollupStatistics(true);
+        weighted.setHistogramPrecision(2);
+        GroupedTimingStatistics weightedMapBacked = weighted.clone();
+        weightedMapBacked.getStatisticsByTag();
+        GroupedTimingStatistics repeated = weighted.clone();
+        for (int i = 0; i < 100; i++) {
+            StopWatch stopWatch = new StopWatch(1000L + i, (i * 37) % 101, "tag" + (i % 4) + ".sub", null);
+            int weight = 1 + (i % 5);
+            weighted.addStopWatch(stopWatch.clone().setWeight(weight));
+            weightedMapBacked.addStopWatch(stopWatch.clone().setWeight(weight));
+            for (int j = 0; j < weight; j++) {
+                repeated.addStopWatch(stopWatch);
+            }
+        }
+        assertEquals(weightedMapBacked, weighted);
+
+        for (String tag : repeated.getStatisticsByTag().keySet()) {
+            TimingStatistics expected = repeated.getStatisticsByTag().get(tag);
+            TimingStatistics actual = weighted.getStatisticsByTag().get(tag);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getMean(), actual.getMean(), 0.000001);
+            assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 0.000001);
+            assertEquals(expected.getMin(), actual.getMin());
+            assertEquals(expected.getMax(), actual.getMax());
+            assertEquals(expected.getHistogram(), actual.getHistogram());
+            assertFalse(expected.isSampled());
+            assertTrue(actual.isSampled());
+        }
+
+        //the sampled flag survives merging, and the min, max and std-dev of sampled statistics are marked in the output
+        GroupedTimingStatistics merged = new GroupedTimingStatistics().merge(repeated).merge(weighted);
+        assertTrue(merged.getStatisticsByTag().get("tag0").isSampled());
+        assertEquals(3 * weighted.getStatisticsByTag().size(), weighted.toString().split("~", -1).length - 1);
+        assertFalse(repeated.toString().contains("~"));
+    }
 
     private void assertOutputContains(String output, String expectedToContain) {
         String message = "Expected toString() output to contain the given string, matching formatting.\n" + expectedToContain +
@@ -73,6 +73,15 @@ public class LogParserTest extends TimingTestCase {
                        fakeOut.toString().indexOf("\"tag3\",") >= 0);
             fakeOut.reset();
 
+            //reordering window test
+            realOut.println("-- File in -> Std out Test with reordering --");
+            assertEquals(0, LogParser.runMain(new String[]{"--reorderwindow", "5000", "./target/logParserTest.log"}));
+            realOut.println(fakeOut.toString());
+            assertTrue(fakeOut.toString().indexOf("tag") >= 0 &&
+                       fakeOut.toString().indexOf("tag2") >= 0 &&
+                       fakeOut.toString().indexOf("tag3") >= 0);
+            fakeOut.reset();
+
             //log from file, write to file
             realOut.println("-- File in -> File out Test --");
             LogParser.runMain(new String[]{"-o", "./target/statistics.out", "./target/logParserTest.log"});
@@ -91,6 +100,17 @@ public class LogParserTest extends TimingTestCase {
                        statsOut.indexOf("tag2") >= 0 &&
                        statsOut.indexOf("tag3") >= 0);
 
+            //multi-threaded parsing gives identical output
+            realOut.println("-- File in -> File out with multiple threads --");
+            LogParser.runMain(new String[]{"-o", "./target/statistics.out", "-r",
+                                           "./src/test/resources/org/perf4j/dummyLog.txt"});
+            String sequentialStatsOut = FileUtils.readFileToString(new File("./target/statistics.out"));
+            LogParser.runMain(new String[]{"-o", "./target/statistics.out", "-r", "--threads", "4",
+                                           "./src/test/resources/org/perf4j/dummyLog.txt"});
+            statsOut = FileUtils.readFileToString(new File("./target/statistics.out"));
+            assertTrue(statsOut.length() > 0);
+            assertEquals(sequentialStatsOut, statsOut);
+
             //missing param test
             realOut.println("-- Missing param test --");
             assertEquals(1, LogParser.runMain(new String[]{"./target/logParserTest.log", "-o"}));
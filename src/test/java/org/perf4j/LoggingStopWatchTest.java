@@ -17,11 +17,16 @@ package org.perf4j;
 
 import junit.framework.TestCase;
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.perf4j.helpers.StopWatchParser;
 
 import java.io.ByteArrayInputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests the LoggingStopWatch. Can also be used to test subclasses if the loggers are set up to log to stderr.
@@ -111,6 +116,166 @@ public class LoggingStopWatchTest extends TestCase {
         customTests();
     }
 
+    public void testSampling() throws Exception {
+        //every 3rd stop of each tag is logged, with a weight of 3
+        StopWatchSampler sampler = new StopWatchSampler(3);
+        LoggingStopWatch stopWatch = new LoggingStopWatch().setSampler(sampler);
+        for (int i = 0; i < 12; i++) {
+            stopWatch.start();
+            String stopWatchAsString = stopWatch.stop("sampled" + (i % 2));
+            if (i == 4) {
+                assertTrue(stopWatchAsString, stopWatchAsString.endsWith("weight[3]"));
+            }
+        }
+        String log = fakeErr.toString();
+        assertEquals(log, 4, log.split("weight\\[3\\]", -1).length - 1);
+        assertEquals(log, 2, log.split("tag\\[sampled0\\]", -1).length - 1);
+        fakeErr.reset();
+
+        //with a rate limit, the weight is the number of stops since the last one that was logged
+        sampler = new StopWatchSampler(1, 2);
+        assertEquals(1, sampler.sample("limited", 1000L));
+        assertEquals(1, sampler.sample("limited", 1500L));
+        assertEquals(0, sampler.sample("limited", 1600L));
+        assertEquals(0, sampler.sample("limited", 1700L));
+        assertEquals(1, sampler.sample("other", 1700L));
+        assertEquals(3, sampler.sample("limited", 2000L));
+        assertEquals(1, sampler.sample("limited", 2100L));
+        assertEquals(0, sampler.sample("limited", 2200L));
+    }
+
+    public void testSummarizer() throws Exception {
+        //stops below the time threshold are summarized once per interval, weighted by their number
+        StopWatchSummarizer summarizer = new StopWatchSummarizer(1000L);
+        assertNull(summarizer.add(new LoggingStopWatch(1098L, 2L, "fast", null), 1100L));
+        assertNull(summarizer.add(new LoggingStopWatch(1497L, 3L, "fast", null), 1500L));
+        assertNull(summarizer.add(new LoggingStopWatch(1996L, 3L, "fast", null), 1999L));
+        assertNull(summarizer.poll(new LoggingStopWatch(1990L, 9L, "fast", null), 1999L));
+        assertNull(summarizer.poll(new LoggingStopWatch(4990L, 10L, "other", null), 5000L));
+        StopWatch summary = summarizer.add(new LoggingStopWatch(1991L, 10L, "fast", null), 2001L);
+        assertEquals(new StopWatch(1000L, 3L, "fast", null).setWeight(3), summary);
+        assertEquals(new StopWatch(2000L, 10L, "fast", null), summarizer.poll(new LoggingStopWatch("fast"), 3000L));
+        assertNull(summarizer.poll(new LoggingStopWatch("fast"), 4000L));
+
+        //the mean is kept in nanoseconds, so it is rounded in the unit of the StopWatches
+        assertNull(summarizer.add(new LoggingStopWatch(0L, 1L, "micros", null).setTimeUnit(TimeUnit.MICROSECONDS), 0L));
+        assertNull(summarizer.add(new LoggingStopWatch(0L, 2L, "micros", null).setTimeUnit(TimeUnit.MICROSECONDS), 0L));
+        assertNull(summarizer.add(new LoggingStopWatch(0L, 2L, "micros", null).setTimeUnit(TimeUnit.MICROSECONDS), 0L));
+        assertEquals(new StopWatch(0L, 1667L, TimeUnit.MICROSECONDS, "micros", null).setWeight(3),
+                     summarizer.poll(new LoggingStopWatch("micros"), 1000L));
+
+        //flushAll logs the summaries of the finished intervals of every tag, through the first StopWatch of the tag
+        assertNull(summarizer.add(new LoggingStopWatch(5000L, 1L, "quiet", null), 5001L));
+        assertNull(summarizer.add(new LoggingStopWatch(5500L, 1L, "busy", null), 5501L));
+        assertEquals(0, summarizer.flushAll(5999L));
+        assertEquals(2, summarizer.flushAll(6000L));
+        String log = fakeErr.toString();
+        assertTrue(log, log.contains(new StopWatch(5000L, 1L, "quiet", null).toString()));
+        assertTrue(log, log.contains(new StopWatch(5000L, 1L, "busy", null).toString()));
+        fakeErr.reset();
+        assertNull(summarizer.add(new LoggingStopWatch(6000L, 3L, "busy", null), 6003L));
+        //stop logs the summaries of the current interval too
+        summarizer.stop();
+        assertEquals(new StopWatch(6000L, 3L, "busy", null).toString(), fakeErr.toString().trim());
+        assertEquals(0, summarizer.flushAll(Long.MAX_VALUE));
+        fakeErr.reset();
+
+        //every fast stop of a LoggingStopWatch ends up in a logged summary
+        LoggingStopWatch stopWatch = new LoggingStopWatch().setTimeThreshold(10000L)
+                .setSummarizer(new StopWatchSummarizer(10L));
+        for (int i = 0; i < 5; i++) {
+            stopWatch.start();
+            stopWatch.stop("summarized");
+        }
+        Thread.sleep(30L);
+        stopWatch.start();
+        stopWatch.stop("another"); //doesn't log the summary of a different tag
+        assertEquals("", fakeErr.toString());
+        stopWatch.start();
+        stopWatch.stop("summarized");
+
+        int numSummarized = 0;
+        StopWatchParser parser = new StopWatchParser();
+        for (String line : fakeErr.toString().split("[\\r\\n]+")) {
+            StopWatch logged = parser.parseStopWatch(line);
+            assertEquals("summarized", logged.getTag());
+            numSummarized += logged.getWeight();
+        }
+        assertEquals(5, numSummarized);
+        fakeErr.reset();
+    }
+
+    public void testLoggedStopsReturnString() throws Exception {
+        //the adapters leave the rendering of the logged StopWatch to the logging framework, but still return the string
+        LoggingStopWatch stopWatch = createStopWatch(null, null, null, "returned", "message");
+        String stopWatchAsString = stopWatch.stop();
+        assertNotNull(stopWatchAsString);
+        assertEquals(stopWatch.toString(), stopWatchAsString);
+        stopWatchAsString = stopWatch.stop("returned", new Exception());
+        assertEquals(stopWatch.toString(), stopWatchAsString);
+        assertTrue(stopWatch.lap("lapped").contains("tag[lapped]"));
+        fakeErr.reset();
+    }
+
+    public void testFilteredStopsDoNotAllocate() throws Exception {
+        //getThreadAllocatedBytes is a HotSpot extension, so skip the test on JVMs that don't support it
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Method getThreadAllocatedBytes;
+        try {
+            getThreadAllocatedBytes = threadMXBean.getClass().getMethod("getThreadAllocatedBytes", long.class);
+            getThreadAllocatedBytes.setAccessible(true);
+            getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return;
+        }
+
+        //both with only a time threshold, and with a summarizer that adds the filtered stops to a summary
+        LoggingStopWatch stopWatch = createStopWatch(null, null, null, "filtered", null);
+        stopWatch.setTimeThreshold(Long.MAX_VALUE);
+        assertFilteredStopsDoNotAllocate(stopWatch, threadMXBean, getThreadAllocatedBytes);
+        stopWatch.setSummarizer(new StopWatchSummarizer(Long.MAX_VALUE));
+        assertFilteredStopsDoNotAllocate(stopWatch, threadMXBean, getThreadAllocatedBytes);
+
+        //the stop methods that return the StopWatch string still create it for filtered stops
+        stopWatch.start();
+        assertEquals(stopWatch.toString(), stopWatch.stop());
+        stopWatch.start();
+        assertEquals(stopWatch.toString(), stopWatch.lap("filtered", "message"));
+        assertEquals("", fakeErr.toString());
+    }
+
+    private void assertFilteredStopsDoNotAllocate(LoggingStopWatch stopWatch,
+                                                  ThreadMXBean threadMXBean,
+                                                  Method getThreadAllocatedBytes) throws Exception {
+        Exception exception = new Exception();
+        int numStops = 100000;
+        //warm up so the JIT has compiled the stop path, then measure
+        stopFiltered(stopWatch, exception, numStops);
+        Object[] args = { Thread.currentThread().getId() };
+        long overheadBefore = (Long) getThreadAllocatedBytes.invoke(threadMXBean, args);
+        long overheadAfter = (Long) getThreadAllocatedBytes.invoke(threadMXBean, args);
+        long before = (Long) getThreadAllocatedBytes.invoke(threadMXBean, args);
+        stopFiltered(stopWatch, exception, numStops);
+        long after = (Long) getThreadAllocatedBytes.invoke(threadMXBean, args);
+
+        //less than 1 byte per stop means the stops themselves allocated nothing
+        long allocatedBytes = (after - before) - (overheadAfter - overheadBefore);
+        assertTrue(allocatedBytes + " bytes allocated by " + stopWatch.getClass().getName(),
+                   allocatedBytes < numStops);
+        assertEquals("", fakeErr.toString());
+    }
+
+    private void stopFiltered(LoggingStopWatch stopWatch, Exception exception, int numStops) {
+        for (int i = 0; i < numStops; i++) {
+            stopWatch.start();
+            assertFalse(stopWatch.stopWithoutString());
+            stopWatch.start();
+            assertFalse(stopWatch.stopWithoutString("filtered", null, exception));
+            stopWatch.start();
+            assertFalse(stopWatch.stopWithoutString("filtered", "message", null));
+        }
+    }
+
     /**
      * Subclasses should override this to test items specific to the subclass of LoggingStopWatch.
      */
@@ -0,0 +1,209 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import junit.framework.TestCase;
+import org.perf4j.helpers.GenericAsyncCoalescingStatisticsAppender;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the Perf4jRegistry and RegistryStopWatch.
+ */
+public class Perf4jRegistryTest extends TestCase {
+
+    public void testSnapshot() throws Exception {
+        Perf4jRegistry registry = new Perf4jRegistry();
+        GroupedTimingStatistics expected = new GroupedTimingStatistics();
+        for (long i = 1; i <= 10; i++) {
+            registry.record(new StopWatch(0L, i, "tag1", null));
+            registry.record("tag2", i * 10);
+            expected.addStopWatch(new StopWatch(0L, i, "tag1", null));
+            expected.addStopWatch(new StopWatch(0L, i * 10, "tag2", null));
+        }
+
+        GroupedTimingStatistics snapshot = registry.snapshot();
+        assertEquals(expected.getStatisticsByTag().keySet(), snapshot.getStatisticsByTag().keySet());
+        for (String tag : expected.getStatisticsByTag().keySet()) {
+            TimingStatistics expectedStats = expected.getStatisticsByTag().get(tag);
+            TimingStatistics stats = snapshot.getStatisticsByTag().get(tag);
+            assertEquals(expectedStats.getCount(), stats.getCount());
+            assertEquals(expectedStats.getMin(), stats.getMin());
+            assertEquals(expectedStats.getMax(), stats.getMax());
+            assertEquals(expectedStats.getMean(), stats.getMean(), 0.000001);
+            assertEquals(expectedStats.getStandardDeviation(), stats.getStandardDeviation(), 0.000001);
+        }
+        assertTrue(snapshot.getStopTime() >= snapshot.getStartTime());
+
+        //the accumulators are reset by each snapshot, and the intervals are adjacent
+        registry.record("tag1", 5L);
+        GroupedTimingStatistics nextSnapshot = registry.snapshot();
+        assertEquals(snapshot.getStopTime(), nextSnapshot.getStartTime());
+        assertEquals(1, nextSnapshot.getStatisticsByTag().size());
+        assertEquals(1, nextSnapshot.getStatisticsByTag().get("tag1").getCount());
+
+        assertTrue(registry.snapshot().getStatisticsByTag().isEmpty());
+    }
+
+    public void testRollupsAndPercentiles() throws Exception {
+        Perf4jRegistry registry = new Perf4jRegistry()
+                .setCreateRollupStatistics(true)
+                .setHistogramPrecision(TimingHistogram.DEFAULT_PRECISION);
+        for (long i = 1; i <= 10; i++) {
+            registry.record("codeBlock.success", i);
+        }
+        registry.record("codeBlock.failure", 100L);
+
+        GroupedTimingStatistics snapshot = registry.snapshot();
+        assertEquals(3, snapshot.getStatisticsByTag().size());
+        assertEquals(11, snapshot.getStatisticsByTag().get("codeBlock").getCount());
+        assertEquals(5L, snapshot.getStatisticsByTag().get("codeBlock.success").getPercentile(50.0));
+        assertEquals(100L, snapshot.getStatisticsByTag().get("codeBlock").getPercentile(100.0));
+        assertTrue(snapshot.isCreateRollupStatistics());
+    }
+
+    public void testRegistryStopWatch() throws Exception {
+        Perf4jRegistry registry = new Perf4jRegistry();
+
+        RegistryStopWatch stopWatch = new RegistryStopWatch("first", registry);
+        stopWatch.lap("first");
+        stopWatch.stop("second", "message is ignored");
+        new RegistryStopWatch("slowBlock", registry)
+                .setTimeThreshold(100L)
+                .setNormalAndSlowSuffixesEnabled(true)
+                .stop();
+
+        GroupedTimingStatistics snapshot = registry.snapshot();
+        assertEquals(3, snapshot.getStatisticsByTag().size());
+        assertEquals(1, snapshot.getStatisticsByTag().get("first").getCount());
+        assertEquals(1, snapshot.getStatisticsByTag().get("second").getCount());
+        assertEquals(1, snapshot.getStatisticsByTag().get("slowBlock.normal").getCount());
+
+        //nothing should have been recorded in the default registry
+        assertSame(Perf4jRegistry.getDefault(), new RegistryStopWatch().getRegistry());
+        assertFalse(Perf4jRegistry.getDefault().snapshot().getStatisticsByTag().containsKey("first"));
+    }
+
+    public void testWeightedStopWatches() throws Exception {
+        Perf4jRegistry registry = new Perf4jRegistry().setCreateRollupStatistics(true);
+        new RegistryStopWatch("weighted.block", registry).setWeight(10).stop();
+        RegistryStopWatch sampledStopWatch = new RegistryStopWatch("sampled", registry)
+                .setSampler(new StopWatchSampler(4));
+        for (int i = 0; i < 8; i++) {
+            sampledStopWatch.start();
+            sampledStopWatch.stop();
+        }
+        registry.record("unweighted", 5L);
+
+        //each StopWatch is counted as the number of executions it stands in for
+        GroupedTimingStatistics snapshot = registry.snapshot();
+        assertEquals(10, snapshot.getStatisticsByTag().get("weighted.block").getCount());
+        assertEquals(10, snapshot.getStatisticsByTag().get("weighted").getCount());
+        assertTrue(snapshot.getStatisticsByTag().get("weighted").isSampled());
+        assertEquals(8, snapshot.getStatisticsByTag().get("sampled").getCount());
+        assertTrue(snapshot.getStatisticsByTag().get("sampled").isSampled());
+        assertFalse(snapshot.getStatisticsByTag().get("unweighted").isSampled());
+    }
+
+    public void testSummarizedStopWatches() throws Exception {
+        Perf4jRegistry registry = new Perf4jRegistry();
+        StopWatchSummarizer summarizer = new StopWatchSummarizer(60000L);
+        RegistryStopWatch stopWatch = new RegistryStopWatch("summarized", registry)
+                .setTimeThreshold(10000L)
+                .setSummarizer(summarizer);
+        for (int i = 0; i < 100; i++) {
+            stopWatch.start();
+            stopWatch.stop();
+        }
+
+        //the summaries of the fast stops are recorded with their number as their weight; the stops normally all fall
+        //in one interval, which is only recorded once the summarizer is stopped
+        GroupedTimingStatistics statistics = registry.snapshot();
+        summarizer.stop();
+        statistics.merge(registry.snapshot());
+        TimingStatistics stats = statistics.getStatisticsByTag().get("summarized");
+        assertEquals(100, stats.getCount());
+        assertTrue(stats.isSampled());
+    }
+
+    public void testConcurrentRecording() throws Exception {
+        final Perf4jRegistry registry = new Perf4jRegistry();
+        final int recordsPerThread = 10000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < recordsPerThread; j++) {
+                        registry.record((j % 2 == 0) ? "even" : "odd", j % 100);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        //take snapshots while the threads are recording; no recorded time should be lost
+        int totalCount = 0;
+        while (threads[0].isAlive() || threads[1].isAlive() || threads[2].isAlive() || threads[3].isAlive()) {
+            totalCount += countAll(registry.snapshot());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        totalCount += countAll(registry.snapshot());
+
+        assertEquals(threads.length * recordsPerThread, totalCount);
+    }
+
+    public void testPeriodicSnapshots() throws Exception {
+        Perf4jRegistry registry = new Perf4jRegistry();
+        final BlockingQueue<GroupedTimingStatistics> snapshots = new LinkedBlockingQueue<GroupedTimingStatistics>();
+        registry.addHandler(new GenericAsyncCoalescingStatisticsAppender.GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                snapshots.add(statistics);
+            }
+
+            public void error(String errorMessage) {
+                fail(errorMessage);
+            }
+        });
+
+        registry.record("tag", 10L);
+        registry.start(50L);
+        try {
+            GroupedTimingStatistics first = snapshots.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertEquals(1, first.getStatisticsByTag().get("tag").getCount());
+            //snapshots are aligned to the time slice
+            assertEquals(0L, first.getStopTime() % 50L);
+
+            GroupedTimingStatistics second = snapshots.poll(5, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertEquals(first.getStopTime(), second.getStartTime());
+        } finally {
+            registry.stop();
+        }
+    }
+
+    private int countAll(GroupedTimingStatistics statistics) {
+        int retVal = 0;
+        for (TimingStatistics timingStatistics : statistics.getStatisticsByTag().values()) {
+            retVal += timingStatistics.getCount();
+        }
+        return retVal;
+    }
+}
@@ -0,0 +1,227 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the StopWatchSpan class.
+ */
+public class StopWatchSpanTest extends TestCase {
+
+    public void testNestedSpans() throws Exception {
+        List<StopWatch> logged = Collections.synchronizedList(new ArrayList<StopWatch>());
+        assertNull(StopWatchSpan.current());
+
+        StopWatchSpan request = StopWatchSpan.start("request", new ListStopWatch(logged));
+        assertSame(request, StopWatchSpan.current());
+        StopWatchSpan query = StopWatchSpan.start("query", new ListStopWatch(logged));
+        assertSame(request, query.getParent());
+        assertEquals("request/query", query.getPath());
+        assertSame(query, StopWatchSpan.current());
+        Thread.sleep(50L);
+        query.stop();
+        assertSame(request, StopWatchSpan.current());
+        Thread.sleep(20L);
+        request.stop();
+        assertNull(StopWatchSpan.current());
+
+        //the leaf span only logs its total time, the parent also logs its self time
+        assertEquals(3, logged.size());
+        StopWatch queryTotal = logged.get(0);
+        StopWatch requestTotal = logged.get(1);
+        StopWatch requestSelf = logged.get(2);
+        assertEquals("request/query", queryTotal.getTag());
+        assertEquals("request", requestTotal.getTag());
+        assertEquals("request" + StopWatchSpan.SELF_TIME_SUFFIX, requestSelf.getTag());
+        assertEquals(requestTotal.getStartTime(), requestSelf.getStartTime());
+        assertEquals(1, request.getChildCount());
+        //the span times are measured separately from the StopWatches, so they may differ by the truncation to ms
+        assertEquals(queryTotal.getElapsedTime(), request.getChildTime(TimeUnit.MILLISECONDS), 1L);
+        assertEquals(requestTotal.getElapsedTime() - queryTotal.getElapsedTime(), requestSelf.getElapsedTime(), 1L);
+        assertTrue(requestSelf.getElapsedTime() >= 15L);
+
+        try {
+            request.stop();
+            fail("A span can only be stopped once");
+        } catch (IllegalStateException ise) {
+            //expected
+        }
+    }
+
+    public void testExplicitContext() throws Exception {
+        final List<StopWatch> logged = Collections.synchronizedList(new ArrayList<StopWatch>());
+        final StopWatchSpan request = StopWatchSpan.start("request", new ListStopWatch(logged));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            //a wrapped task nests the spans it starts in the span that wrapped it
+            executor.submit(request.wrap(new Callable<Object>() {
+                public Object call() throws Exception {
+                    assertSame(request, StopWatchSpan.current());
+                    StopWatchSpan.start("task", new ListStopWatch(logged)).stop();
+                    return null;
+                }
+            })).get();
+
+            //once the task is done the executor thread has no current span
+            assertNull(executor.submit(new Callable<StopWatchSpan>() {
+                public StopWatchSpan call() throws Exception {
+                    return StopWatchSpan.current();
+                }
+            }).get());
+
+            //a span can also be passed to another thread explicitly
+            executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    request.startChild("explicit").stop();
+                    return StopWatchSpan.current();
+                }
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertSame(request, StopWatchSpan.current());
+        request.stop();
+
+        assertEquals(4, logged.size());
+        assertEquals("request/task", logged.get(0).getTag());
+        assertEquals("request/explicit", logged.get(1).getTag());
+        assertEquals("request", logged.get(2).getTag());
+        assertEquals("request" + StopWatchSpan.SELF_TIME_SUFFIX, logged.get(3).getTag());
+        assertEquals(2, request.getChildCount());
+    }
+
+    public void testConcurrentStops() throws Exception {
+        final List<StopWatch> logged = Collections.synchronizedList(new ArrayList<StopWatch>());
+        StopWatchSpan request = StopWatchSpan.start("request", new ListStopWatch(logged));
+        final StopWatchSpan query = request.startChild("query", new ListStopWatch(logged));
+
+        //only one of the threads that stop the same span at once actually stops it
+        final int numThreads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        final AtomicInteger numStops = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        barrier.await();
+                        try {
+                            query.stop();
+                            numStops.incrementAndGet();
+                        } catch (IllegalStateException ise) {
+                            //expected for all but one thread
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        request.stop();
+
+        assertEquals(1, numStops.get());
+        assertEquals(1, request.getChildCount());
+        assertEquals(query.getTotalTime(TimeUnit.NANOSECONDS), request.getChildTime(TimeUnit.NANOSECONDS));
+        assertEquals(3, logged.size());
+    }
+
+    public void testSubMillisecondChildren() throws Exception {
+        List<StopWatch> logged = Collections.synchronizedList(new ArrayList<StopWatch>());
+        StopWatchSpan request = StopWatchSpan.start("request", new ListStopWatch(logged));
+        for (int i = 0; i < 40; i++) {
+            StopWatchSpan query = StopWatchSpan.start("query", new ListStopWatch(logged));
+            long endTime = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(500L);
+            while (System.nanoTime() < endTime) {
+                //busy wait, as sleeps are too coarse
+            }
+            query.stop();
+        }
+        request.stop();
+
+        //each child is logged as 0 ms, but its time is still subtracted from the self time of the parent
+        assertEquals(40, request.getChildCount());
+        assertTrue(request.getChildTime(TimeUnit.MICROSECONDS) >= 40 * 500L);
+        StopWatch requestTotal = logged.get(40);
+        StopWatch requestSelf = logged.get(41);
+        assertEquals("request" + StopWatchSpan.SELF_TIME_SUFFIX, requestSelf.getTag());
+        assertTrue(requestSelf.getElapsedTime() + " ms self time of " + requestTotal.getElapsedTime() + " ms",
+                   requestSelf.getElapsedTime() <= requestTotal.getElapsedTime() - 19L);
+        assertEquals(request.getSelfTime(TimeUnit.MILLISECONDS), requestSelf.getElapsedTime());
+    }
+
+    public void testSampledSelfTime() throws Exception {
+        List<StopWatch> logged = Collections.synchronizedList(new ArrayList<StopWatch>());
+        StopWatchSampler sampler = new StopWatchSampler(3);
+        for (int i = 0; i < 6; i++) {
+            StopWatchSpan request = StopWatchSpan.start("request", new ListStopWatch(logged).setSampler(sampler));
+            StopWatchSpan.start("query", new ListStopWatch(logged)).stop();
+            request.stop();
+        }
+
+        //the self times are only logged with the sampled total times, and have the same weight
+        int totalCount = 0;
+        int selfCount = 0;
+        for (StopWatch stopWatch : logged) {
+            if ("request".equals(stopWatch.getTag())) {
+                totalCount += stopWatch.getWeight();
+                assertEquals(3, stopWatch.getWeight());
+            } else if (("request" + StopWatchSpan.SELF_TIME_SUFFIX).equals(stopWatch.getTag())) {
+                selfCount += stopWatch.getWeight();
+                assertEquals(3, stopWatch.getWeight());
+            }
+        }
+        assertEquals(6, totalCount);
+        assertEquals(6, selfCount);
+    }
+
+    /**
+     * LoggingStopWatch that collects the StopWatches it logs. Clones share the list.
+     */
+    @SuppressWarnings("serial")
+    private static class ListStopWatch extends LoggingStopWatch {
+        private final List<StopWatch> logged;
+
+        ListStopWatch(List<StopWatch> logged) {
+            this.logged = logged;
+        }
+
+        protected void log(String stopWatchAsString, Throwable exception) {
+            logged.add(newLoggedStopWatch());
+        }
+
+        protected void logDerived(StopWatch derived) {
+            logged.add(derived);
+        }
+    }
+}
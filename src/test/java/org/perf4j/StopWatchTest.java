@@ -17,6 +17,8 @@ package org.perf4j;
 
 import junit.framework.TestCase;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Tests the StopWatch
  */
@@ -102,4 +104,32 @@ public class StopWatchTest extends TestCase {
         clone.setTag("foo");
         assertFalse(stopWatch.equals(clone));
     }
+
+    public void testTimeUnit() throws Exception {
+        StopWatch stopWatch = new StopWatch("tag").setTimeUnit(TimeUnit.MICROSECONDS);
+        assertEquals(TimeUnit.MICROSECONDS, stopWatch.getTimeUnit());
+        Thread.sleep(5);
+        String stopMessage = stopWatch.stop();
+
+        //the elapsed time is kept in microseconds, but getElapsedTime() still returns milliseconds
+        long elapsedMicros = stopWatch.getElapsedTime(TimeUnit.MICROSECONDS);
+        assertTrue(elapsedMicros >= 5000L);
+        assertEquals(elapsedMicros / 1000L, stopWatch.getElapsedTime());
+        assertEquals(elapsedMicros * 1000L, stopWatch.getElapsedTime(TimeUnit.NANOSECONDS));
+        assertEquals("start[" + stopWatch.getStartTime() + "] time[" + elapsedMicros + "] tag[tag] unit[us]",
+                     stopMessage);
+
+        //changing the unit of a stopped StopWatch converts the elapsed time
+        StopWatch converted = new StopWatch(0L, 1500L, TimeUnit.MICROSECONDS, "tag", "message");
+        assertEquals("start[0] time[1500] tag[tag] message[message] unit[us]", converted.toString());
+        converted.setTimeUnit(TimeUnit.MILLISECONDS);
+        assertEquals(1L, converted.getElapsedTime());
+        assertEquals("start[0] time[1] tag[tag] message[message]", converted.toString());
+
+        //the unit is part of equality
+        assertEquals(new StopWatch(0L, 1L, "tag", null),
+                     new StopWatch(0L, 1L, TimeUnit.MILLISECONDS, "tag", null));
+        assertFalse(new StopWatch(0L, 1L, "tag", null).equals(
+                new StopWatch(0L, 1L, TimeUnit.MICROSECONDS, "tag", null)));
+    }
 }
@@ -0,0 +1,182 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j;
+
+import junit.framework.TestCase;
+import org.perf4j.helpers.GroupedTimingStatisticsCsvFormatter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the TimingHistogram and the percentile support in TimingStatistics.
+ */
+public class TimingHistogramTest extends TestCase {
+
+    public void testSmallValuesAreExact() throws Exception {
+        TimingHistogram histogram = new TimingHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.recordValue(i);
+        }
+
+        assertEquals(10, histogram.getTotalCount());
+        assertEquals(5, histogram.getValueAtPercentile(50.0));
+        assertEquals(9, histogram.getValueAtPercentile(90.0));
+        assertEquals(10, histogram.getValueAtPercentile(99.0));
+        assertEquals(10, histogram.getValueAtPercentile(100.0));
+        assertEquals(1, histogram.getValueAtPercentile(0.0));
+    }
+
+    public void testRelativeErrorIsBounded() throws Exception {
+        TimingHistogram histogram = new TimingHistogram(TimingHistogram.DEFAULT_PRECISION);
+        //with precision p the relative error is at most 1/2^p
+        double maxRelativeError = 1.0 / (1 << TimingHistogram.DEFAULT_PRECISION);
+
+        for (long value = 1; value < 10000000L; value = value * 3 + 1) {
+            TimingHistogram single = new TimingHistogram();
+            single.recordValue(value);
+            long reported = single.getValueAtPercentile(50.0);
+            assertTrue("Reported " + reported + " for " + value, reported >= value);
+            assertTrue("Reported " + reported + " for " + value,
+                       (reported - value) <= value * maxRelativeError);
+            histogram.recordValue(value);
+        }
+
+        assertTrue(histogram.getValueAtPercentile(100.0) >= histogram.getValueAtPercentile(50.0));
+    }
+
+    public void testValuesAreClamped() throws Exception {
+        TimingHistogram histogram = new TimingHistogram(3, 1000L);
+        histogram.recordValue(-5L);
+        histogram.recordValue(5000L);
+
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(0L, histogram.getValueAtPercentile(50.0));
+        assertTrue(histogram.getValueAtPercentile(100.0) >= 1000L);
+    }
+
+    public void testNanosecondValues() throws Exception {
+        //values of several seconds in nanoseconds are above Integer.MAX_VALUE but still tracked in their own buckets
+        GroupedTimingStatistics groupedStats = new GroupedTimingStatistics();
+        groupedStats.setTimeUnit(TimeUnit.NANOSECONDS);
+        groupedStats.setHistogramPrecision(TimingHistogram.DEFAULT_PRECISION);
+        ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics(TimingHistogram.DEFAULT_PRECISION);
+        concurrentStats.setTimeUnit(TimeUnit.NANOSECONDS);
+        for (long i = 1; i <= 100; i++) {
+            long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(i * 100L);
+            groupedStats.addStopWatch(new StopWatch(0L, elapsedNanos, TimeUnit.NANOSECONDS, "tag", null));
+            concurrentStats.addSampleTime(elapsedNanos);
+        }
+
+        TimingStatistics[] allStats = {
+                groupedStats.getStatisticsByTag().get("tag"), concurrentStats.toTimingStatistics()
+        };
+        for (TimingStatistics stats : allStats) {
+            long p50 = TimeUnit.MILLISECONDS.toNanos(5000L);
+            long p90 = TimeUnit.MILLISECONDS.toNanos(9000L);
+            long p99 = TimeUnit.MILLISECONDS.toNanos(9900L);
+            assertTrue(Math.abs(stats.getPercentile(50.0) - p50) <= p50 / 32);
+            assertTrue(Math.abs(stats.getPercentile(90.0) - p90) <= p90 / 32);
+            assertTrue(Math.abs(stats.getPercentile(99.0) - p99) <= p99 / 32);
+            assertTrue(stats.getPercentile(99.0) < stats.getPercentile(100.0));
+        }
+    }
+
+    public void testHistogramSizeFollowsTimeUnit() throws Exception {
+        assertEquals(TimingHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE,
+                     new TimingHistogram(3, TimeUnit.NANOSECONDS).getHighestTrackableValue());
+        assertEquals(Integer.MAX_VALUE, new TimingHistogram(3, TimeUnit.MILLISECONDS).getHighestTrackableValue());
+        assertEquals(24L, new TimingHistogram(3, TimeUnit.DAYS).getHighestTrackableValue());
+
+        //the statistics size their histograms from their time unit
+        GroupedTimingStatistics groupedStats = new GroupedTimingStatistics();
+        groupedStats.setHistogramPrecision(TimingHistogram.MAX_PRECISION);
+        groupedStats.addStopWatch(new StopWatch(0L, 10L, "tag", null));
+        ConcurrentTimingStatistics concurrentStats = new ConcurrentTimingStatistics(TimingHistogram.MAX_PRECISION);
+        concurrentStats.addSampleTime(10L);
+
+        TimingStatistics[] allStats = {
+                groupedStats.getStatisticsByTag().get("tag"), concurrentStats.toTimingStatistics()
+        };
+        for (TimingStatistics stats : allStats) {
+            assertEquals(Integer.MAX_VALUE, stats.getHistogram().getHighestTrackableValue());
+        }
+    }
+
+    public void testInvalidArguments() throws Exception {
+        try {
+            new TimingHistogram(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            //expected
+        }
+        try {
+            new TimingHistogram(TimingHistogram.MAX_PRECISION + 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+            //expected
+        }
+        //out of range percentiles are clamped
+        assertEquals(7L, new TimingHistogram().recordValue(7L).getValueAtPercentile(101.0));
+    }
+
+    public void testCloneAndEquals() throws Exception {
+        TimingHistogram histogram = new TimingHistogram();
+        histogram.recordValue(100L).recordValue(200L);
+
+        TimingHistogram clone = histogram.clone();
+        assertEquals(histogram, clone);
+        assertEquals(histogram.hashCode(), clone.hashCode());
+
+        clone.recordValue(300L);
+        assertFalse(histogram.equals(clone));
+        assertEquals(2, histogram.getTotalCount());
+    }
+
+    public void testTimingStatisticsPercentiles() throws Exception {
+        TimingStatistics noHistogram = new TimingStatistics();
+        noHistogram.addSampleTime(100L);
+        assertEquals(0L, noHistogram.getPercentile(50.0));
+
+        TimingStatistics stats = new TimingStatistics(new TimingHistogram());
+        for (long i = 1; i <= 1000; i++) {
+            stats.addSampleTime(i);
+        }
+        assertEquals(1000, stats.getCount());
+        assertTrue(Math.abs(stats.getPercentile(50.0) - 500) <= 500 / 32);
+        assertTrue(Math.abs(stats.getPercentile(99.0) - 990) <= 990 / 32);
+        assertEquals(1000L, stats.getPercentile(100.0));
+
+        TimingStatistics clone = stats.clone();
+        assertEquals(stats, clone);
+        clone.addSampleTime(5000L);
+        assertEquals(1000L, stats.getPercentile(100.0));
+    }
+
+    public void testCsvPercentileColumns() throws Exception {
+        GroupedTimingStatistics groupedStats = new GroupedTimingStatistics();
+        groupedStats.setHistogramPrecision(TimingHistogram.DEFAULT_PRECISION);
+        groupedStats.setStartTime(0L);
+        groupedStats.setStopTime(1000L);
+        for (long i = 1; i <= 10; i++) {
+            groupedStats.addStopWatch(new StopWatch(0L, i, "tag", null));
+        }
+
+        assertEquals("\"tag\",5,9,10,10\n",
+                     new GroupedTimingStatisticsCsvFormatter(false, "tag,p50,p90,p99,p999").format(groupedStats));
+        assertEquals("5,10\n",
+                     new GroupedTimingStatisticsCsvFormatter(true, "tagP50,tagP999").format(groupedStats));
+    }
+}
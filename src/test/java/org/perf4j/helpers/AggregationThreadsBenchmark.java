@@ -0,0 +1,136 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+import org.perf4j.TimingStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is NOT a unit test (and so is not run by the surefire plugin); it is a simple throughput benchmark of the
+ * GenericAsyncCoalescingStatisticsAppender with different values of the AggregationThreads option. A number of
+ * producer threads append String StopWatch messages as fast as possible, using the BLOCK overflow policy so no
+ * message is lost, and the time until the appender has parsed and aggregated all of them is measured. Run it from the
+ * test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.perf4j.helpers.AggregationThreadsBenchmark [messagesPerProducer]
+ * </pre>
+ * The number of StopWatches aggregated per second is printed for each setting, after a warm up round. Note the
+ * speed-up depends on the number of available cores: with a single core, more aggregation threads only add overhead.
+ */
+public class AggregationThreadsBenchmark {
+    private static final int PRODUCER_COUNT = 4;
+    private static final int TAG_COUNT = 64;
+    private static final int[] AGGREGATION_THREADS = { 1, 2, 4 };
+
+    public static void main(String[] args) throws Exception {
+        int messagesPerProducer = (args.length > 0) ? Integer.parseInt(args[0]) : 500000;
+
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+        //warm up so the JIT has compiled the hot paths
+        for (int i = 0; i < 3; i++) {
+            for (int aggregationThreads : AGGREGATION_THREADS) {
+                run(aggregationThreads, messagesPerProducer / 10);
+            }
+        }
+
+        System.out.println(String.format("%-22s%20s", "AggregationThreads", "StopWatches/sec"));
+        for (int aggregationThreads : AGGREGATION_THREADS) {
+            long totalMessages = (long) PRODUCER_COUNT * messagesPerProducer;
+            long elapsedNanos = run(aggregationThreads, messagesPerProducer);
+            System.out.println(String.format("%-22d%20.0f",
+                                             aggregationThreads,
+                                             totalMessages / (elapsedNanos / 1000000000.0)));
+        }
+    }
+
+    /**
+     * Runs a single round of the benchmark.
+     *
+     * @return The time taken to append and aggregate all the messages, in nanoseconds.
+     */
+    private static long run(int aggregationThreads, final int messagesPerProducer) throws Exception {
+        final GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        appender.setName("benchmark");
+        //a long time slice, so all the StopWatches are aggregated into the final statistics created by stop
+        appender.setTimeSlice(3600000L);
+        appender.setQueueSize(8192);
+        appender.setOverflowPolicy("BLOCK");
+        appender.setOverflowBlockMillis(60000L);
+        appender.setShutdownWaitMillis(60000L);
+        appender.setAggregationThreads(aggregationThreads);
+
+        final AtomicLong aggregatedCount = new AtomicLong();
+        appender.start(new GenericAsyncCoalescingStatisticsAppender.GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                for (TimingStatistics timingStatistics : statistics.getStatisticsByTag().values()) {
+                    aggregatedCount.addAndGet(timingStatistics.getCount());
+                }
+            }
+
+            public void error(String errorMessage) {
+                System.err.println(errorMessage);
+            }
+        });
+
+        //render the messages up front, so only the appender is measured
+        long now = System.currentTimeMillis();
+        final String[] messages = new String[1024];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new StopWatch(now, i % 500, "codeBlock" + (i % TAG_COUNT), "message " + i).toString();
+        }
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < PRODUCER_COUNT; i++) {
+            Thread producer = new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int j = 0; j < messagesPerProducer; j++) {
+                        appender.append(messages[j % messages.length]);
+                    }
+                }
+            };
+            producer.start();
+            producers.add(producer);
+        }
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        appender.stop();
+        long elapsedTime = System.nanoTime() - startTime;
+
+        long expectedCount = (long) PRODUCER_COUNT * messagesPerProducer;
+        if (aggregatedCount.get() != expectedCount) {
+            throw new IllegalStateException("Aggregated " + aggregatedCount.get() + " StopWatches but appended "
+                                            + expectedCount);
+        }
+        return elapsedTime;
+    }
+}
@@ -16,10 +16,26 @@
 package org.perf4j.helpers;
 
 import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+import org.perf4j.TimingStatistics;
 import org.perf4j.helpers.GenericAsyncCoalescingStatisticsAppender.GroupedTimingStatisticsHandler;
 
 import junit.framework.TestCase;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 public class GenericAsyncCoalescingStatisticsAppenderTest extends TestCase {
 
 	/**
@@ -45,6 +61,40 @@ public class GenericAsyncCoalescingStatisticsAppenderTest extends TestCase {
         }
     }
 
+    /**
+     * Test implementation of GroupedTimingStatisticsHandler which blocks the first call to handle() until it is
+     * released, so that the appender's queue can be filled up.
+     */
+    private static class BlockingGroupedTimingStatisticsHandler implements GroupedTimingStatisticsHandler {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final List<GroupedTimingStatistics> handledStats = new Vector<GroupedTimingStatistics>();
+        final List<String> errors = new Vector<String>();
+
+        public void handle(GroupedTimingStatistics statistics) {
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handledStats.add(statistics);
+        }
+
+        public void error(String errorMessage) {
+            errors.add(errorMessage);
+        }
+
+        long getTotalCount(String tag) {
+            long retVal = 0;
+            for (GroupedTimingStatistics stats : handledStats) {
+                TimingStatistics timingStats = stats.getStatisticsByTag().get(tag);
+                retVal += (timingStats == null) ? 0 : timingStats.getCount();
+            }
+            return retVal;
+        }
+    }
+
     /**
      * Tests that the thread calling handler handle() (the Dispatcher thread) is interrupted when
      * logging-shutdown timeout has expired.
@@ -71,4 +121,518 @@ public class GenericAsyncCoalescingStatisticsAppenderTest extends TestCase {
 
         assertTrue("Handler was not interrupted", handler.wasInterrupted);
     }
+
+    /**
+     * Tests that StopWatch objects appended directly are aggregated together with parsed StopWatch strings.
+     */
+    public void testAppendStopWatchObjects() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        final List<GroupedTimingStatistics> handledStats = new ArrayList<GroupedTimingStatistics>();
+
+        appender.setTimeSlice(1000L);
+        appender.start(new GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                handledStats.add(statistics);
+            }
+
+            public void error(String errorMessage) {
+                fail("Unexpected error: " + errorMessage);
+            }
+        });
+
+        appender.append(new StopWatch(1230068856000L, 10L, "tag1", null));
+        appender.append("start[1230068856100] time[20] tag[tag1]");
+        appender.append(new StopWatch(1230068856200L, 30L, "tag2", "message"));
+        appender.stop();
+
+        assertEquals(1, handledStats.size());
+        GroupedTimingStatistics stats = handledStats.get(0);
+        assertEquals(2, stats.getStatisticsByTag().get("tag1").getCount());
+        assertEquals(15.0, stats.getStatisticsByTag().get("tag1").getMean());
+        assertEquals(1, stats.getStatisticsByTag().get("tag2").getCount());
+        assertEquals(30L, stats.getStatisticsByTag().get("tag2").getMax());
+    }
+
+    /**
+     * Tests that StopWatches are aggregated correctly when multiple aggregation threads are used.
+     */
+    public void testMultipleAggregationThreads() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        final List<GroupedTimingStatistics> handledStats = new ArrayList<GroupedTimingStatistics>();
+
+        appender.setTimeSlice(1000L);
+        appender.setAggregationThreads(3);
+        appender.setCreateRollupStatistics(true);
+        appender.start(new GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                handledStats.add(statistics);
+            }
+
+            public void error(String errorMessage) {
+                fail("Unexpected error: " + errorMessage);
+            }
+        });
+
+        for (int i = 0; i < 20; i++) {
+            appender.append(new StopWatch(1230068856000L + i * 100L, i, "tag" + (i % 4) + ".sub" + (i % 2), null));
+        }
+        appender.stop();
+
+        assertEquals(2, handledStats.size());
+        GroupedTimingStatistics stats = handledStats.get(0);
+        assertEquals(1230068856000L, stats.getStartTime());
+        assertEquals(3, stats.getStatisticsByTag().get("tag0").getCount());
+        assertEquals(8L, stats.getStatisticsByTag().get("tag0").getMax());
+        assertEquals(3, stats.getStatisticsByTag().get("tag1.sub1").getCount());
+        assertEquals(3, handledStats.get(1).getStatisticsByTag().get("tag3").getCount());
+    }
+
+    /**
+     * Tests that a custom StopWatchParser, which need not be thread-safe, is only ever called from a single thread even
+     * when there are multiple aggregation threads.
+     */
+    public void testCustomParserWithMultipleAggregationThreads() throws Exception {
+        //StopWatches are in the future so that no time slice is over before the appender is stopped
+        long firstStartTime = ((System.currentTimeMillis() / 1000L) + 100000L) * 1000L;
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(3);
+        appender.setQueueSize(10000);
+        appender.setStopWatchParserClassName(SingleThreadedStopWatchParser.class.getName());
+        List<GroupedTimingStatistics> handledStats = new Vector<GroupedTimingStatistics>();
+        SingleThreadedStopWatchParser.parsingThreads.clear();
+        appender.start(newCollectingHandler(handledStats));
+        for (int i = 0; i < 5000; i++) {
+            appender.append(new StopWatch(firstStartTime + i / 10, i % 100, "tag" + (i % 5), null).toString());
+        }
+        appender.stop();
+
+        assertEquals(1, handledStats.size());
+        assertEquals(1000, handledStats.get(0).getStatisticsByTag().get("tag0").getCount());
+        assertEquals(1, SingleThreadedStopWatchParser.parsingThreads.size());
+    }
+
+    /**
+     * Tests that pre-aggregating StopWatches on the logging threads creates the same statistics as passing each
+     * StopWatch to the draining thread.
+     */
+    public void testPreAggregation() throws Exception {
+        //StopWatches are in the future so that no time slice is over before the appender is stopped
+        long firstStartTime = ((System.currentTimeMillis() / 1000L) + 100000L) * 1000L;
+        List<StopWatch> stopWatches = new ArrayList<StopWatch>();
+        for (int i = 0; i < 500; i++) {
+            stopWatches.add(new StopWatch(firstStartTime + i * 10L, (i * 37) % 101, "tag" + (i % 3) + ".sub" + (i % 2),
+                                          null));
+        }
+
+        for (int aggregationThreads = 1; aggregationThreads <= 2; aggregationThreads++) {
+            GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(aggregationThreads);
+            List<GroupedTimingStatistics> expectedStats = new Vector<GroupedTimingStatistics>();
+            appender.start(newCollectingHandler(expectedStats));
+            for (StopWatch stopWatch : stopWatches) {
+                appender.append(stopWatch);
+            }
+            appender.stop();
+
+            appender = newTestAppender(aggregationThreads);
+            //a buffer size that doesn't divide the number of StopWatches in a time slice
+            appender.setPreAggregationBufferSize(7);
+            List<GroupedTimingStatistics> preAggregatedStats = new Vector<GroupedTimingStatistics>();
+            appender.start(newCollectingHandler(preAggregatedStats));
+            for (StopWatch stopWatch : stopWatches) {
+                appender.append(stopWatch);
+            }
+            appender.stop();
+
+            assertEquals(5, expectedStats.size());
+            assertEquals(expectedStats.size(), preAggregatedStats.size());
+            for (int i = 0; i < expectedStats.size(); i++) {
+                assertEquals(expectedStats.get(i).getStartTime(), preAggregatedStats.get(i).getStartTime());
+                assertStatisticsEqual(expectedStats.get(i), preAggregatedStats.get(i));
+            }
+        }
+    }
+
+    /**
+     * Tests that no StopWatches are lost or counted twice when many threads pre-aggregate concurrently.
+     */
+    public void testConcurrentPreAggregation() throws Exception {
+        final GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setPreAggregationBufferSize(16);
+        List<GroupedTimingStatistics> handledStats = new Vector<GroupedTimingStatistics>();
+        appender.start(newCollectingHandler(handledStats));
+
+        final long firstStartTime = ((System.currentTimeMillis() / 1000L) + 100000L) * 1000L;
+        final int stopWatchesPerThread = 2000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int threadIndex = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < stopWatchesPerThread; j++) {
+                        appender.append(new StopWatch(firstStartTime + j, threadIndex + 1, "tag" + (j % 5), null));
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        appender.stop();
+
+        GroupedTimingStatistics total = new GroupedTimingStatistics();
+        for (GroupedTimingStatistics stats : handledStats) {
+            total.merge(stats);
+        }
+        assertEquals(5, total.getStatisticsByTag().size());
+        for (TimingStatistics timingStats : total.getStatisticsByTag().values()) {
+            assertEquals(threads.length * stopWatchesPerThread / 5, timingStats.getCount());
+            assertEquals(1L, timingStats.getMin());
+            assertEquals(4L, timingStats.getMax());
+            assertEquals(2.5, timingStats.getMean(), 0.000001);
+        }
+        assertEquals(0, appender.getNumDiscardedMessages());
+    }
+
+    /**
+     * Tests that the buffer of a thread that stops logging is picked up once its time slice is over.
+     */
+    public void testIdlePreAggregationBufferIsPublished() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        appender.setTimeSlice(100L);
+        appender.setPreAggregationBufferSize(100);
+        List<GroupedTimingStatistics> handledStats = new Vector<GroupedTimingStatistics>();
+        appender.start(newCollectingHandler(handledStats));
+
+        appender.append(new StopWatch(System.currentTimeMillis(), 5L, "tag", null));
+        for (int i = 0; i < 100 && handledStats.isEmpty(); i++) {
+            Thread.sleep(20L);
+        }
+        appender.stop();
+
+        assertFalse(handledStats.isEmpty());
+        assertEquals(1, handledStats.get(0).getStatisticsByTag().get("tag").getCount());
+    }
+
+    /**
+     * Tests that with the default DropNewest policy exactly the messages that don't fit in the queue are discarded,
+     * and that they are reported in a single error rather than one per message.
+     */
+    public void testDropNewestOverflowPolicy() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setQueueSize(10);
+        BlockingGroupedTimingStatisticsHandler handler = new BlockingGroupedTimingStatisticsHandler();
+        long timeSliceStartTime = startBlockedAppender(appender, handler);
+
+        for (int i = 0; i < 60; i++) {
+            appender.append(new StopWatch(timeSliceStartTime, i, "burst", null));
+        }
+        assertEquals(50, appender.getNumDiscardedMessages());
+        assertEquals(0L, appender.getNumEvictedMessages());
+        assertEquals(1, handler.errors.size());
+
+        handler.released.countDown();
+        appender.stop();
+        assertEquals(10L, handler.getTotalCount("burst"));
+    }
+
+    /**
+     * Tests that the DropOldest policy keeps the most recent messages.
+     */
+    public void testDropOldestOverflowPolicy() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setQueueSize(10);
+        appender.setOverflowPolicy("DropOldest");
+        assertEquals("DROP_OLDEST", appender.getOverflowPolicy());
+        BlockingGroupedTimingStatisticsHandler handler = new BlockingGroupedTimingStatisticsHandler();
+        long timeSliceStartTime = startBlockedAppender(appender, handler);
+
+        for (int i = 0; i < 60; i++) {
+            appender.append(new StopWatch(timeSliceStartTime, 1000L + i, "burst", null));
+        }
+        assertEquals(50, appender.getNumDiscardedMessages());
+        assertEquals(50L, appender.getNumEvictedMessages());
+        assertEquals(1, handler.errors.size());
+
+        handler.released.countDown();
+        appender.stop();
+        assertEquals(10L, handler.getTotalCount("burst"));
+        TimingStatistics burstStats = handler.handledStats.get(1).getStatisticsByTag().get("burst");
+        assertEquals(1050L, burstStats.getMin());
+        assertEquals(1059L, burstStats.getMax());
+
+        //DropOldest needs a queue it can evict from
+        appender.setMessageQueueClassName(RingBufferMessageQueue.class.getName());
+        try {
+            appender.start(handler);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException re) {
+            //expected
+        }
+    }
+
+    /**
+     * Tests that the Block policy waits for room in the queue rather than discarding messages.
+     */
+    public void testBlockOverflowPolicy() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setQueueSize(10);
+        appender.setOverflowPolicy("block");
+        appender.setOverflowBlockMillis(10000L);
+        final BlockingGroupedTimingStatisticsHandler handler = new BlockingGroupedTimingStatisticsHandler();
+        long timeSliceStartTime = startBlockedAppender(appender, handler);
+
+        new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(200L);
+                } catch (InterruptedException ie) {
+                    //just release early
+                }
+                handler.released.countDown();
+            }
+        }.start();
+        for (int i = 0; i < 60; i++) {
+            appender.append(new StopWatch(timeSliceStartTime, i, "burst", null));
+        }
+        appender.stop();
+
+        assertEquals(0, appender.getNumDiscardedMessages());
+        assertTrue(appender.getNumBlockedAppends() > 0);
+        assertEquals(60L, handler.getTotalCount("burst"));
+        assertTrue(handler.errors.isEmpty());
+    }
+
+    /**
+     * Tests that the Aggregate policy loses nothing and gives exactly the same statistics.
+     */
+    public void testAggregateOverflowPolicy() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setQueueSize(10);
+        appender.setOverflowPolicy("AGGREGATE");
+        BlockingGroupedTimingStatisticsHandler handler = new BlockingGroupedTimingStatisticsHandler();
+        long timeSliceStartTime = startBlockedAppender(appender, handler);
+
+        GroupedTimingStatistics expected = new GroupedTimingStatistics();
+        expected.setCreateRollupStatistics(true);
+        expected.setHistogramPrecision(3);
+        for (int i = 0; i < 60; i++) {
+            StopWatch stopWatch = new StopWatch(timeSliceStartTime + i, i * 7 % 13, "burst.sub", null);
+            expected.addStopWatch(stopWatch);
+            if (i % 2 == 0) {
+                appender.append(stopWatch);
+            } else {
+                appender.append(stopWatch.toString());
+            }
+        }
+        assertEquals(0, appender.getNumDiscardedMessages());
+        assertEquals(50L, appender.getNumAggregatedMessages());
+
+        handler.released.countDown();
+        appender.stop();
+        assertTrue(handler.errors.isEmpty());
+        assertEquals(2, handler.handledStats.size());
+        GroupedTimingStatistics actual = handler.handledStats.get(1);
+        //ignore the StopWatch used to block the handler
+        actual.getStatisticsByTag().remove("tag");
+        assertStatisticsEqual(expected, actual);
+    }
+
+    /**
+     * Tests that the Spill policy replays the messages that didn't fit in the queue into the correct time slices.
+     */
+    public void testSpillOverflowPolicy() throws Exception {
+        File spill = new File("./target/asyncAppenderTest.spill");
+        spill.delete();
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setQueueSize(10);
+        appender.setOverflowPolicy("Spill");
+        try {
+            appender.start(new BlockingGroupedTimingStatisticsHandler());
+            fail("Expected RuntimeException as the SpillFile option is not set");
+        } catch (RuntimeException re) {
+            //expected
+        }
+        appender.setSpillFile(spill.getPath());
+        appender.setSpillFileMaxSize(64 * 1024);
+        BlockingGroupedTimingStatisticsHandler handler = new BlockingGroupedTimingStatisticsHandler();
+        long timeSliceStartTime = startBlockedAppender(appender, handler);
+
+        for (int i = 0; i < 60; i++) {
+            //later messages are in the next time slice, and must not be completed before the spilled ones
+            long startTime = (i < 30) ? timeSliceStartTime : timeSliceStartTime + 1000L;
+            if (i % 2 == 0) {
+                appender.append(new StopWatch(startTime, i, "burst", null));
+            } else {
+                appender.append(new StopWatch(startTime, i, "burst", null).toString());
+            }
+        }
+        assertEquals(50L, appender.getNumSpilledMessages());
+        assertEquals(0, appender.getNumDiscardedMessages());
+        Thread.sleep(10L);
+        assertTrue(appender.getSpillLagMillis() > 0L);
+
+        handler.released.countDown();
+        appender.stop();
+        assertTrue(handler.errors.isEmpty());
+        assertEquals(0L, appender.getSpillLagMillis());
+        assertEquals(3, handler.handledStats.size());
+        assertEquals(30L, handler.handledStats.get(1).getStatisticsByTag().get("burst").getCount());
+        assertEquals(30L, handler.handledStats.get(2).getStatisticsByTag().get("burst").getCount());
+    }
+
+    /**
+     * Tests the metrics the appender keeps about itself, and that they're exposed through JMX.
+     */
+    public void testMetrics() throws Exception {
+        long timeSlice = 5000L;
+        GenericAsyncCoalescingStatisticsAppender appender = newTestAppender(1);
+        appender.setTimeSlice(timeSlice);
+        appender.setMetricsMBeanName("org.perf4j:type=AsyncAppenderMetrics,name=test");
+        List<GroupedTimingStatistics> handledStats = new Vector<GroupedTimingStatistics>();
+
+        //the StopWatches are in the 3 time slices before the current one. The last one is only completed by stop, as
+        //long as the current time slice doesn't end during the test, so start well before its end
+        while (System.currentTimeMillis() % timeSlice > timeSlice - 2000L) {
+            Thread.sleep(100L);
+        }
+        appender.start(newCollectingHandler(handledStats));
+
+        long firstStartTime = ((System.currentTimeMillis() / timeSlice) - 3L) * timeSlice;
+        for (int i = 0; i < 30; i++) {
+            StopWatch stopWatch = new StopWatch(firstStartTime + (i / 10) * timeSlice + i, 5L, "tag", null);
+            if (i % 2 == 0) {
+                appender.append(stopWatch);
+            } else {
+                appender.append(stopWatch.toString());
+            }
+        }
+        for (int i = 0; i < 100 && appender.getMetrics().getTimeSliceCount() < 2; i++) {
+            Thread.sleep(10L);
+        }
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(appender.getMetricsMBeanName());
+        assertEquals(appender.getQueueSize(), mBeanServer.getAttribute(objectName, "QueueCapacity"));
+        assertEquals(0L, mBeanServer.getAttribute(objectName, "DiscardedMessages"));
+        appender.stop();
+        assertFalse(mBeanServer.isRegistered(objectName));
+
+        AsyncAppenderMetrics metrics = appender.getMetrics();
+        assertEquals(3, handledStats.size());
+        assertEquals(handledStats.size(), metrics.getTimeSliceCount());
+        assertEquals(15L, metrics.getParsedMessageCount());
+        assertTrue(metrics.getAverageParseNanos() > 0.0);
+        assertTrue(metrics.getDrainBatchCount() > 0L);
+        assertTrue(metrics.getQueueHighWaterMark() >= metrics.getMaxDrainBatchSize());
+        assertTrue(metrics.getMaxDrainBatchSize() > 0);
+        //the lag is counted from the stop of the first StopWatch, which is at least 2 time slices ago
+        assertTrue(metrics.getMaxSliceLagMillis() >= 2 * timeSlice + 10L);
+        assertTrue(metrics.getAverageDownstreamMillis() >= 0.0);
+
+        metrics.resetMaximums();
+        assertEquals(0, metrics.getQueueHighWaterMark());
+        assertEquals(0L, metrics.getMaxSliceLagMillis());
+    }
+
+    /**
+     * Tests that time slices are closed on the wall clock time slice boundaries plus the grace period, even when idle.
+     */
+    public void testTimeSlicesFlushedOnWallClock() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        appender.setTimeSlice(200L);
+        appender.setFlushGraceMillis(50L);
+        final List<GroupedTimingStatistics> handledStats = new Vector<GroupedTimingStatistics>();
+        final List<Long> handledTimes = new Vector<Long>();
+        appender.start(new GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                handledTimes.add(System.currentTimeMillis());
+                handledStats.add(statistics);
+            }
+
+            public void error(String errorMessage) {
+                fail("Unexpected error: " + errorMessage);
+            }
+        });
+
+        appender.append(new StopWatch(System.currentTimeMillis(), 5L, "tag", null));
+        for (int i = 0; i < 200 && handledStats.size() < 4; i++) {
+            Thread.sleep(10L);
+        }
+        appender.stop();
+
+        assertTrue(handledStats.size() >= 4);
+        assertEquals(1, handledStats.get(0).getStatisticsByTag().get("tag").getCount());
+        for (int i = 0; i < 4; i++) {
+            GroupedTimingStatistics stats = handledStats.get(i);
+            assertEquals(0L, stats.getStopTime() % 200L);
+            if (i > 0) {
+                //idle time slices follow on from each other and are empty
+                assertEquals(handledStats.get(i - 1).getStopTime(), stats.getStartTime());
+                assertTrue(stats.getStatisticsByTag().isEmpty());
+            }
+            long delay = handledTimes.get(i) - stats.getStopTime();
+            assertTrue("delay " + delay, delay >= 50L && delay < 200L);
+        }
+    }
+
+    /**
+     * Helper method starts the appender and blocks its handler, leaving the queue empty and unable to drain. The
+     * returned time slice is the one the draining thread is currently in.
+     */
+    private long startBlockedAppender(GenericAsyncCoalescingStatisticsAppender appender,
+                                      BlockingGroupedTimingStatisticsHandler handler) throws InterruptedException {
+        appender.start(handler);
+        long firstStartTime = ((System.currentTimeMillis() / 1000L) + 100000L) * 1000L;
+        appender.append(new StopWatch(firstStartTime, 1L, "tag", null));
+        appender.append(new StopWatch(firstStartTime + 1000L, 1L, "tag", null));
+        assertTrue(handler.entered.await(10, TimeUnit.SECONDS));
+        return firstStartTime + 1000L;
+    }
+
+    private GenericAsyncCoalescingStatisticsAppender newTestAppender(int aggregationThreads) {
+        GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        appender.setTimeSlice(1000L);
+        appender.setCreateRollupStatistics(true);
+        appender.setHistogramPrecision(3);
+        appender.setAggregationThreads(aggregationThreads);
+        return appender;
+    }
+
+    private GroupedTimingStatisticsHandler newCollectingHandler(final List<GroupedTimingStatistics> handledStats) {
+        return new GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                handledStats.add(statistics);
+            }
+
+            public void error(String errorMessage) {
+                fail("Unexpected error: " + errorMessage);
+            }
+        };
+    }
+
+    private void assertStatisticsEqual(GroupedTimingStatistics expected, GroupedTimingStatistics actual) {
+        assertEquals(expected.getStatisticsByTag().keySet(), actual.getStatisticsByTag().keySet());
+        for (Map.Entry<String, TimingStatistics> tagAndStats : expected.getStatisticsByTag().entrySet()) {
+            TimingStatistics expectedStats = tagAndStats.getValue();
+            TimingStatistics actualStats = actual.getStatisticsByTag().get(tagAndStats.getKey());
+            assertEquals(expectedStats.getCount(), actualStats.getCount());
+            assertEquals(expectedStats.getMin(), actualStats.getMin());
+            assertEquals(expectedStats.getMax(), actualStats.getMax());
+            assertEquals(expectedStats.getMean(), actualStats.getMean(), 0.000001);
+            assertEquals(expectedStats.getStandardDeviation(), actualStats.getStandardDeviation(), 0.000001);
+            assertEquals(expectedStats.getHistogram(), actualStats.getHistogram());
+        }
+    }
+
+    /**
+     * A custom parser that records the threads it is called from.
+     */
+    public static class SingleThreadedStopWatchParser extends StopWatchParser {
+        static final Set<Thread> parsingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        public StopWatch parseStopWatch(String message) {
+            parsingThreads.add(Thread.currentThread());
+            return super.parseStopWatch(message);
+        }
+    }
 }
@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests the GroupingStatisticsIterator.
@@ -102,6 +104,65 @@ public class GroupingStatisticsIteratorTest extends TimingTestCase {
         assertEquals(500L, groupedTimingStatistics.get(2).getStatisticsByTag().get("tag3").getMax());
     }
 
+    public void testShardedIteratorMatchesUnsharded() throws Exception {
+        long startOfFirstSlice = System.currentTimeMillis() / 1000L * 1000L;
+        String[] tags = {"a", "a.success", "a.failure", "b.x.success", "b.y", "c", "d.e", "f", "g.h.i"};
+        Random random = new Random(42L);
+
+        List<StopWatch> stopWatches = new ArrayList<StopWatch>();
+        for (int i = 0; i < 5000; i++) {
+            stopWatches.add(new StopWatch(startOfFirstSlice + i,
+                                          random.nextInt(1000),
+                                          tags[random.nextInt(tags.length)],
+                                          null));
+        }
+
+        List<GroupedTimingStatistics> expected = new ArrayList<GroupedTimingStatistics>();
+        for (GroupingStatisticsIterator iter = new GroupingStatisticsIterator(stopWatches.iterator(), 1000L, true, 5);
+             iter.hasNext();) {
+            expected.add(iter.next());
+        }
+
+        ShardedGroupingStatisticsIterator shardedIter =
+                new ShardedGroupingStatisticsIterator(stopWatches.iterator(), 1000L, true, 5, TimeUnit.MILLISECONDS,
+                                                      4, 16, "test-shard-");
+        List<GroupedTimingStatistics> actual = new ArrayList<GroupedTimingStatistics>();
+        try {
+            while (shardedIter.hasNext()) {
+                actual.add(shardedIter.next());
+            }
+        } finally {
+            shardedIter.close();
+        }
+
+        assertEquals(5, expected.size());
+        //rollups are aggregated on a single shard, so even the means and standard deviations are bit-for-bit
+        //identical (TimingStatistics.equals compares the doubles exactly)
+        assertEquals(expected, actual);
+    }
+
+    public void testShardedIteratorCloseReturnsPartialTimeSlice() throws Exception {
+        long startOfFirstSlice = System.currentTimeMillis() / 1000L * 1000L;
+        List<StopWatch> stopWatches = new ArrayList<StopWatch>();
+        stopWatches.add(new StopWatch(startOfFirstSlice, 100L, "tag", null));
+        stopWatches.add(new StopWatch(startOfFirstSlice + 1000L, 200L, "tag", null));
+        stopWatches.add(new StopWatch(startOfFirstSlice + 1001L, 300L, "tag2", null));
+
+        ShardedGroupingStatisticsIterator shardedIter =
+                new ShardedGroupingStatisticsIterator(stopWatches.iterator(), 1000L, false, 5, TimeUnit.MILLISECONDS,
+                                                      2, 16, "test-shard-");
+        GroupedTimingStatistics first = shardedIter.next();
+        assertEquals(1, first.getStatisticsByTag().get("tag").getCount());
+
+        //the StopWatch that ended the first time slice was already added to the second one, which close returns
+        GroupedTimingStatistics partial = shardedIter.close();
+        assertNotNull(partial);
+        assertEquals(startOfFirstSlice + 1000L, partial.getStartTime());
+        assertEquals(startOfFirstSlice + 2000L, partial.getStopTime());
+        assertEquals(1, partial.getStatisticsByTag().get("tag").getCount());
+        assertNull(shardedIter.close());
+    }
+
     public void testRemove() throws Exception {
         //remove is not supported
         try {
@@ -151,4 +212,138 @@ public class GroupingStatisticsIteratorTest extends TimingTestCase {
         // no more timeslices
         assertFalse(groupingStatisticsIterator.hasNext());
     }
+
+    /**
+     * Test a null StopWatch before the first StopWatch, which must not start a time slice at the current time
+     */
+    public void testStopWatchIteratorStartsWithNull() {
+        GroupingStatisticsIterator iter = new GroupingStatisticsIterator(
+                Arrays.asList(null, new StopWatch(1000L, 10L, "tag", null), new StopWatch(2500L, 20L, "tag", null))
+                        .iterator(),
+                1000L,
+                false);
+        iter.setFillEmptyTimeSlices(true);
+
+        GroupedTimingStatistics first = iter.next();
+        assertEquals(1000L, first.getStartTime());
+        assertEquals(1, first.getStatisticsByTag().get("tag").getCount());
+        GroupedTimingStatistics second = iter.next();
+        assertEquals(2000L, second.getStartTime());
+        assertEquals(1, second.getStatisticsByTag().get("tag").getCount());
+        assertFalse(iter.hasNext());
+    }
+
+    public void testEarliestStopTime() throws Exception {
+        GroupingStatisticsIterator iter = new GroupingStatisticsIterator(
+                Arrays.asList(new StopWatch(1000L, 500L, "tag", null),
+                              new StopWatch(1100L, 100L, "tag", null),
+                              new StopWatch(3000L, 10L, "tag", null)).iterator(),
+                1000L,
+                false);
+        iter.setFillEmptyTimeSlices(true);
+
+        assertEquals(Long.MAX_VALUE, iter.getEarliestStopTime());
+        iter.next();
+        assertEquals(1200L, iter.getEarliestStopTime());
+        //computing the next time slice doesn't change the value for the last one returned
+        assertTrue(iter.hasNext());
+        assertEquals(1200L, iter.getEarliestStopTime());
+        iter.next();
+        assertEquals(Long.MAX_VALUE, iter.getEarliestStopTime());
+        iter.next();
+        assertEquals(3010L, iter.getEarliestStopTime());
+    }
+
+    public void testFillEmptyTimeSlices() throws Exception {
+        List<StopWatch> stopWatches = Arrays.asList(new StopWatch(1000L, 10L, "tag", null),
+                                                    new StopWatch(4500L, 20L, "tag", null),
+                                                    new StopWatch(4600L, 30L, "tag", null));
+
+        //by default the gap is skipped
+        GroupingStatisticsIterator iter = new GroupingStatisticsIterator(stopWatches.iterator(), 1000L, false);
+        assertEquals(1, iter.next().getStatisticsByTag().get("tag").getCount());
+        assertEquals(2, iter.next().getStatisticsByTag().get("tag").getCount());
+        assertFalse(iter.hasNext());
+
+        iter = new GroupingStatisticsIterator(stopWatches.iterator(), 1000L, false);
+        iter.setFillEmptyTimeSlices(true);
+        List<GroupedTimingStatistics> slices = new ArrayList<GroupedTimingStatistics>();
+        while (iter.hasNext()) {
+            slices.add(iter.next());
+        }
+        assertEquals(4, slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            assertEquals(1000L * (i + 1), slices.get(i).getStartTime());
+            assertEquals(1000L * (i + 2), slices.get(i).getStopTime());
+        }
+        assertEquals(1, slices.get(0).getStatisticsByTag().get("tag").getCount());
+        assertTrue(slices.get(1).getStatisticsByTag().isEmpty());
+        assertTrue(slices.get(2).getStatisticsByTag().isEmpty());
+        assertEquals(2, slices.get(3).getStatisticsByTag().get("tag").getCount());
+
+        //a bogus start time doesn't create a huge number of empty time slices
+        iter = new GroupingStatisticsIterator(Arrays.asList(new StopWatch(1000L, 10L, "tag", null),
+                                                            new StopWatch(1000000000L, 10L, "tag", null)).iterator(),
+                                              1000L,
+                                              false);
+        iter.setFillEmptyTimeSlices(true);
+        assertEquals(2000L, iter.next().getStopTime());
+        assertEquals(1000000000L, iter.next().getStartTime());
+        assertFalse(iter.hasNext());
+    }
+
+    public void testReorderWindow() throws Exception {
+        //StopWatches are logged when they stop, so the long one starting at 900 is logged after 1100 and 1500
+        List<StopWatch> stopWatches = Arrays.asList(new StopWatch(1100L, 10L, "tag", null),
+                                                    new StopWatch(1500L, 10L, "tag", null),
+                                                    new StopWatch(900L, 700L, "tag", null),
+                                                    new StopWatch(2100L, 10L, "tag", null),
+                                                    new StopWatch(3000L, 10L, "tag", null),
+                                                    //too late, it started more than the window before 3000
+                                                    new StopWatch(950L, 10L, "tag", null),
+                                                    new StopWatch(3100L, 10L, "tag", null));
+
+        //without a reordering window the StopWatch starting at 900 is counted in the wrong time slice
+        GroupingStatisticsIterator iter = new GroupingStatisticsIterator(stopWatches.iterator(), 1000L, false);
+        assertEquals(3, iter.next().getStatisticsByTag().get("tag").getCount());
+
+        iter = new GroupingStatisticsIterator(stopWatches.iterator(), 1000L, false);
+        iter.setReorderWindow(1000L);
+        assertEquals(1000L, iter.getReorderWindow());
+        try {
+            iter.setReorderWindow(2000L);
+            fail("The reordering window may only be set once");
+        } catch (IllegalStateException ise) {
+            //expected
+        }
+
+        List<GroupedTimingStatistics> slices = new ArrayList<GroupedTimingStatistics>();
+        while (iter.hasNext()) {
+            slices.add(iter.next());
+        }
+        assertEquals(4, slices.size());
+        assertEquals(0L, slices.get(0).getStartTime());
+        assertEquals(1, slices.get(0).getStatisticsByTag().get("tag").getCount());
+        assertEquals(700L, slices.get(0).getStatisticsByTag().get("tag").getMax());
+        //the late StopWatch is counted in the time slice that was current when it arrived
+        assertEquals(3, slices.get(1).getStatisticsByTag().get("tag").getCount());
+        assertEquals(1, slices.get(2).getStatisticsByTag().get("tag").getCount());
+        assertEquals(3000L, slices.get(3).getStartTime());
+        assertEquals(2, slices.get(3).getStatisticsByTag().get("tag").getCount());
+        assertEquals(1L, iter.getNumLateStopWatches());
+
+        //a null (i.e. the appender's time slice check) completes time slices once the watermark has passed them
+        long now = System.currentTimeMillis();
+        ReorderingStopWatchIterator reorderingIter =
+                new ReorderingStopWatchIterator(Arrays.asList(new StopWatch(now - 5000L, 10L, "tag", null),
+                                                              null,
+                                                              new StopWatch(now + 10000L, 10L, "tag", null)).iterator(),
+                                                1000L);
+        assertEquals(now - 5000L, reorderingIter.next().getStartTime());
+        assertNull(reorderingIter.next());
+        assertTrue(reorderingIter.getWatermark() >= now - 1000L);
+        assertEquals(now + 10000L, reorderingIter.next().getStartTime());
+        assertFalse(reorderingIter.hasNext());
+        assertEquals(0L, reorderingIter.getNumLateStopWatches());
+    }
 }
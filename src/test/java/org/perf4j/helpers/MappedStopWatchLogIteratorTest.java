@@ -0,0 +1,81 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.apache.commons.io.FileUtils;
+import org.perf4j.StopWatch;
+import org.perf4j.TimingTestCase;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests the MappedStopWatchLogIterator.
+ */
+public class MappedStopWatchLogIteratorTest extends TimingTestCase {
+
+    public void testSameStopWatchesAsStopWatchLogIterator() throws Exception {
+        String log = testLog
+                     + "start[1] time[2] tag[a] start[3] time[4] tag[b] message[m]\r\n"
+                     + "prefix \u00e9\u4e2d start[5] time[6] tag[t\u00e9g] message[\u4e2d\u6587]\n"
+                     + "start[7] time[8] tag[broken start[9] time[10] tag[after separator]\n"
+                     + "start[11] time[12] tag[unterminated\n"
+                     + "\n"
+                     + "start[13] time[14] tag[cr only]\rstart[15] time[16] tag[after cr]\n"
+                     + "start[17] time[18] tag[no trailing newline]";
+        File logFile = new File("./target/mappedStopWatchLogIteratorTest.log");
+        FileUtils.writeStringToFile(logFile, log, "UTF-8");
+
+        List<StopWatch> expected = toList(new StopWatchLogIterator(new StringReader(log)));
+        assertEquals(testStopWatches.size() + 7, expected.size());
+
+        assertEquals(expected, toList(new MappedStopWatchLogIterator(logFile, Charset.forName("UTF-8"))));
+
+        //small windows force many remappings, and lines longer than the window
+        for (int windowSize : new int[] { 1, 16, 100 }) {
+            MappedStopWatchLogIterator iter = new MappedStopWatchLogIterator(logFile, Charset.forName("UTF-8"));
+            iter.maxWindowSize = windowSize;
+            assertEquals("windowSize " + windowSize, expected, toList(iter));
+        }
+    }
+
+    public void testEmptyFile() throws Exception {
+        File logFile = new File("./target/mappedStopWatchLogIteratorTest.log");
+        FileUtils.writeStringToFile(logFile, "");
+        MappedStopWatchLogIterator iter = new MappedStopWatchLogIterator(logFile);
+        assertFalse(iter.hasNext());
+        assertFalse(iter.hasNext());
+    }
+
+    public void testSupportedCharsets() throws Exception {
+        assertTrue(MappedStopWatchLogIterator.isSupportedCharset(Charset.forName("UTF-8")));
+        assertTrue(MappedStopWatchLogIterator.isSupportedCharset(Charset.forName("ISO-8859-1")));
+        assertTrue(MappedStopWatchLogIterator.isSupportedCharset(Charset.forName("US-ASCII")));
+        assertFalse(MappedStopWatchLogIterator.isSupportedCharset(Charset.forName("UTF-16")));
+    }
+
+    private List<StopWatch> toList(Iterator<StopWatch> iter) {
+        List<StopWatch> retVal = new ArrayList<StopWatch>();
+        while (iter.hasNext()) {
+            retVal.add(iter.next());
+        }
+        return retVal;
+    }
+}
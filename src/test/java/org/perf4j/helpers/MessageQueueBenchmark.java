@@ -0,0 +1,139 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This is NOT a unit test (and so is not run by the surefire plugin); it is a simple throughput benchmark comparing
+ * the {@link MessageQueue} implementations under contention. A number of producer threads offer messages as fast as
+ * possible while a single consumer drains them in batches, as the GenericAsyncCoalescingStatisticsAppender does.
+ * Run it from the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.perf4j.helpers.MessageQueueBenchmark [messagesPerProducer]
+ * </pre>
+ * Each queue implementation is run with 1, 8 and 32 producer threads, after a warm up round. The number of offer
+ * calls per second, the number of messages actually transferred to the consumer per second and the number of offers
+ * rejected because the queue was full are printed.
+ */
+public class MessageQueueBenchmark {
+    private static final int QUEUE_SIZE = 1024;
+    private static final int[] PRODUCER_COUNTS = { 1, 8, 32 };
+
+    public static void main(String[] args) throws Exception {
+        int messagesPerProducer = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+
+        //warm up both implementations so the JIT has compiled the hot paths
+        for (int i = 0; i < 3; i++) {
+            run(new ArrayBlockingMessageQueue<Object>(QUEUE_SIZE), 8, messagesPerProducer / 10);
+            run(new RingBufferMessageQueue<Object>(QUEUE_SIZE), 8, messagesPerProducer / 10);
+        }
+
+        System.out.println(String.format("%-28s%10s%16s%16s%14s",
+                                         "Queue", "Producers", "Offers/sec", "Accepted/sec", "Rejected"));
+        for (int producerCount : PRODUCER_COUNTS) {
+            report(new ArrayBlockingMessageQueue<Object>(QUEUE_SIZE), producerCount, messagesPerProducer);
+            report(new RingBufferMessageQueue<Object>(QUEUE_SIZE), producerCount, messagesPerProducer);
+        }
+    }
+
+    private static void report(MessageQueue<Object> queue, int producerCount, int messagesPerProducer)
+            throws Exception {
+        long[] result = run(queue, producerCount, messagesPerProducer);
+        long totalOffers = (long) producerCount * messagesPerProducer;
+        double elapsedSeconds = result[0] / 1000000000.0;
+        System.out.println(String.format("%-28s%10d%16.0f%16.0f%14d",
+                                         queue.getClass().getSimpleName(),
+                                         producerCount,
+                                         totalOffers / elapsedSeconds,
+                                         (totalOffers - result[1]) / elapsedSeconds,
+                                         result[1]));
+    }
+
+    /**
+     * Runs a single round of the benchmark.
+     *
+     * @return A two element array: the elapsed time in nanoseconds and the number of rejected offers.
+     */
+    private static long[] run(final MessageQueue<Object> queue, int producerCount, final int messagesPerProducer)
+            throws Exception {
+        final Object message = new Object();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final long[] rejectedByProducer = new long[producerCount];
+
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < producerCount; i++) {
+            final int producerIndex = i;
+            Thread producer = new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    long rejected = 0;
+                    for (int j = 0; j < messagesPerProducer; j++) {
+                        if (!queue.offer(message)) {
+                            rejected++;
+                        }
+                    }
+                    rejectedByProducer[producerIndex] = rejected;
+                }
+            };
+            producer.start();
+            producers.add(producer);
+        }
+
+        final boolean[] done = new boolean[1];
+        Thread consumer = new Thread() {
+            public void run() {
+                List<Object> batch = new ArrayList<Object>(64);
+                while (true) {
+                    batch.clear();
+                    if (queue.drainTo(batch, 64) == 0) {
+                        synchronized (done) {
+                            if (done[0]) {
+                                return;
+                            }
+                        }
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        consumer.start();
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        synchronized (done) {
+            done[0] = true;
+        }
+        consumer.join();
+
+        long totalRejected = 0;
+        for (long rejected : rejectedByProducer) {
+            totalRejected += rejected;
+        }
+        return new long[] { elapsedTime, totalRejected };
+    }
+}
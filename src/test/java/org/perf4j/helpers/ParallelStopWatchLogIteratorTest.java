@@ -0,0 +1,93 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.apache.commons.io.FileUtils;
+import org.perf4j.StopWatch;
+import org.perf4j.TimingTestCase;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the ParallelStopWatchLogIterator.
+ */
+public class ParallelStopWatchLogIteratorTest extends TimingTestCase {
+
+    public void testSameStopWatchesAsSequentialIterator() throws Exception {
+        Random random = new Random(7L);
+        StringBuilder log = new StringBuilder(testLog);
+        for (int i = 0; i < 2000; i++) {
+            StopWatch stopWatch = new StopWatch(1230068856000L + random.nextInt(100000),
+                                                random.nextInt(5000),
+                                                "tag" + random.nextInt(10),
+                                                random.nextBoolean() ? null : "message " + i);
+            String lineEnd = "\n";
+            switch (random.nextInt(4)) {
+                case 0:
+                    log.append("INFO some prefix ");
+                    break;
+                case 1:
+                    log.append(stopWatch).append(" ");
+                    lineEnd = "\r\n";
+                    break;
+                case 2:
+                    log.append("unrelated line start[1] time[\n");
+                    break;
+                default:
+                    break;
+            }
+            log.append(stopWatch).append(lineEnd);
+        }
+        log.append("start[1] time[2] tag[no trailing newline]");
+
+        File logFile = new File("./target/parallelStopWatchLogIteratorTest.log");
+        FileUtils.writeStringToFile(logFile, log.toString(), "UTF-8");
+
+        List<StopWatch> expected = toList(new StopWatchLogIterator(new StringReader(log.toString())));
+        assertTrue(expected.size() > 2000);
+
+        for (int chunkSize : new int[] { 1, 37, 4096, ParallelStopWatchLogIterator.DEFAULT_CHUNK_SIZE }) {
+            for (int threads : new int[] { 1, 3 }) {
+                assertEquals("chunkSize " + chunkSize + ", threads " + threads,
+                             expected,
+                             toList(new ParallelStopWatchLogIterator(logFile, Charset.forName("UTF-8"),
+                                                                     threads, chunkSize)));
+            }
+        }
+    }
+
+    public void testEmptyFile() throws Exception {
+        File logFile = new File("./target/parallelStopWatchLogIteratorTest.log");
+        FileUtils.writeStringToFile(logFile, "");
+        ParallelStopWatchLogIterator iter = new ParallelStopWatchLogIterator(logFile, 2);
+        assertFalse(iter.hasNext());
+        assertFalse(iter.hasNext());
+    }
+
+    private List<StopWatch> toList(Iterator<StopWatch> iter) {
+        List<StopWatch> retVal = new ArrayList<StopWatch>();
+        while (iter.hasNext()) {
+            retVal.add(iter.next());
+        }
+        return retVal;
+    }
+}
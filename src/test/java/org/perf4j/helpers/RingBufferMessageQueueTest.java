@@ -0,0 +1,155 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import junit.framework.TestCase;
+import org.perf4j.GroupedTimingStatistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the RingBufferMessageQueue class.
+ */
+public class RingBufferMessageQueueTest extends TestCase {
+
+    public void testSingleThreaded() throws Exception {
+        RingBufferMessageQueue<String> queue = new RingBufferMessageQueue<String>(3);
+        assertEquals(4, queue.getCapacity());
+        assertEquals(0, queue.size());
+        assertNull(queue.poll(1L, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer("message" + i));
+        }
+        assertFalse("Queue should be full", queue.offer("overflow"));
+        assertEquals(4, queue.size());
+
+        assertEquals("message0", queue.poll(0L, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer("message4"));
+
+        List<String> drained = new ArrayList<String>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals("message1", drained.get(0));
+        assertEquals("message2", drained.get(1));
+        assertEquals(2, queue.size());
+
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertNull(queue.poll(1L, TimeUnit.MILLISECONDS));
+
+        try {
+            queue.offer(null);
+            fail("Null elements should not be allowed");
+        } catch (NullPointerException npe) {
+            //expected
+        }
+    }
+
+    public void testTimedOffer() throws Exception {
+        final RingBufferMessageQueue<String> queue = new RingBufferMessageQueue<String>(1);
+        assertTrue(queue.offer("message0", 0L, TimeUnit.MILLISECONDS));
+
+        long startNanos = System.nanoTime();
+        assertFalse("Queue should be full", queue.offer("overflow", 20L, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(20L));
+
+        //the offer succeeds as soon as the consumer makes room
+        Thread consumer = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(20L);
+                    queue.poll(0L, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    //then the offer below fails
+                }
+            }
+        };
+        consumer.start();
+        assertTrue(queue.offer("message1", 10L, TimeUnit.SECONDS));
+        consumer.join();
+        assertEquals("message1", queue.poll(0L, TimeUnit.MILLISECONDS));
+
+        Thread.currentThread().interrupt();
+        try {
+            queue.offer("message2", 0L, TimeUnit.MILLISECONDS);
+            queue.offer("overflow", 10L, TimeUnit.SECONDS);
+            fail("Expected InterruptedException");
+        } catch (InterruptedException ie) {
+            //expected
+        }
+    }
+
+    public void testMultipleProducers() throws Exception {
+        final RingBufferMessageQueue<Integer> queue = new RingBufferMessageQueue<Integer>(16);
+        final int messagesPerProducer = 10000;
+        Thread[] producers = new Thread[8];
+        for (int i = 0; i < producers.length; i++) {
+            final int producerIndex = i;
+            producers[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < messagesPerProducer; j++) {
+                            queue.put(producerIndex * messagesPerProducer + j);
+                        }
+                    } catch (InterruptedException ie) {
+                        fail("Unexpected interrupt");
+                    }
+                }
+            };
+            producers[i].start();
+        }
+
+        //each producer's messages must come out in the order they were put in, and none may be lost
+        int[] lastSeenByProducer = new int[producers.length];
+        Arrays.fill(lastSeenByProducer, -1);
+        for (int received = 0; received < producers.length * messagesPerProducer; received++) {
+            Integer message = queue.poll(10L, TimeUnit.SECONDS);
+            assertNotNull("Timed out waiting for message " + received, message);
+            int producerIndex = message / messagesPerProducer;
+            int sequence = message % messagesPerProducer;
+            assertEquals(lastSeenByProducer[producerIndex] + 1, sequence);
+            lastSeenByProducer[producerIndex] = sequence;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(0, queue.size());
+    }
+
+    public void testAppenderWithRingBuffer() throws Exception {
+        GenericAsyncCoalescingStatisticsAppender appender = new GenericAsyncCoalescingStatisticsAppender();
+        appender.setMessageQueueClassName(RingBufferMessageQueue.class.getName());
+        final int[] handledCount = new int[1];
+        appender.start(new GenericAsyncCoalescingStatisticsAppender.GroupedTimingStatisticsHandler() {
+            public void handle(GroupedTimingStatistics statistics) {
+                handledCount[0] += statistics.getStatisticsByTag().get("tag").getCount();
+            }
+
+            public void error(String errorMessage) { }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            appender.append("start[1230068856000] time[" + i + "] tag[tag]");
+        }
+        appender.stop();
+
+        assertEquals(100 - appender.getNumDiscardedMessages(), handledCount[0]);
+    }
+}
@@ -0,0 +1,139 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the SpillFile.
+ */
+public class SpillFileTest extends TestCase {
+    private File file = new File("./target/spillFileTest.spill");
+
+    protected void setUp() throws Exception {
+        file.delete();
+    }
+
+    public void testAppendAndRead() throws Exception {
+        SpillFile spillFile = new SpillFile(file, SpillFile.MIN_SIZE);
+        assertTrue(spillFile.isEmpty());
+        assertEquals(-1L, spillFile.getOldestWriteTime());
+
+        long before = System.currentTimeMillis();
+        assertTrue(spillFile.append("start[1] time[2] tag[a]"));
+        assertTrue(spillFile.append("start[3] time[4] tag[t\u00e9g] message[\u4e2d\u6587]"));
+        assertFalse(spillFile.isEmpty());
+        assertTrue(spillFile.getOldestWriteTime() >= before);
+
+        List<String> read = new ArrayList<String>();
+        assertEquals(1, spillFile.read(read, 1));
+        assertEquals(1, spillFile.read(read, 10));
+        assertEquals(0, spillFile.read(read, 10));
+        assertEquals("start[1] time[2] tag[a]", read.get(0));
+        assertEquals("start[3] time[4] tag[t\u00e9g] message[\u4e2d\u6587]", read.get(1));
+        assertTrue(spillFile.isEmpty());
+        assertEquals(0, spillFile.getUsedBytes());
+        spillFile.close();
+    }
+
+    public void testWrapAroundAndFull() throws Exception {
+        SpillFile spillFile = new SpillFile(file, SpillFile.MIN_SIZE);
+
+        //fill the file up, then keep reading and writing so that the records wrap around the end many times
+        int numWritten = 0;
+        while (spillFile.append(message(numWritten))) {
+            numWritten++;
+        }
+        assertTrue(numWritten > 10);
+
+        List<String> read = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            spillFile.read(read, 3);
+            while (spillFile.append(message(numWritten))) {
+                numWritten++;
+            }
+        }
+        while (spillFile.read(read, 100) > 0) { }
+
+        assertEquals(numWritten, read.size());
+        for (int i = 0; i < numWritten; i++) {
+            assertEquals(message(i), read.get(i));
+        }
+        spillFile.close();
+    }
+
+    public void testUnreadRecordsAreKeptWhenReopened() throws Exception {
+        SpillFile spillFile = new SpillFile(file, SpillFile.MIN_SIZE);
+        for (int i = 0; i < 5; i++) {
+            spillFile.append(message(i));
+        }
+        spillFile.read(new ArrayList<String>(), 2);
+        //simulate a crash, the file is not closed
+        SpillFile reopened = new SpillFile(file, 4 * SpillFile.MIN_SIZE);
+        assertEquals(SpillFile.MIN_SIZE, reopened.getCapacity());
+
+        List<String> read = new ArrayList<String>();
+        assertEquals(3, reopened.read(read, 10));
+        assertEquals(message(2), read.get(0));
+        assertEquals(message(4), read.get(2));
+        reopened.close();
+        spillFile.close();
+    }
+
+    public void testDamagedRecordIsTruncated() throws Exception {
+        SpillFile spillFile = new SpillFile(file, SpillFile.MIN_SIZE);
+        for (int i = 0; i < 3; i++) {
+            spillFile.append(message(i));
+        }
+        int lastRecordStart = 16 + 2 * (12 + message(0).length());
+        spillFile.close();
+
+        //make the length of the last record run past the write position, as if it was only partly written
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(lastRecordStart);
+        raf.writeInt(1000);
+        raf.close();
+
+        SpillFile reopened = new SpillFile(file, SpillFile.MIN_SIZE);
+        List<String> read = new ArrayList<String>();
+        assertEquals(2, reopened.read(read, 10));
+        assertEquals(message(1), read.get(1));
+        assertTrue(reopened.isEmpty());
+
+        //and the file is still usable
+        assertTrue(reopened.append(message(3)));
+        assertEquals(1, reopened.read(read, 10));
+        assertEquals(message(3), read.get(2));
+        reopened.close();
+
+        //a file that isn't a spill file is treated as empty
+        raf = new RandomAccessFile(file, "rw");
+        raf.writeInt(0);
+        raf.close();
+        reopened = new SpillFile(file, SpillFile.MIN_SIZE);
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+    }
+
+    private String message(int i) {
+        return "start[" + (1000000 + i) + "] time[5] tag[tag" + (1000 + i) + "]";
+    }
+}
@@ -19,6 +19,7 @@ import org.perf4j.GroupedTimingStatistics;
 import org.perf4j.TimingTestCase;
 import org.perf4j.StopWatch;
 
+import javax.management.AttributeNotFoundException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.NotificationListener;
@@ -44,6 +45,17 @@ public class StatisticsExposingMBeanTest extends TimingTestCase {
         MBeanInfo mBeanInfo = mBean.getMBeanInfo();
         MBeanAttributeInfo[] attributeInfos = mBeanInfo.getAttributes();
         assertEquals(mBean.getStatsValueRetrievers().size() * 2, attributeInfos.length);
+        try {
+            mBean.getAttribute(StatisticsExposingMBean.TIME_UNIT_ATTRIBUTE_NAME);
+            fail("The TimeUnit attribute should only be exposed on request");
+        } catch (AttributeNotFoundException anfe) {
+            //expected
+        }
+
+        //the TimeUnit attribute is opt-in
+        mBean.setExposeTimeUnit(true);
+        assertEquals(mBean.getStatsValueRetrievers().size() * 2 + 1, mBean.getMBeanInfo().getAttributes().length);
+        assertEquals("ms", mBean.getAttribute(StatisticsExposingMBean.TIME_UNIT_ATTRIBUTE_NAME));
 
         assertEquals(groupedTimingStats.getStatisticsByTag().get("tag").getMean(),
                      mBean.getAttribute("tagMean"));
@@ -21,6 +21,8 @@ import org.perf4j.StopWatch;
 import java.io.StringReader;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
@@ -85,6 +87,30 @@ public class StopWatchLogIteratorTest extends TimingTestCase {
         }
     }
 
+    public void testMultipleStopWatchesPerLine() throws Exception {
+        String log = "start[1] time[2] tag[a] start[3] time[4] tag[b] message[m]\n"
+                     + "no stop watch here\r\n"
+                     + "start[5] time[6] tag[c]";
+        List<StopWatch> expected = new ArrayList<StopWatch>();
+        expected.add(new StopWatch(1, 2, "a", null));
+        expected.add(new StopWatch(3, 4, "b", "m"));
+        expected.add(new StopWatch(5, 6, "c", null));
+
+        //the anonymous subclass forces the regex to be used
+        StopWatchLogIterator regexIterator = new StopWatchLogIterator(new StringReader(log)) {
+            protected StopWatchParser newStopWatchParser() {
+                return new StopWatchParser() { };
+            }
+        };
+        for (Iterator<StopWatch> iter : Arrays.asList(new StopWatchLogIterator(new StringReader(log)), regexIterator)) {
+            List<StopWatch> actual = new ArrayList<StopWatch>();
+            while (iter.hasNext()) {
+                actual.add(iter.next());
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
     public void testEmptyIterator() throws Exception {
         assertFalse(new StopWatchLogIterator(new StringReader("")).hasNext());
     }
@@ -0,0 +1,108 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import org.perf4j.StopWatch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * This is NOT a unit test (and so is not run by the surefire plugin); it is a simple benchmark comparing the
+ * hand-written scanner used by the StopWatchParser for the default message format against the regex that is used
+ * for custom patterns (and by subclasses). Run it from the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes org.perf4j.helpers.StopWatchParserBenchmark [parsesPerRound]
+ * </pre>
+ * For each parser the number of parses per second and, on VMs that support measuring thread allocation (such as
+ * HotSpot), the number of bytes allocated per parse are printed. Note the parsed StopWatch itself (and the message
+ * String, if any) must always be allocated.
+ */
+public class StopWatchParserBenchmark {
+    private static final String[] MESSAGES = {
+            "start[1230068856846] time[24] tag[codeBlock1]",
+            "start[1230068856950] time[1031] tag[codeBlock2.success] message[Some message text]",
+            "start[1230068857120] time[7] tag[codeBlock1]",
+            "start[1230068857300] time[350] tag[codeBlock2.failure] message[Another message]"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int parsesPerRound = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+
+        StopWatchParser scanningParser = new StopWatchParser();
+        //subclasses use the regex unless they override isScanningDefaultFormat
+        StopWatchParser regexParser = new StopWatchParser() { };
+
+        //warm up both parsers so the JIT has compiled the hot paths
+        for (int i = 0; i < 3; i++) {
+            run(scanningParser, parsesPerRound / 10);
+            run(regexParser, parsesPerRound / 10);
+        }
+
+        System.out.println(String.format("%-12s%16s%16s", "Parser", "Parses/sec", "Bytes/parse"));
+        report("scanner", scanningParser, parsesPerRound);
+        report("regex", regexParser, parsesPerRound);
+    }
+
+    private static void report(String name, StopWatchParser parser, int parses) throws Exception {
+        long allocatedBefore = getAllocatedBytes();
+        long startTime = System.nanoTime();
+        long checksum = run(parser, parses);
+        long elapsedTime = System.nanoTime() - startTime;
+        long allocatedAfter = getAllocatedBytes();
+
+        System.out.println(String.format("%-12s%16.0f%16s%s",
+                                         name,
+                                         parses / (elapsedTime / 1000000000.0),
+                                         (allocatedBefore < 0L) ?
+                                         "n/a" :
+                                         String.format("%.1f", (allocatedAfter - allocatedBefore) / (double) parses),
+                                         (checksum == 0L) ? " (no StopWatches parsed!)" : ""));
+    }
+
+    /**
+     * Runs a single round of the benchmark.
+     *
+     * @return A checksum of the parsed values, which prevents the JIT from eliminating the parsing.
+     */
+    private static long run(StopWatchParser parser, int parses) {
+        long checksum = 0L;
+        for (int i = 0; i < parses; i++) {
+            StopWatch stopWatch = parser.parseStopWatch(MESSAGES[i & 3]);
+            checksum += stopWatch.getElapsedTime() + stopWatch.getTag().length();
+        }
+        return checksum;
+    }
+
+    /**
+     * Gets the total number of bytes allocated by the current thread, using the com.sun.management.ThreadMXBean
+     * extension if available.
+     *
+     * @return The number of bytes allocated, or -1 if not supported by this VM.
+     */
+    private static long getAllocatedBytes() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            Method getThreadAllocatedBytes =
+                    threadMXBean.getClass().getMethod("getThreadAllocatedBytes", Long.TYPE);
+            getThreadAllocatedBytes.setAccessible(true);
+            return (Long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+}
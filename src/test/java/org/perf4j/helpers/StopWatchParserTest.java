@@ -18,6 +18,9 @@ package org.perf4j.helpers;
 import junit.framework.TestCase;
 import org.perf4j.StopWatch;
 
+import java.text.ParsePosition;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Tests the StopWatchParser class.
  */
@@ -36,4 +39,124 @@ public class StopWatchParserTest extends TestCase {
 
         assertNull(parser.match("not a stop watch string"));
     }
+
+    public void testScannerMatchesRegex() throws Exception {
+        StopWatchParser scanningParser = new StopWatchParser();
+        //subclasses use the regex by default
+        StopWatchParser regexParser = new StopWatchParser() { };
+        assertTrue(scanningParser.isScanningDefaultFormat());
+        assertFalse(regexParser.isScanningDefaultFormat());
+
+        String[] messages = {
+                "start[123] time[456] tag[tag] message[message]",
+                "start[123] time[456] tag[tag]",
+                "prefix text start[123] time[456] tag[tag.sub] message[the message] suffix",
+                "start[123] time[456] tag[tag] message[no closing bracket",
+                "start[123] time[456] tag[tag] message[multi\nline]",
+                "start[123] time[456] tag[multi\nline tag] start[7] time[8] tag[second]",
+                "start[] time[456] tag[tag] start[1] time[2] tag[after empty start]",
+                "start[12a] time[456] tag[tag]",
+                "start[123] time[456] tag[]",
+                "start[123] time[456] tag[tag with [ bracket] message[msg]",
+                "start[123]time[456] tag[tag]",
+                "start[1] time[2] tag[unterminated",
+                "start",
+                "",
+                "start[1230068856846] time[2] tag[tag1] message[]",
+                "start[123] time[456] tag[tag] message[message] unit[us]",
+                "start[123] time[456] tag[tag] unit[ns]",
+                "start[123] time[456] tag[tag] unit[s] suffix",
+                "start[123] time[456] tag[tag] unit[ms]",
+                "start[123] time[456] tag[tag] unit[xs]",
+                "start[123] time[456] tag[tag] unit[us",
+                "start[123] time[456] tag[tag] message[unit[us]]",
+                "start[123] time[456] tag[tag] message[message] unit[us] weight[10]",
+                "start[123] time[456] tag[tag] weight[7] suffix",
+                "start[123] time[456] tag[tag] weight[0]",
+                "start[123] time[456] tag[tag] weight[07]",
+                "start[123] time[456] tag[tag] weight[1234567890]",
+                "start[123] time[456] tag[tag] weight[12"
+        };
+
+        for (String message : messages) {
+            assertEquals(message, regexParser.parseStopWatch(message), scanningParser.parseStopWatch(message));
+        }
+
+        //numbers that overflow a long are reported the same way as the regex parser
+        try {
+            scanningParser.parseStopWatch("start[99999999999999999999] time[1] tag[tag]");
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException nfe) {
+            //expected
+        }
+    }
+
+    public void testTimeUnit() throws Exception {
+        for (StopWatchParser parser : new StopWatchParser[] { new StopWatchParser(), new StopWatchParser() { } }) {
+            for (TimeUnit timeUnit : new TimeUnit[] { TimeUnit.NANOSECONDS, TimeUnit.MICROSECONDS,
+                                                      TimeUnit.MILLISECONDS, TimeUnit.SECONDS }) {
+                StopWatch stopWatch = new StopWatch(123, 456, timeUnit, "tag", "message");
+                StopWatch parsed = parser.parseStopWatch(stopWatch.toString());
+                assertEquals(stopWatch, parsed);
+                assertEquals(timeUnit, parsed.getTimeUnit());
+
+                stopWatch = new StopWatch(123, 456, timeUnit, "tag", null);
+                assertEquals(stopWatch, parser.parseStopWatch(stopWatch.toString()));
+            }
+
+            //logs written before the unit was added are in milliseconds
+            StopWatch parsed = parser.parseStopWatch("start[123] time[456] tag[tag] message[message]");
+            assertEquals(TimeUnit.MILLISECONDS, parsed.getTimeUnit());
+            assertEquals(456L, parsed.getElapsedTime());
+
+            //an unknown unit is not part of the StopWatch
+            ParsePosition position = new ParsePosition(0);
+            parsed = parser.parseStopWatch("start[1] time[2] tag[tag] unit[days]", position);
+            assertEquals(new StopWatch(1, 2, "tag", null), parsed);
+            assertEquals("start[1] time[2] tag[tag]".length(), position.getIndex());
+        }
+    }
+
+    public void testWeight() throws Exception {
+        for (StopWatchParser parser : new StopWatchParser[] { new StopWatchParser(), new StopWatchParser() { } }) {
+            StopWatch stopWatch = new StopWatch(123, 456, TimeUnit.MICROSECONDS, "tag", "message").setWeight(25);
+            StopWatch parsed = parser.parseStopWatch(stopWatch.toString());
+            assertEquals(stopWatch, parsed);
+            assertEquals(25, parsed.getWeight());
+
+            stopWatch = new StopWatch(123, 456, "tag", null).setWeight(3);
+            assertEquals("start[123] time[456] tag[tag] weight[3]", stopWatch.toString());
+            assertEquals(stopWatch, parser.parseStopWatch(stopWatch.toString()));
+
+            //StopWatches that weren't sampled have a weight of 1
+            assertEquals(1, parser.parseStopWatch("start[123] time[456] tag[tag]").getWeight());
+
+            //an invalid weight is not part of the StopWatch
+            ParsePosition position = new ParsePosition(0);
+            parsed = parser.parseStopWatch("start[1] time[2] tag[tag] weight[0]", position);
+            assertEquals(new StopWatch(1, 2, "tag", null), parsed);
+            assertEquals("start[1] time[2] tag[tag]".length(), position.getIndex());
+        }
+    }
+
+    public void testTagsAreShared() throws Exception {
+        StopWatchParser parser = new StopWatchParser();
+        StopWatch first = parser.parseStopWatch("start[1] time[2] tag[shared]");
+        StopWatch second = parser.parseStopWatch("start[3] time[4] tag[shared] message[hi]");
+        assertSame(first.getTag(), second.getTag());
+    }
+
+    public void testParsePosition() throws Exception {
+        String message = "start[1] time[2] tag[a] message[m] junk start[3] time[4] tag[b]";
+        for (StopWatchParser parser : new StopWatchParser[] { new StopWatchParser(), new StopWatchParser() { } }) {
+            ParsePosition position = new ParsePosition(0);
+            assertEquals(new StopWatch(1, 2, "a", "m"), parser.parseStopWatch(message, position));
+            assertEquals(message.indexOf(" junk"), position.getIndex());
+            assertEquals(new StopWatch(3, 4, "b", null), parser.parseStopWatch(message, position));
+            assertEquals(message.length(), position.getIndex());
+            assertNull(parser.parseStopWatch(message, position));
+            assertEquals(message.length(), position.getIndex());
+            assertEquals(message.length(), position.getErrorIndex());
+        }
+    }
 }
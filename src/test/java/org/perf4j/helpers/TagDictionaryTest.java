@@ -0,0 +1,52 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the TagDictionary.
+ */
+public class TagDictionaryTest extends TestCase {
+    public void testIds() throws Exception {
+        TagDictionary tagDictionary = new TagDictionary();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, tagDictionary.getId("tag" + i));
+        }
+        assertEquals(100, tagDictionary.size());
+        assertEquals(42, tagDictionary.getId("tag42"));
+        assertEquals(42, tagDictionary.findId("tag42"));
+        assertEquals("tag42", tagDictionary.getTag(42));
+        assertEquals(-1, tagDictionary.findId("unknown"));
+        assertEquals(100, tagDictionary.size());
+    }
+
+    public void testRollupIds() throws Exception {
+        TagDictionary tagDictionary = new TagDictionary();
+        int[] rollupIds = tagDictionary.getRollupIds("svc.checkout.payment.gateway.call");
+        assertEquals(5, rollupIds.length);
+        assertEquals("svc.checkout.payment.gateway.call", tagDictionary.getTag(rollupIds[0]));
+        assertEquals("svc", tagDictionary.getTag(rollupIds[1]));
+        assertEquals("svc.checkout", tagDictionary.getTag(rollupIds[2]));
+        assertEquals("svc.checkout.payment", tagDictionary.getTag(rollupIds[3]));
+        assertEquals("svc.checkout.payment.gateway", tagDictionary.getTag(rollupIds[4]));
+
+        //the parents are cached, and shared with other tags
+        assertSame(rollupIds, tagDictionary.getRollupIds("svc.checkout.payment.gateway.call"));
+        assertEquals(rollupIds[2], tagDictionary.getRollupIds("svc.checkout.cart")[2]);
+        assertEquals(1, tagDictionary.getRollupIds("noDots").length);
+    }
+}
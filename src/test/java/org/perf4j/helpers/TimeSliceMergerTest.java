@@ -0,0 +1,99 @@
+/* Copyright (c) 2026 perf4j contributors.
+ * All rights reserved.  http://www.perf4j.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.perf4j.helpers;
+
+import junit.framework.TestCase;
+import org.perf4j.GroupedTimingStatistics;
+import org.perf4j.StopWatch;
+import org.perf4j.TimingStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the TimeSliceMerger.
+ */
+public class TimeSliceMergerTest extends TestCase {
+    public void testMergedSlicesMatchDirectAggregation() throws Exception {
+        Random random = new Random(42L);
+        List<StopWatch> stopWatches = new ArrayList<StopWatch>();
+        for (long startTime = 60000L; startTime < 300000L; startTime += random.nextInt(500)) {
+            stopWatches.add(new StopWatch(startTime, random.nextInt(1000), "tag" + random.nextInt(5) + ".sub", null));
+        }
+
+        List<GroupedTimingStatistics> expected = new ArrayList<GroupedTimingStatistics>();
+        for (GroupingStatisticsIterator iter = new GroupingStatisticsIterator(stopWatches.iterator(), 60000L, true);
+             iter.hasNext();) {
+            expected.add(iter.next());
+        }
+
+        TimeSliceMerger merger = new TimeSliceMerger(60000L);
+        List<GroupedTimingStatistics> actual = new ArrayList<GroupedTimingStatistics>();
+        for (GroupingStatisticsIterator iter = new GroupingStatisticsIterator(stopWatches.iterator(), 10000L, true);
+             iter.hasNext();) {
+            actual.addAll(merger.add(iter.next()));
+        }
+        assertNull(merger.flush());
+
+        assertEquals(4, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStartTime(), actual.get(i).getStartTime());
+            assertEquals(expected.get(i).getStopTime(), actual.get(i).getStopTime());
+            assertEquals(expected.get(i).getStatisticsByTag().keySet(), actual.get(i).getStatisticsByTag().keySet());
+            for (String tag : expected.get(i).getStatisticsByTag().keySet()) {
+                TimingStatistics expectedStats = expected.get(i).getStatisticsByTag().get(tag);
+                TimingStatistics actualStats = actual.get(i).getStatisticsByTag().get(tag);
+                assertEquals(expectedStats.getCount(), actualStats.getCount());
+                assertEquals(expectedStats.getMin(), actualStats.getMin());
+                assertEquals(expectedStats.getMax(), actualStats.getMax());
+                assertEquals(expectedStats.getMean(), actualStats.getMean(), 0.000001);
+                assertEquals(expectedStats.getStandardDeviation(), actualStats.getStandardDeviation(), 0.000001);
+            }
+        }
+    }
+
+    public void testGapsAndFlush() throws Exception {
+        TimeSliceMerger merger = new TimeSliceMerger(60000L);
+        assertTrue(merger.add(slice(60000L, 10000L, 5L)).isEmpty());
+
+        //a slice in a later minute completes the earlier minute, and this one completes its own minute as well
+        List<GroupedTimingStatistics> completed = merger.add(slice(170000L, 10000L, 7L));
+        assertEquals(2, completed.size());
+        assertEquals(60000L, completed.get(0).getStartTime());
+        assertEquals(120000L, completed.get(0).getStopTime());
+        assertEquals(5L, completed.get(0).getStatisticsByTag().get("tag").getMax());
+        assertEquals(120000L, completed.get(1).getStartTime());
+        assertEquals(7L, completed.get(1).getStatisticsByTag().get("tag").getMax());
+
+        //the incomplete minute is returned by flush
+        assertTrue(merger.add(slice(180000L, 10000L, 9L)).isEmpty());
+        GroupedTimingStatistics flushed = merger.flush();
+        assertEquals(180000L, flushed.getStartTime());
+        assertEquals(240000L, flushed.getStopTime());
+        assertEquals(1, flushed.getStatisticsByTag().get("tag").getCount());
+        assertNull(merger.flush());
+    }
+
+    private GroupedTimingStatistics slice(long startTime, long timeSlice, long elapsedTime) {
+        GroupedTimingStatistics retVal = new GroupedTimingStatistics();
+        retVal.addStopWatch(new StopWatch(startTime, elapsedTime, "tag", null));
+        retVal.setStartTime(startTime);
+        retVal.setStopTime(startTime + timeSlice);
+        return retVal;
+    }
+}
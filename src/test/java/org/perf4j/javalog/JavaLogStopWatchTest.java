@@ -19,9 +19,14 @@ import org.perf4j.LoggingStopWatch;
 import org.perf4j.LoggingStopWatchTest;
 import org.perf4j.StopWatch;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
 
 /**
  * Tests the JavaLogStopWatch. See the superclass for the test method that is run.
@@ -121,6 +126,38 @@ public class JavaLogStopWatchTest extends LoggingStopWatchTest {
         assertTrue(stopWatch.isLogging());
         Logger.getLogger("org.perf4j.AnotherTestLogger").setLevel(Level.INFO);
         assertFalse(stopWatch.isLogging());
+
+        //by default the StopWatch string is the message of the LogRecord, and is returned by stop
+        final List<LogRecord> records = new ArrayList<LogRecord>();
+        Handler listHandler = new Handler() {
+            public void publish(LogRecord record) { records.add(record); }
+            public void flush() { }
+            public void close() { }
+        };
+        Logger.getLogger("org.perf4j.AnotherTestLogger").addHandler(listHandler);
+        try {
+            stopWatch.start("eager", "rendering");
+            String stopWatchAsString = stopWatch.stop(new Exception("eager"));
+            assertTrue(stopWatchAsString.endsWith("tag[eager] message[rendering]"));
+            assertEquals(1, records.size());
+            assertEquals(stopWatchAsString, records.get(0).getMessage());
+            assertNull(records.get(0).getParameters());
+            records.clear();
+
+            //with deferred rendering the StopWatch string is not created by stopWithoutString, it's only formatted by
+            //the Handler
+            stopWatch.setDeferredRendering(true);
+            stopWatch.start("deferred", "rendering");
+            assertTrue(stopWatch.stopWithoutString(new Exception("deferred")));
+            assertEquals(1, records.size());
+            LogRecord record = records.get(0);
+            assertEquals(JavaLogStopWatch.STOP_WATCH_MESSAGE_FORMAT, record.getMessage());
+            assertTrue(record.getParameters()[0] instanceof StopWatch);
+            assertEquals("deferred", record.getThrown().getMessage());
+            assertTrue(new SimpleFormatter().formatMessage(record).endsWith("tag[deferred] message[rendering]"));
+        } finally {
+            Logger.getLogger("org.perf4j.AnotherTestLogger").removeHandler(listHandler);
+        }
     }
 
     protected void checkProperties(LoggingStopWatch stopWatch,
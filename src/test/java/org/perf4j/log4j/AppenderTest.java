@@ -20,11 +20,15 @@ import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.xml.DOMConfigurator;
+import org.apache.log4j.spi.LoggingEvent;
+import org.perf4j.GroupedTimingStatistics;
 import org.perf4j.StopWatch;
+import org.perf4j.TimingStatistics;
 
 import java.io.File;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
@@ -165,6 +169,51 @@ public class AppenderTest extends TestCase {
         assertTrue("Expected some stop watch messages to get discarded", appender.getNumDiscardedMessages() > 0);
     }
 
+    public void testMergingStatisticsAppender() throws Exception {
+        Logger logger = Logger.getLogger("AppenderTest.mergingTest");
+        AsyncCoalescingStatisticsAppender appender = new AsyncCoalescingStatisticsAppender();
+        appender.setName("mergingTestAppender");
+        appender.setTimeSlice(100);
+        ListAppender fineStatistics = new ListAppender() {
+            public void close() { /* keep the events so they can be checked */ }
+        };
+        appender.addAppender(fineStatistics);
+        MergingStatisticsAppender mergingAppender = new MergingStatisticsAppender();
+        mergingAppender.setTimeSlice(1000);
+        mergingAppender.activateOptions();
+        ListAppender mergedStatistics = new ListAppender() {
+            public void close() { /* keep the events so they can be checked */ }
+        };
+        mergingAppender.addAppender(mergedStatistics);
+        appender.addAppender(mergingAppender);
+        logger.addAppender(appender);
+        logger.setAdditivity(false);
+        logger.setLevel(Level.INFO);
+        appender.activateOptions();
+
+        for (int i = 0; i < 30; i++) {
+            logger.info(new StopWatch("mergingTest").stop());
+            Thread.sleep(10);
+        }
+        appender.close();
+
+        //the incomplete merged time slice is flushed when the appender is closed
+        assertTrue(mergedStatistics.list.size() >= 1 && mergedStatistics.list.size() <= 2);
+        assertTrue(fineStatistics.list.size() > mergedStatistics.list.size());
+        assertEquals(30, countStopWatches(fineStatistics.list));
+        assertEquals(30, countStopWatches(mergedStatistics.list));
+    }
+
+    private int countStopWatches(List<LoggingEvent> events) {
+        int retVal = 0;
+        for (LoggingEvent event : events) {
+            TimingStatistics stats =
+                    ((GroupedTimingStatistics) event.getMessage()).getStatisticsByTag().get("mergingTest");
+            retVal += (stats == null) ? 0 : stats.getCount();
+        }
+        return retVal;
+    }
+
     public void testCsvRenderer() throws Exception {
         DOMConfigurator.configure(getClass().getResource("log4jWCsv.xml"));
 
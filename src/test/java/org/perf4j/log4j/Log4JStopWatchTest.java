@@ -110,6 +110,22 @@ public class Log4JStopWatchTest extends LoggingStopWatchTest {
         assertTrue(stopWatch.isLogging());
         Logger.getLogger("org.perf4j.AnotherTestLogger").setLevel(Level.WARN);
         assertFalse(stopWatch.isLogging());
+
+        //the StopWatch string is not rendered by stopWithoutString, the logged message is a snapshot of the StopWatch
+        ListAppender listAppender = new ListAppender();
+        Logger.getLogger("org.perf4j.AnotherTestLogger").addAppender(listAppender);
+        try {
+            stopWatch.start("deferred", "rendering");
+            assertTrue(stopWatch.stopWithoutString(new Exception("deferred")));
+            assertEquals(1, listAppender.list.size());
+            Object message = listAppender.list.get(0).getMessage();
+            assertTrue(message instanceof StopWatch);
+            stopWatch.setTag("changed");
+            assertEquals("deferred", ((StopWatch) message).getTag());
+            assertTrue(listAppender.list.get(0).getRenderedMessage().endsWith("tag[deferred] message[rendering]"));
+        } finally {
+            Logger.getLogger("org.perf4j.AnotherTestLogger").removeAppender(listAppender);
+        }
     }
 
     protected void checkProperties(LoggingStopWatch stopWatch,
@@ -17,11 +17,13 @@ package org.perf4j.slf4j;
 
 import org.perf4j.LoggingStopWatch;
 import org.perf4j.LoggingStopWatchTest;
+import org.perf4j.StopWatch;
 import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.PatternLayout;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.read.ListAppender;
 
 /**
  * Tests the Slf4JStopWatch. See the superclass for the test method that is run.
@@ -137,6 +139,35 @@ public class Slf4JStopWatchTest extends LoggingStopWatchTest {
         //check closest known level stuff
         stopWatch.setNormalPriority(Slf4JStopWatch.ERROR_LEVEL - 10);
         assertTrue(stopWatch.isLogging());
+
+        //by default the StopWatch string is the message of the logging event, and is returned by stop
+        LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger logger = lc.getLogger("org.perf4j.AnotherTestLogger");
+        ListAppender<LoggingEvent> listAppender = new ListAppender<LoggingEvent>();
+        listAppender.setContext(lc);
+        listAppender.start();
+        logger.addAppender(listAppender);
+        try {
+            stopWatch.start("eager", "rendering");
+            String stopWatchAsString = stopWatch.stop();
+            assertTrue(stopWatchAsString.endsWith("tag[eager] message[rendering]"));
+            assertEquals(1, listAppender.list.size());
+            assertEquals(stopWatchAsString, listAppender.list.get(0).getMessage());
+            assertNull(listAppender.list.get(0).getArgumentArray());
+            listAppender.list.clear();
+
+            //with deferred rendering the StopWatch is the argument of a parameterized message
+            stopWatch.setDeferredRendering(true);
+            stopWatch.start("deferred", "rendering");
+            assertTrue(stopWatch.stopWithoutString());
+            assertEquals(1, listAppender.list.size());
+            LoggingEvent event = listAppender.list.get(0);
+            assertEquals(Slf4JStopWatch.STOP_WATCH_MESSAGE_FORMAT, event.getMessage());
+            assertTrue(event.getArgumentArray()[0] instanceof StopWatch);
+            assertTrue(event.getFormattedMessage().endsWith("tag[deferred] message[rendering]"));
+        } finally {
+            logger.detachAppender(listAppender);
+        }
     }
 
     protected void checkProperties(LoggingStopWatch stopWatch,